@@ -51,3 +51,1159 @@ FROM Stock ST
 -- This is critical for the checkout process.
 ALTER TABLE Sale ADD COLUMN product_id INT NOT NULL AFTER employee_id;
 ALTER TABLE Sale ADD CONSTRAINT fk_sale_product FOREIGN KEY (product_id) REFERENCES Product (product_id);
+
+-- 5. Indexes for keyset pagination
+-- DAOShape.queryPage seeks with (sort columns) > (cursor) ORDER BY sort columns LIMIT n,
+-- these indexes let every page start straight at the cursor instead of scanning the table.
+CREATE INDEX idx_product_name ON Product (name, product_id);
+CREATE INDEX idx_product_created_at ON Product (created_at, product_id);
+CREATE INDEX idx_store_name ON Store (name, store_id);
+CREATE INDEX idx_employee_name ON Employee (name, last_name, employee_id);
+
+-- 6. Index for per-store sale reports
+-- SaleDAO.streamAllByStoreBetween walks the sales of one store in a period.
+CREATE INDEX idx_sale_store_created_at ON Sale (store_id, created_at);
+
+-- 7. Catalog version for the terminal product catalog
+-- Terminals poll MAX(updated_at) and reload only the products updated since their last refresh.
+ALTER TABLE Product ADD COLUMN updated_at DATETIME(6) NOT NULL DEFAULT NOW(6) ON UPDATE NOW(6) AFTER created_at;
+CREATE INDEX idx_product_updated_at ON Product (updated_at);
+
+-- 8. Stock reservations
+-- The sale page holds the stock of the products in its cart until checkout, available to sell is quantity
+-- minus the unexpired holds. Expired holds are ignored and purged periodically.
+CREATE TABLE StockReservation
+(
+    cart_id    CHAR(36)    NOT NULL,
+    product_id INT         NOT NULL,
+    store_id   INT         NOT NULL,
+    quantity   INT         NOT NULL CHECK (quantity >= 0),
+    expires_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL DEFAULT NOW(6),
+    PRIMARY KEY (cart_id, product_id),
+    INDEX idx_stock_reservation_stock (product_id, store_id, expires_at),
+    INDEX idx_stock_reservation_expires_at (expires_at),
+    FOREIGN KEY (product_id, store_id) REFERENCES Stock (product_id, store_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+-- 9. Single round trip checkout
+-- InvoiceDAO sends the whole cart to CreateInvoice instead of inserting the invoice, the sales and the stock
+-- decrements in separate round trips. The cart is a JSON array with one entry per product.
+DROP PROCEDURE IF EXISTS CreateInvoice;
+DELIMITER //
+CREATE PROCEDURE CreateInvoice(
+    IN p_store_id INT,
+    IN p_employee_id INT,
+    IN p_name_client VARCHAR(128),
+    IN p_cart JSON,
+    IN p_cart_id CHAR(36),
+    OUT p_invoice_id INT
+)
+BEGIN
+    DECLARE v_item_count INT;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+        BEGIN
+            ROLLBACK;
+            RESIGNAL;
+        END;
+
+    START TRANSACTION;
+
+    INSERT INTO Invoice (store_id, name_client) VALUES (p_store_id, p_name_client);
+    SET p_invoice_id = LAST_INSERT_ID();
+
+    INSERT INTO Sale (invoice_id, store_id, employee_id, product_id, amount, price)
+    SELECT p_invoice_id, p_store_id, p_employee_id, C.product_id, C.amount, C.price
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+        product_id INT PATH '$.p',
+        amount INT PATH '$.q',
+        price DECIMAL(10, 2) PATH '$.u'
+        )) AS C;
+    SET v_item_count = ROW_COUNT();
+
+    UPDATE Stock S
+        JOIN JSON_TABLE(p_cart, '$[*]' COLUMNS (
+            product_id INT PATH '$.p',
+            amount INT PATH '$.q'
+            )) AS C ON C.product_id = S.product_id
+    SET S.quantity = S.quantity - C.amount
+    WHERE S.store_id = p_store_id
+      AND S.quantity >= C.amount;
+
+    IF ROW_COUNT() <> v_item_count THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+    END IF;
+
+    IF p_cart_id IS NOT NULL THEN
+        DELETE FROM StockReservation WHERE cart_id = p_cart_id;
+    END IF;
+
+    COMMIT;
+END //
+DELIMITER ;
+
+-- 10. Per-line stock shortfall at checkout
+-- CreateInvoice locks and checks the stock of the cart before writing anything. When some lines cannot be covered
+-- it rolls back and lists them in the new p_shortfall parameter instead of failing the whole sale with an error.
+DROP PROCEDURE IF EXISTS CreateInvoice;
+DELIMITER //
+CREATE PROCEDURE CreateInvoice(
+    IN p_store_id INT,
+    IN p_employee_id INT,
+    IN p_name_client VARCHAR(128),
+    IN p_cart JSON,
+    IN p_cart_id CHAR(36),
+    OUT p_invoice_id INT,
+    OUT p_shortfall JSON
+)
+BEGIN
+    DECLARE v_item_count INT;
+    DECLARE v_locked_count INT;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+        BEGIN
+            ROLLBACK;
+            RESIGNAL;
+        END;
+
+    SET p_invoice_id = NULL;
+    SET p_shortfall = NULL;
+
+    START TRANSACTION;
+
+    -- Lock the stock of the cart before checking it, so nothing is written when a line cannot be covered.
+    SELECT COUNT(*)
+    INTO v_locked_count
+    FROM Stock S
+             JOIN JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+                  ON J.product_id = S.product_id
+    WHERE S.store_id = p_store_id
+    FOR UPDATE;
+
+    -- Available to sell is the stock minus the unexpired holds of other carts.
+    SELECT JSON_ARRAYAGG(JSON_OBJECT('p', L.product_id, 'q', L.amount, 'a', GREATEST(L.available, 0)))
+    INTO p_shortfall
+    FROM (SELECT J.product_id,
+                 J.amount,
+                 COALESCE(S.quantity, 0) - COALESCE((SELECT SUM(R.quantity)
+                                                     FROM StockReservation R
+                                                     WHERE R.product_id = J.product_id
+                                                       AND R.store_id = p_store_id
+                                                       AND R.expires_at > NOW(6)
+                                                       AND NOT (R.cart_id <=> p_cart_id)), 0) AS available
+          FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+              product_id INT PATH '$.p',
+              amount INT PATH '$.q'
+              )) AS J
+                   LEFT JOIN Stock S ON S.product_id = J.product_id AND S.store_id = p_store_id) AS L
+    WHERE L.available < L.amount;
+
+    IF p_shortfall IS NOT NULL THEN
+        ROLLBACK;
+    ELSE
+        INSERT INTO Invoice (store_id, name_client) VALUES (p_store_id, p_name_client);
+        SET p_invoice_id = LAST_INSERT_ID();
+
+        INSERT INTO Sale (invoice_id, store_id, employee_id, product_id, amount, price)
+        SELECT p_invoice_id, p_store_id, p_employee_id, C.product_id, C.amount, C.price
+        FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+            product_id INT PATH '$.p',
+            amount INT PATH '$.q',
+            price DECIMAL(10, 2) PATH '$.u'
+            )) AS C;
+        SET v_item_count = ROW_COUNT();
+
+        UPDATE Stock S
+            JOIN JSON_TABLE(p_cart, '$[*]' COLUMNS (
+                product_id INT PATH '$.p',
+                amount INT PATH '$.q'
+                )) AS C ON C.product_id = S.product_id
+        SET S.quantity = S.quantity - C.amount
+        WHERE S.store_id = p_store_id
+          AND S.quantity >= C.amount;
+
+        -- NOTE: Cannot happen while the stock is locked, kept as the last line of defense.
+        IF ROW_COUNT() <> v_item_count THEN
+            SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+        END IF;
+
+        IF p_cart_id IS NOT NULL THEN
+            DELETE FROM StockReservation WHERE cart_id = p_cart_id;
+        END IF;
+
+        COMMIT;
+    END IF;
+END //
+DELIMITER ;
+
+-- 11. Deterministic lock order at checkout
+-- CreateInvoice locks the Stock rows of the cart in ascending product_id order, so concurrent checkouts of carts
+-- sharing products wait for each other instead of deadlocking.
+DROP PROCEDURE IF EXISTS CreateInvoice;
+DELIMITER //
+CREATE PROCEDURE CreateInvoice(
+    IN p_store_id INT,
+    IN p_employee_id INT,
+    IN p_name_client VARCHAR(128),
+    IN p_cart JSON,
+    IN p_cart_id CHAR(36),
+    OUT p_invoice_id INT,
+    OUT p_shortfall JSON
+)
+BEGIN
+    DECLARE v_item_count INT;
+    DECLARE v_locked_count INT;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+        BEGIN
+            ROLLBACK;
+            RESIGNAL;
+        END;
+
+    SET p_invoice_id = NULL;
+    SET p_shortfall = NULL;
+
+    START TRANSACTION;
+
+    -- Lock the stock of the cart before checking it, so nothing is written when a line cannot be covered.
+    -- The cart is sorted by product_id and STRAIGHT_JOIN reads it in that order, so every checkout locks the
+    -- Stock rows in ascending product_id order and two carts sharing products cannot deadlock on them.
+    SELECT COUNT(*)
+    INTO v_locked_count
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+             STRAIGHT_JOIN Stock S
+                           ON S.product_id = J.product_id AND S.store_id = p_store_id
+    FOR UPDATE OF S;
+
+    -- Available to sell is the stock minus the unexpired holds of other carts.
+    SELECT JSON_ARRAYAGG(JSON_OBJECT('p', L.product_id, 'q', L.amount, 'a', GREATEST(L.available, 0)))
+    INTO p_shortfall
+    FROM (SELECT J.product_id,
+                 J.amount,
+                 COALESCE(S.quantity, 0) - COALESCE((SELECT SUM(R.quantity)
+                                                     FROM StockReservation R
+                                                     WHERE R.product_id = J.product_id
+                                                       AND R.store_id = p_store_id
+                                                       AND R.expires_at > NOW(6)
+                                                       AND NOT (R.cart_id <=> p_cart_id)), 0) AS available
+          FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+              product_id INT PATH '$.p',
+              amount INT PATH '$.q'
+              )) AS J
+                   LEFT JOIN Stock S ON S.product_id = J.product_id AND S.store_id = p_store_id) AS L
+    WHERE L.available < L.amount;
+
+    IF p_shortfall IS NOT NULL THEN
+        ROLLBACK;
+    ELSE
+        INSERT INTO Invoice (store_id, name_client) VALUES (p_store_id, p_name_client);
+        SET p_invoice_id = LAST_INSERT_ID();
+
+        INSERT INTO Sale (invoice_id, store_id, employee_id, product_id, amount, price)
+        SELECT p_invoice_id, p_store_id, p_employee_id, C.product_id, C.amount, C.price
+        FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+            product_id INT PATH '$.p',
+            amount INT PATH '$.q',
+            price DECIMAL(10, 2) PATH '$.u'
+            )) AS C;
+        SET v_item_count = ROW_COUNT();
+
+        UPDATE Stock S
+            JOIN JSON_TABLE(p_cart, '$[*]' COLUMNS (
+                product_id INT PATH '$.p',
+                amount INT PATH '$.q'
+                )) AS C ON C.product_id = S.product_id
+        SET S.quantity = S.quantity - C.amount
+        WHERE S.store_id = p_store_id
+          AND S.quantity >= C.amount;
+
+        -- NOTE: Cannot happen while the stock is locked, kept as the last line of defense.
+        IF ROW_COUNT() <> v_item_count THEN
+            SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+        END IF;
+
+        IF p_cart_id IS NOT NULL THEN
+            DELETE FROM StockReservation WHERE cart_id = p_cart_id;
+        END IF;
+
+        COMMIT;
+    END IF;
+END //
+DELIMITER ;
+
+-- 12. Sharded stock of hot products
+-- The stock of a hot product can be split into StockShard rows that checkouts take from one at a time, so every
+-- register selling it no longer waits on its single Stock row. Products are made hot with StockShardDAO.
+CREATE TABLE StockShard
+(
+    product_id INT NOT NULL,
+    store_id   INT NOT NULL,
+    shard      INT NOT NULL,
+    quantity   INT NOT NULL DEFAULT 0 CHECK (quantity >= 0),
+    PRIMARY KEY (product_id, store_id, shard),
+    FOREIGN KEY (product_id, store_id) REFERENCES Stock (product_id, store_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+DROP VIEW IF EXISTS CompleteStockView;
+CREATE VIEW CompleteStockView AS
+SELECT ST.product_id,
+       ST.store_id,
+       ST.quantity + COALESCE((SELECT SUM(H.quantity)
+                               FROM StockShard H
+                               WHERE H.product_id = ST.product_id
+                                 AND H.store_id = ST.store_id), 0) AS quantity,
+       P.name  AS product_name,
+       S.name  AS store_name,
+       P.price AS price,
+       ST.created_at
+FROM Stock ST
+         JOIN Store S ON S.store_id = ST.store_id
+         JOIN Product P on ST.product_id = P.product_id;
+
+DROP VIEW IF EXISTS CompleteProductView;
+CREATE VIEW CompleteProductView AS
+SELECT P.product_id,
+       P.name,
+       P.description,
+       P.brand,
+       P.price,
+       COALESCE(((SELECT SUM(quantity) FROM Stock S WHERE S.product_id = P.product_id)), 0) +
+       COALESCE(((SELECT SUM(quantity) FROM StockShard H WHERE H.product_id = P.product_id)), 0) as stock,
+       P.created_at
+FROM Product P;
+
+DROP PROCEDURE IF EXISTS TakeShardedStock;
+DELIMITER //
+CREATE PROCEDURE TakeShardedStock(
+    IN p_product_id INT,
+    IN p_store_id INT,
+    IN p_amount INT
+)
+BEGIN
+    DECLARE v_shard_count INT;
+    DECLARE v_shard INT;
+    DECLARE v_shard_quantity INT;
+    DECLARE v_taken INT;
+    DECLARE v_remaining INT DEFAULT p_amount;
+
+    SELECT COUNT(*)
+    INTO v_shard_count
+    FROM StockShard
+    WHERE product_id = p_product_id
+      AND store_id = p_store_id;
+
+    SET v_shard = FLOOR(RAND() * v_shard_count);
+
+    UPDATE StockShard
+    SET quantity = quantity - p_amount
+    WHERE product_id = p_product_id
+      AND store_id = p_store_id
+      AND shard = v_shard
+      AND quantity >= p_amount;
+
+    IF ROW_COUNT() = 0 THEN
+        SET v_shard = 0;
+        WHILE v_remaining > 0 AND v_shard < v_shard_count DO
+            SELECT quantity
+            INTO v_shard_quantity
+            FROM StockShard
+            WHERE product_id = p_product_id
+              AND store_id = p_store_id
+              AND shard = v_shard
+            FOR UPDATE;
+
+            SET v_taken = LEAST(v_shard_quantity, v_remaining);
+            UPDATE StockShard
+            SET quantity = quantity - v_taken
+            WHERE product_id = p_product_id
+              AND store_id = p_store_id
+              AND shard = v_shard;
+
+            SET v_remaining = v_remaining - v_taken;
+            SET v_shard = v_shard + 1;
+        END WHILE;
+
+        IF v_remaining > 0 THEN
+            UPDATE Stock
+            SET quantity = quantity - v_remaining
+            WHERE product_id = p_product_id
+              AND store_id = p_store_id
+              AND quantity >= v_remaining;
+
+            IF ROW_COUNT() = 0 THEN
+                SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+            END IF;
+        END IF;
+    END IF;
+END //
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS CreateInvoice;
+DELIMITER //
+CREATE PROCEDURE CreateInvoice(
+    IN p_store_id INT,
+    IN p_employee_id INT,
+    IN p_name_client VARCHAR(128),
+    IN p_cart JSON,
+    IN p_cart_id CHAR(36),
+    OUT p_invoice_id INT,
+    OUT p_shortfall JSON
+)
+BEGIN
+    DECLARE v_item_count INT;
+    DECLARE v_locked_count INT;
+    DECLARE v_sharded_ids JSON;
+    DECLARE v_product_id INT;
+    DECLARE v_index INT DEFAULT 0;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+        BEGIN
+            ROLLBACK;
+            RESIGNAL;
+        END;
+
+    SET p_invoice_id = NULL;
+    SET p_shortfall = NULL;
+
+    -- Read before the transaction starts, so the checks below read the stock as of the moment it is locked.
+    SELECT COALESCE(JSON_ARRAYAGG(J.product_id), JSON_ARRAY())
+    INTO v_sharded_ids
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+    WHERE EXISTS (SELECT 1 FROM StockShard H WHERE H.product_id = J.product_id AND H.store_id = p_store_id);
+
+    START TRANSACTION;
+
+    -- Lock the stock of the cart before checking it, so nothing is written when a line cannot be covered.
+    -- The cart is sorted by product_id and STRAIGHT_JOIN reads it in that order, so every checkout locks the
+    -- Stock rows in ascending product_id order and two carts sharing products cannot deadlock on them.
+    SELECT COUNT(*)
+    INTO v_locked_count
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+             STRAIGHT_JOIN Stock S
+                           ON S.product_id = J.product_id AND S.store_id = p_store_id
+    WHERE NOT (J.product_id MEMBER OF (v_sharded_ids))
+    FOR UPDATE OF S;
+
+    -- Available to sell is the stock minus the unexpired holds of other carts.
+    SELECT JSON_ARRAYAGG(JSON_OBJECT('p', L.product_id, 'q', L.amount, 'a', GREATEST(L.available, 0)))
+    INTO p_shortfall
+    FROM (SELECT J.product_id,
+                 J.amount,
+                 COALESCE(S.quantity, 0) + COALESCE((SELECT SUM(H.quantity)
+                                                     FROM StockShard H
+                                                     WHERE H.product_id = J.product_id
+                                                       AND H.store_id = p_store_id), 0)
+                     - COALESCE((SELECT SUM(R.quantity)
+                                 FROM StockReservation R
+                                 WHERE R.product_id = J.product_id
+                                   AND R.store_id = p_store_id
+                                   AND R.expires_at > NOW(6)
+                                   AND NOT (R.cart_id <=> p_cart_id)), 0) AS available
+          FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+              product_id INT PATH '$.p',
+              amount INT PATH '$.q'
+              )) AS J
+                   LEFT JOIN Stock S ON S.product_id = J.product_id AND S.store_id = p_store_id) AS L
+    WHERE L.available < L.amount;
+
+    IF p_shortfall IS NOT NULL THEN
+        ROLLBACK;
+    ELSE
+        INSERT INTO Invoice (store_id, name_client) VALUES (p_store_id, p_name_client);
+        SET p_invoice_id = LAST_INSERT_ID();
+
+        INSERT INTO Sale (invoice_id, store_id, employee_id, product_id, amount, price)
+        SELECT p_invoice_id, p_store_id, p_employee_id, C.product_id, C.amount, C.price
+        FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+            product_id INT PATH '$.p',
+            amount INT PATH '$.q',
+            price DECIMAL(10, 2) PATH '$.u'
+            )) AS C;
+        SET v_item_count = ROW_COUNT();
+
+        UPDATE Stock S
+            JOIN JSON_TABLE(p_cart, '$[*]' COLUMNS (
+                product_id INT PATH '$.p',
+                amount INT PATH '$.q'
+                )) AS C ON C.product_id = S.product_id
+        SET S.quantity = S.quantity - C.amount
+        WHERE S.store_id = p_store_id
+          AND NOT (C.product_id MEMBER OF (v_sharded_ids))
+          AND S.quantity >= C.amount;
+
+        -- NOTE: Cannot happen while the stock is locked, kept as the last line of defense.
+        IF ROW_COUNT() <> v_item_count - JSON_LENGTH(v_sharded_ids) THEN
+            SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+        END IF;
+
+        -- The stock of products with shards was not locked, TakeShardedStock fails when it is no longer there.
+        WHILE v_index < JSON_LENGTH(p_cart) DO
+            SET v_product_id = JSON_EXTRACT(p_cart, CONCAT('$[', v_index, '].p'));
+            IF v_product_id MEMBER OF (v_sharded_ids) THEN
+                CALL TakeShardedStock(v_product_id, p_store_id, JSON_EXTRACT(p_cart, CONCAT('$[', v_index, '].q')));
+            END IF;
+            SET v_index = v_index + 1;
+        END WHILE;
+
+        IF p_cart_id IS NOT NULL THEN
+            DELETE FROM StockReservation WHERE cart_id = p_cart_id;
+        END IF;
+
+        COMMIT;
+    END IF;
+END //
+DELIMITER ;
+
+-- 13. Idempotent checkout
+-- Every invoice carries the key the terminal generated for the sale, CreateInvoice returns the existing invoice when
+-- it is called again with the key of a sale that was already saved.
+ALTER TABLE Invoice
+    ADD COLUMN invoice_key CHAR(36) NULL AFTER name_client,
+    ADD UNIQUE INDEX idx_invoice_key (invoice_key);
+
+DROP PROCEDURE IF EXISTS CreateInvoice;
+DELIMITER //
+CREATE PROCEDURE CreateInvoice(
+    IN p_store_id INT,
+    IN p_employee_id INT,
+    IN p_name_client VARCHAR(128),
+    IN p_cart JSON,
+    IN p_cart_id CHAR(36),
+    IN p_invoice_key CHAR(36),
+    OUT p_invoice_id INT,
+    OUT p_shortfall JSON
+)
+create_invoice:
+BEGIN
+    DECLARE v_item_count INT;
+    DECLARE v_locked_count INT;
+    DECLARE v_sharded_ids JSON;
+    DECLARE v_product_id INT;
+    DECLARE v_index INT DEFAULT 0;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+        BEGIN
+            ROLLBACK;
+            RESIGNAL;
+        END;
+    -- NOTE: Cannot happen after the key was checked, kept as the last line of defense.
+    DECLARE EXIT HANDLER FOR 1062
+        BEGIN
+            ROLLBACK;
+            SET p_shortfall = NULL;
+            SELECT invoice_id INTO p_invoice_id FROM Invoice WHERE invoice_key = p_invoice_key;
+        END;
+
+    SET p_invoice_id = NULL;
+    SET p_shortfall = NULL;
+
+    -- Read before the transaction starts, so the checks below read the stock as of the moment it is locked.
+    SELECT COALESCE(JSON_ARRAYAGG(J.product_id), JSON_ARRAY())
+    INTO v_sharded_ids
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+    WHERE EXISTS (SELECT 1 FROM StockShard H WHERE H.product_id = J.product_id AND H.store_id = p_store_id);
+
+    START TRANSACTION;
+
+    -- Lock the stock of the cart before checking it, so nothing is written when a line cannot be covered.
+    -- The cart is sorted by product_id and STRAIGHT_JOIN reads it in that order, so every checkout locks the
+    -- Stock rows in ascending product_id order and two carts sharing products cannot deadlock on them.
+    SELECT COUNT(*)
+    INTO v_locked_count
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+             STRAIGHT_JOIN Stock S
+                           ON S.product_id = J.product_id AND S.store_id = p_store_id
+    WHERE NOT (J.product_id MEMBER OF (v_sharded_ids))
+    FOR UPDATE OF S;
+
+    -- A locking read waits for a call with the same key that is still running, so it sees whether it committed.
+    SELECT invoice_id
+    INTO p_invoice_id
+    FROM Invoice
+    WHERE invoice_key = p_invoice_key
+    FOR SHARE;
+
+    IF p_invoice_id IS NOT NULL THEN
+        COMMIT;
+        LEAVE create_invoice;
+    END IF;
+
+    -- Available to sell is the stock minus the unexpired holds of other carts.
+    SELECT JSON_ARRAYAGG(JSON_OBJECT('p', L.product_id, 'q', L.amount, 'a', GREATEST(L.available, 0)))
+    INTO p_shortfall
+    FROM (SELECT J.product_id,
+                 J.amount,
+                 COALESCE(S.quantity, 0) + COALESCE((SELECT SUM(H.quantity)
+                                                     FROM StockShard H
+                                                     WHERE H.product_id = J.product_id
+                                                       AND H.store_id = p_store_id), 0)
+                     - COALESCE((SELECT SUM(R.quantity)
+                                 FROM StockReservation R
+                                 WHERE R.product_id = J.product_id
+                                   AND R.store_id = p_store_id
+                                   AND R.expires_at > NOW(6)
+                                   AND NOT (R.cart_id <=> p_cart_id)), 0) AS available
+          FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+              product_id INT PATH '$.p',
+              amount INT PATH '$.q'
+              )) AS J
+                   LEFT JOIN Stock S ON S.product_id = J.product_id AND S.store_id = p_store_id) AS L
+    WHERE L.available < L.amount;
+
+    IF p_shortfall IS NOT NULL THEN
+        ROLLBACK;
+    ELSE
+        INSERT INTO Invoice (store_id, name_client, invoice_key) VALUES (p_store_id, p_name_client, p_invoice_key);
+        SET p_invoice_id = LAST_INSERT_ID();
+
+        INSERT INTO Sale (invoice_id, store_id, employee_id, product_id, amount, price)
+        SELECT p_invoice_id, p_store_id, p_employee_id, C.product_id, C.amount, C.price
+        FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+            product_id INT PATH '$.p',
+            amount INT PATH '$.q',
+            price DECIMAL(10, 2) PATH '$.u'
+            )) AS C;
+        SET v_item_count = ROW_COUNT();
+
+        UPDATE Stock S
+            JOIN JSON_TABLE(p_cart, '$[*]' COLUMNS (
+                product_id INT PATH '$.p',
+                amount INT PATH '$.q'
+                )) AS C ON C.product_id = S.product_id
+        SET S.quantity = S.quantity - C.amount
+        WHERE S.store_id = p_store_id
+          AND NOT (C.product_id MEMBER OF (v_sharded_ids))
+          AND S.quantity >= C.amount;
+
+        -- NOTE: Cannot happen while the stock is locked, kept as the last line of defense.
+        IF ROW_COUNT() <> v_item_count - JSON_LENGTH(v_sharded_ids) THEN
+            SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+        END IF;
+
+        -- The stock of products with shards was not locked, TakeShardedStock fails when it is no longer there.
+        WHILE v_index < JSON_LENGTH(p_cart) DO
+            SET v_product_id = JSON_EXTRACT(p_cart, CONCAT('$[', v_index, '].p'));
+            IF v_product_id MEMBER OF (v_sharded_ids) THEN
+                CALL TakeShardedStock(v_product_id, p_store_id, JSON_EXTRACT(p_cart, CONCAT('$[', v_index, '].q')));
+            END IF;
+            SET v_index = v_index + 1;
+        END WHILE;
+
+        IF p_cart_id IS NOT NULL THEN
+            DELETE FROM StockReservation WHERE cart_id = p_cart_id;
+        END IF;
+
+        COMMIT;
+    END IF;
+END create_invoice //
+DELIMITER ;
+
+-- 14. Group commit at checkout
+-- CreateInvoice is split so InvoiceDAO.createInvoiceGroup can save several sales in one transaction with SaveInvoice.
+DROP PROCEDURE IF EXISTS CreateInvoice;
+DROP PROCEDURE IF EXISTS SaveInvoice;
+-- Procedure: SaveInvoice
+-- Saves a sale in the transaction of the caller without ending it, see CreateInvoice and InvoiceDAO.createInvoiceGroup.
+-- The caller runs it in a READ COMMITTED transaction, so the checks read the stock as of the moment it is locked,
+-- and rolls the sale back if it raises an error. The cart is a JSON array with one entry per product sorted by
+-- product_id, [{"p": product_id, "q": amount, "u": unit_price}]. When some lines cannot be covered nothing is written
+-- and p_shortfall lists them as [{"p": product_id, "q": amount, "a": available}].
+-- The Stock rows of products with shards are never locked up front, their lines are taken by TakeShardedStock.
+-- p_invoice_key is generated by the terminal for every sale, calling again with the key of a sale that was already
+-- saved saves nothing and returns its invoice, so a checkout that failed with an unknown outcome can be retried.
+DELIMITER //
+CREATE PROCEDURE SaveInvoice(
+    IN p_store_id INT,
+    IN p_employee_id INT,
+    IN p_name_client VARCHAR(128),
+    IN p_cart JSON,
+    IN p_cart_id CHAR(36),
+    IN p_invoice_key CHAR(36),
+    OUT p_invoice_id INT,
+    OUT p_shortfall JSON
+)
+save_invoice:
+BEGIN
+    DECLARE v_item_count INT;
+    DECLARE v_locked_count INT;
+    DECLARE v_sharded_ids JSON;
+    DECLARE v_product_id INT;
+    DECLARE v_index INT DEFAULT 0;
+
+    SET p_invoice_id = NULL;
+    SET p_shortfall = NULL;
+
+    SELECT COALESCE(JSON_ARRAYAGG(J.product_id), JSON_ARRAY())
+    INTO v_sharded_ids
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+    WHERE EXISTS (SELECT 1 FROM StockShard H WHERE H.product_id = J.product_id AND H.store_id = p_store_id);
+
+    -- Lock the stock of the cart before checking it, so nothing is written when a line cannot be covered.
+    -- The cart is sorted by product_id and STRAIGHT_JOIN reads it in that order, so every checkout locks the
+    -- Stock rows in ascending product_id order and two carts sharing products cannot deadlock on them.
+    SELECT COUNT(*)
+    INTO v_locked_count
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+             STRAIGHT_JOIN Stock S
+                           ON S.product_id = J.product_id AND S.store_id = p_store_id
+    WHERE NOT (J.product_id MEMBER OF (v_sharded_ids))
+    FOR UPDATE OF S;
+
+    -- A locking read waits for a call with the same key that is still running, so it sees whether it committed.
+    SELECT invoice_id
+    INTO p_invoice_id
+    FROM Invoice
+    WHERE invoice_key = p_invoice_key
+    FOR SHARE;
+
+    IF p_invoice_id IS NOT NULL THEN
+        LEAVE save_invoice;
+    END IF;
+
+    -- Available to sell is the stock minus the unexpired holds of other carts.
+    SELECT JSON_ARRAYAGG(JSON_OBJECT('p', L.product_id, 'q', L.amount, 'a', GREATEST(L.available, 0)))
+    INTO p_shortfall
+    FROM (SELECT J.product_id,
+                 J.amount,
+                 COALESCE(S.quantity, 0) + COALESCE((SELECT SUM(H.quantity)
+                                                     FROM StockShard H
+                                                     WHERE H.product_id = J.product_id
+                                                       AND H.store_id = p_store_id), 0)
+                     - COALESCE((SELECT SUM(R.quantity)
+                                 FROM StockReservation R
+                                 WHERE R.product_id = J.product_id
+                                   AND R.store_id = p_store_id
+                                   AND R.expires_at > NOW(6)
+                                   AND NOT (R.cart_id <=> p_cart_id)), 0) AS available
+          FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+              product_id INT PATH '$.p',
+              amount INT PATH '$.q'
+              )) AS J
+                   LEFT JOIN Stock S ON S.product_id = J.product_id AND S.store_id = p_store_id) AS L
+    WHERE L.available < L.amount;
+
+    IF p_shortfall IS NOT NULL THEN
+        LEAVE save_invoice;
+    END IF;
+
+    INSERT INTO Invoice (store_id, name_client, invoice_key) VALUES (p_store_id, p_name_client, p_invoice_key);
+    SET p_invoice_id = LAST_INSERT_ID();
+
+    INSERT INTO Sale (invoice_id, store_id, employee_id, product_id, amount, price)
+    SELECT p_invoice_id, p_store_id, p_employee_id, C.product_id, C.amount, C.price
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+        product_id INT PATH '$.p',
+        amount INT PATH '$.q',
+        price DECIMAL(10, 2) PATH '$.u'
+        )) AS C;
+    SET v_item_count = ROW_COUNT();
+
+    UPDATE Stock S
+        JOIN JSON_TABLE(p_cart, '$[*]' COLUMNS (
+            product_id INT PATH '$.p',
+            amount INT PATH '$.q'
+            )) AS C ON C.product_id = S.product_id
+    SET S.quantity = S.quantity - C.amount
+    WHERE S.store_id = p_store_id
+      AND NOT (C.product_id MEMBER OF (v_sharded_ids))
+      AND S.quantity >= C.amount;
+
+    -- NOTE: Cannot happen while the stock is locked, kept as the last line of defense.
+    IF ROW_COUNT() <> v_item_count - JSON_LENGTH(v_sharded_ids) THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+    END IF;
+
+    -- The stock of products with shards was not locked, TakeShardedStock fails when it is no longer there.
+    WHILE v_index < JSON_LENGTH(p_cart) DO
+        SET v_product_id = JSON_EXTRACT(p_cart, CONCAT('$[', v_index, '].p'));
+        IF v_product_id MEMBER OF (v_sharded_ids) THEN
+            CALL TakeShardedStock(v_product_id, p_store_id, JSON_EXTRACT(p_cart, CONCAT('$[', v_index, '].q')));
+        END IF;
+        SET v_index = v_index + 1;
+    END WHILE;
+
+    IF p_cart_id IS NOT NULL THEN
+        DELETE FROM StockReservation WHERE cart_id = p_cart_id;
+    END IF;
+END save_invoice //
+DELIMITER ;
+
+-- Procedure: CreateInvoice
+-- Checkout in a single round trip (InvoiceDAO.createInvoice), saves a sale with SaveInvoice in its own transaction.
+DELIMITER //
+CREATE PROCEDURE CreateInvoice(
+    IN p_store_id INT,
+    IN p_employee_id INT,
+    IN p_name_client VARCHAR(128),
+    IN p_cart JSON,
+    IN p_cart_id CHAR(36),
+    IN p_invoice_key CHAR(36),
+    OUT p_invoice_id INT,
+    OUT p_shortfall JSON
+)
+BEGIN
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+        BEGIN
+            ROLLBACK;
+            RESIGNAL;
+        END;
+    -- NOTE: Cannot happen after SaveInvoice checked the key, kept as the last line of defense.
+    DECLARE EXIT HANDLER FOR 1062
+        BEGIN
+            ROLLBACK;
+            SET p_shortfall = NULL;
+            SELECT invoice_id INTO p_invoice_id FROM Invoice WHERE invoice_key = p_invoice_key;
+        END;
+
+    SET TRANSACTION ISOLATION LEVEL READ COMMITTED;
+    START TRANSACTION;
+
+    CALL SaveInvoice(
+        p_store_id, p_employee_id, p_name_client, p_cart, p_cart_id, p_invoice_key, p_invoice_id, p_shortfall
+    );
+
+    IF p_shortfall IS NOT NULL THEN
+        ROLLBACK;
+    ELSE
+        COMMIT;
+    END IF;
+END //
+DELIMITER ;
+
+-- 15. Prices read as cents
+-- The DAOs keep money as a long number of cents (see Money), the views hand the prices over already converted.
+DROP VIEW IF EXISTS CompleteStockView;
+CREATE VIEW CompleteStockView AS
+SELECT ST.product_id,
+       ST.store_id,
+       ST.quantity + COALESCE((SELECT SUM(H.quantity)
+                               FROM StockShard H
+                               WHERE H.product_id = ST.product_id
+                                 AND H.store_id = ST.store_id), 0) AS quantity,
+       P.name  AS product_name,
+       S.name  AS store_name,
+       CAST(P.price * 100 AS SIGNED) AS price_cents,
+       ST.created_at
+FROM Stock ST
+         JOIN Store S ON S.store_id = ST.store_id
+         JOIN Product P on ST.product_id = P.product_id;
+
+DROP VIEW IF EXISTS CompleteProductView;
+CREATE VIEW CompleteProductView AS
+SELECT P.product_id,
+       P.name,
+       P.description,
+       P.brand,
+       CAST(P.price * 100 AS SIGNED) AS price_cents,
+       COALESCE(((SELECT SUM(quantity) FROM Stock S WHERE S.product_id = P.product_id)), 0) +
+       COALESCE(((SELECT SUM(quantity) FROM StockShard H WHERE H.product_id = P.product_id)), 0) as stock,
+       P.created_at
+FROM Product P;
+
+-- 16. Product barcodes
+-- Barcodes and SKUs of the products, in upper case, a product may have several (ProductDAO, ProductCatalog)
+CREATE TABLE ProductBarcode
+(
+    barcode    VARCHAR(64) NOT NULL PRIMARY KEY,
+    product_id INT         NOT NULL,
+    created_at DATETIME(6) NOT NULL DEFAULT NOW(6),
+    INDEX idx_product_barcode_product (product_id),
+    FOREIGN KEY (product_id) REFERENCES Product (product_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+DROP VIEW IF EXISTS CompleteProductView;
+CREATE VIEW CompleteProductView AS
+SELECT P.product_id,
+       P.name,
+       P.description,
+       P.brand,
+       CAST(P.price * 100 AS SIGNED) AS price_cents,
+       (SELECT GROUP_CONCAT(B.barcode ORDER BY B.barcode SEPARATOR ' ')
+        FROM ProductBarcode B
+        WHERE B.product_id = P.product_id) AS barcodes,
+       COALESCE(((SELECT SUM(quantity) FROM Stock S WHERE S.product_id = P.product_id)), 0) +
+       COALESCE(((SELECT SUM(quantity) FROM StockShard H WHERE H.product_id = P.product_id)), 0) as stock,
+       P.created_at
+FROM Product P;
+
+-- 17. Stock of one store
+-- StockDAO.getPageByStore seeks on (store_id, product_id) and streamAllByStore reads one store ordered by product,
+-- without this index both scan the whole Stock table.
+CREATE INDEX idx_stock_store ON Stock (store_id, product_id);
+
+-- 18. Holds of hot products off the Stock row
+-- Holds are placed one at a time under a StockReservationLock row per product, the holds of a hot product no longer
+-- lock the Stock row its shards keep checkouts off. Checkouts of hot products share that row instead, and
+-- TakeShardedStock checks that the stock left still covers the holds of other carts.
+CREATE TABLE StockReservationLock
+(
+    product_id INT NOT NULL,
+    store_id   INT NOT NULL,
+    PRIMARY KEY (product_id, store_id),
+    FOREIGN KEY (product_id, store_id) REFERENCES Stock (product_id, store_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+INSERT IGNORE INTO StockReservationLock (product_id, store_id)
+SELECT DISTINCT product_id, store_id
+FROM StockShard;
+
+DROP PROCEDURE IF EXISTS TakeShardedStock;
+DELIMITER //
+CREATE PROCEDURE TakeShardedStock(
+    IN p_product_id INT,
+    IN p_store_id INT,
+    IN p_amount INT,
+    IN p_cart_id CHAR(36)
+)
+BEGIN
+    DECLARE v_shard_count INT;
+    DECLARE v_shard INT;
+    DECLARE v_shard_quantity INT;
+    DECLARE v_taken INT;
+    DECLARE v_remaining INT DEFAULT p_amount;
+    DECLARE v_available INT;
+
+    SELECT COUNT(*)
+    INTO v_shard_count
+    FROM StockShard
+    WHERE product_id = p_product_id
+      AND store_id = p_store_id;
+
+    SET v_shard = FLOOR(RAND() * v_shard_count);
+
+    UPDATE StockShard
+    SET quantity = quantity - p_amount
+    WHERE product_id = p_product_id
+      AND store_id = p_store_id
+      AND shard = v_shard
+      AND quantity >= p_amount;
+
+    IF ROW_COUNT() = 0 THEN
+        SET v_shard = 0;
+        WHILE v_remaining > 0 AND v_shard < v_shard_count DO
+            SELECT quantity
+            INTO v_shard_quantity
+            FROM StockShard
+            WHERE product_id = p_product_id
+              AND store_id = p_store_id
+              AND shard = v_shard
+            FOR UPDATE;
+
+            SET v_taken = LEAST(v_shard_quantity, v_remaining);
+            UPDATE StockShard
+            SET quantity = quantity - v_taken
+            WHERE product_id = p_product_id
+              AND store_id = p_store_id
+              AND shard = v_shard;
+
+            SET v_remaining = v_remaining - v_taken;
+            SET v_shard = v_shard + 1;
+        END WHILE;
+
+        IF v_remaining > 0 THEN
+            UPDATE Stock
+            SET quantity = quantity - v_remaining
+            WHERE product_id = p_product_id
+              AND store_id = p_store_id
+              AND quantity >= v_remaining;
+
+            IF ROW_COUNT() = 0 THEN
+                SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+            END IF;
+        END IF;
+    END IF;
+
+    SELECT S.quantity + COALESCE((SELECT SUM(H.quantity)
+                                  FROM StockShard H
+                                  WHERE H.product_id = p_product_id
+                                    AND H.store_id = p_store_id), 0)
+               - COALESCE((SELECT SUM(R.quantity)
+                           FROM StockReservation R
+                           WHERE R.product_id = p_product_id
+                             AND R.store_id = p_store_id
+                             AND R.expires_at > NOW(6)
+                             AND NOT (R.cart_id <=> p_cart_id)), 0)
+    INTO v_available
+    FROM Stock S
+    WHERE S.product_id = p_product_id
+      AND S.store_id = p_store_id;
+
+    IF v_available < 0 THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+    END IF;
+END //
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS SaveInvoice;
+DELIMITER //
+CREATE PROCEDURE SaveInvoice(
+    IN p_store_id INT,
+    IN p_employee_id INT,
+    IN p_name_client VARCHAR(128),
+    IN p_cart JSON,
+    IN p_cart_id CHAR(36),
+    IN p_invoice_key CHAR(36),
+    OUT p_invoice_id INT,
+    OUT p_shortfall JSON
+)
+save_invoice:
+BEGIN
+    DECLARE v_item_count INT;
+    DECLARE v_locked_count INT;
+    DECLARE v_sharded_ids JSON;
+    DECLARE v_product_id INT;
+    DECLARE v_index INT DEFAULT 0;
+
+    SET p_invoice_id = NULL;
+    SET p_shortfall = NULL;
+
+    SELECT COALESCE(JSON_ARRAYAGG(J.product_id), JSON_ARRAY())
+    INTO v_sharded_ids
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+    WHERE EXISTS (SELECT 1 FROM StockShard H WHERE H.product_id = J.product_id AND H.store_id = p_store_id);
+
+    -- Lock the stock of the cart before checking it, so nothing is written when a line cannot be covered.
+    -- The cart is sorted by product_id and STRAIGHT_JOIN reads it in that order, so every checkout locks the
+    -- Stock rows in ascending product_id order and two carts sharing products cannot deadlock on them.
+    SELECT COUNT(*)
+    INTO v_locked_count
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+             STRAIGHT_JOIN Stock S
+                           ON S.product_id = J.product_id AND S.store_id = p_store_id
+    WHERE NOT (J.product_id MEMBER OF (v_sharded_ids))
+    FOR UPDATE OF S;
+
+    SELECT COUNT(*)
+    INTO v_locked_count
+    FROM JSON_TABLE(v_sharded_ids, '$[*]' COLUMNS (product_id INT PATH '$')) AS J
+             STRAIGHT_JOIN StockReservationLock L
+                           ON L.product_id = J.product_id AND L.store_id = p_store_id
+    FOR SHARE OF L;
+
+    -- A locking read waits for a call with the same key that is still running, so it sees whether it committed.
+    SELECT invoice_id
+    INTO p_invoice_id
+    FROM Invoice
+    WHERE invoice_key = p_invoice_key
+    FOR SHARE;
+
+    IF p_invoice_id IS NOT NULL THEN
+        LEAVE save_invoice;
+    END IF;
+
+    -- Available to sell is the stock minus the unexpired holds of other carts.
+    SELECT JSON_ARRAYAGG(JSON_OBJECT('p', L.product_id, 'q', L.amount, 'a', GREATEST(L.available, 0)))
+    INTO p_shortfall
+    FROM (SELECT J.product_id,
+                 J.amount,
+                 COALESCE(S.quantity, 0) + COALESCE((SELECT SUM(H.quantity)
+                                                     FROM StockShard H
+                                                     WHERE H.product_id = J.product_id
+                                                       AND H.store_id = p_store_id), 0)
+                     - COALESCE((SELECT SUM(R.quantity)
+                                 FROM StockReservation R
+                                 WHERE R.product_id = J.product_id
+                                   AND R.store_id = p_store_id
+                                   AND R.expires_at > NOW(6)
+                                   AND NOT (R.cart_id <=> p_cart_id)), 0) AS available
+          FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+              product_id INT PATH '$.p',
+              amount INT PATH '$.q'
+              )) AS J
+                   LEFT JOIN Stock S ON S.product_id = J.product_id AND S.store_id = p_store_id) AS L
+    WHERE L.available < L.amount;
+
+    IF p_shortfall IS NOT NULL THEN
+        LEAVE save_invoice;
+    END IF;
+
+    INSERT INTO Invoice (store_id, name_client, invoice_key) VALUES (p_store_id, p_name_client, p_invoice_key);
+    SET p_invoice_id = LAST_INSERT_ID();
+
+    INSERT INTO Sale (invoice_id, store_id, employee_id, product_id, amount, price)
+    SELECT p_invoice_id, p_store_id, p_employee_id, C.product_id, C.amount, C.price
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+        product_id INT PATH '$.p',
+        amount INT PATH '$.q',
+        price DECIMAL(10, 2) PATH '$.u'
+        )) AS C;
+    SET v_item_count = ROW_COUNT();
+
+    UPDATE Stock S
+        JOIN JSON_TABLE(p_cart, '$[*]' COLUMNS (
+            product_id INT PATH '$.p',
+            amount INT PATH '$.q'
+            )) AS C ON C.product_id = S.product_id
+    SET S.quantity = S.quantity - C.amount
+    WHERE S.store_id = p_store_id
+      AND NOT (C.product_id MEMBER OF (v_sharded_ids))
+      AND S.quantity >= C.amount;
+
+    -- NOTE: Cannot happen while the stock is locked, kept as the last line of defense.
+    IF ROW_COUNT() <> v_item_count - JSON_LENGTH(v_sharded_ids) THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+    END IF;
+
+    -- The stock of products with shards was not locked, TakeShardedStock fails when it is no longer there.
+    WHILE v_index < JSON_LENGTH(p_cart) DO
+        SET v_product_id = JSON_EXTRACT(p_cart, CONCAT('$[', v_index, '].p'));
+        IF v_product_id MEMBER OF (v_sharded_ids) THEN
+            CALL TakeShardedStock(
+                v_product_id, p_store_id, JSON_EXTRACT(p_cart, CONCAT('$[', v_index, '].q')), p_cart_id
+            );
+        END IF;
+        SET v_index = v_index + 1;
+    END WHILE;
+
+    IF p_cart_id IS NOT NULL THEN
+        DELETE FROM StockReservation WHERE cart_id = p_cart_id;
+    END IF;
+END save_invoice //
+DELIMITER ;
+
+-- 19. Catalog version counter
+-- MAX(updated_at) missed products committed late with an older updated_at and never told the terminals about deleted
+-- products. Every write to a product now bumps a counter in its own transaction and stamps the product with it,
+-- deletions are recorded in DeletedProduct, and the terminals read whatever changed after the version they hold.
+CREATE TABLE CatalogVersion
+(
+    catalog_version_id TINYINT NOT NULL PRIMARY KEY CHECK (catalog_version_id = 1),
+    version            BIGINT  NOT NULL
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+INSERT INTO CatalogVersion (catalog_version_id, version) VALUES (1, 0);
+
+CREATE TABLE DeletedProduct
+(
+    product_id      INT    NOT NULL PRIMARY KEY,
+    catalog_version BIGINT NOT NULL,
+    INDEX idx_deleted_product_catalog_version (catalog_version)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+ALTER TABLE Product ADD COLUMN catalog_version BIGINT NOT NULL DEFAULT 0 AFTER updated_at;
+DROP INDEX idx_product_updated_at ON Product;
+CREATE INDEX idx_product_catalog_version ON Product (catalog_version);
+
+DROP TRIGGER IF EXISTS AfterDeleteProduct;
+DELIMITER //
+CREATE TRIGGER AfterDeleteProduct
+    AFTER DELETE
+    ON Product
+    FOR EACH ROW
+BEGIN
+    UPDATE CatalogVersion SET version = version + 1 WHERE catalog_version_id = 1;
+    INSERT INTO DeletedProduct (product_id, catalog_version)
+    SELECT OLD.product_id, version
+    FROM CatalogVersion
+    WHERE catalog_version_id = 1
+    ON DUPLICATE KEY UPDATE catalog_version = VALUES(catalog_version);
+END //
+DELIMITER ;
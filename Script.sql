@@ -89,7 +89,48 @@ CREATE TABLE Product
     description VARCHAR(512)   NOT NULL,
     brand       VARCHAR(64)    NOT NULL,
     price       DECIMAL(10, 2) NOT NULL,
-    created_at  DATETIME(6)    NOT NULL DEFAULT NOW(6)
+    created_at  DATETIME(6)    NOT NULL DEFAULT NOW(6),
+    updated_at  DATETIME(6)    NOT NULL DEFAULT NOW(6) ON UPDATE NOW(6),
+    -- The CatalogVersion of the last write to the product (ProductDAO.getAllChangedSince)
+    catalog_version BIGINT     NOT NULL DEFAULT 0
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+-- Table: ProductBarcode
+-- Barcodes and SKUs of the products, in upper case, a product may have several (ProductDAO, ProductCatalog)
+CREATE TABLE ProductBarcode
+(
+    barcode    VARCHAR(64) NOT NULL PRIMARY KEY,
+    product_id INT         NOT NULL,
+    created_at DATETIME(6) NOT NULL DEFAULT NOW(6),
+    INDEX idx_product_barcode_product (product_id),
+    FOREIGN KEY (product_id) REFERENCES Product (product_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+-- Table: CatalogVersion
+-- A single counter bumped in the transaction of every write to a product, polled by the terminals to refresh their
+-- ProductCatalog. Writes wait on the row until the previous one commits, so they commit in the order of their versions.
+CREATE TABLE CatalogVersion
+(
+    catalog_version_id TINYINT NOT NULL PRIMARY KEY CHECK (catalog_version_id = 1),
+    version            BIGINT  NOT NULL
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+INSERT INTO CatalogVersion (catalog_version_id, version) VALUES (1, 0);
+
+-- Table: DeletedProduct
+-- The products deleted and the CatalogVersion they were deleted at, so the terminals drop them from their catalogs
+-- (ProductDAO.getAllDeletedSince). Filled by the trigger AfterDeleteProduct.
+CREATE TABLE DeletedProduct
+(
+    product_id      INT    NOT NULL PRIMARY KEY,
+    catalog_version BIGINT NOT NULL,
+    INDEX idx_deleted_product_catalog_version (catalog_version)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_unicode_ci;
@@ -100,7 +141,9 @@ CREATE TABLE Invoice
     invoice_id  INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
     store_id    INT          NOT NULL,
     name_client VARCHAR(128) NOT NULL,
+    invoice_key CHAR(36)     NULL,
     created_at  DATETIME(6)  NOT NULL DEFAULT NOW(6),
+    UNIQUE INDEX idx_invoice_key (invoice_key),
     FOREIGN KEY (store_id) REFERENCES Store (store_id)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4
@@ -139,14 +182,63 @@ CREATE TABLE Stock
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_unicode_ci;
 
+-- Table: StockReservation
+-- Soft holds placed on the stock by the carts being registered, see StockReservationDAO.
+CREATE TABLE StockReservation
+(
+    cart_id    CHAR(36)    NOT NULL,
+    product_id INT         NOT NULL,
+    store_id   INT         NOT NULL,
+    quantity   INT         NOT NULL CHECK (quantity >= 0),
+    expires_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL DEFAULT NOW(6),
+    PRIMARY KEY (cart_id, product_id),
+    INDEX idx_stock_reservation_stock (product_id, store_id, expires_at),
+    INDEX idx_stock_reservation_expires_at (expires_at),
+    FOREIGN KEY (product_id, store_id) REFERENCES Stock (product_id, store_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+-- Table: StockReservationLock
+-- One row per stock that carts placed holds on, the holds of a product are placed one at a time under its row
+-- instead of its Stock row, see StockReservationDAO. Checkouts of products with shards share its lock.
+CREATE TABLE StockReservationLock
+(
+    product_id INT NOT NULL,
+    store_id   INT NOT NULL,
+    PRIMARY KEY (product_id, store_id),
+    FOREIGN KEY (product_id, store_id) REFERENCES Stock (product_id, store_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
+-- Table: StockShard
+-- The stock of the hot products of a store split into shards numbered from 0, see StockShardDAO.
+-- The stock of a product with shards is its Stock quantity plus the quantity of its shards.
+CREATE TABLE StockShard
+(
+    product_id INT NOT NULL,
+    store_id   INT NOT NULL,
+    shard      INT NOT NULL,
+    quantity   INT NOT NULL DEFAULT 0 CHECK (quantity >= 0),
+    PRIMARY KEY (product_id, store_id, shard),
+    FOREIGN KEY (product_id, store_id) REFERENCES Stock (product_id, store_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci;
+
 DROP VIEW IF EXISTS CompleteStockView;
 CREATE VIEW CompleteStockView AS
 SELECT ST.product_id,
        ST.store_id,
-       quantity,
+       ST.quantity + COALESCE((SELECT SUM(H.quantity)
+                               FROM StockShard H
+                               WHERE H.product_id = ST.product_id
+                                 AND H.store_id = ST.store_id), 0) AS quantity,
        P.name  AS product_name,
        S.name  AS store_name,
-       P.price AS price,
+       CAST(P.price * 100 AS SIGNED) AS price_cents,
        ST.created_at
 FROM Stock ST
          JOIN Store S ON S.store_id = ST.store_id
@@ -158,11 +250,315 @@ SELECT P.product_id,
        P.name,
        P.description,
        P.brand,
-       P.price,
-       COALESCE(((SELECT SUM(quantity) FROM Stock S WHERE S.product_id = P.product_id)), 0) as stock,
+       CAST(P.price * 100 AS SIGNED) AS price_cents,
+       (SELECT GROUP_CONCAT(B.barcode ORDER BY B.barcode SEPARATOR ' ')
+        FROM ProductBarcode B
+        WHERE B.product_id = P.product_id) AS barcodes,
+       COALESCE(((SELECT SUM(quantity) FROM Stock S WHERE S.product_id = P.product_id)), 0) +
+       COALESCE(((SELECT SUM(quantity) FROM StockShard H WHERE H.product_id = P.product_id)), 0) as stock,
        P.created_at
 FROM Product P;
 
+-- Indexes backing the keyset pagination sort keys of the DAOs
+CREATE INDEX idx_product_name ON Product (name, product_id);
+CREATE INDEX idx_product_created_at ON Product (created_at, product_id);
+-- The products written since a catalog version (ProductDAO.getAllChangedSince)
+CREATE INDEX idx_product_catalog_version ON Product (catalog_version);
+CREATE INDEX idx_store_name ON Store (name, store_id);
+CREATE INDEX idx_employee_name ON Employee (name, last_name, employee_id);
+-- The stock of one store, paged by StockDAO.getPageByStore and streamed by StockDAO.streamAllByStore
+CREATE INDEX idx_stock_store ON Stock (store_id, product_id);
+
+-- Index backing the per-store sale reports streamed by SaleDAO
+CREATE INDEX idx_sale_store_created_at ON Sale (store_id, created_at);
+
+-- Procedure: TakeShardedStock
+-- Takes an amount of a product with shards out of the stock of a store, in the transaction of CreateInvoice.
+-- A random shard that covers the amount is the only row locked, so the checkouts of a hot product rarely wait for
+-- each other. Otherwise every shard and then the Stock row are locked and drained in that order.
+-- The stock left must still cover the unexpired holds of other carts, a concurrent checkout may have taken the stock
+-- SaveInvoice counted on since it was not locked.
+DELIMITER //
+CREATE PROCEDURE TakeShardedStock(
+    IN p_product_id INT,
+    IN p_store_id INT,
+    IN p_amount INT,
+    IN p_cart_id CHAR(36)
+)
+BEGIN
+    DECLARE v_shard_count INT;
+    DECLARE v_shard INT;
+    DECLARE v_shard_quantity INT;
+    DECLARE v_taken INT;
+    DECLARE v_remaining INT DEFAULT p_amount;
+    DECLARE v_available INT;
+
+    SELECT COUNT(*)
+    INTO v_shard_count
+    FROM StockShard
+    WHERE product_id = p_product_id
+      AND store_id = p_store_id;
+
+    SET v_shard = FLOOR(RAND() * v_shard_count);
+
+    UPDATE StockShard
+    SET quantity = quantity - p_amount
+    WHERE product_id = p_product_id
+      AND store_id = p_store_id
+      AND shard = v_shard
+      AND quantity >= p_amount;
+
+    IF ROW_COUNT() = 0 THEN
+        SET v_shard = 0;
+        WHILE v_remaining > 0 AND v_shard < v_shard_count DO
+            SELECT quantity
+            INTO v_shard_quantity
+            FROM StockShard
+            WHERE product_id = p_product_id
+              AND store_id = p_store_id
+              AND shard = v_shard
+            FOR UPDATE;
+
+            SET v_taken = LEAST(v_shard_quantity, v_remaining);
+            UPDATE StockShard
+            SET quantity = quantity - v_taken
+            WHERE product_id = p_product_id
+              AND store_id = p_store_id
+              AND shard = v_shard;
+
+            SET v_remaining = v_remaining - v_taken;
+            SET v_shard = v_shard + 1;
+        END WHILE;
+
+        IF v_remaining > 0 THEN
+            UPDATE Stock
+            SET quantity = quantity - v_remaining
+            WHERE product_id = p_product_id
+              AND store_id = p_store_id
+              AND quantity >= v_remaining;
+
+            IF ROW_COUNT() = 0 THEN
+                SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+            END IF;
+        END IF;
+    END IF;
+
+    SELECT S.quantity + COALESCE((SELECT SUM(H.quantity)
+                                  FROM StockShard H
+                                  WHERE H.product_id = p_product_id
+                                    AND H.store_id = p_store_id), 0)
+               - COALESCE((SELECT SUM(R.quantity)
+                           FROM StockReservation R
+                           WHERE R.product_id = p_product_id
+                             AND R.store_id = p_store_id
+                             AND R.expires_at > NOW(6)
+                             AND NOT (R.cart_id <=> p_cart_id)), 0)
+    INTO v_available
+    FROM Stock S
+    WHERE S.product_id = p_product_id
+      AND S.store_id = p_store_id;
+
+    IF v_available < 0 THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+    END IF;
+END //
+DELIMITER ;
+
+-- Procedure: SaveInvoice
+-- Saves a sale in the transaction of the caller without ending it, see CreateInvoice and InvoiceDAO.createInvoiceGroup.
+-- The caller runs it in a READ COMMITTED transaction, so the checks read the stock as of the moment it is locked,
+-- and rolls the sale back if it raises an error. The cart is a JSON array with one entry per product sorted by
+-- product_id, [{"p": product_id, "q": amount, "u": unit_price}]. When some lines cannot be covered nothing is written
+-- and p_shortfall lists them as [{"p": product_id, "q": amount, "a": available}].
+-- The Stock rows of products with shards are never locked up front, their lines are taken by TakeShardedStock.
+-- Their StockReservationLock rows are shared instead, so no hold is placed on them until the sale is saved.
+-- p_invoice_key is generated by the terminal for every sale, calling again with the key of a sale that was already
+-- saved saves nothing and returns its invoice, so a checkout that failed with an unknown outcome can be retried.
+DELIMITER //
+CREATE PROCEDURE SaveInvoice(
+    IN p_store_id INT,
+    IN p_employee_id INT,
+    IN p_name_client VARCHAR(128),
+    IN p_cart JSON,
+    IN p_cart_id CHAR(36),
+    IN p_invoice_key CHAR(36),
+    OUT p_invoice_id INT,
+    OUT p_shortfall JSON
+)
+save_invoice:
+BEGIN
+    DECLARE v_item_count INT;
+    DECLARE v_locked_count INT;
+    DECLARE v_sharded_ids JSON;
+    DECLARE v_product_id INT;
+    DECLARE v_index INT DEFAULT 0;
+
+    SET p_invoice_id = NULL;
+    SET p_shortfall = NULL;
+
+    SELECT COALESCE(JSON_ARRAYAGG(J.product_id), JSON_ARRAY())
+    INTO v_sharded_ids
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+    WHERE EXISTS (SELECT 1 FROM StockShard H WHERE H.product_id = J.product_id AND H.store_id = p_store_id);
+
+    -- Lock the stock of the cart before checking it, so nothing is written when a line cannot be covered.
+    -- The cart is sorted by product_id and STRAIGHT_JOIN reads it in that order, so every checkout locks the
+    -- Stock rows in ascending product_id order and two carts sharing products cannot deadlock on them.
+    SELECT COUNT(*)
+    INTO v_locked_count
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (product_id INT PATH '$.p')) AS J
+             STRAIGHT_JOIN Stock S
+                           ON S.product_id = J.product_id AND S.store_id = p_store_id
+    WHERE NOT (J.product_id MEMBER OF (v_sharded_ids))
+    FOR UPDATE OF S;
+
+    SELECT COUNT(*)
+    INTO v_locked_count
+    FROM JSON_TABLE(v_sharded_ids, '$[*]' COLUMNS (product_id INT PATH '$')) AS J
+             STRAIGHT_JOIN StockReservationLock L
+                           ON L.product_id = J.product_id AND L.store_id = p_store_id
+    FOR SHARE OF L;
+
+    -- A locking read waits for a call with the same key that is still running, so it sees whether it committed.
+    SELECT invoice_id
+    INTO p_invoice_id
+    FROM Invoice
+    WHERE invoice_key = p_invoice_key
+    FOR SHARE;
+
+    IF p_invoice_id IS NOT NULL THEN
+        LEAVE save_invoice;
+    END IF;
+
+    -- Available to sell is the stock minus the unexpired holds of other carts.
+    SELECT JSON_ARRAYAGG(JSON_OBJECT('p', L.product_id, 'q', L.amount, 'a', GREATEST(L.available, 0)))
+    INTO p_shortfall
+    FROM (SELECT J.product_id,
+                 J.amount,
+                 COALESCE(S.quantity, 0) + COALESCE((SELECT SUM(H.quantity)
+                                                     FROM StockShard H
+                                                     WHERE H.product_id = J.product_id
+                                                       AND H.store_id = p_store_id), 0)
+                     - COALESCE((SELECT SUM(R.quantity)
+                                 FROM StockReservation R
+                                 WHERE R.product_id = J.product_id
+                                   AND R.store_id = p_store_id
+                                   AND R.expires_at > NOW(6)
+                                   AND NOT (R.cart_id <=> p_cart_id)), 0) AS available
+          FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+              product_id INT PATH '$.p',
+              amount INT PATH '$.q'
+              )) AS J
+                   LEFT JOIN Stock S ON S.product_id = J.product_id AND S.store_id = p_store_id) AS L
+    WHERE L.available < L.amount;
+
+    IF p_shortfall IS NOT NULL THEN
+        LEAVE save_invoice;
+    END IF;
+
+    INSERT INTO Invoice (store_id, name_client, invoice_key) VALUES (p_store_id, p_name_client, p_invoice_key);
+    SET p_invoice_id = LAST_INSERT_ID();
+
+    INSERT INTO Sale (invoice_id, store_id, employee_id, product_id, amount, price)
+    SELECT p_invoice_id, p_store_id, p_employee_id, C.product_id, C.amount, C.price
+    FROM JSON_TABLE(p_cart, '$[*]' COLUMNS (
+        product_id INT PATH '$.p',
+        amount INT PATH '$.q',
+        price DECIMAL(10, 2) PATH '$.u'
+        )) AS C;
+    SET v_item_count = ROW_COUNT();
+
+    UPDATE Stock S
+        JOIN JSON_TABLE(p_cart, '$[*]' COLUMNS (
+            product_id INT PATH '$.p',
+            amount INT PATH '$.q'
+            )) AS C ON C.product_id = S.product_id
+    SET S.quantity = S.quantity - C.amount
+    WHERE S.store_id = p_store_id
+      AND NOT (C.product_id MEMBER OF (v_sharded_ids))
+      AND S.quantity >= C.amount;
+
+    -- NOTE: Cannot happen while the stock is locked, kept as the last line of defense.
+    IF ROW_COUNT() <> v_item_count - JSON_LENGTH(v_sharded_ids) THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Not enough stock to complete the sale.';
+    END IF;
+
+    -- The stock of products with shards was not locked, TakeShardedStock fails when it is no longer there.
+    WHILE v_index < JSON_LENGTH(p_cart) DO
+        SET v_product_id = JSON_EXTRACT(p_cart, CONCAT('$[', v_index, '].p'));
+        IF v_product_id MEMBER OF (v_sharded_ids) THEN
+            CALL TakeShardedStock(
+                v_product_id, p_store_id, JSON_EXTRACT(p_cart, CONCAT('$[', v_index, '].q')), p_cart_id
+            );
+        END IF;
+        SET v_index = v_index + 1;
+    END WHILE;
+
+    IF p_cart_id IS NOT NULL THEN
+        DELETE FROM StockReservation WHERE cart_id = p_cart_id;
+    END IF;
+END save_invoice //
+DELIMITER ;
+
+-- Procedure: CreateInvoice
+-- Checkout in a single round trip (InvoiceDAO.createInvoice), saves a sale with SaveInvoice in its own transaction.
+DELIMITER //
+CREATE PROCEDURE CreateInvoice(
+    IN p_store_id INT,
+    IN p_employee_id INT,
+    IN p_name_client VARCHAR(128),
+    IN p_cart JSON,
+    IN p_cart_id CHAR(36),
+    IN p_invoice_key CHAR(36),
+    OUT p_invoice_id INT,
+    OUT p_shortfall JSON
+)
+BEGIN
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+        BEGIN
+            ROLLBACK;
+            RESIGNAL;
+        END;
+    -- NOTE: Cannot happen after SaveInvoice checked the key, kept as the last line of defense.
+    DECLARE EXIT HANDLER FOR 1062
+        BEGIN
+            ROLLBACK;
+            SET p_shortfall = NULL;
+            SELECT invoice_id INTO p_invoice_id FROM Invoice WHERE invoice_key = p_invoice_key;
+        END;
+
+    SET TRANSACTION ISOLATION LEVEL READ COMMITTED;
+    START TRANSACTION;
+
+    CALL SaveInvoice(
+        p_store_id, p_employee_id, p_name_client, p_cart, p_cart_id, p_invoice_key, p_invoice_id, p_shortfall
+    );
+
+    IF p_shortfall IS NOT NULL THEN
+        ROLLBACK;
+    ELSE
+        COMMIT;
+    END IF;
+END //
+DELIMITER ;
+
+-- Trigger: AfterDeleteProduct
+-- Records a deleted product at a new catalog version, in the transaction that deleted it.
+DELIMITER //
+CREATE TRIGGER AfterDeleteProduct
+    AFTER DELETE
+    ON Product
+    FOR EACH ROW
+BEGIN
+    UPDATE CatalogVersion SET version = version + 1 WHERE catalog_version_id = 1;
+    INSERT INTO DeletedProduct (product_id, catalog_version)
+    SELECT OLD.product_id, version
+    FROM CatalogVersion
+    WHERE catalog_version_id = 1
+    ON DUPLICATE KEY UPDATE catalog_version = VALUES(catalog_version);
+END //
+DELIMITER ;
+
 -- Table: PendingRegistrations
 CREATE TABLE PendingRegistrations
 (
@@ -431,4 +827,16 @@ VALUES (3, 1, 30),
        (38, 2, 25),
        (38, 3, 33),
        (38, 4, 18),
-       (38, 5, 20); -- Fitbit Charge 7 (ID 38)
\ No newline at end of file
+       (38, 5, 20); -- Fitbit Charge 7 (ID 38)
+
+-- Hot products sold at every register, their stock is moved into the shards by StockShardRebalancer
+INSERT INTO StockShard (product_id, store_id, shard)
+SELECT ST.product_id, ST.store_id, N.shard
+FROM Stock ST
+         CROSS JOIN (SELECT 0 AS shard UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) AS N
+WHERE ST.product_id IN (7, 26); -- Galaxy A55 (ID 7), AirPods Pro 3 (ID 26)
+
+-- Products with shards hold under their StockReservationLock row, see StockShardDAO.enableSharding
+INSERT IGNORE INTO StockReservationLock (product_id, store_id)
+SELECT DISTINCT product_id, store_id
+FROM StockShard;
\ No newline at end of file
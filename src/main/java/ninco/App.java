@@ -11,8 +11,13 @@ import java.io.IOException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import ninco.business.CheckoutJournal;
+import ninco.business.CheckoutPipeline;
 import ninco.business.dao.AccountDAO;
+import ninco.business.dao.InvoiceDAO;
+import ninco.business.dao.StoreDAO;
 import ninco.common.ExceptionHandler;
+import ninco.db.DBConnector;
 import ninco.gui.AlertFacade;
 
 public class App extends Application {
@@ -25,9 +30,19 @@ public class App extends Application {
   @Override
   public void start(Stage stage) {
     configureUncaughtErrorHandler();
+    CheckoutJournal.getInstance().startReplaying();
     loadApplication(stage);
   }
 
+  @Override
+  public void stop() {
+    CheckoutPipeline.getInstance().stop();
+    CheckoutJournal.getInstance().stopReplaying();
+    LOGGER.info("Caché de tiendas: {}", StoreDAO.getInstance().getCacheStatistics());
+    LOGGER.info("Contención de stock en ventas: {}", InvoiceDAO.getInstance().getContentionStatistics());
+    DBConnector.shutdown();
+  }
+
   private void handleIllegalStateException(IllegalStateException e) {
     LOGGER.fatal("Error al iniciar la aplicación: {}", e.getMessage(), e);
     AlertFacade.showErrorAndWait(
@@ -0,0 +1,173 @@
+package ninco.business;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import ninco.business.dto.CartItemDTO;
+import ninco.business.dto.ProductDTO;
+import ninco.common.Money;
+
+/*
+ * Cart is the cart of the sale page. Its lines are indexed by product so a scan finds the line of its product without
+ * walking the cart, and its total is adjusted by the change of each line instead of being summed again, so scanning
+ * into a cart of hundreds of lines costs the same as into an empty one.
+ * The scans are remembered so they can be undone, last first, e.g. when the cashier scans a product twice by mistake.
+ * It is not thread-safe, it is meant to be used from the JavaFX application thread like the table bound to its items.
+ */
+public class Cart {
+  private final ObservableList<CartItemDTO> items = FXCollections.observableArrayList();
+  private final ObservableList<CartItemDTO> readOnlyItems = FXCollections.unmodifiableObservableList(items);
+  private final Map<Integer, CartItemDTO> itemByProduct = new HashMap<>();
+  private final Deque<Scan> scanHistory = new ArrayDeque<>();
+  private final ReadOnlyLongWrapper totalCents = new ReadOnlyLongWrapper(0);
+
+  /**
+   * Scan is a quantity of a product added to a line of the cart, or taken off it when the scan is undone.
+   */
+  public static class Scan {
+    private final CartItemDTO item;
+    private final int quantity;
+    private final boolean isLineRemoved;
+
+    private Scan(CartItemDTO item, int quantity, boolean isLineRemoved) {
+      this.item = item;
+      this.quantity = quantity;
+      this.isLineRemoved = isLineRemoved;
+    }
+
+    public int getIDProduct() {
+      return item.getProduct().getIDProduct();
+    }
+
+    public int getQuantity() {
+      return quantity;
+    }
+
+    /**
+     * @return whether undoing the scan removed the whole line from the cart
+     */
+    public boolean isLineRemoved() {
+      return isLineRemoved;
+    }
+  }
+
+  /**
+   * @return the lines of the cart in the order they were first scanned, changes are made through the cart
+   */
+  public ObservableList<CartItemDTO> getItems() {
+    return readOnlyItems;
+  }
+
+  public boolean isEmpty() {
+    return items.isEmpty();
+  }
+
+  public long getTotalCents() {
+    return totalCents.get();
+  }
+
+  public ReadOnlyLongProperty totalCentsProperty() {
+    return totalCents.getReadOnlyProperty();
+  }
+
+  public Optional<CartItemDTO> find(int idProduct) {
+    return Optional.ofNullable(itemByProduct.get(idProduct));
+  }
+
+  /**
+   * Scans a quantity of a product, adding it to the line of the product or to a new line if there is none.
+   *
+   * @param product  the product
+   * @param quantity the positive quantity
+   * @return the line of the product
+   */
+  public CartItemDTO add(ProductDTO product, int quantity) {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+    }
+
+    CartItemDTO item = itemByProduct.get(product.getIDProduct());
+    if (item == null) {
+      item = new CartItemDTO(product, quantity);
+      itemByProduct.put(product.getIDProduct(), item);
+      items.add(item);
+      addToTotal(item.getSubtotalCents());
+    } else {
+      changeQuantity(item, Math.addExact(item.getQuantity(), quantity));
+    }
+
+    scanHistory.push(new Scan(item, quantity, false));
+    return item;
+  }
+
+  /**
+   * @param item     a line of the cart
+   * @param quantity the positive quantity of the line
+   */
+  public void setQuantity(CartItemDTO item, int quantity) {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+    }
+
+    if (itemByProduct.get(item.getProduct().getIDProduct()) == item) {
+      changeQuantity(item, quantity);
+    }
+  }
+
+  /**
+   * Removes a line of the cart, its scans can no longer be undone.
+   *
+   * @param item a line of the cart
+   */
+  public void remove(CartItemDTO item) {
+    if (itemByProduct.remove(item.getProduct().getIDProduct(), item)) {
+      items.remove(item);
+      addToTotal(-item.getSubtotalCents());
+    }
+  }
+
+  /**
+   * Undoes the last scan whose line is still in the cart, taking its quantity off the line, or what is left of the
+   * line if it was lowered since, and removing the line once nothing is left of it.
+   *
+   * @return the quantity taken off the cart, or empty if there is no scan to undo
+   */
+  public Optional<Scan> undoLastScan() {
+    while (!scanHistory.isEmpty()) {
+      Scan scan = scanHistory.pop();
+      CartItemDTO item = scan.item;
+
+      if (itemByProduct.get(item.getProduct().getIDProduct()) != item) {
+        continue;
+      }
+
+      int remainingQuantity = item.getQuantity() - scan.quantity;
+      if (remainingQuantity > 0) {
+        changeQuantity(item, remainingQuantity);
+        return Optional.of(scan);
+      }
+
+      remove(item);
+      return Optional.of(new Scan(item, item.getQuantity(), true));
+    }
+
+    return Optional.empty();
+  }
+
+  private void changeQuantity(CartItemDTO item, int quantity) {
+    long previousSubtotalCents = item.getSubtotalCents();
+    item.setQuantity(quantity);
+    addToTotal(item.getSubtotalCents() - previousSubtotalCents);
+  }
+
+  private void addToTotal(long cents) {
+    totalCents.set(Money.add(totalCents.get(), cents));
+  }
+}
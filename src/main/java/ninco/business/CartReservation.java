@@ -0,0 +1,111 @@
+package ninco.business;
+
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ninco.business.dao.StockReservationDAO;
+import ninco.common.UserDisplayableException;
+
+/*
+ * CartReservation is the set of stock holds of the cart being registered on the sale page, so two cashiers cannot
+ * both add the last unit of a product to their carts: the second one is told right away instead of at checkout.
+ * Holds last HOLD_TIME_TO_LIVE_SECONDS and are refreshed in the background while the sale page is open,
+ * so the holds of a terminal that closes or crashes expire on their own.
+ * Checking out converts the holds into sales (see InvoiceDAO), cancelling the sale releases them.
+ * Every method but the background refresh queries the database on the calling thread.
+ */
+public class CartReservation {
+  private static final Logger LOGGER = LogManager.getLogger(CartReservation.class);
+  private static final int HOLD_TIME_TO_LIVE_SECONDS = 15 * 60;
+  private static final long REFRESH_PERIOD_SECONDS = 5 * 60;
+  private final String cartId = UUID.randomUUID().toString();
+  private final int idStore;
+  private ScheduledExecutorService refresher;
+
+  public CartReservation(int idStore) {
+    this.idStore = idStore;
+  }
+
+  public String getCartID() {
+    return cartId;
+  }
+
+  public int getIDStore() {
+    return idStore;
+  }
+
+  /**
+   * Holds a quantity of a product for the cart if the store has that much stock available to sell.
+   *
+   * @param idProduct the id of the product
+   * @param quantity  the positive quantity to hold
+   * @return false if there is not enough stock available to sell
+   * @throws UserDisplayableException if the hold could not be placed
+   */
+  public boolean hold(int idProduct, int quantity) throws UserDisplayableException {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+    }
+
+    return StockReservationDAO.getInstance().hold(cartId, idStore, idProduct, quantity, HOLD_TIME_TO_LIVE_SECONDS);
+  }
+
+  public void release(int idProduct) throws UserDisplayableException {
+    StockReservationDAO.getInstance().releaseProduct(cartId, idProduct);
+  }
+
+  /**
+   * Gives back part of the hold on a product, e.g. when its line in the cart is lowered.
+   *
+   * @param idProduct the id of the product
+   * @param quantity  the positive quantity to give back
+   * @throws UserDisplayableException if the hold could not be lowered
+   */
+  public void release(int idProduct, int quantity) throws UserDisplayableException {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+    }
+
+    StockReservationDAO.getInstance().releaseQuantity(cartId, idProduct, quantity);
+  }
+
+  public void releaseAll() throws UserDisplayableException {
+    StockReservationDAO.getInstance().releaseAll(cartId);
+  }
+
+  /**
+   * Refreshes the holds in the background periodically, purging the expired holds of every cart as well,
+   * until stopRefreshing is called.
+   */
+  public synchronized void startRefreshing() {
+    if (refresher != null) {
+      return;
+    }
+
+    refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "cart-reservation-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    refresher.scheduleWithFixedDelay(() -> {
+      try {
+        StockReservationDAO.getInstance().refresh(cartId, HOLD_TIME_TO_LIVE_SECONDS);
+        StockReservationDAO.getInstance().deleteExpired();
+      } catch (UserDisplayableException e) {
+        LOGGER.warn("No ha sido posible renovar los productos apartados: {}", e.getMessage());
+      }
+    }, REFRESH_PERIOD_SECONDS, REFRESH_PERIOD_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public synchronized void stopRefreshing() {
+    if (refresher != null) {
+      refresher.shutdownNow();
+      refresher = null;
+    }
+  }
+}
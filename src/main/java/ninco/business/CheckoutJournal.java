@@ -0,0 +1,545 @@
+package ninco.business;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ninco.business.dao.InvoiceDAO;
+import ninco.business.dto.PendingInvoiceDTO;
+import ninco.common.ExceptionHandler;
+import ninco.common.InsufficientStockException;
+import ninco.common.UserDisplayableException;
+
+/*
+ * CheckoutJournal keeps the sales completed at the register while the database is unreachable in an append-only
+ * file on this terminal, and saves them through InvoiceDAO in the order they were rung up once the database is back.
+ * Every record is framed with its length and a CRC32, so a record torn by a crash is detected and discarded when the
+ * journal is opened again. A sale is only reported as recorded once its record was forced to disk.
+ * Records are written by a single writer thread that forces each group of queued records to disk at once, so a burst
+ * of sales costs one fsync per group instead of one per sale, and the registers never write to the file themselves.
+ * A replayed sale is marked as saved (or rejected, if the store can no longer cover it) in the journal right after,
+ * so it is not sent again, and the file is emptied once no sale is pending. A sale saved right before a crash that
+ * lost its mark is sent again, the database finds it by its key and returns its invoice without saving it twice.
+ * A sale the database rejects is logged with all of its details, since the goods already left the store.
+ * A sale that keeps failing for any other reason than the connection is given up after MAX_REPLAY_ATTEMPTS, it is
+ * appended to a failed sales file next to the journal to be registered by hand and the sales after it go on.
+ */
+public class CheckoutJournal {
+  private static final Logger LOGGER = LogManager.getLogger(CheckoutJournal.class);
+  private static final Path JOURNAL_FILE = Path.of("journal", "checkout.journal");
+  private static final long REPLAY_PERIOD_SECONDS = 15;
+  private static final int MAX_REPLAY_ATTEMPTS = 5;
+  private static final int MAX_GROUP_SIZE = 512;
+  private static final int FRAME_HEADER_SIZE = 8;
+  private static final byte SALE_RECORD = 1;
+  private static final byte SAVED_RECORD = 2;
+  private static final byte REJECTED_RECORD = 3;
+  private static final byte FAILED_RECORD = 4;
+  private static final CheckoutJournal INSTANCE = new CheckoutJournal(JOURNAL_FILE);
+  private final Path file;
+  private final Path failedFile;
+  private final BlockingQueue<Write> writeQueue = new LinkedBlockingQueue<>();
+  // NOTE: Guarded by itself, updated by the writer thread once the record that changes it is on disk.
+  private final Map<String, PendingInvoiceDTO> pendingInvoiceMap = new LinkedHashMap<>();
+  private final Map<String, Integer> attemptCountByKey = new ConcurrentHashMap<>();
+  private FileChannel channel;
+  private ScheduledExecutorService replayer;
+
+  /**
+   * Write is a framed record waiting to be written, or a request to empty the journal if its record is null.
+   */
+  private static class Write {
+    private final byte[] frame;
+    private final Runnable onDurable;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private Write(byte[] frame, Runnable onDurable) {
+      this.frame = frame;
+      this.onDurable = onDurable;
+    }
+  }
+
+  /**
+   * @param file the journal file, created with its directory when the journal is first used, the sales given up
+   *             are appended to a file with the same name and the .failed extension next to it
+   */
+  public CheckoutJournal(Path file) {
+    this.file = file;
+    this.failedFile = file.resolveSibling(file.getFileName() + ".failed");
+  }
+
+  /**
+   * @return the journal of this terminal
+   */
+  public static CheckoutJournal getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Records a new sale to be saved once the database is reachable, waiting until its record is on disk.
+   *
+   * @param idStore     the id of the store
+   * @param idEmployee  the id of the cashier
+   * @param clientName  the name of the client
+   * @param cartPayload the items sold, as created by InvoiceDAO.createCartPayload
+   * @param cartID      the id of the cart whose stock holds become the sale, or null if it has none
+   * @return the pending sale
+   * @throws UserDisplayableException if the sale could not be written to disk
+   */
+  public PendingInvoiceDTO record(
+    int idStore,
+    int idEmployee,
+    String clientName,
+    String cartPayload,
+    String cartID
+  ) throws UserDisplayableException {
+    return record(new PendingInvoiceDTO(idStore, idEmployee, clientName, cartPayload, cartID));
+  }
+
+  /**
+   * Records a sale to be saved once the database is reachable, waiting until its record is on disk. A sale whose
+   * checkout failed with an unknown outcome keeps its key, so it is saved once even if the checkout went through.
+   *
+   * @param pendingInvoiceDTO the sale
+   * @return the pending sale
+   * @throws UserDisplayableException if the sale could not be written to disk
+   */
+  public PendingInvoiceDTO record(PendingInvoiceDTO pendingInvoiceDTO) throws UserDisplayableException {
+    awaitDurable(write(encodeSale(pendingInvoiceDTO), () -> putPending(pendingInvoiceDTO)));
+    return pendingInvoiceDTO;
+  }
+
+  /**
+   * @return the sales recorded and not saved yet, in the order they were recorded
+   * @throws UserDisplayableException if the journal could not be opened
+   */
+  public List<PendingInvoiceDTO> getPendingList() throws UserDisplayableException {
+    open();
+
+    synchronized (pendingInvoiceMap) {
+      return new ArrayList<>(pendingInvoiceMap.values());
+    }
+  }
+
+  /**
+   * Saves the pending sales in the order they were recorded, stopping at the first one that cannot be saved
+   * right now, e.g. because the database is still unreachable, so later sales never overtake it. A sale that failed
+   * MAX_REPLAY_ATTEMPTS times for another reason is given up instead, see the class comment.
+   *
+   * @return the number of sales saved, rejected or given up
+   * @throws UserDisplayableException if the journal could not be opened or written
+   */
+  public int replayPending() throws UserDisplayableException {
+    int replayedCount = 0;
+
+    for (PendingInvoiceDTO pendingInvoiceDTO : getPendingList()) {
+      try {
+        int invoiceId = InvoiceDAO.getInstance().createInvoice(pendingInvoiceDTO);
+        awaitDurable(write(encodeSaved(pendingInvoiceDTO.getKey(), invoiceId), () -> removePending(pendingInvoiceDTO.getKey())));
+      } catch (InsufficientStockException e) {
+        LOGGER.fatal(
+          "Venta sin conexión rechazada por falta de stock: clave={} tienda={} cajero={} cliente={} fecha={} carrito={}",
+          pendingInvoiceDTO.getKey(),
+          pendingInvoiceDTO.getIDStore(),
+          pendingInvoiceDTO.getIDEmployee(),
+          pendingInvoiceDTO.getClientName(),
+          pendingInvoiceDTO.getCreatedAt(),
+          pendingInvoiceDTO.getCartPayload()
+        );
+        awaitDurable(write(encodeRejected(pendingInvoiceDTO.getKey(), e.getMessage()), () -> removePending(pendingInvoiceDTO.getKey())));
+      } catch (UserDisplayableException e) {
+        if (ExceptionHandler.isConnectionFailure(e)) {
+          break;
+        }
+
+        int attemptCount = attemptCountByKey.merge(pendingInvoiceDTO.getKey(), 1, Integer::sum);
+        LOGGER.warn(
+          "No ha sido posible registrar la venta sin conexión {} (intento {} de {}): {}",
+          pendingInvoiceDTO.getKey(),
+          attemptCount,
+          MAX_REPLAY_ATTEMPTS,
+          e.getMessage()
+        );
+        if (attemptCount < MAX_REPLAY_ATTEMPTS) {
+          break;
+        }
+
+        giveUp(pendingInvoiceDTO, e);
+      }
+
+      attemptCountByKey.remove(pendingInvoiceDTO.getKey());
+      replayedCount++;
+    }
+
+    if (replayedCount > 0) {
+      awaitDurable(write(null, () -> {}));
+    }
+
+    return replayedCount;
+  }
+
+  /**
+   * Appends a sale that keeps failing to the failed sales file, forced to disk, and only then marks it in the journal
+   * so it is not sent again.
+   */
+  private void giveUp(PendingInvoiceDTO pendingInvoiceDTO, UserDisplayableException failure) throws UserDisplayableException {
+    String line = String.format(
+      "clave=%s tienda=%d cajero=%d cliente=%s fecha=%s carrito=%s error=%s%n",
+      pendingInvoiceDTO.getKey(),
+      pendingInvoiceDTO.getIDStore(),
+      pendingInvoiceDTO.getIDEmployee(),
+      pendingInvoiceDTO.getClientName(),
+      pendingInvoiceDTO.getCreatedAt(),
+      pendingInvoiceDTO.getCartPayload(),
+      failure.getMessage()
+    );
+
+    try {
+      Files.write(
+        failedFile,
+        line.getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND,
+        StandardOpenOption.DSYNC
+      );
+    } catch (IOException e) {
+      throw ExceptionHandler.handleIOException(LOGGER, e, "No ha sido posible guardar la venta sin conexión fallida.");
+    }
+
+    LOGGER.fatal("Venta sin conexión abandonada tras {} intentos, guardada en {}: {}", MAX_REPLAY_ATTEMPTS, failedFile, line.trim());
+    awaitDurable(write(encodeFailed(pendingInvoiceDTO.getKey(), failure.getMessage()), () -> removePending(pendingInvoiceDTO.getKey())));
+  }
+
+  /**
+   * Replays the pending sales in the background periodically until stopReplaying is called.
+   */
+  public synchronized void startReplaying() {
+    if (replayer != null) {
+      return;
+    }
+
+    replayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "checkout-journal-replayer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    replayer.scheduleWithFixedDelay(() -> {
+      try {
+        int replayedCount = replayPending();
+        if (replayedCount > 0) {
+          LOGGER.info("Ventas sin conexión registradas: {}", replayedCount);
+        }
+      } catch (UserDisplayableException e) {
+        LOGGER.warn("No ha sido posible registrar las ventas sin conexión: {}", e.getMessage());
+      }
+    }, 0, REPLAY_PERIOD_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops replaying, a sale already being saved is completed and marked in the journal.
+   */
+  public synchronized void stopReplaying() {
+    if (replayer != null) {
+      replayer.shutdown();
+      replayer = null;
+    }
+  }
+
+  private synchronized void open() throws UserDisplayableException {
+    if (channel != null) {
+      return;
+    }
+
+    try {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      recover();
+    } catch (IOException e) {
+      channel = null;
+      throw ExceptionHandler.handleIOException(LOGGER, e, "No ha sido posible abrir el diario de ventas sin conexión.");
+    }
+
+    Thread writer = new Thread(this::writeLoop, "checkout-journal-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Reads the journal back into the pending sales, discarding a torn or corrupt tail left by a crash.
+   */
+  private void recover() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+    int validLength = 0;
+
+    while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+      int length = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (length <= 0 || length > buffer.remaining()) {
+        break;
+      }
+
+      byte[] record = new byte[length];
+      buffer.get(record);
+      if (checksumOf(record) != checksum) {
+        break;
+      }
+
+      apply(record);
+      validLength = buffer.position();
+    }
+
+    if (validLength < buffer.capacity()) {
+      LOGGER.warn("Descartando {} bytes incompletos del diario de ventas {}", buffer.capacity() - validLength, file);
+      channel.truncate(validLength);
+      channel.force(true);
+    }
+    channel.position(validLength);
+  }
+
+  private void apply(byte[] record) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+    byte type = input.readByte();
+    String key = readString(input);
+
+    if (type == SALE_RECORD) {
+      int idStore = input.readInt();
+      int idEmployee = input.readInt();
+      String clientName = readString(input);
+      String cartPayload = readString(input);
+      String cartID = readString(input);
+      LocalDateTime createdAt = LocalDateTime.parse(readString(input));
+      putPending(new PendingInvoiceDTO(
+        key,
+        idStore,
+        idEmployee,
+        clientName,
+        cartPayload,
+        cartID.isEmpty() ? null : cartID,
+        createdAt
+      ));
+    } else {
+      removePending(key);
+    }
+  }
+
+  private CompletableFuture<Void> write(byte[] frame, Runnable onDurable) throws UserDisplayableException {
+    open();
+
+    Write write = new Write(frame, onDurable);
+    writeQueue.add(write);
+    return write.future;
+  }
+
+  private void writeLoop() {
+    List<Write> group = new ArrayList<>();
+
+    while (true) {
+      try {
+        group.add(writeQueue.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      writeQueue.drainTo(group, MAX_GROUP_SIZE - 1);
+
+      int start = 0;
+      for (int i = 0; i < group.size(); i++) {
+        if (group.get(i).frame == null) {
+          flush(group.subList(start, i));
+          compact(group.get(i));
+          start = i + 1;
+        }
+      }
+      flush(group.subList(start, group.size()));
+      group.clear();
+    }
+  }
+
+  /**
+   * Appends a group of records and forces them to disk at once. If the group cannot be written the file is cut
+   * back to where it was, so the records appended after it are still readable.
+   */
+  private void flush(List<Write> writes) {
+    if (writes.isEmpty()) {
+      return;
+    }
+
+    long position = 0;
+    try {
+      position = channel.position();
+      ByteBuffer buffer = ByteBuffer.allocate(writes.stream().mapToInt(it -> it.frame.length).sum());
+      writes.forEach(it -> buffer.put(it.frame));
+      buffer.flip();
+
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      LOGGER.fatal("No ha sido posible escribir el diario de ventas {}: {}", file, e.getMessage(), e);
+      try {
+        channel.truncate(position);
+        channel.position(position);
+      } catch (IOException truncateException) {
+        LOGGER.fatal("No ha sido posible restaurar el diario de ventas {}: {}", file, truncateException.getMessage());
+      }
+      writes.forEach(it -> it.future.completeExceptionally(e));
+      return;
+    }
+
+    writes.forEach(it -> {
+      it.onDurable.run();
+      it.future.complete(null);
+    });
+  }
+
+  private void compact(Write write) {
+    synchronized (pendingInvoiceMap) {
+      if (!pendingInvoiceMap.isEmpty()) {
+        write.future.complete(null);
+        return;
+      }
+
+      try {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        write.future.complete(null);
+      } catch (IOException e) {
+        LOGGER.error("No ha sido posible vaciar el diario de ventas {}: {}", file, e.getMessage(), e);
+        write.future.completeExceptionally(e);
+      }
+    }
+  }
+
+  private static void awaitDurable(CompletableFuture<Void> future) throws UserDisplayableException {
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      // NOTE: Already logged by the writer thread.
+      throw new UserDisplayableException("No ha sido posible guardar la venta sin conexión.", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UserDisplayableException("No ha sido posible guardar la venta sin conexión.", e);
+    }
+  }
+
+  private void putPending(PendingInvoiceDTO pendingInvoiceDTO) {
+    synchronized (pendingInvoiceMap) {
+      pendingInvoiceMap.put(pendingInvoiceDTO.getKey(), pendingInvoiceDTO);
+    }
+  }
+
+  private void removePending(String key) {
+    synchronized (pendingInvoiceMap) {
+      pendingInvoiceMap.remove(key);
+    }
+  }
+
+  private static byte[] encodeSale(PendingInvoiceDTO pendingInvoiceDTO) throws UserDisplayableException {
+    return encode(output -> {
+      output.writeByte(SALE_RECORD);
+      writeString(output, pendingInvoiceDTO.getKey());
+      output.writeInt(pendingInvoiceDTO.getIDStore());
+      output.writeInt(pendingInvoiceDTO.getIDEmployee());
+      writeString(output, pendingInvoiceDTO.getClientName());
+      writeString(output, pendingInvoiceDTO.getCartPayload());
+      writeString(output, pendingInvoiceDTO.getCartID() == null ? "" : pendingInvoiceDTO.getCartID());
+      writeString(output, pendingInvoiceDTO.getCreatedAt().toString());
+    });
+  }
+
+  private static byte[] encodeSaved(String key, int invoiceId) throws UserDisplayableException {
+    return encode(output -> {
+      output.writeByte(SAVED_RECORD);
+      writeString(output, key);
+      output.writeInt(invoiceId);
+    });
+  }
+
+  private static byte[] encodeRejected(String key, String reason) throws UserDisplayableException {
+    return encode(output -> {
+      output.writeByte(REJECTED_RECORD);
+      writeString(output, key);
+      writeString(output, reason);
+    });
+  }
+
+  private static byte[] encodeFailed(String key, String reason) throws UserDisplayableException {
+    return encode(output -> {
+      output.writeByte(FAILED_RECORD);
+      writeString(output, key);
+      writeString(output, reason);
+    });
+  }
+
+  @FunctionalInterface
+  private interface RecordWriter {
+    void write(DataOutputStream output) throws IOException;
+  }
+
+  /**
+   * Frames a record as its length, its CRC32 and its bytes.
+   */
+  private static byte[] encode(RecordWriter recordWriter) throws UserDisplayableException {
+    try {
+      ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+      recordWriter.write(new DataOutputStream(recordBytes));
+      byte[] record = recordBytes.toByteArray();
+
+      ByteArrayOutputStream frameBytes = new ByteArrayOutputStream(FRAME_HEADER_SIZE + record.length);
+      DataOutputStream frame = new DataOutputStream(frameBytes);
+      frame.writeInt(record.length);
+      frame.writeInt(checksumOf(record));
+      frame.write(record);
+
+      return frameBytes.toByteArray();
+    } catch (IOException e) {
+      throw ExceptionHandler.handleIOException(LOGGER, e, "No ha sido posible guardar la venta sin conexión.");
+    }
+  }
+
+  private static int checksumOf(byte[] record) {
+    CRC32 checksum = new CRC32();
+    checksum.update(record);
+    return (int) checksum.getValue();
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,261 @@
+package ninco.business;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ninco.business.dao.InvoiceDAO;
+import ninco.business.dto.CheckoutOutcomeDTO;
+import ninco.business.dto.PendingInvoiceDTO;
+import ninco.common.ExceptionHandler;
+import ninco.common.InsufficientStockException;
+import ninco.common.UserDisplayableException;
+import ninco.db.DBConnector;
+
+/*
+ * CheckoutPipeline saves the sales of the registers of this terminal through a bounded queue and a single worker
+ * thread. When sales arrive faster than they are saved, the worker waits up to the linger time for more and saves
+ * up to a batch of them in one transaction (see InvoiceDAO.createInvoiceGroup), so they share one commit instead of
+ * paying for one each. When nothing else is waiting a sale is saved on its own right away, so a quiet register never
+ * waits for a batch to fill up.
+ * A full queue rejects new sales instead of piling them up, the cashier can retry them once it drains.
+ */
+public class CheckoutPipeline {
+  private static final Logger LOGGER = LogManager.getLogger(CheckoutPipeline.class);
+  private static final long STOP_TIMEOUT_MILLIS = 10 * 1000L;
+  private static CheckoutPipeline instance;
+  // NOTE: Queued after the last sale by stop, the worker exits once it takes it.
+  private static final Submission STOP = new Submission(null);
+  private final InvoiceDAO invoiceDAO;
+  private final int maxBatchSize;
+  private final long maxLingerMillis;
+  private final BlockingQueue<Submission> queue;
+  private Thread worker;
+  private boolean isStopped;
+
+  /**
+   * Submission is a sale waiting in the queue and the future its register waits on.
+   */
+  private static class Submission {
+    private final PendingInvoiceDTO sale;
+    private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+    private Submission(PendingInvoiceDTO sale) {
+      this.sale = sale;
+    }
+  }
+
+  /**
+   * @param invoiceDAO      the DAO the sales are saved through
+   * @param maxBatchSize    the most sales saved in one transaction
+   * @param maxLingerMillis how long the worker waits for more sales once a second one is waiting
+   * @param queueCapacity   the most sales waiting to be saved
+   */
+  public CheckoutPipeline(InvoiceDAO invoiceDAO, int maxBatchSize, long maxLingerMillis, int queueCapacity) {
+    this(invoiceDAO, new CheckoutPipelineConfiguration(maxBatchSize, maxLingerMillis, queueCapacity));
+  }
+
+  /**
+   * @param invoiceDAO    the DAO the sales are saved through
+   * @param configuration the batch size, linger time and queue capacity
+   */
+  public CheckoutPipeline(InvoiceDAO invoiceDAO, CheckoutPipelineConfiguration configuration) {
+    this.invoiceDAO = invoiceDAO;
+    this.maxBatchSize = configuration.getMaxBatchSize();
+    this.maxLingerMillis = configuration.getMaxLingerMillis();
+    this.queue = new ArrayBlockingQueue<>(configuration.getQueueCapacity());
+  }
+
+  /**
+   * @return the pipeline of this terminal, configured by the checkout.* keys of db.properties
+   */
+  public static synchronized CheckoutPipeline getInstance() {
+    if (instance == null) {
+      instance = new CheckoutPipeline(InvoiceDAO.getInstance(), getConfigurationFromProperties());
+    }
+
+    return instance;
+  }
+
+  private static CheckoutPipelineConfiguration getConfigurationFromProperties() {
+    try {
+      return CheckoutPipelineConfiguration.fromProperties(DBConnector.getInstance().getProperties());
+    } catch (UserDisplayableException e) {
+      LOGGER.warn("No ha sido posible leer la configuración de ventas, se usan los valores por defecto.");
+    } catch (IllegalArgumentException e) {
+      LOGGER.error("Las propiedades de ventas no son válidas, se usan los valores por defecto. Revisar db.properties.", e);
+    }
+
+    return CheckoutPipelineConfiguration.getDefault();
+  }
+
+  /**
+   * Saves a sale, waiting until it is saved. See InvoiceDAO.createInvoice.
+   *
+   * @param sale the sale
+   * @return the id of the invoice
+   * @throws InsufficientStockException if the store cannot cover some lines, nothing is saved then
+   * @throws UserDisplayableException if the queue is full or the sale could not be saved
+   */
+  public int checkout(PendingInvoiceDTO sale) throws UserDisplayableException {
+    try {
+      return submit(sale).get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UserDisplayableException) {
+        throw (UserDisplayableException) e.getCause();
+      }
+      throw ExceptionHandler.handleUnexpectedException(LOGGER, e.getCause(), "Error al procesar la venta.");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UserDisplayableException("Error al procesar la venta.", e);
+    }
+  }
+
+  /**
+   * Queues a sale to be saved.
+   *
+   * @param sale the sale
+   * @return the id of the invoice once the sale is saved, or the UserDisplayableException it failed with
+   * @throws UserDisplayableException if the queue is full or the pipeline was stopped, nothing is queued then
+   */
+  public synchronized CompletableFuture<Integer> submit(PendingInvoiceDTO sale) throws UserDisplayableException {
+    if (isStopped) {
+      throw new UserDisplayableException("El sistema se está cerrando, no es posible procesar más ventas.");
+    }
+
+    Submission submission = new Submission(sale);
+    if (!queue.offer(submission)) {
+      LOGGER.warn("Venta rechazada, hay {} ventas en espera de ser registradas", queue.size());
+      throw new UserDisplayableException("Hay demasiadas ventas en espera. Por favor, inténtelo de nuevo.");
+    }
+
+    if (worker == null) {
+      worker = new Thread(this::processLoop, "checkout-pipeline");
+      worker.setDaemon(true);
+      worker.start();
+    }
+
+    return submission.future;
+  }
+
+  /**
+   * Stops taking sales and waits for the sales already queued to be saved.
+   */
+  public void stop() {
+    Thread stoppedWorker;
+    synchronized (this) {
+      if (isStopped) {
+        return;
+      }
+      isStopped = true;
+      stoppedWorker = worker;
+    }
+
+    if (stoppedWorker == null) {
+      return;
+    }
+
+    try {
+      queue.put(STOP);
+      stoppedWorker.join(STOP_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void processLoop() {
+    List<Submission> batch = new ArrayList<>(maxBatchSize);
+
+    while (true) {
+      try {
+        batch.add(queue.take());
+        collectBatch(batch);
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      boolean isStopping = batch.remove(STOP);
+      if (!batch.isEmpty()) {
+        process(batch);
+      }
+      batch.clear();
+
+      if (isStopping) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds the sales already waiting to the batch and, if there were any, waits up to the linger time for more until
+   * the batch is full. Stops collecting at the STOP marker so no sale queued after it is taken.
+   */
+  private void collectBatch(List<Submission> batch) throws InterruptedException {
+    if (batch.get(0) == STOP || maxBatchSize == 1 || !drainOne(batch)) {
+      return;
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+    while (batch.size() < maxBatchSize && batch.get(batch.size() - 1) != STOP) {
+      long remainingNanos = deadline - System.nanoTime();
+      if (!drainOne(batch)) {
+        if (remainingNanos <= 0) {
+          return;
+        }
+
+        Submission submission = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+        if (submission == null) {
+          return;
+        }
+        batch.add(submission);
+      }
+    }
+  }
+
+  private boolean drainOne(List<Submission> batch) {
+    Submission submission = queue.poll();
+    if (submission == null) {
+      return false;
+    }
+
+    batch.add(submission);
+    return true;
+  }
+
+  private void process(List<Submission> batch) {
+    try {
+      if (batch.size() == 1) {
+        Submission submission = batch.get(0);
+        try {
+          submission.future.complete(invoiceDAO.createInvoice(submission.sale));
+        } catch (UserDisplayableException e) {
+          submission.future.completeExceptionally(e);
+        }
+        return;
+      }
+
+      List<PendingInvoiceDTO> sales = new ArrayList<>(batch.size());
+      batch.forEach(it -> sales.add(it.sale));
+
+      List<CheckoutOutcomeDTO> outcomeList = invoiceDAO.createInvoiceGroup(sales);
+      for (int i = 0; i < batch.size(); i++) {
+        CheckoutOutcomeDTO outcome = outcomeList.get(i);
+        if (outcome.isSaved()) {
+          batch.get(i).future.complete(outcome.getIDInvoice());
+        } else {
+          batch.get(i).future.completeExceptionally(outcome.getFailure());
+        }
+      }
+    } catch (RuntimeException e) {
+      UserDisplayableException failure = ExceptionHandler.handleUnexpectedException(LOGGER, e, "Error al procesar la venta.");
+      batch.forEach(it -> it.future.completeExceptionally(failure));
+    }
+  }
+}
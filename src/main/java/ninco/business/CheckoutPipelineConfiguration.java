@@ -0,0 +1,62 @@
+package ninco.business;
+
+import java.util.Properties;
+
+/**
+ * CheckoutPipelineConfiguration holds the batching settings of the CheckoutPipeline.
+ * Every setting is optional in db.properties and falls back to a sensible default.
+ */
+public class CheckoutPipelineConfiguration {
+  private static final int DEFAULT_MAX_BATCH_SIZE = 16;
+  private static final long DEFAULT_MAX_LINGER_MS = 5;
+  private static final int DEFAULT_QUEUE_CAPACITY = 256;
+  private final int maxBatchSize;
+  private final long maxLingerMillis;
+  private final int queueCapacity;
+
+  public CheckoutPipelineConfiguration(int maxBatchSize, long maxLingerMillis, int queueCapacity) {
+    if (maxBatchSize < 1 || maxLingerMillis < 0 || queueCapacity < 1) {
+      throw new IllegalArgumentException(
+        "Invalid checkout pipeline: batch " + maxBatchSize + ", linger " + maxLingerMillis + ", queue " + queueCapacity
+      );
+    }
+
+    this.maxBatchSize = maxBatchSize;
+    this.maxLingerMillis = maxLingerMillis;
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * @return the configuration with every default
+   */
+  public static CheckoutPipelineConfiguration getDefault() {
+    return new CheckoutPipelineConfiguration(DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_LINGER_MS, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * Reads the pipeline settings from the checkout.* keys of the database properties.
+   *
+   * @param properties the loaded db.properties
+   * @return the configuration with defaults for every missing key
+   * @throws NumberFormatException if a present key is not a number
+   */
+  public static CheckoutPipelineConfiguration fromProperties(Properties properties) {
+    return new CheckoutPipelineConfiguration(
+      Integer.parseInt(properties.getProperty("checkout.max-batch-size", String.valueOf(DEFAULT_MAX_BATCH_SIZE))),
+      Long.parseLong(properties.getProperty("checkout.max-linger-ms", String.valueOf(DEFAULT_MAX_LINGER_MS))),
+      Integer.parseInt(properties.getProperty("checkout.queue-capacity", String.valueOf(DEFAULT_QUEUE_CAPACITY)))
+    );
+  }
+
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  public long getMaxLingerMillis() {
+    return maxLingerMillis;
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+}
@@ -0,0 +1,355 @@
+package ninco.business;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ninco.business.dao.ProductDAO;
+import ninco.business.dto.ProductDTO;
+import ninco.common.StringIntHashMap;
+import ninco.common.UserDisplayableException;
+
+/*
+ * ProductCatalog is a singleton holding every product in memory on this terminal, indexed by id, by barcode and by
+ * the words of their normalized names, so the sale page resolves scanned or typed products without a database
+ * round trip.
+ * It is loaded in the background at login and refreshed incrementally: every 5 seconds it polls the catalog
+ * version (a counter bumped in the transaction of every write to a product) and, when it changed, reloads only the
+ * products written since and drops the ones deleted since. A product written on another terminal is therefore seen
+ * here about 5 seconds after it commits, once the refresh that reads it finishes.
+ * Lookups read an immutable snapshot, so they never wait for a refresh.
+ * The stock of the cached products is not kept current, the sale page checks stock separately.
+ */
+public class ProductCatalog {
+  private static final Logger LOGGER = LogManager.getLogger(ProductCatalog.class);
+  // NOTE: Polling reads the single CatalogVersion row, so it stays cheap at this period.
+  private static final long REFRESH_PERIOD_SECONDS = 5;
+  private static final ProductCatalog INSTANCE = new ProductCatalog();
+  private volatile Snapshot snapshot;
+  private ScheduledExecutorService refresher;
+
+  private ProductCatalog() {
+  }
+
+  public static ProductCatalog getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Loads the catalog in the background and keeps it refreshed until unload is called.
+   * Until the first load finishes isLoaded returns false and callers should query the database.
+   */
+  public synchronized void loadInBackground() {
+    if (refresher != null) {
+      return;
+    }
+
+    refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "product-catalog-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    refresher.scheduleWithFixedDelay(() -> {
+      try {
+        refreshIfChanged();
+      } catch (UserDisplayableException e) {
+        LOGGER.warn("No ha sido posible actualizar el catálogo de productos: {}", e.getMessage());
+      }
+    }, 0, REFRESH_PERIOD_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops refreshing and discards the catalog, e.g. when the user logs out.
+   */
+  public synchronized void unload() {
+    if (refresher != null) {
+      refresher.shutdownNow();
+      refresher = null;
+    }
+
+    snapshot = null;
+  }
+
+  public boolean isLoaded() {
+    return snapshot != null;
+  }
+
+  /**
+   * Reloads the products written and drops the ones deleted since the last refresh if the catalog version changed,
+   * or loads every product if the catalog was never loaded.
+   *
+   * @throws UserDisplayableException if the products could not be loaded
+   */
+  public synchronized void refreshIfChanged() throws UserDisplayableException {
+    Snapshot current = snapshot;
+    // NOTE: Read before the products, so a product written meanwhile is read again on the next refresh.
+    long version = ProductDAO.getInstance().getCatalogVersion();
+
+    if (current != null && version == current.version) {
+      return;
+    }
+
+    List<ProductDTO> changedProducts;
+    List<Integer> deletedIDs;
+    if (current == null) {
+      changedProducts = new ArrayList<>();
+      deletedIDs = new ArrayList<>();
+      ProductDAO.getInstance().streamAll(changedProducts::add);
+    } else {
+      changedProducts = ProductDAO.getInstance().getAllChangedSince(current.version);
+      deletedIDs = ProductDAO.getInstance().getAllDeletedSince(current.version);
+    }
+
+    snapshot = Snapshot.of(current, changedProducts, deletedIDs, version);
+    LOGGER.debug(
+      "Catálogo de productos actualizado, {} productos cambiados y {} eliminados.",
+      changedProducts.size(),
+      deletedIDs.size()
+    );
+  }
+
+  /**
+   * @param idProduct the id of the product
+   * @return the product, or null if there is none
+   * @throws IllegalStateException if the catalog is not loaded
+   */
+  public ProductDTO findByID(int idProduct) {
+    return getLoadedSnapshot().productByID.get(idProduct);
+  }
+
+  /**
+   * Finds a product by one of its barcodes or SKUs, in constant time and without allocating, so scans resolve at
+   * the speed the scanner sends them.
+   *
+   * @param barcode the barcode or SKU, in upper case as ProductDTO keeps them
+   * @return the product, or null if no product has the barcode
+   * @throws IllegalStateException if the catalog is not loaded
+   */
+  public ProductDTO findByBarcode(String barcode) {
+    Snapshot current = getLoadedSnapshot();
+    int position = current.positionByBarcode.get(barcode, -1);
+    return position == -1 ? null : current.productsInIDOrder[position];
+  }
+
+  /**
+   * Finds the products whose name matches every word of the query, each one being the start of a word of the name
+   * (ignoring case and accents), e.g. "cab usb" matches "Cable USB 2m". They are ranked as the cashier would pick:
+   * the product named exactly as the query first, then those whose name starts with it, then the rest, each group
+   * ordered by name and id like ProductDAO.searchByNamePrefix.
+   *
+   * @param query the name or part of the name typed by the cashier
+   * @param limit the most products to return
+   * @return the best matching products, best first
+   * @throws IllegalStateException if the catalog is not loaded
+   */
+  public List<ProductDTO> searchByName(String query, int limit) {
+    return getLoadedSnapshot().searchByName(normalize(query), limit);
+  }
+
+  private Snapshot getLoadedSnapshot() {
+    Snapshot current = snapshot;
+
+    if (current == null) {
+      throw new IllegalStateException("The product catalog is not loaded.");
+    }
+
+    return current;
+  }
+
+  /**
+   * Normalizes a product name for lookups like the utf8mb4_unicode_ci collation compares it:
+   * ignoring case, accents and repeated or surrounding whitespace.
+   *
+   * @param value the text to normalize
+   * @return the normalized text
+   */
+  static String normalize(String value) {
+    String withoutAccents = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    return withoutAccents.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  private static final class Snapshot {
+    private static final int EXACT_RANK = 0;
+    private static final int PREFIX_RANK = 1;
+    private static final int WORD_RANK = 2;
+    private final long version;
+    private final Map<Integer, ProductDTO> productByID;
+    private final StringIntHashMap positionByBarcode;
+    private final ProductDTO[] productsInIDOrder;
+    private final String[] normalizedNamesInIDOrder;
+    private final String[][] nameWordsInIDOrder;
+    // NOTE: Every word of every name, sorted, with the position of its product alongside, so the words starting
+    // with a prefix are a contiguous range found by binary search.
+    private final String[] sortedWords;
+    private final int[] productPositionBySortedWord;
+
+    private Snapshot(long version, Collection<ProductDTO> productsInIDOrder) {
+      this.version = version;
+      this.productByID = new HashMap<>(productsInIDOrder.size() * 2);
+      this.positionByBarcode = new StringIntHashMap(productsInIDOrder.size());
+      this.productsInIDOrder = productsInIDOrder.toArray(new ProductDTO[0]);
+      this.normalizedNamesInIDOrder = new String[this.productsInIDOrder.length];
+      this.nameWordsInIDOrder = new String[this.productsInIDOrder.length][];
+
+      List<WordEntry> wordEntryList = new ArrayList<>(this.productsInIDOrder.length * 3);
+      for (int i = 0; i < this.productsInIDOrder.length; i++) {
+        ProductDTO productDTO = this.productsInIDOrder[i];
+        normalizedNamesInIDOrder[i] = normalize(productDTO.getName());
+        nameWordsInIDOrder[i] = normalizedNamesInIDOrder[i].split(" ");
+        productByID.put(productDTO.getIDProduct(), productDTO);
+        for (String barcode : productDTO.getBarcodes()) {
+          positionByBarcode.put(barcode, i);
+        }
+
+        for (String word : nameWordsInIDOrder[i]) {
+          wordEntryList.add(new WordEntry(word, i));
+        }
+      }
+
+      wordEntryList.sort(Comparator.comparing((WordEntry it) -> it.word).thenComparingInt(it -> it.productPosition));
+      this.sortedWords = new String[wordEntryList.size()];
+      this.productPositionBySortedWord = new int[wordEntryList.size()];
+      for (int i = 0; i < sortedWords.length; i++) {
+        sortedWords[i] = wordEntryList.get(i).word;
+        productPositionBySortedWord[i] = wordEntryList.get(i).productPosition;
+      }
+    }
+
+    private List<ProductDTO> searchByName(String normalizedQuery, int limit) {
+      if (normalizedQuery.isEmpty() || limit <= 0) {
+        return new ArrayList<>();
+      }
+
+      String[] queryWords = normalizedQuery.split(" ");
+      // NOTE: The longest word of the query starts the fewest words of the catalog.
+      String leadingWord = queryWords[0];
+      for (String queryWord : queryWords) {
+        if (queryWord.length() > leadingWord.length()) {
+          leadingWord = queryWord;
+        }
+      }
+
+      Comparator<Integer> ranking = Comparator.comparingInt((Integer it) -> rank(it, normalizedQuery))
+        .thenComparing(it -> normalizedNamesInIDOrder[it])
+        .thenComparingInt(it -> it);
+      // NOTE: Keeps the best matches found so far, the worst on top so it is the one dropped.
+      PriorityQueue<Integer> bestPositions = new PriorityQueue<>(limit + 1, ranking.reversed());
+
+      for (int i = findFirstWordFrom(leadingWord); i < sortedWords.length && sortedWords[i].startsWith(leadingWord); i++) {
+        int position = productPositionBySortedWord[i];
+        if (!matchesEveryWord(position, queryWords)) {
+          continue;
+        }
+        if (bestPositions.size() == limit && ranking.compare(position, bestPositions.peek()) >= 0) {
+          continue;
+        }
+        // NOTE: A name with several words starting with the prefix is listed once per word.
+        if (bestPositions.contains(position)) {
+          continue;
+        }
+
+        bestPositions.add(position);
+        if (bestPositions.size() > limit) {
+          bestPositions.poll();
+        }
+      }
+
+      List<Integer> positionList = new ArrayList<>(bestPositions);
+      positionList.sort(ranking);
+      List<ProductDTO> productDTOList = new ArrayList<>(positionList.size());
+      positionList.forEach(it -> productDTOList.add(productsInIDOrder[it]));
+      return productDTOList;
+    }
+
+    private int rank(int position, String normalizedQuery) {
+      String normalizedName = normalizedNamesInIDOrder[position];
+
+      if (normalizedName.equals(normalizedQuery)) {
+        return EXACT_RANK;
+      }
+
+      return normalizedName.startsWith(normalizedQuery) ? PREFIX_RANK : WORD_RANK;
+    }
+
+    private boolean matchesEveryWord(int position, String[] queryWords) {
+      for (String queryWord : queryWords) {
+        boolean isMatched = false;
+        for (String nameWord : nameWordsInIDOrder[position]) {
+          if (nameWord.startsWith(queryWord)) {
+            isMatched = true;
+            break;
+          }
+        }
+
+        if (!isMatched) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    private int findFirstWordFrom(String prefix) {
+      int low = 0;
+      int high = sortedWords.length;
+
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (sortedWords[middle].compareTo(prefix) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+
+      return low;
+    }
+
+    private static Snapshot of(
+      Snapshot previous,
+      List<ProductDTO> changedProducts,
+      List<Integer> deletedIDs,
+      long version
+    ) {
+      Map<Integer, ProductDTO> productByID = new TreeMap<>();
+
+      if (previous != null) {
+        for (ProductDTO productDTO : previous.productsInIDOrder) {
+          productByID.put(productDTO.getIDProduct(), productDTO);
+        }
+      }
+
+      for (ProductDTO productDTO : changedProducts) {
+        productByID.put(productDTO.getIDProduct(), productDTO);
+      }
+
+      // NOTE: The barcodes of a deleted product go with it, as the barcode index is built from the products kept.
+      deletedIDs.forEach(productByID::remove);
+
+      return new Snapshot(version, productByID.values());
+    }
+  }
+
+  private static final class WordEntry {
+    private final String word;
+    private final int productPosition;
+
+    private WordEntry(String word, int productPosition) {
+      this.word = word;
+      this.productPosition = productPosition;
+    }
+  }
+}
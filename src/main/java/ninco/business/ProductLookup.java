@@ -0,0 +1,123 @@
+package ninco.business;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import ninco.business.dao.ProductDAO;
+import ninco.business.dto.ProductDTO;
+import ninco.common.UserDisplayableException;
+
+/*
+ * ProductLookup resolves what the cashier scans or types at the register. A code (letters, digits or dashes with at
+ * least one digit) goes to an exact match on the barcodes and SKUs of the products and, if it is a number, on the
+ * product id. Anything else, or a code nothing matches, goes to a search by the start of the words of the names
+ * returning a short ranked list to pick from. All of it is served from the ProductCatalog once it is loaded, until
+ * then the exact matches read primary keys and the name search a range of idx_product_name, so a lookup never scans
+ * the Product table.
+ */
+public class ProductLookup {
+  // NOTE: Product ids are INT, a longer number cannot be one.
+  private static final int MAX_ID_LENGTH = 9;
+  private static final int MAX_CODE_LENGTH = 64;
+  private static final ProductLookup INSTANCE = new ProductLookup();
+
+  private ProductLookup() {
+  }
+
+  public static ProductLookup getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Looks a query up from memory, see lookup.
+   *
+   * @param query the code or name
+   * @param limit the most products to return
+   * @return the matching products best first, or empty if the catalog is not loaded and lookup must be used
+   */
+  public Optional<List<ProductDTO>> lookupInMemory(String query, int limit) {
+    ProductCatalog productCatalog = ProductCatalog.getInstance();
+    String code = query.trim();
+
+    try {
+      if (isCode(code)) {
+        ProductDTO productDTO = productCatalog.findByBarcode(code.toUpperCase(Locale.ROOT));
+        if (productDTO == null && isProductID(code)) {
+          productDTO = productCatalog.findByID(Integer.parseInt(code));
+        }
+        if (productDTO != null) {
+          return Optional.of(List.of(productDTO));
+        }
+      }
+
+      return Optional.of(productCatalog.searchByName(query, limit));
+    } catch (IllegalStateException e) {
+      // NOTE: The catalog was unloaded, e.g. on log out, or is still loading.
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Looks up a code or a name. A code that no product has is looked up as a name as well, since names may contain
+   * digits too.
+   *
+   * @param query the code or name
+   * @param limit the most products to return
+   * @return the matching products best first, a single one for a code, empty if none matches
+   * @throws UserDisplayableException if the catalog is not loaded and the database could not be queried
+   */
+  public List<ProductDTO> lookup(String query, int limit) throws UserDisplayableException {
+    Optional<List<ProductDTO>> productDTOList = lookupInMemory(query, limit);
+    if (productDTOList.isPresent()) {
+      return productDTOList.get();
+    }
+
+    String code = query.trim();
+    if (isCode(code)) {
+      ProductDTO productDTO = ProductDAO.getInstance().findByBarcode(code);
+      if (productDTO == null && isProductID(code)) {
+        productDTO = ProductDAO.getInstance().findByID(Integer.parseInt(code));
+      }
+      if (productDTO != null) {
+        return List.of(productDTO);
+      }
+    }
+
+    return code.isEmpty() ? new ArrayList<>() : ProductDAO.getInstance().searchByNamePrefix(code, limit);
+  }
+
+  private static boolean isCode(String code) {
+    if (code.isEmpty() || code.length() > MAX_CODE_LENGTH) {
+      return false;
+    }
+
+    boolean hasDigit = false;
+    for (int i = 0; i < code.length(); i++) {
+      char character = code.charAt(i);
+
+      if (character >= '0' && character <= '9') {
+        hasDigit = true;
+      } else if (!Character.isLetter(character) && character != '-') {
+        return false;
+      }
+    }
+
+    return hasDigit;
+  }
+
+  private static boolean isProductID(String code) {
+    if (code.length() > MAX_ID_LENGTH) {
+      return false;
+    }
+
+    for (int i = 0; i < code.length(); i++) {
+      if (code.charAt(i) < '0' || code.charAt(i) > '9') {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
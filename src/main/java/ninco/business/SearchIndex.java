@@ -0,0 +1,273 @@
+package ninco.business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import ninco.business.dto.Searchable;
+
+/*
+ * SearchIndex is an inverted index over the searchable text of the rows of a list, so a search reads the postings
+ * (the sorted positions of the rows having a word) of the words of the query instead of formatting and scanning the
+ * text of every row on every keystroke. The text of a row is only formatted when the row is indexed.
+ * A row matches when every word of the query is the start of one of its words, in any order, e.g. "ana gmail"
+ * matches "Ana López ana@gmail.com". Words are the runs of letters and digits of the lower case text.
+ * Appending rows and replacing rows in place keep the index current, rows inserted or removed anywhere but the end
+ * shift the positions of the rest, so the index must be reset with the rows of the list.
+ * It is thread-safe, so rows may be indexed and searched on any thread.
+ */
+public class SearchIndex<T extends Searchable> {
+  private final TreeMap<String, Postings> postingsByWord = new TreeMap<>();
+  private final List<Postings[]> postingsByPosition = new ArrayList<>();
+
+  /**
+   * Postings are the positions of the rows having a word, kept sorted in a plain array.
+   */
+  private static final class Postings {
+    private final String word;
+    private int[] positions = new int[4];
+    private int size;
+
+    private Postings(String word) {
+      this.word = word;
+    }
+
+    private void add(int position) {
+      if (size == positions.length) {
+        positions = Arrays.copyOf(positions, size * 2);
+      }
+
+      if (size == 0 || positions[size - 1] < position) {
+        positions[size++] = position;
+        return;
+      }
+
+      int index = Arrays.binarySearch(positions, 0, size, position);
+      if (index >= 0) {
+        return;
+      }
+
+      index = -index - 1;
+      System.arraycopy(positions, index, positions, index + 1, size - index);
+      positions[index] = position;
+      size++;
+    }
+
+    private void remove(int position) {
+      int index = Arrays.binarySearch(positions, 0, size, position);
+      if (index < 0) {
+        return;
+      }
+
+      System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+      size--;
+    }
+
+    private void addTo(BitSet matches) {
+      for (int i = 0; i < size; i++) {
+        matches.set(positions[i]);
+      }
+    }
+  }
+
+  public synchronized int size() {
+    return postingsByPosition.size();
+  }
+
+  /**
+   * Indexes a row at the end of the list.
+   *
+   * @param row the row, null rows (e.g. not loaded yet) match no query
+   */
+  public synchronized void add(T row) {
+    int position = postingsByPosition.size();
+    postingsByPosition.add(null);
+    index(position, row);
+  }
+
+  /**
+   * Indexes the row that replaced the one at a position of the list, or the row at that position again if its
+   * searchable text changed.
+   *
+   * @param position the position of the row
+   * @param row      the row now at that position
+   */
+  public synchronized void set(int position, T row) {
+    for (Postings postings : postingsByPosition.get(position)) {
+      postings.remove(position);
+    }
+
+    index(position, row);
+  }
+
+  /**
+   * Indexes every row of the list again, e.g. after rows were inserted or removed before its end.
+   *
+   * @param rows the rows of the list, in order
+   */
+  public synchronized void reset(Collection<? extends T> rows) {
+    postingsByWord.clear();
+    postingsByPosition.clear();
+    rows.forEach(this::add);
+  }
+
+  /**
+   * Finds the rows whose words start with every word of the query, reading the postings of the words with each
+   * prefix and intersecting them, rarest first.
+   *
+   * @param query the text typed by the user, in any case
+   * @return the positions of the matching rows, every position if the query has no words
+   */
+  public BitSet search(String query) {
+    return search(query, null);
+  }
+
+  /**
+   * Finds the rows among some candidates whose words start with every word of the query, e.g. the rows that matched
+   * the previous query when the new one extends it. Few candidates are checked one by one against their words, so
+   * a query that only narrows the previous one does not read the postings of its words again.
+   *
+   * @param query      the text typed by the user, in any case
+   * @param candidates the positions of the rows to search among, or null to search every row
+   * @return the positions of the matching rows, every candidate if the query has no words
+   */
+  public synchronized BitSet search(String query, BitSet candidates) {
+    BitSet matches = new BitSet(size());
+    List<String> queryWords = toWords(query == null ? "" : query.toLowerCase());
+
+    if (queryWords.isEmpty()) {
+      matches.set(0, size());
+      if (candidates != null) {
+        matches.and(candidates);
+      }
+      return matches;
+    }
+
+    List<SortedMap<String, Postings>> postingsByQueryWord = new ArrayList<>(queryWords.size());
+    for (String queryWord : queryWords) {
+      SortedMap<String, Postings> prefixPostings = postingsByWord.subMap(queryWord, queryWord + Character.MAX_VALUE);
+      if (prefixPostings.isEmpty()) {
+        return matches;
+      }
+      postingsByQueryWord.add(prefixPostings);
+    }
+    postingsByQueryWord.sort((a, b) -> Integer.compare(countPositions(a), countPositions(b)));
+
+    if (candidates != null && candidates.cardinality() < countPositions(postingsByQueryWord.get(0))) {
+      for (int i = candidates.nextSetBit(0); i >= 0 && i < size(); i = candidates.nextSetBit(i + 1)) {
+        if (hasEveryWord(postingsByPosition.get(i), queryWords)) {
+          matches.set(i);
+        }
+      }
+      return matches;
+    }
+
+    postingsByQueryWord.get(0).values().forEach(it -> it.addTo(matches));
+    if (candidates != null) {
+      matches.and(candidates);
+    }
+    BitSet wordMatches = new BitSet(size());
+    for (int i = 1; i < postingsByQueryWord.size() && !matches.isEmpty(); i++) {
+      wordMatches.clear();
+      postingsByQueryWord.get(i).values().forEach(it -> it.addTo(wordMatches));
+      matches.and(wordMatches);
+    }
+
+    return matches;
+  }
+
+  /**
+   * Creates a test of whether a row matches a query as search finds it, without indexing the row, e.g. to filter
+   * rows as they are read from the database.
+   *
+   * @param query the text typed by the user, in any case
+   * @return the test, it accepts every row if the query has no words and may be used on any thread
+   */
+  public static Predicate<Searchable> createMatcher(String query) {
+    List<String> queryWords = toWords(query == null ? "" : query.toLowerCase());
+
+    return row -> {
+      List<String> rowWords = toWords(row.getSearchableText());
+
+      for (String queryWord : queryWords) {
+        boolean hasWord = false;
+
+        for (int i = 0; i < rowWords.size() && !hasWord; i++) {
+          hasWord = rowWords.get(i).startsWith(queryWord);
+        }
+
+        if (!hasWord) {
+          return false;
+        }
+      }
+
+      return true;
+    };
+  }
+
+  private void index(int position, T row) {
+    List<String> words = row == null ? List.of() : toWords(row.getSearchableText());
+    Postings[] rowPostings = new Postings[words.size()];
+
+    for (int i = 0; i < rowPostings.length; i++) {
+      rowPostings[i] = postingsByWord.computeIfAbsent(words.get(i), Postings::new);
+      rowPostings[i].add(position);
+    }
+
+    postingsByPosition.set(position, rowPostings);
+    // NOTE: Words no row has anymore are left with empty postings until the next reset, they match nothing.
+  }
+
+  private static boolean hasEveryWord(Postings[] rowPostings, List<String> queryWords) {
+    for (String queryWord : queryWords) {
+      boolean hasWord = false;
+
+      for (int i = 0; i < rowPostings.length && !hasWord; i++) {
+        hasWord = rowPostings[i].word.startsWith(queryWord);
+      }
+
+      if (!hasWord) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static int countPositions(Map<String, Postings> prefixPostings) {
+    int count = 0;
+
+    for (Postings postings : prefixPostings.values()) {
+      count += postings.size;
+    }
+
+    return count;
+  }
+
+  private static List<String> toWords(String text) {
+    List<String> words = new ArrayList<>();
+    int start = -1;
+
+    for (int i = 0; i <= text.length(); i++) {
+      boolean isWordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+
+      if (isWordCharacter && start == -1) {
+        start = i;
+      } else if (!isWordCharacter && start != -1) {
+        String word = text.substring(start, i);
+        if (!words.contains(word)) {
+          words.add(word);
+        }
+        start = -1;
+      }
+    }
+
+    return words;
+  }
+}
@@ -0,0 +1,85 @@
+package ninco.business;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ninco.business.dao.StockShardDAO;
+import ninco.common.UserDisplayableException;
+
+/*
+ * StockShardRebalancer is a singleton that keeps the shards of the hot products of the store of the cashier
+ * balanced (see StockShardDAO) while the cashier is logged in, so a checkout rarely finds its random shard short
+ * and falls back to locking every shard.
+ * Every register of the store runs it, rebalancing checks the shards again after locking them, so two registers
+ * rebalancing the same product at once only move the stock once.
+ */
+public class StockShardRebalancer {
+  private static final Logger LOGGER = LogManager.getLogger(StockShardRebalancer.class);
+  private static final long REBALANCE_PERIOD_SECONDS = 60;
+  private static final StockShardRebalancer INSTANCE = new StockShardRebalancer();
+  private ScheduledExecutorService rebalancer;
+
+  private StockShardRebalancer() {
+  }
+
+  public static StockShardRebalancer getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Rebalances the hot products of a store in the background periodically until stop is called.
+   *
+   * @param idStore the id of the store
+   */
+  public synchronized void start(int idStore) {
+    if (rebalancer != null) {
+      return;
+    }
+
+    rebalancer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "stock-shard-rebalancer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    rebalancer.scheduleWithFixedDelay(() -> {
+      try {
+        rebalanceStore(idStore);
+      } catch (UserDisplayableException e) {
+        LOGGER.warn("No ha sido posible balancear el inventario dividido: {}", e.getMessage());
+      }
+    }, 0, REBALANCE_PERIOD_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops rebalancing, a rebalance already running is completed since it is a single transaction.
+   */
+  public synchronized void stop() {
+    if (rebalancer != null) {
+      rebalancer.shutdown();
+      rebalancer = null;
+    }
+  }
+
+  /**
+   * Rebalances the hot products of a store whose shards drifted apart.
+   *
+   * @param idStore the id of the store
+   * @return the number of products rebalanced
+   * @throws UserDisplayableException if the shards could not be loaded or rebalanced
+   */
+  public int rebalanceStore(int idStore) throws UserDisplayableException {
+    int rebalancedCount = 0;
+
+    for (int idProduct : StockShardDAO.getInstance().getUnbalancedProductsOfStore(idStore)) {
+      if (StockShardDAO.getInstance().rebalance(idStore, idProduct)) {
+        rebalancedCount++;
+      }
+    }
+
+    return rebalancedCount;
+  }
+}
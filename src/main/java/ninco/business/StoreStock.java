@@ -0,0 +1,175 @@
+package ninco.business;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ninco.business.dao.StockDAO;
+import ninco.common.IntIntHashMap;
+import ninco.common.UserDisplayableException;
+
+/*
+ * StoreStock holds the stock of one store in memory while a sale is being registered, so adding a product to the
+ * cart checks the available quantity locally instead of querying the database for every product.
+ * The loaded stock is the stock available to sell to the cart, i.e. without the units held by other carts.
+ * The quantities in the cart are held apart from the quantities loaded from the database: reconciling replaces
+ * the latter and keeps the former, so the available quantity always accounts for the current cart.
+ * The database still has the last word, InvoiceDAO rejects the sale if the stock ran out on another terminal.
+ */
+public class StoreStock {
+  private static final Logger LOGGER = LogManager.getLogger(StoreStock.class);
+  private static final long RECONCILE_PERIOD_SECONDS = 60;
+  private final int idStore;
+  private final String cartId;
+  private final IntIntHashMap heldQuantityByProduct = new IntIntHashMap();
+  private IntIntHashMap quantityByProduct;
+  private ScheduledExecutorService reconciler;
+  private long commitCount;
+
+  private StoreStock(int idStore, String cartId, IntIntHashMap quantityByProduct) {
+    this.idStore = idStore;
+    this.cartId = cartId;
+    this.quantityByProduct = quantityByProduct;
+  }
+
+  /**
+   * Loads the stock of a store available to sell to a cart.
+   *
+   * @param idStore the id of the store
+   * @param cartId  the id of the cart being registered, see CartReservation
+   * @return the stock of the store, with nothing held
+   * @throws UserDisplayableException if the stock could not be loaded
+   */
+  public static StoreStock load(int idStore, String cartId) throws UserDisplayableException {
+    return new StoreStock(
+      idStore,
+      cartId,
+      StockDAO.getInstance().getAvailableQuantityByProductOfStore(idStore, cartId)
+    );
+  }
+
+  public int getIDStore() {
+    return idStore;
+  }
+
+  /**
+   * Gets the quantity of a product that can still be added to the cart.
+   *
+   * @param idProduct the id of the product
+   * @return the stock loaded from the database minus the quantity held by the cart
+   */
+  public synchronized int getAvailable(int idProduct) {
+    return quantityByProduct.get(idProduct, 0) - heldQuantityByProduct.get(idProduct, 0);
+  }
+
+  /**
+   * Holds a quantity of a product for the cart if it is available.
+   *
+   * @param idProduct the id of the product
+   * @param quantity  the positive quantity to hold
+   * @return false if there is not enough stock, nothing is held then
+   */
+  public synchronized boolean hold(int idProduct, int quantity) {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+    }
+
+    if (getAvailable(idProduct) < quantity) {
+      return false;
+    }
+
+    heldQuantityByProduct.addTo(idProduct, quantity);
+    return true;
+  }
+
+  /**
+   * Holds a quantity of a product that the database already held for the cart, even if the loaded stock does not
+   * cover it, so releasing it later gives back exactly what was held.
+   *
+   * @param idProduct the id of the product
+   * @param quantity  the positive quantity held
+   * @return false if the loaded stock did not cover the quantity, i.e. it is stale and should be reconciled
+   */
+  public synchronized boolean holdGranted(int idProduct, int quantity) {
+    if (hold(idProduct, quantity)) {
+      return true;
+    }
+
+    heldQuantityByProduct.addTo(idProduct, quantity);
+    return false;
+  }
+
+  /**
+   * Gives back a quantity held for the cart, e.g. when an item is removed.
+   *
+   * @param idProduct the id of the product
+   * @param quantity  the quantity to release
+   */
+  public synchronized void release(int idProduct, int quantity) {
+    if (heldQuantityByProduct.addTo(idProduct, -quantity) < 0) {
+      heldQuantityByProduct.put(idProduct, 0);
+    }
+  }
+
+  /**
+   * Removes the held quantities from the stock once the sale was saved, until the next reconciliation.
+   */
+  public synchronized void commitHeld() {
+    heldQuantityByProduct.forEach((idProduct, quantity) -> quantityByProduct.addTo(idProduct, -quantity));
+    heldQuantityByProduct.clear();
+    commitCount++;
+  }
+
+  /**
+   * Loads the stock of the store again, keeping what the cart holds.
+   *
+   * @throws UserDisplayableException if the stock could not be loaded, the previous stock is kept then
+   */
+  public void reconcile() throws UserDisplayableException {
+    long commitCountBeforeLoad;
+    synchronized (this) {
+      commitCountBeforeLoad = commitCount;
+    }
+
+    IntIntHashMap reloadedQuantityByProduct = StockDAO.getInstance().getAvailableQuantityByProductOfStore(idStore, cartId);
+
+    synchronized (this) {
+      // NOTE: A sale committed while loading may be missing from the reloaded stock, the next reconciliation reads it.
+      if (commitCount == commitCountBeforeLoad) {
+        quantityByProduct = reloadedQuantityByProduct;
+      }
+    }
+  }
+
+  /**
+   * Reconciles the stock in the background periodically until stopReconciling is called.
+   */
+  public synchronized void startReconciling() {
+    if (reconciler != null) {
+      return;
+    }
+
+    reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "store-stock-reconciler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    reconciler.scheduleWithFixedDelay(() -> {
+      try {
+        reconcile();
+      } catch (UserDisplayableException e) {
+        LOGGER.warn("No ha sido posible actualizar el inventario de la tienda: {}", e.getMessage());
+      }
+    }, RECONCILE_PERIOD_SECONDS, RECONCILE_PERIOD_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public synchronized void stopReconciling() {
+    if (reconciler != null) {
+      reconciler.shutdownNow();
+      reconciler = null;
+    }
+  }
+}
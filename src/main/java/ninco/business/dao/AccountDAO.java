@@ -18,8 +18,14 @@ import ninco.db.DBConnector;
 
 public class AccountDAO extends DAOShape<AccountDTO> {
   private static final Logger LOGGER = LogManager.getLogger(AccountDAO.class);
-  private static final String GET_ONE_QUERY = "SELECT * FROM Account WHERE email = ?";
-  private static final String IS_THERE_ONE_ADMIN_QUERY = "SELECT COUNT(*) FROM Account WHERE role = 'ADMIN' LIMIT 1";
+  private static final String GET_ONE_QUERY = registerStatement(
+    "AccountDAO.findOne",
+    "SELECT * FROM Account WHERE email = ?"
+  );
+  private static final String IS_THERE_ONE_ADMIN_QUERY = registerStatement(
+    "AccountDAO.isThereAnAdminAccount",
+    "SELECT COUNT(*) FROM Account WHERE role = 'ADMIN' LIMIT 1"
+  );
   private static AccountDAO INSTANCE = new AccountDAO();
 
   private AccountDAO() {}
@@ -29,14 +35,21 @@ public class AccountDAO extends DAOShape<AccountDTO> {
   }
 
   @Override
-  public AccountDTO getDTOInstanceFromResultSet(ResultSet resultSet) throws InvalidFieldException, SQLException {
-    return new AccountDTO(
-      resultSet.getInt("account_id"),
-      resultSet.getString("email"),
-      resultSet.getString("password"),
-      Role.valueOf(resultSet.getString("role")),
-      State.valueOf(resultSet.getString("state")),
-      resultSet.getTimestamp("created_at").toLocalDateTime()
+  protected RowMapper<AccountDTO> compileRowMapper(ResultSetColumns columns) throws SQLException {
+    int accountIdColumn = columns.indexOf("account_id");
+    int emailColumn = columns.indexOf("email");
+    int passwordColumn = columns.indexOf("password");
+    int roleColumn = columns.indexOf("role");
+    int stateColumn = columns.indexOf("state");
+    int createdAtColumn = columns.indexOf("created_at");
+
+    return resultSet -> new AccountDTO(
+      resultSet.getInt(accountIdColumn),
+      resultSet.getString(emailColumn),
+      resultSet.getString(passwordColumn),
+      Role.valueOf(resultSet.getString(roleColumn)),
+      State.valueOf(resultSet.getString(stateColumn)),
+      resultSet.getTimestamp(createdAtColumn).toLocalDateTime()
     );
   }
 
@@ -49,7 +62,7 @@ public class AccountDAO extends DAOShape<AccountDTO> {
 
       try (ResultSet resultSet = statement.executeQuery()) {
         if (resultSet.next()) {
-          return createDTOInstanceFromResultSet(resultSet);
+          return createDTOInstanceFromResultSet(GET_ONE_QUERY, resultSet);
         }
       }
 
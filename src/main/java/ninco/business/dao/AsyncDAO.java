@@ -0,0 +1,71 @@
+package ninco.business.dao;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ninco.common.UserDisplayableException;
+
+/**
+ * AsyncDAO runs DAO calls on background threads and returns their results as CompletableFutures, so the
+ * JavaFX Application Thread never waits for the database, e.g.
+ * AsyncDAO.getInstance().supply(() -> StoreDAO.getInstance().getAll()).
+ * The futures complete on the background thread, callers in the GUI should go through Controller.loadAsync,
+ * which hands the result back to the JavaFX Application Thread.
+ * A thread is started per concurrent call and reused for the following ones, the connection pool is what
+ * bounds how many calls reach the database at once.
+ */
+public class AsyncDAO {
+  private static final AsyncDAO INSTANCE = new AsyncDAO();
+  private final AtomicInteger threadCount = new AtomicInteger();
+  private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "async-dao-" + threadCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  @FunctionalInterface
+  public interface Call<T> {
+    T call() throws UserDisplayableException;
+  }
+
+  private AsyncDAO() {
+  }
+
+  public static AsyncDAO getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Runs a DAO call in the background.
+   * Cancelling the returned future keeps the call from starting if it is still queued, a call that already
+   * started runs to completion (it may be part of a transaction) but its result is discarded.
+   *
+   * @param call the DAO call to run
+   * @return a future completed with the result of the call, or exceptionally with the exception it threw
+   */
+  public <T> CompletableFuture<T> supply(Call<T> call) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Future<?> task = executor.submit(() -> {
+      if (future.isDone()) {
+        return;
+      }
+
+      try {
+        future.complete(call.call());
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+    });
+
+    future.whenComplete((result, e) -> {
+      if (future.isCancelled()) {
+        task.cancel(false);
+      }
+    });
+
+    return future;
+  }
+}
@@ -0,0 +1,80 @@
+package ninco.business.dao;
+
+/**
+ * CacheStatistics is an immutable snapshot of the counters of a ReadThroughCache.
+ */
+public class CacheStatistics {
+  private final String name;
+  private final int size;
+  private final int maxSize;
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final long invalidationCount;
+
+  public CacheStatistics(
+    String name,
+    int size,
+    int maxSize,
+    long hitCount,
+    long missCount,
+    long evictionCount,
+    long invalidationCount
+  ) {
+    this.name = name;
+    this.size = size;
+    this.maxSize = maxSize;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.invalidationCount = invalidationCount;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public long getInvalidationCount() {
+    return invalidationCount;
+  }
+
+  public double getHitRate() {
+    long requestCount = hitCount + missCount;
+    return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "%s size=%d/%d hits=%d misses=%d hitRate=%.1f%% evictions=%d invalidations=%d",
+      name,
+      size,
+      maxSize,
+      hitCount,
+      missCount,
+      getHitRate() * 100,
+      evictionCount,
+      invalidationCount
+    );
+  }
+}
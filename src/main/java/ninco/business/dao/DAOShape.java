@@ -3,50 +3,243 @@ package ninco.business.dao;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import ninco.common.ExceptionHandler;
 import ninco.common.InvalidFieldException;
 import ninco.common.UserDisplayableException;
+import ninco.db.DBConnector;
+import ninco.db.StatementRegistry;
 
 /**
  * DAOShape is an abstract class that provides a template for the basic Data Access Object (DAO) shapes.
  * It is designed to be extended by specific DAO implementations that handle different types of Data Transfer Objects (DTOs).
  * It defines methods for creating a Data Transfer Object (DTO) instance from a ResultSet,
  * handling exceptions that may occur during the process.
+ * Subclasses register their SQL through registerStatement so pooled connections cache the prepared statements.
+ * Rows are mapped by index: each subclass compiles a RowMapper from the columns of a result, and the mapper
+ * is cached per query so column labels are resolved once instead of once per row.
  *
  * @param <T> the type of the DTO that this DAOShape will handle.
  */
 public abstract class DAOShape<T> {
   protected static final Logger LOGGER = LogManager.getLogger(DAOShape.class);
+  // NOTE: Connector/J streams rows one at a time only for forward-only, read-only statements with this fetch size.
+  private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+  private final Map<String, RowMapper<T>> rowMapperByQuery = new ConcurrentHashMap<>();
 
   /**
-   * Gets a DTO instance from the ResultSet. This method is intended to be used by the createDTOInstanceFromResultSet method
-   * to create a DTO instance from the ResultSet along with error handling.
+   * Registers a SQL statement with the StatementRegistry, making it eligible for the per-connection statement cache.
    *
-   * @return a DTO instance populated with data from the ResultSet.
-   * @throws SQLException          if there is an error accessing the ResultSet.
-   * @throws InvalidFieldException if there is an error creating the DTO.
+   * @param name a readable name for the statement statistics, e.g. "ProductDAO.createOne"
+   * @param sql  the SQL text
+   * @return the same SQL text, to be assigned to the query constant of the DAO
    */
-  public abstract T getDTOInstanceFromResultSet(ResultSet resultSet) throws InvalidFieldException, SQLException;
+  protected static String registerStatement(String name, String sql) {
+    return StatementRegistry.getInstance().register(name, sql);
+  }
 
   /**
-   * Creates a DTO instance from the provided ResultSet. This method builds upon the getDTOInstanceFromResultSet method
-   * to create a DTO instance from the ResultSet, handling any exceptions that may occur.
+   * Compiles the mapper that creates a DTO from a row. Implementations resolve the index of every column they read
+   * with columns.indexOf and return a mapper that only uses the index-based getters of ResultSet.
+   * It is called once per query, the first time the query returns a result.
    *
+   * @param columns the columns of the result
+   * @return a mapper creating a DTO from the current row
+   * @throws SQLException if a column is missing from the result
+   */
+  protected abstract RowMapper<T> compileRowMapper(ResultSetColumns columns) throws SQLException;
+
+  /**
+   * Creates a DTO instance from the current row of the ResultSet with the mapper compiled for the query,
+   * handling any exceptions that may occur.
+   *
+   * @param query     the query the ResultSet comes from, the mapper is cached under it.
    * @param resultSet the ResultSet containing data from the database.
    * @return a DTO instance populated with data from the ResultSet.
    * @throws UserDisplayableException if there is an error creating the DTO instance.
-   * @throws InvalidFieldException    if there is an error creating the DTO.
    */
-  public T createDTOInstanceFromResultSet(ResultSet resultSet) throws UserDisplayableException {
+  public T createDTOInstanceFromResultSet(String query, ResultSet resultSet) throws UserDisplayableException {
     try {
-      return getDTOInstanceFromResultSet(resultSet);
+      return getRowMapper(query, resultSet).map(resultSet);
     } catch (InvalidFieldException e) {
       throw ExceptionHandler.handleCorruptedDataException(LOGGER, e);
     } catch (SQLException e) {
       throw ExceptionHandler.handleSQLException(LOGGER, e);
     }
   }
-}
\ No newline at end of file
+
+  private RowMapper<T> getRowMapper(String query, ResultSet resultSet) throws SQLException {
+    RowMapper<T> rowMapper = rowMapperByQuery.get(query);
+
+    if (rowMapper == null) {
+      rowMapper = compileRowMapper(ResultSetColumns.of(resultSet.getMetaData()));
+      rowMapperByQuery.putIfAbsent(query, rowMapper);
+    }
+
+    return rowMapper;
+  }
+
+  /**
+   * Fetches one page with keyset (seek) pagination: the rows matching the filter, ordered by the sort key columns,
+   * that come strictly after the cursor of the request. Unlike OFFSET, the database seeks straight to the cursor
+   * through the index of the sort key, so every page costs the same regardless of how deep it is.
+   * One extra row is read to know whether another page follows.
+   *
+   * @param selectQuery      the SELECT ... FROM part of the query, without WHERE, ORDER BY or LIMIT
+   * @param filter           a WHERE condition over the query, "TRUE" for none
+   * @param pageRequest      the page to fetch, its sort key must belong to this DAO
+   * @param filterParameters the values of the placeholders in the filter, in order
+   * @return the page of DTOs with the cursor of the next page
+   * @throws UserDisplayableException if there is an error accessing the database or creating the DTOs
+   */
+  protected Page<T> queryPage(
+    String selectQuery,
+    String filter,
+    PageRequest pageRequest,
+    Object... filterParameters
+  ) throws UserDisplayableException {
+    PageSortKey sortKey = pageRequest.getSortKey();
+
+    if (sortKey.getOwner() != getClass()) {
+      throw new IllegalArgumentException("Sort key " + sortKey + " cannot paginate " + getClass().getSimpleName());
+    }
+
+    String query = registerStatement(
+      String.format(
+        "%s.getPage.%s%s%s",
+        getClass().getSimpleName(),
+        sortKey.getName(),
+        pageRequest.isDescending() ? ".descending" : "",
+        pageRequest.getAfterCursor() == null ? ".first" : ""
+      ),
+      createPageQuery(selectQuery, filter, pageRequest)
+    );
+
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(query)
+    ) {
+      int index = 1;
+
+      for (Object parameter : filterParameters) {
+        statement.setObject(index++, parameter);
+      }
+
+      if (pageRequest.getAfterCursor() != null) {
+        for (Object value : pageRequest.getAfterCursor().getValues()) {
+          statement.setObject(index++, value);
+        }
+      }
+
+      statement.setInt(index, pageRequest.getPageSize() + 1);
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        List<T> items = new ArrayList<>(pageRequest.getPageSize());
+        PageCursor lastRowCursor = null;
+
+        while (items.size() < pageRequest.getPageSize() && resultSet.next()) {
+          items.add(createDTOInstanceFromResultSet(query, resultSet));
+
+          if (items.size() == pageRequest.getPageSize()) {
+            lastRowCursor = getCursorFromResultSet(resultSet, sortKey);
+          }
+        }
+
+        boolean hasNext = lastRowCursor != null && resultSet.next();
+        return new Page<>(items, pageRequest, hasNext ? lastRowCursor : null);
+      }
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible cargar la página solicitada.");
+    }
+  }
+
+  /**
+   * Walks every row of a query with flat memory: rows are streamed from the server one at a time and handed to the
+   * consumer as soon as they are read, instead of being collected in a list. The statement is prepared outside the
+   * statement cache because its fetch size must not leak to other queries, and everything is closed when the walk
+   * ends, even if the consumer throws.
+   * While the rows are being streamed the connection cannot run other statements, so the consumer should be quick
+   * (e.g. writing a line of an export) and must not expect to be in the same transaction as its own queries.
+   *
+   * @param query      the SELECT query to stream, usually registered by the DAO
+   * @param consumer   the action to perform on every DTO, in the order of the query
+   * @param parameters the values of the placeholders in the query, in order
+   * @return the number of rows streamed
+   * @throws UserDisplayableException if there is an error accessing the database or creating a DTO
+   */
+  protected long streamQuery(
+    String query,
+    Consumer<? super T> consumer,
+    Object... parameters
+  ) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(
+        query,
+        ResultSet.TYPE_FORWARD_ONLY,
+        ResultSet.CONCUR_READ_ONLY
+      )
+    ) {
+      statement.setFetchSize(STREAMING_FETCH_SIZE);
+
+      for (int i = 0; i < parameters.length; i++) {
+        statement.setObject(i + 1, parameters[i]);
+      }
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        long rowCount = 0;
+
+        while (resultSet.next()) {
+          consumer.accept(createDTOInstanceFromResultSet(query, resultSet));
+          rowCount++;
+        }
+
+        return rowCount;
+      }
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible recorrer los registros solicitados.");
+    }
+  }
+
+  private static String createPageQuery(String selectQuery, String filter, PageRequest pageRequest) {
+    List<String> columns = pageRequest.getSortKey().getColumns();
+    String direction = pageRequest.isDescending() ? " DESC" : " ASC";
+    StringBuilder query = new StringBuilder(selectQuery).append(" WHERE (").append(filter).append(")");
+
+    if (pageRequest.getAfterCursor() != null) {
+      // Row constructor comparison, e.g. (name, product_id) > (?, ?), seeks past the cursor in one index range.
+      query.append(" AND (")
+        .append(String.join(", ", columns))
+        .append(pageRequest.isDescending() ? ") < (" : ") > (")
+        .append(String.join(", ", Collections.nCopies(columns.size(), "?")))
+        .append(")");
+    }
+
+    query.append(" ORDER BY ");
+    for (int i = 0; i < columns.size(); i++) {
+      query.append(i == 0 ? "" : ", ").append(columns.get(i)).append(direction);
+    }
+
+    return query.append(" LIMIT ?").toString();
+  }
+
+  private static PageCursor getCursorFromResultSet(ResultSet resultSet, PageSortKey sortKey) throws SQLException {
+    Object[] values = new Object[sortKey.getColumns().size()];
+
+    for (int i = 0; i < values.length; i++) {
+      values[i] = resultSet.getObject(sortKey.getColumnLabel(i));
+    }
+
+    return new PageCursor(values);
+  }
+}
@@ -9,7 +9,6 @@ import ninco.business.dto.EmployeeDTO;
 import ninco.business.enumeration.Role;
 import ninco.business.enumeration.State;
 import ninco.common.ExceptionHandler;
-import ninco.common.InvalidFieldException;
 import ninco.common.UserDisplayableException;
 import ninco.db.DBConnector;
 
@@ -20,17 +19,37 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 
-public class EmployeeDAO extends DAOShape<EmployeeDTO> {
+public class EmployeeDAO extends DAOShape<EmployeeDTO> implements PageSource<EmployeeDTO> {
   private static final Logger LOGGER = LogManager.getLogger(EmployeeDAO.class);
-  private static final String CREATE_ONE_QUERY =
-    "INSERT INTO Employee (email, name, last_name, store_id) VALUES (?, ?, ?, ?)";
-  private static final String CREATE_ONE_ACCOUNT_QUERY =
-    "INSERT INTO Account (email, password, role) VALUES (?, ?, ?)";
-  private static final String FIND_ONE_QUERY = "SELECT * FROM CompleteEmployeeView WHERE email = ?";
-  private static final String GET_ALL_QUERY = "SELECT * FROM CompleteEmployeeView";
-  private static final String UPDATE_ONE_QUERY =
-    "UPDATE Employee SET name = ?, last_name = ?, store_id = ? WHERE employee_id = ?";
-  private static final String UPDATE_ONE_ACCOUNT_QUERY = "UPDATE Account SET email = ?, role = ?, state = ? WHERE account_id = ?";
+  private static final String CREATE_ONE_QUERY = registerStatement(
+    "EmployeeDAO.createOne",
+    "INSERT INTO Employee (email, name, last_name, store_id) VALUES (?, ?, ?, ?)"
+  );
+  private static final String CREATE_ONE_ACCOUNT_QUERY = registerStatement(
+    "EmployeeDAO.createOneAccount",
+    "INSERT INTO Account (email, password, role) VALUES (?, ?, ?)"
+  );
+  private static final String FIND_ONE_QUERY = registerStatement(
+    "EmployeeDAO.findOne",
+    "SELECT * FROM CompleteEmployeeView WHERE email = ?"
+  );
+  private static final String GET_ALL_QUERY = registerStatement(
+    "EmployeeDAO.getAll",
+    "SELECT * FROM CompleteEmployeeView"
+  );
+  private static final String UPDATE_ONE_QUERY = registerStatement(
+    "EmployeeDAO.updateOne",
+    "UPDATE Employee SET name = ?, last_name = ?, store_id = ? WHERE employee_id = ?"
+  );
+  private static final String UPDATE_ONE_ACCOUNT_QUERY = registerStatement(
+    "EmployeeDAO.updateOneAccount",
+    "UPDATE Account SET email = ?, role = ?, state = ? WHERE account_id = ?"
+  );
+  private static final String PAGE_SELECT_QUERY = "SELECT * FROM CompleteEmployeeView";
+  public static final PageSortKey SORT_BY_ID = new PageSortKey(EmployeeDAO.class, "id", "employee_id");
+  public static final PageSortKey SORT_BY_NAME =
+    new PageSortKey(EmployeeDAO.class, "name", "name", "last_name", "employee_id");
+  public static final PageSortKey SORT_BY_EMAIL = new PageSortKey(EmployeeDAO.class, "email", "email");
   private static EmployeeDAO INSTANCE = new EmployeeDAO();
 
   private EmployeeDAO() {
@@ -41,26 +60,37 @@ public class EmployeeDAO extends DAOShape<EmployeeDTO> {
   }
 
   @Override
-  public EmployeeDTO getDTOInstanceFromResultSet(ResultSet resultSet) throws InvalidFieldException, SQLException {
-    return new EmployeeDTO(
-      resultSet.getInt("employee_id"),
-      resultSet.getInt("account_id"),
-      resultSet.getInt("store_id"),
-      resultSet.getString("store_name"),
-      resultSet.getString("email"),
-      Role.valueOf(resultSet.getString("role")),
-      State.valueOf(resultSet.getString("state")),
-      resultSet.getString("name"),
-      resultSet.getString("last_name"),
-      resultSet.getTimestamp("created_at").toLocalDateTime()
+  protected RowMapper<EmployeeDTO> compileRowMapper(ResultSetColumns columns) throws SQLException {
+    int employeeIdColumn = columns.indexOf("employee_id");
+    int accountIdColumn = columns.indexOf("account_id");
+    int storeIdColumn = columns.indexOf("store_id");
+    int storeNameColumn = columns.indexOf("store_name");
+    int emailColumn = columns.indexOf("email");
+    int roleColumn = columns.indexOf("role");
+    int stateColumn = columns.indexOf("state");
+    int nameColumn = columns.indexOf("name");
+    int lastNameColumn = columns.indexOf("last_name");
+    int createdAtColumn = columns.indexOf("created_at");
+
+    return resultSet -> EmployeeDTO.fromTrustedRow(
+      resultSet.getInt(employeeIdColumn),
+      resultSet.getInt(accountIdColumn),
+      resultSet.getInt(storeIdColumn),
+      resultSet.getString(storeNameColumn),
+      resultSet.getString(emailColumn),
+      Role.valueOf(resultSet.getString(roleColumn)),
+      State.valueOf(resultSet.getString(stateColumn)),
+      resultSet.getString(nameColumn),
+      resultSet.getString(lastNameColumn),
+      resultSet.getTimestamp(createdAtColumn).toLocalDateTime()
     );
   }
 
   public void createOne(EmployeeDTO employeeDTO, String password) throws UserDisplayableException {
     try (
       Connection connection = DBConnector.getInstance().getConnection();
-      PreparedStatement employeeStatement = connection.prepareCall(CREATE_ONE_QUERY);
-      PreparedStatement accountStatement = connection.prepareCall(CREATE_ONE_ACCOUNT_QUERY)
+      PreparedStatement employeeStatement = connection.prepareStatement(CREATE_ONE_QUERY);
+      PreparedStatement accountStatement = connection.prepareStatement(CREATE_ONE_ACCOUNT_QUERY)
     ) {
       connection.setAutoCommit(false);
 
@@ -80,6 +110,7 @@ public class EmployeeDAO extends DAOShape<EmployeeDTO> {
       accountStatement.executeUpdate();
       employeeStatement.executeUpdate();
       connection.commit();
+      StoreDAO.getInstance().invalidateCache();
     } catch (SQLException e) {
       throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible crear empleado.");
     }
@@ -94,7 +125,7 @@ public class EmployeeDAO extends DAOShape<EmployeeDTO> {
 
       try (ResultSet resultSet = statement.executeQuery()) {
         if (resultSet.next()) {
-          return createDTOInstanceFromResultSet(resultSet);
+          return createDTOInstanceFromResultSet(FIND_ONE_QUERY, resultSet);
         }
       }
 
@@ -113,7 +144,7 @@ public class EmployeeDAO extends DAOShape<EmployeeDTO> {
       ResultSet resultSet = statement.executeQuery()
     ) {
       while (resultSet.next()) {
-        employeeDTOList.add(createDTOInstanceFromResultSet(resultSet));
+        employeeDTOList.add(createDTOInstanceFromResultSet(GET_ALL_QUERY, resultSet));
       }
 
       return employeeDTOList;
@@ -122,6 +153,11 @@ public class EmployeeDAO extends DAOShape<EmployeeDTO> {
     }
   }
 
+  @Override
+  public Page<EmployeeDTO> getPage(PageRequest pageRequest) throws UserDisplayableException {
+    return queryPage(PAGE_SELECT_QUERY, "TRUE", pageRequest);
+  }
+
   public void updateOne(EmployeeDTO employeeDTO) throws UserDisplayableException {
     try (
       Connection connection = DBConnector.getInstance().getConnection();
@@ -143,6 +179,7 @@ public class EmployeeDAO extends DAOShape<EmployeeDTO> {
       accountStatement.executeUpdate();
       employeeStatement.executeUpdate();
       connection.commit();
+      StoreDAO.getInstance().invalidateCache();
     } catch (SQLException e) {
       throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible actualizar empleado.");
     }
@@ -1,22 +1,57 @@
 package ninco.business.dao;
 
 import ninco.business.dto.CartItemDTO;
+import ninco.business.dto.CheckoutOutcomeDTO;
+import ninco.business.dto.PendingInvoiceDTO;
+import ninco.business.dto.StockShortfallDTO;
 import ninco.common.ExceptionHandler;
+import ninco.common.InsufficientStockException;
+import ninco.common.IntIntHashMap;
+import ninco.common.Money;
 import ninco.common.UserDisplayableException;
 import ninco.db.DBConnector;
+import ninco.db.StatementRegistry;
+import ninco.db.TransientSQLFailure;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class InvoiceDAO {
   private static final Logger LOGGER = LogManager.getLogger(InvoiceDAO.class);
   private static final InvoiceDAO INSTANCE = new InvoiceDAO();
-
-  private static final String INSERT_INVOICE = "INSERT INTO Invoice (store_id, name_client) VALUES (?, ?)";
-  private static final String INSERT_SALE = "INSERT INTO Sale (invoice_id, store_id, employee_id, product_id, amount, price) VALUES (?, ?, ?, ?, ?, ?)";
-  private static final String UPDATE_STOCK = "UPDATE Stock SET quantity = quantity - ? WHERE store_id = ? AND product_id = ?";
+  // NOTE: Prepared on the physical connection, the statement cache only serves prepareStatement calls.
+  private static final String CREATE_INVOICE_CALL = "{CALL CreateInvoice(?, ?, ?, ?, ?, ?, ?, ?)}";
+  private static final String SAVE_INVOICE_CALL = "{CALL SaveInvoice(?, ?, ?, ?, ?, ?, ?, ?)}";
+  private static final String GET_INVOICE_ID_BY_KEY_QUERY = StatementRegistry.getInstance().register(
+    "InvoiceDAO.getInvoiceIDByKey",
+    "SELECT invoice_id FROM Invoice WHERE invoice_key = ?"
+  );
+  private static final String INSUFFICIENT_STOCK_STATE = "45000";
+  private static final int DUPLICATE_KEY_ERROR = 1062;
+  private static final int CHECK_CONSTRAINT_VIOLATED_ERROR = 3819;
+  private static final Pattern SHORTFALL_LINE_PATTERN = Pattern.compile("\\{([^}]*)}");
+  private static final Pattern PAYLOAD_PRODUCT_PATTERN = Pattern.compile("\"p\":(\\d+)");
+  private static final Pattern SHORTFALL_FIELD_PATTERN = Pattern.compile("\"(\\w+)\"\\s*:\\s*(-?\\d+)");
+  private static final int MAX_CHECKOUT_ATTEMPTS = 3;
+  private static final long RETRY_BASE_DELAY_MILLIS = 25;
+  private final IntIntHashMap retryCountByProduct = new IntIntHashMap();
+  private final IntIntHashMap exhaustedCountByProduct = new IntIntHashMap();
+  private long checkoutCount;
+  private long deadlockCount;
+  private long lockWaitTimeoutCount;
+  private long retryCount;
+  private long exhaustedCount;
 
   private InvoiceDAO() {
   }
@@ -25,88 +60,373 @@ public class InvoiceDAO {
     return INSTANCE;
   }
 
-  public void createInvoiceTransaction(int storeId, int employeeId, String clientName, List<CartItemDTO> items) throws UserDisplayableException {
-    Connection connection = null;
-    PreparedStatement stmtInvoice = null;
-    PreparedStatement stmtSale = null;
-    PreparedStatement stmtStock = null;
-    ResultSet generatedKeys = null;
+  public int createInvoiceTransaction(int storeId, int employeeId, String clientName, List<CartItemDTO> items) throws UserDisplayableException {
+    return createInvoiceTransaction(storeId, employeeId, clientName, items, null);
+  }
 
-    try {
-      connection = DBConnector.getInstance().getConnection();
-      connection.setAutoCommit(false);
+  /**
+   * Saves a sale and takes the sold items out of the stock in a single round trip: the whole cart is sent to the
+   * CreateInvoice procedure, which inserts the invoice and its sales, decrements the stock and deletes the stock
+   * holds of the cart (see StockReservationDAO) in one transaction.
+   * The procedure locks and checks the stock of every line before writing anything, if some lines cannot be covered
+   * it writes nothing and reports them, so the cashier can adjust just those lines and retry.
+   * The Stock rows are locked in ascending product id order, a checkout that still loses a deadlock or times out
+   * waiting for a lock is run again after a jittered backoff.
+   *
+   * @param storeId    the id of the store
+   * @param employeeId the id of the cashier
+   * @param clientName the name of the client
+   * @param items      the items sold
+   * @param cartId     the id of the cart whose holds become the sale, or null if it has none
+   * @return the id of the invoice
+   * @throws InsufficientStockException if the store cannot cover some lines, nothing is saved then; the list of
+   *                                    short lines is empty if the stock ran out after it was checked
+   * @throws UserDisplayableException if the sale could not be saved
+   */
+  public int createInvoiceTransaction(
+    int storeId,
+    int employeeId,
+    String clientName,
+    List<CartItemDTO> items,
+    String cartId
+  ) throws UserDisplayableException {
+    return createInvoice(new PendingInvoiceDTO(storeId, employeeId, clientName, createCartPayload(items), cartId));
+  }
+
+  /**
+   * Saves a sale whose cart was already turned into its payload with createCartPayload, e.g. one the register is
+   * checking out or one kept in the CheckoutJournal while the database was unreachable. See createInvoiceTransaction.
+   * The key of the sale is saved with its invoice, if a sale with the same key was already saved, e.g. by a call
+   * whose connection dropped before the answer arrived, nothing is saved and its invoice is returned instead, so
+   * calling it again with the same sale is always safe.
+   *
+   * @param pendingInvoiceDTO the sale
+   * @return the id of the invoice, the existing one if the sale was already saved
+   * @throws InsufficientStockException if the store cannot cover some lines, nothing is saved then
+   * @throws UserDisplayableException if the sale could not be saved
+   */
+  public int createInvoice(PendingInvoiceDTO pendingInvoiceDTO) throws UserDisplayableException {
+    int[] productIds = getProductIDsOfCartPayload(pendingInvoiceDTO.getCartPayload());
+    recordCheckout(1);
 
-      stmtInvoice = connection.prepareStatement(INSERT_INVOICE, Statement.RETURN_GENERATED_KEYS);
-      stmtInvoice.setInt(1, storeId);
-      stmtInvoice.setString(2, clientName);
-      stmtInvoice.executeUpdate();
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return callCreateInvoice(pendingInvoiceDTO);
+      } catch (SQLException e) {
+        Optional<TransientSQLFailure> failure = TransientSQLFailure.classify(e);
+        if (failure.isEmpty()) {
+          throw handleCheckoutSQLException(e);
+        }
+
+        boolean isRetrying = attempt < MAX_CHECKOUT_ATTEMPTS;
+        recordContention(failure.get(), productIds, isRetrying);
 
-      generatedKeys = stmtInvoice.getGeneratedKeys();
-      if (!generatedKeys.next()) {
-        throw new SQLException("Error creando factura, no se obtuvo ID.");
+        if (!isRetrying) {
+          LOGGER.error("Venta abandonada tras {} intentos por contención de stock: {}", attempt, e.getMessage(), e);
+          throw new UserDisplayableException(
+            "No ha sido posible procesar la venta porque otras cajas están vendiendo los mismos productos. Por favor, inténtelo de nuevo.",
+            e
+          );
+        }
+
+        LOGGER.warn("Contención de stock al procesar la venta ({}), intento {} de {}", failure.get(), attempt, MAX_CHECKOUT_ATTEMPTS);
+        waitBeforeRetry(attempt, e);
       }
-      int invoiceId = generatedKeys.getInt(1);
-
-      stmtSale = connection.prepareStatement(INSERT_SALE);
-      stmtStock = connection.prepareStatement(UPDATE_STOCK);
-
-      for (CartItemDTO item : items) {
-        int productId = item.getProduct().getIDProduct();
-        int quantity = item.getQuantity();
-        float price = item.getPrice();
-
-        stmtSale.setInt(1, invoiceId);
-        stmtSale.setInt(2, storeId);
-        stmtSale.setInt(3, employeeId);
-        stmtSale.setInt(4, productId);
-        stmtSale.setInt(5, quantity);
-        stmtSale.setFloat(6, price);
-        stmtSale.addBatch();
-
-        stmtStock.setInt(1, quantity);
-        stmtStock.setInt(2, storeId);
-        stmtStock.setInt(3, productId);
-        stmtStock.addBatch();
+    }
+  }
+
+  private int callCreateInvoice(PendingInvoiceDTO pendingInvoiceDTO) throws SQLException, UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      CallableStatement statement = connection.prepareCall(CREATE_INVOICE_CALL)
+    ) {
+      return executeInvoiceCall(statement, pendingInvoiceDTO);
+    }
+  }
+
+  /**
+   * Saves a group of sales in a single transaction, so they share one commit instead of paying for one each, e.g.
+   * the sales queued in the CheckoutPipeline. Every sale is saved with the SaveInvoice procedure behind its own
+   * savepoint, a sale the store cannot cover is rolled back alone and reported in its outcome while the rest of
+   * the group is saved.
+   * If the group as a whole fails, e.g. it loses a deadlock or its commit fails, every sale is saved on its own
+   * with createInvoice instead. The keys of the sales make that safe even if the commit did go through.
+   *
+   * @param sales the sales
+   * @return the outcome of every sale, in the order of the sales
+   */
+  public List<CheckoutOutcomeDTO> createInvoiceGroup(List<PendingInvoiceDTO> sales) {
+    try {
+      List<CheckoutOutcomeDTO> outcomeList = callSaveInvoiceGroup(sales);
+      recordCheckout(sales.size());
+      return outcomeList;
+    } catch (SQLException e) {
+      if (ExceptionHandler.isConnectionFailure(e)) {
+        return failAll(sales, ExceptionHandler.handleSQLException(LOGGER, e, "Error al procesar la venta."));
+      }
+      LOGGER.warn("No ha sido posible guardar el grupo de {} ventas, se guardarán una por una: {}", sales.size(), e.getMessage());
+    } catch (UserDisplayableException e) {
+      return failAll(sales, e);
+    }
+
+    List<CheckoutOutcomeDTO> outcomeList = new ArrayList<>(sales.size());
+    for (PendingInvoiceDTO sale : sales) {
+      try {
+        outcomeList.add(CheckoutOutcomeDTO.saved(sale, createInvoice(sale)));
+      } catch (UserDisplayableException e) {
+        outcomeList.add(CheckoutOutcomeDTO.failed(sale, e));
       }
+    }
 
-      stmtSale.executeBatch();
-      stmtStock.executeBatch();
+    return outcomeList;
+  }
 
-      connection.commit();
+  private List<CheckoutOutcomeDTO> callSaveInvoiceGroup(List<PendingInvoiceDTO> sales) throws SQLException, UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      CallableStatement statement = connection.prepareCall(SAVE_INVOICE_CALL)
+    ) {
+      // NOTE: See SaveInvoice, the later sales of the group must not check the stock as of the first one.
+      int isolation = connection.getTransactionIsolation();
+      connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+      connection.setAutoCommit(false);
 
-    } catch (SQLException e) {
       try {
-        connection.rollback();
-      } catch (SQLException ex) {
-        LOGGER.error("Rollback failed", ex);
+        List<CheckoutOutcomeDTO> outcomeList = new ArrayList<>(sales.size());
+        for (PendingInvoiceDTO sale : sales) {
+          outcomeList.add(saveInvoiceInGroup(connection, statement, sale));
+        }
+
+        connection.commit();
+        return outcomeList;
+      } finally {
+        connection.setTransactionIsolation(isolation);
       }
-      if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
-        throw new UserDisplayableException("No hay suficiente stock para completar la venta.");
+    }
+  }
+
+  private CheckoutOutcomeDTO saveInvoiceInGroup(
+    Connection connection,
+    CallableStatement statement,
+    PendingInvoiceDTO sale
+  ) throws SQLException {
+    Savepoint savepoint = connection.setSavepoint();
+
+    try {
+      return CheckoutOutcomeDTO.saved(sale, executeInvoiceCall(statement, sale));
+    } catch (InsufficientStockException e) {
+      // NOTE: SaveInvoice writes nothing when it reports short lines.
+      return CheckoutOutcomeDTO.failed(sale, e);
+    } catch (SQLException e) {
+      if (e.getErrorCode() == DUPLICATE_KEY_ERROR) {
+        // NOTE: Cannot happen after SaveInvoice checked the key, the sale was saved by another call as in CreateInvoice.
+        connection.rollback(savepoint);
+        return CheckoutOutcomeDTO.saved(sale, getInvoiceIDByKey(connection, sale.getKey()));
       }
-      throw ExceptionHandler.handleSQLException(LOGGER, e, "Error al procesar la venta.");
-    } finally {
-      closeResource(generatedKeys);
-      closeResource(stmtInvoice);
-      closeResource(stmtSale);
-      closeResource(stmtStock);
-      if (connection != null) {
-        try {
-          connection.setAutoCommit(true);
-          connection.close();
-        } catch (SQLException e) {
-          LOGGER.error("Error closing connection", e);
+      if (!isStockRejection(e)) {
+        throw e;
+      }
+      connection.rollback(savepoint);
+      return CheckoutOutcomeDTO.failed(sale, new InsufficientStockException(List.of()));
+    }
+  }
+
+  private static int getInvoiceIDByKey(Connection connection, String invoiceKey) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(GET_INVOICE_ID_BY_KEY_QUERY)) {
+      statement.setString(1, invoiceKey);
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        if (!resultSet.next()) {
+          throw new SQLException("No se encontró la venta con la clave " + invoiceKey + ".");
         }
+        return resultSet.getInt(1);
       }
     }
   }
 
-  private void closeResource(AutoCloseable resource) {
-    if (resource != null) {
-      try {
-        resource.close();
-      } catch (Exception e) {
-        LOGGER.error("Error closing resource", e);
+  private static List<CheckoutOutcomeDTO> failAll(List<PendingInvoiceDTO> sales, UserDisplayableException failure) {
+    List<CheckoutOutcomeDTO> outcomeList = new ArrayList<>(sales.size());
+    for (PendingInvoiceDTO sale : sales) {
+      outcomeList.add(CheckoutOutcomeDTO.failed(sale, failure));
+    }
+
+    return outcomeList;
+  }
+
+  /**
+   * Calls CreateInvoice or SaveInvoice, which take the same parameters.
+   */
+  private static int executeInvoiceCall(
+    CallableStatement statement,
+    PendingInvoiceDTO pendingInvoiceDTO
+  ) throws SQLException, InsufficientStockException {
+    statement.setInt(1, pendingInvoiceDTO.getIDStore());
+    statement.setInt(2, pendingInvoiceDTO.getIDEmployee());
+    statement.setString(3, pendingInvoiceDTO.getClientName());
+    statement.setString(4, pendingInvoiceDTO.getCartPayload());
+    statement.setString(5, pendingInvoiceDTO.getCartID());
+    statement.setString(6, pendingInvoiceDTO.getKey());
+    statement.registerOutParameter(7, Types.INTEGER);
+    statement.registerOutParameter(8, Types.VARCHAR);
+
+    statement.execute();
+
+    String shortfall = statement.getString(8);
+    if (shortfall != null) {
+      throw new InsufficientStockException(parseShortfall(shortfall));
+    }
+
+    return statement.getInt(7);
+  }
+
+  private UserDisplayableException handleCheckoutSQLException(SQLException e) {
+    if (isStockRejection(e)) {
+      // NOTE: The stock ran out after it was checked, the procedure cannot tell which lines are short then.
+      return new InsufficientStockException(List.of());
+    }
+    return ExceptionHandler.handleSQLException(LOGGER, e, "Error al procesar la venta.");
+  }
+
+  /**
+   * Tells whether the procedures refused a sale because the stock ran out, rather than because of a broken constraint
+   * such as a missing product, which no amount of stock would fix.
+   */
+  private static boolean isStockRejection(SQLException e) {
+    // NOTE: The quantity of Stock and StockShard rows is checked to never drop below zero.
+    return INSUFFICIENT_STOCK_STATE.equals(e.getSQLState()) || e.getErrorCode() == CHECK_CONSTRAINT_VIOLATED_ERROR;
+  }
+
+  /**
+   * Waits a random time between half and all of the backoff of an attempt, which doubles with every attempt,
+   * so the checkouts that collided do not collide again when they retry.
+   */
+  private static void waitBeforeRetry(int attempt, SQLException cause) throws UserDisplayableException {
+    long backoffMillis = RETRY_BASE_DELAY_MILLIS << (attempt - 1);
+
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis / 2, backoffMillis + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw ExceptionHandler.handleSQLException(LOGGER, cause, "Error al procesar la venta.");
+    }
+  }
+
+  private synchronized void recordCheckout(int count) {
+    checkoutCount += count;
+  }
+
+  private synchronized void recordContention(TransientSQLFailure failure, int[] productIds, boolean isRetrying) {
+    if (failure == TransientSQLFailure.DEADLOCK) {
+      deadlockCount++;
+    } else {
+      lockWaitTimeoutCount++;
+    }
+
+    IntIntHashMap countByProduct = isRetrying ? retryCountByProduct : exhaustedCountByProduct;
+    if (isRetrying) {
+      retryCount++;
+    } else {
+      exhaustedCount++;
+    }
+    for (int productId : productIds) {
+      countByProduct.addTo(productId, 1);
+    }
+  }
+
+  public synchronized StockContentionStatistics getContentionStatistics() {
+    Map<Integer, StockContentionStatistics.ProductContention> contentionByProduct = new TreeMap<>();
+    retryCountByProduct.forEach((productId, count) -> contentionByProduct.put(
+      productId,
+      new StockContentionStatistics.ProductContention(productId, count, exhaustedCountByProduct.get(productId, 0))
+    ));
+    exhaustedCountByProduct.forEach((productId, count) -> contentionByProduct.putIfAbsent(
+      productId,
+      new StockContentionStatistics.ProductContention(productId, 0, count)
+    ));
+
+    List<StockContentionStatistics.ProductContention> productContentionList = new ArrayList<>(contentionByProduct.values());
+    productContentionList.sort(
+      Comparator.comparingInt(StockContentionStatistics.ProductContention::getRetryCount)
+        .thenComparingInt(StockContentionStatistics.ProductContention::getExhaustedCount)
+        .reversed()
+    );
+
+    return new StockContentionStatistics(
+      checkoutCount,
+      deadlockCount,
+      lockWaitTimeoutCount,
+      retryCount,
+      exhaustedCount,
+      productContentionList
+    );
+  }
+
+  /**
+   * Creates the compact JSON payload CreateInvoice expands with JSON_TABLE, one entry per product:
+   * [{"p":product_id,"q":amount,"u":unit_price}, ...]. Items of the same product are merged since the procedure
+   * decrements every Stock row once, and entries are sorted by product id since that is the order the procedure
+   * locks the Stock rows in.
+   *
+   * @param items the items sold
+   * @return the cart payload
+   */
+  public static String createCartPayload(List<CartItemDTO> items) {
+    // NOTE: Every line is {quantity, unit price in cents}.
+    Map<Integer, long[]> lineByProduct = new TreeMap<>();
+
+    for (CartItemDTO item : items) {
+      lineByProduct.computeIfAbsent(item.getProduct().getIDProduct(), it -> new long[] { 0, item.getPriceCents() })[0] +=
+        item.getQuantity();
+    }
+
+    StringBuilder payload = new StringBuilder(items.size() * 32).append('[');
+    for (Map.Entry<Integer, long[]> entry : lineByProduct.entrySet()) {
+      if (payload.length() > 1) {
+        payload.append(',');
+      }
+
+      payload.append("{\"p\":").append(entry.getKey())
+        .append(",\"q\":").append(entry.getValue()[0])
+        .append(",\"u\":");
+      Money.appendTo(payload, entry.getValue()[1]).append('}');
+    }
+
+    return payload.append(']').toString();
+  }
+
+  private static int[] getProductIDsOfCartPayload(String cartPayload) {
+    Matcher productMatcher = PAYLOAD_PRODUCT_PATTERN.matcher(cartPayload);
+    List<Integer> productIdList = new ArrayList<>();
+
+    while (productMatcher.find()) {
+      productIdList.add(Integer.parseInt(productMatcher.group(1)));
+    }
+
+    return productIdList.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Parses the lines CreateInvoice could not cover, a JSON array of {"p":product_id,"q":amount,"a":available}
+   * objects with plain integer fields.
+   *
+   * @param shortfall the JSON array returned by the procedure
+   * @return the shortfall of every line
+   */
+  static List<StockShortfallDTO> parseShortfall(String shortfall) {
+    List<StockShortfallDTO> shortfallList = new ArrayList<>();
+    Matcher lineMatcher = SHORTFALL_LINE_PATTERN.matcher(shortfall);
+
+    while (lineMatcher.find()) {
+      Map<String, Integer> fieldMap = new LinkedHashMap<>();
+      Matcher fieldMatcher = SHORTFALL_FIELD_PATTERN.matcher(lineMatcher.group(1));
+
+      while (fieldMatcher.find()) {
+        fieldMap.put(fieldMatcher.group(1), Integer.parseInt(fieldMatcher.group(2)));
       }
+
+      shortfallList.add(new StockShortfallDTO(fieldMap.get("p"), fieldMap.get("q"), fieldMap.get("a")));
     }
+
+    return shortfallList;
   }
-}
\ No newline at end of file
+}
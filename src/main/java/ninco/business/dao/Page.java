@@ -0,0 +1,47 @@
+package ninco.business.dao;
+
+import java.util.List;
+
+/**
+ * Page is a bounded chunk of rows fetched with keyset pagination along with
+ * the cursor to fetch the following chunk.
+ *
+ * @param <T> the type of the DTOs in the page
+ */
+public class Page<T> {
+  private final List<T> items;
+  private final PageRequest request;
+  private final PageCursor nextCursor;
+
+  Page(List<T> items, PageRequest request, PageCursor nextCursor) {
+    this.items = items;
+    this.request = request;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<T> getItems() {
+    return items;
+  }
+
+  public PageRequest getRequest() {
+    return request;
+  }
+
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+
+  /**
+   * Gets the request for the following page.
+   *
+   * @return the next page request
+   * @throws IllegalStateException if this is the last page
+   */
+  public PageRequest getNextPageRequest() {
+    if (nextCursor == null) {
+      throw new IllegalStateException("There is no page after the last page.");
+    }
+
+    return request.after(nextCursor);
+  }
+}
@@ -0,0 +1,16 @@
+package ninco.business.dao;
+
+/**
+ * PageCursor is the opaque position after the last row of a page, made of the sort key values of that row.
+ */
+public class PageCursor {
+  private final Object[] values;
+
+  PageCursor(Object[] values) {
+    this.values = values;
+  }
+
+  Object[] getValues() {
+    return values;
+  }
+}
@@ -0,0 +1,58 @@
+package ninco.business.dao;
+
+/**
+ * PageRequest describes a page to fetch with keyset pagination: how many rows, in which order,
+ * and the cursor of the previous page (none for the first page).
+ */
+public class PageRequest {
+  public static final int MAX_PAGE_SIZE = 1000;
+  private final PageSortKey sortKey;
+  private final int pageSize;
+  private final boolean descending;
+  private final PageCursor afterCursor;
+
+  private PageRequest(PageSortKey sortKey, int pageSize, boolean descending, PageCursor afterCursor) {
+    if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ": " + pageSize);
+    }
+
+    this.sortKey = sortKey;
+    this.pageSize = pageSize;
+    this.descending = descending;
+    this.afterCursor = afterCursor;
+  }
+
+  public static PageRequest firstPage(PageSortKey sortKey, int pageSize) {
+    return new PageRequest(sortKey, pageSize, false, null);
+  }
+
+  public static PageRequest firstPageDescending(PageSortKey sortKey, int pageSize) {
+    return new PageRequest(sortKey, pageSize, true, null);
+  }
+
+  /**
+   * Creates the request for the page that starts right after the given cursor, keeping size and order.
+   *
+   * @param cursor the cursor of the last fetched page
+   * @return the request for the following page
+   */
+  public PageRequest after(PageCursor cursor) {
+    return new PageRequest(sortKey, pageSize, descending, cursor);
+  }
+
+  public PageSortKey getSortKey() {
+    return sortKey;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public boolean isDescending() {
+    return descending;
+  }
+
+  public PageCursor getAfterCursor() {
+    return afterCursor;
+  }
+}
@@ -0,0 +1,44 @@
+package ninco.business.dao;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PageSortKey is an ordering a DAO can be paginated by. The last columns must make the ordering unique
+ * (usually the primary key) so a cursor identifies exactly one position in the result.
+ * Columns may be qualified (e.g. "P.name"), the part after the last dot is the label read from the ResultSet.
+ * Each DAO exposes its supported keys as public constants.
+ */
+public class PageSortKey {
+  private final Class<?> owner;
+  private final String name;
+  private final List<String> columns;
+
+  PageSortKey(Class<?> owner, String name, String... columns) {
+    this.owner = owner;
+    this.name = name;
+    this.columns = Arrays.asList(columns);
+  }
+
+  Class<?> getOwner() {
+    return owner;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  List<String> getColumns() {
+    return columns;
+  }
+
+  String getColumnLabel(int index) {
+    String column = columns.get(index);
+    return column.substring(column.lastIndexOf('.') + 1);
+  }
+
+  @Override
+  public String toString() {
+    return owner.getSimpleName() + "." + name;
+  }
+}
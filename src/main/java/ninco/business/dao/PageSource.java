@@ -0,0 +1,14 @@
+package ninco.business.dao;
+
+import ninco.common.UserDisplayableException;
+
+/**
+ * PageSource is anything that can serve keyset-paginated pages of DTOs, usually a DAO
+ * or a DAO method bound to a filter (e.g. the stock of a single store).
+ *
+ * @param <T> the type of the DTOs served
+ */
+@FunctionalInterface
+public interface PageSource<T> {
+  Page<T> getPage(PageRequest pageRequest) throws UserDisplayableException;
+}
@@ -4,6 +4,7 @@ import ninco.business.dto.PendingRegistrationDTO;
 import ninco.common.ExceptionHandler;
 import ninco.common.UserDisplayableException;
 import ninco.db.DBConnector;
+import ninco.db.StatementRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -13,14 +14,18 @@ public class PendingRegistrationsDAO {
   private static final Logger LOGGER = LogManager.getLogger(PendingRegistrationsDAO.class);
   private static final PendingRegistrationsDAO INSTANCE = new PendingRegistrationsDAO();
   // este es para actualizar el pin por si el usuario lo pide de nuevo
-  private static final String UPSERT_QUERY =
+  private static final String UPSERT_QUERY = StatementRegistry.getInstance().register(
+    "PendingRegistrationsDAO.save",
     "INSERT INTO PendingRegistrations (email, pin, expires_at, password, role) " +
       "VALUES (?, ?, ?, ?, ?) " +
-      "ON DUPLICATE KEY UPDATE pin = VALUES(pin), expires_at = VALUES(expires_at), password = VALUES(password), role = VALUES(role), created_at = NOW(6)";
-  private static final String VERIFY_QUERY =
+      "ON DUPLICATE KEY UPDATE pin = VALUES(pin), expires_at = VALUES(expires_at), password = VALUES(password), role = VALUES(role), created_at = NOW(6)"
+  );
+  private static final String VERIFY_QUERY = StatementRegistry.getInstance().register(
+    "PendingRegistrationsDAO.verifyPin",
     "SELECT count(*) " +
       "FROM PendingRegistrations " +
-      "WHERE email = ? AND pin = ? AND expires_at > NOW(6)";
+      "WHERE email = ? AND pin = ? AND expires_at > NOW(6)"
+  );
 
   private PendingRegistrationsDAO() {}
 
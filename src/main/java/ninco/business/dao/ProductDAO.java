@@ -5,7 +5,6 @@ import org.apache.logging.log4j.Logger;
 
 import ninco.business.dto.ProductDTO;
 import ninco.common.ExceptionHandler;
-import ninco.common.InvalidFieldException;
 import ninco.common.UserDisplayableException;
 import ninco.db.DBConnector;
 
@@ -14,13 +13,89 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
 
-public class ProductDAO extends DAOShape<ProductDTO> {
+public class ProductDAO extends DAOShape<ProductDTO> implements PageSource<ProductDTO> {
   private static final Logger LOGGER = LogManager.getLogger(ProductDAO.class);
-  private static final String CREATE_ONE_QUERY = "INSERT INTO Product (name, description, brand, price) VALUES (?, ?, ?, ?)";
-  private static final String GET_ALL_QUERY = "SELECT * FROM CompleteProductView";
-  private static final String UPDATE_ONE_QUERY =
-    "UPDATE Product SET name = ?, description = ?, brand = ?, price = ? WHERE product_id = ?";
+  // NOTE: The counter row stays locked until the write commits, so the writes to the catalog commit in the order of
+  // their versions and a terminal that read a version has every product written up to it.
+  private static final String BUMP_CATALOG_VERSION_QUERY = registerStatement(
+    "ProductDAO.bumpCatalogVersion",
+    "UPDATE CatalogVersion SET version = version + 1 WHERE catalog_version_id = 1"
+  );
+  private static final String CATALOG_VERSION_SELECT_QUERY =
+    "SELECT version FROM CatalogVersion WHERE catalog_version_id = 1";
+  private static final String CREATE_ONE_QUERY = registerStatement(
+    "ProductDAO.createOne",
+    "INSERT INTO Product (name, description, brand, price, catalog_version) " +
+      "SELECT ?, ?, ?, ? / 100, version FROM CatalogVersion WHERE catalog_version_id = 1"
+  );
+  private static final String GET_ALL_QUERY = registerStatement(
+    "ProductDAO.getAll",
+    "SELECT * FROM CompleteProductView"
+  );
+  // NOTE: The version is set even if only the barcodes changed, so the catalogs of the terminals reload the product.
+  private static final String UPDATE_ONE_QUERY = registerStatement(
+    "ProductDAO.updateOne",
+    "UPDATE Product SET name = ?, description = ?, brand = ?, price = ? / 100, updated_at = NOW(6), " +
+      "catalog_version = (" + CATALOG_VERSION_SELECT_QUERY + ") WHERE product_id = ?"
+  );
+  // NOTE: Inserted right after the product, LAST_INSERT_ID is its id since ProductBarcode has no AUTO_INCREMENT.
+  private static final String CREATE_BARCODE_OF_CREATED_QUERY = registerStatement(
+    "ProductDAO.createBarcodeOfCreated",
+    "INSERT INTO ProductBarcode (barcode, product_id) VALUES (?, LAST_INSERT_ID())"
+  );
+  private static final String CREATE_BARCODE_QUERY = registerStatement(
+    "ProductDAO.createBarcode",
+    "INSERT INTO ProductBarcode (barcode, product_id) VALUES (?, ?)"
+  );
+  private static final String DELETE_BARCODES_QUERY = registerStatement(
+    "ProductDAO.deleteBarcodes",
+    "DELETE FROM ProductBarcode WHERE product_id = ?"
+  );
+  // CompleteProductView sums the stock in its select list, which makes MySQL materialize the whole view,
+  // so pages read Product directly and only sum the stock of the rows in the page.
+  private static final String PAGE_SELECT_QUERY =
+    "SELECT P.product_id, P.name, P.description, P.brand, CAST(P.price * 100 AS SIGNED) AS price_cents, " +
+      "(SELECT GROUP_CONCAT(B.barcode ORDER BY B.barcode SEPARATOR ' ') " +
+      "FROM ProductBarcode B WHERE B.product_id = P.product_id) AS barcodes, " +
+      "COALESCE((SELECT SUM(S.quantity) FROM Stock S WHERE S.product_id = P.product_id), 0) + " +
+      "COALESCE((SELECT SUM(H.quantity) FROM StockShard H WHERE H.product_id = P.product_id), 0) AS stock, " +
+      "P.created_at FROM Product P";
+  private static final String FIND_BY_ID_QUERY = registerStatement(
+    "ProductDAO.findByID",
+    PAGE_SELECT_QUERY + " WHERE P.product_id = ?"
+  );
+  private static final String FIND_BY_BARCODE_QUERY = registerStatement(
+    "ProductDAO.findByBarcode",
+    PAGE_SELECT_QUERY + " WHERE P.product_id = (SELECT product_id FROM ProductBarcode WHERE barcode = ?)"
+  );
+  // NOTE: A prefix LIKE is a range of idx_product_name, a leading wildcard would scan the whole table.
+  private static final String SEARCH_BY_NAME_PREFIX_QUERY = registerStatement(
+    "ProductDAO.searchByNamePrefix",
+    PAGE_SELECT_QUERY + " WHERE P.name LIKE ? ESCAPE '!' ORDER BY P.name, P.product_id LIMIT ?"
+  );
+  private static final String STREAM_ALL_QUERY = PAGE_SELECT_QUERY + " ORDER BY P.product_id";
+  private static final String GET_CATALOG_VERSION_QUERY = registerStatement(
+    "ProductDAO.getCatalogVersion",
+    CATALOG_VERSION_SELECT_QUERY
+  );
+  private static final String GET_ALL_CHANGED_SINCE_QUERY = registerStatement(
+    "ProductDAO.getAllChangedSince",
+    PAGE_SELECT_QUERY + " WHERE P.catalog_version > ? ORDER BY P.product_id"
+  );
+  private static final String GET_ALL_DELETED_SINCE_QUERY = registerStatement(
+    "ProductDAO.getAllDeletedSince",
+    "SELECT product_id FROM DeletedProduct WHERE catalog_version > ?"
+  );
+  public static final PageSortKey SORT_BY_ID = new PageSortKey(ProductDAO.class, "id", "P.product_id");
+  public static final PageSortKey SORT_BY_NAME = new PageSortKey(ProductDAO.class, "name", "P.name", "P.product_id");
+  public static final PageSortKey SORT_BY_CREATED_AT =
+    new PageSortKey(ProductDAO.class, "createdAt", "P.created_at", "P.product_id");
   private static final ProductDAO INSTANCE = new ProductDAO();
 
   private ProductDAO() {}
@@ -30,29 +105,49 @@ public class ProductDAO extends DAOShape<ProductDTO> {
   }
 
   @Override
-  public ProductDTO getDTOInstanceFromResultSet(ResultSet resultSet) throws InvalidFieldException, SQLException {
-    return new ProductDTO(
-      resultSet.getInt("product_id"),
-      resultSet.getString("name"),
-      resultSet.getString("description"),
-      resultSet.getString("brand"),
-      resultSet.getFloat("price"),
-      resultSet.getInt("stock"),
-      resultSet.getTimestamp("created_at").toLocalDateTime()
+  protected RowMapper<ProductDTO> compileRowMapper(ResultSetColumns columns) throws SQLException {
+    int productIdColumn = columns.indexOf("product_id");
+    int nameColumn = columns.indexOf("name");
+    int descriptionColumn = columns.indexOf("description");
+    int brandColumn = columns.indexOf("brand");
+    int priceCentsColumn = columns.indexOf("price_cents");
+    int barcodesColumn = columns.indexOf("barcodes");
+    int stockColumn = columns.indexOf("stock");
+    int createdAtColumn = columns.indexOf("created_at");
+
+    return resultSet -> ProductDTO.fromTrustedRow(
+      resultSet.getInt(productIdColumn),
+      resultSet.getString(nameColumn),
+      resultSet.getString(descriptionColumn),
+      resultSet.getString(brandColumn),
+      resultSet.getLong(priceCentsColumn),
+      toBarcodeList(resultSet.getString(barcodesColumn)),
+      resultSet.getInt(stockColumn),
+      resultSet.getTimestamp(createdAtColumn).toLocalDateTime()
     );
   }
 
   public void createOne(ProductDTO productDTO) throws UserDisplayableException {
     try (
       Connection connection = DBConnector.getInstance().getConnection();
-      PreparedStatement statement = connection.prepareCall(CREATE_ONE_QUERY);
+      PreparedStatement versionStatement = connection.prepareStatement(BUMP_CATALOG_VERSION_QUERY);
+      PreparedStatement statement = connection.prepareStatement(CREATE_ONE_QUERY);
+      PreparedStatement barcodeStatement = connection.prepareStatement(CREATE_BARCODE_OF_CREATED_QUERY)
     ) {
+      connection.setAutoCommit(false);
+
+      versionStatement.executeUpdate();
       statement.setString(1, productDTO.getName());
       statement.setString(2, productDTO.getDescription());
       statement.setString(3, productDTO.getBrand());
-      statement.setFloat(4, productDTO.getPrice());
+      statement.setLong(4, productDTO.getPriceCents());
 
       statement.executeUpdate();
+      for (String barcode : productDTO.getBarcodes()) {
+        barcodeStatement.setString(1, barcode);
+        barcodeStatement.executeUpdate();
+      }
+      connection.commit();
     } catch (SQLException e) {
       throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible crear producto.");
     }
@@ -67,7 +162,7 @@ public class ProductDAO extends DAOShape<ProductDTO> {
       ResultSet resultSet = statement.executeQuery()
     ) {
       while (resultSet.next()) {
-        storeDTOList.add(createDTOInstanceFromResultSet(resultSet));
+        storeDTOList.add(createDTOInstanceFromResultSet(GET_ALL_QUERY, resultSet));
       }
 
       return storeDTOList;
@@ -76,15 +171,112 @@ public class ProductDAO extends DAOShape<ProductDTO> {
     }
   }
 
+  @Override
+  public Page<ProductDTO> getPage(PageRequest pageRequest) throws UserDisplayableException {
+    return queryPage(PAGE_SELECT_QUERY, "TRUE", pageRequest);
+  }
+
+  /**
+   * Streams every product ordered by id, see DAOShape.streamQuery.
+   *
+   * @param consumer the action to perform on every product
+   * @return the number of products streamed
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public long streamAll(Consumer<? super ProductDTO> consumer) throws UserDisplayableException {
+    return streamQuery(STREAM_ALL_QUERY, consumer);
+  }
+
+  /**
+   * Gets the version of the product catalog, a counter bumped in the transaction of every write to a product
+   * (see the CatalogVersion table). It is a single row read by its primary key, so it is cheap enough to poll.
+   *
+   * @return the catalog version, 0 if the catalog was never written
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public long getCatalogVersion() throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(GET_CATALOG_VERSION_QUERY);
+      ResultSet resultSet = statement.executeQuery()
+    ) {
+      return resultSet.next() ? resultSet.getLong(1) : 0;
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible verificar la versión del catálogo.");
+    }
+  }
+
+  /**
+   * Gets the products created or updated after a catalog version, to refresh a catalog incrementally.
+   *
+   * @param version the catalog version the catalog was loaded at, exclusive
+   * @return the products ordered by id
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public ArrayList<ProductDTO> getAllChangedSince(long version) throws UserDisplayableException {
+    ArrayList<ProductDTO> productDTOList = new ArrayList<>();
+
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(GET_ALL_CHANGED_SINCE_QUERY)
+    ) {
+      statement.setLong(1, version);
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          productDTOList.add(createDTOInstanceFromResultSet(GET_ALL_CHANGED_SINCE_QUERY, resultSet));
+        }
+      }
+
+      return productDTOList;
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible actualizar el catálogo.");
+    }
+  }
+
+  /**
+   * Gets the ids of the products deleted after a catalog version, recorded in DeletedProduct when they are deleted.
+   *
+   * @param version the catalog version the catalog was loaded at, exclusive
+   * @return the ids of the deleted products
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public ArrayList<Integer> getAllDeletedSince(long version) throws UserDisplayableException {
+    ArrayList<Integer> idProductList = new ArrayList<>();
+
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(GET_ALL_DELETED_SINCE_QUERY)
+    ) {
+      statement.setLong(1, version);
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          idProductList.add(resultSet.getInt(1));
+        }
+      }
+
+      return idProductList;
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible actualizar el catálogo.");
+    }
+  }
+
   public boolean updateOne(ProductDTO productDTO, ProductDTO originalProductDTO) throws UserDisplayableException {
     try (
       Connection connection = DBConnector.getInstance().getConnection();
-      PreparedStatement statement = connection.prepareCall(UPDATE_ONE_QUERY);
+      PreparedStatement versionStatement = connection.prepareStatement(BUMP_CATALOG_VERSION_QUERY);
+      PreparedStatement statement = connection.prepareStatement(UPDATE_ONE_QUERY);
+      PreparedStatement deleteBarcodesStatement = connection.prepareStatement(DELETE_BARCODES_QUERY);
+      PreparedStatement barcodeStatement = connection.prepareStatement(CREATE_BARCODE_QUERY)
     ) {
+      connection.setAutoCommit(false);
+
+      versionStatement.executeUpdate();
       statement.setString(1, productDTO.getName());
       statement.setString(2, productDTO.getDescription());
       statement.setString(3, productDTO.getBrand());
-      statement.setFloat(4, productDTO.getPrice());
+      statement.setLong(4, productDTO.getPriceCents());
       statement.setInt(5, originalProductDTO.getID());
 
       statement.executeUpdate();
@@ -92,38 +284,118 @@ public class ProductDAO extends DAOShape<ProductDTO> {
       boolean failed = statement.getUpdateCount() == -1;
 
       if (failed) {
+        connection.rollback();
         LOGGER.warn(
           "Actualización Fallida Inesperada de Producto: {}",
           String.format("%s %s", productDTO.getID(), productDTO.getName())
         );
+        return true;
+      }
+
+      deleteBarcodesStatement.setInt(1, originalProductDTO.getID());
+      deleteBarcodesStatement.executeUpdate();
+      for (String barcode : productDTO.getBarcodes()) {
+        barcodeStatement.setString(1, barcode);
+        barcodeStatement.setInt(2, originalProductDTO.getID());
+        barcodeStatement.executeUpdate();
       }
+      connection.commit();
 
-      return failed;
+      return false;
     } catch (SQLException e) {
       throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible actualizar producto.");
     }
   }
 
-  public ProductDTO searchByNameOrCode(String query) throws UserDisplayableException {
-    String sql = "SELECT * FROM CompleteProductView WHERE name LIKE ? OR product_id = ?";
-    try (Connection connection = DBConnector.getInstance().getConnection();
-         PreparedStatement statement = connection.prepareStatement(sql)) {
+  /**
+   * Gets a product by its id through the primary key, e.g. when the cashier scans or types a product code.
+   *
+   * @param idProduct the id of the product
+   * @return the product, or null if there is none
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public ProductDTO findByID(int idProduct) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(FIND_BY_ID_QUERY)
+    ) {
+      statement.setInt(1, idProduct);
 
-      statement.setString(1, "%" + query + "%");
-      try {
-        statement.setInt(2, Integer.parseInt(query));
-      } catch (NumberFormatException e) {
-        statement.setInt(2, -1); // Si no es número, no busca por ID
+      try (ResultSet resultSet = statement.executeQuery()) {
+        if (resultSet.next()) {
+          return createDTOInstanceFromResultSet(FIND_BY_ID_QUERY, resultSet);
+        }
       }
 
+      return null;
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible buscar el producto.");
+    }
+  }
+
+  /**
+   * Gets a product by one of its barcodes or SKUs through the primary key of ProductBarcode, e.g. when the cashier
+   * scans a product.
+   *
+   * @param barcode the barcode or SKU, in any case
+   * @return the product, or null if no product has the barcode
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public ProductDTO findByBarcode(String barcode) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(FIND_BY_BARCODE_QUERY)
+    ) {
+      statement.setString(1, barcode.toUpperCase(Locale.ROOT));
+
       try (ResultSet resultSet = statement.executeQuery()) {
         if (resultSet.next()) {
-          return createDTOInstanceFromResultSet(resultSet);
+          return createDTOInstanceFromResultSet(FIND_BY_BARCODE_QUERY, resultSet);
         }
       }
+
       return null;
     } catch (SQLException e) {
-      throw ExceptionHandler.handleSQLException(LOGGER, e, "Error searching product.");
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible buscar el producto.");
     }
   }
+
+  /**
+   * Gets the products whose name starts with the given text, ignoring case and accents as the collation does,
+   * ordered by name so an exact match comes first. It reads a range of idx_product_name, never the whole table.
+   *
+   * @param namePrefix the start of the name
+   * @param limit      the most products to return
+   * @return the products ordered by name and id
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public ArrayList<ProductDTO> searchByNamePrefix(String namePrefix, int limit) throws UserDisplayableException {
+    ArrayList<ProductDTO> productDTOList = new ArrayList<>();
+
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(SEARCH_BY_NAME_PREFIX_QUERY)
+    ) {
+      statement.setString(1, escapeLikePattern(namePrefix) + "%");
+      statement.setInt(2, limit);
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          productDTOList.add(createDTOInstanceFromResultSet(SEARCH_BY_NAME_PREFIX_QUERY, resultSet));
+        }
+      }
+
+      return productDTOList;
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible buscar los productos.");
+    }
+  }
+
+  private static List<String> toBarcodeList(String barcodes) {
+    return barcodes == null ? List.of() : Collections.unmodifiableList(Arrays.asList(barcodes.split(" ")));
+  }
+
+  private static String escapeLikePattern(String value) {
+    return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+  }
 }
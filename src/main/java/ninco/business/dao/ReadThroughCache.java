@@ -0,0 +1,130 @@
+package ninco.business.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ninco.common.UserDisplayableException;
+
+/**
+ * ReadThroughCache is a bounded, least recently used cache of DTOs that loads missing entries through the DAO.
+ * Entries expire after a time to live, which bounds how stale they can get when another terminal changes the
+ * database, and DAOs invalidate the whole cache when they write to the cached table themselves.
+ * A load that was running while the cache was invalidated does not store its result, so a write is never
+ * hidden by a value read right before it.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached DTOs
+ */
+public class ReadThroughCache<K, V> {
+  private final String name;
+  private final int maxSize;
+  private final long timeToLiveNanos;
+  private final Map<K, Entry<V>> entries;
+  private long generation;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long invalidationCount;
+
+  @FunctionalInterface
+  public interface Loader<K, V> {
+    /**
+     * Loads the value of a key from the database.
+     *
+     * @param key the key to load
+     * @return the value, or null if there is none, which is not cached
+     * @throws UserDisplayableException if the value could not be loaded
+     */
+    V load(K key) throws UserDisplayableException;
+  }
+
+  private static class Entry<V> {
+    private final V value;
+    private final long loadedAtNanos;
+
+    private Entry(V value, long loadedAtNanos) {
+      this.value = value;
+      this.loadedAtNanos = loadedAtNanos;
+    }
+  }
+
+  /**
+   * @param name              the name of the cache in the statistics, e.g. "StoreDAO.byID"
+   * @param maxSize           how many entries are kept at most
+   * @param timeToLiveMillis  how long an entry is served before it is loaded again
+   */
+  public ReadThroughCache(String name, int maxSize, long timeToLiveMillis) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+    }
+
+    this.name = name;
+    this.maxSize = maxSize;
+    this.timeToLiveNanos = timeToLiveMillis * 1_000_000;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+        if (size() > ReadThroughCache.this.maxSize) {
+          evictionCount++;
+          return true;
+        }
+
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Gets the cached value of a key, loading it with the loader if it is missing or expired.
+   * The loader runs outside the lock of the cache, so slow queries do not block other keys.
+   *
+   * @param key    the key to get
+   * @param loader the query of the DAO for the key
+   * @return the value, or null if the loader found none
+   * @throws UserDisplayableException if the value had to be loaded and could not be
+   */
+  public V get(K key, Loader<K, V> loader) throws UserDisplayableException {
+    long loadGeneration;
+
+    synchronized (this) {
+      Entry<V> entry = entries.get(key);
+
+      if (entry != null && System.nanoTime() - entry.loadedAtNanos < timeToLiveNanos) {
+        hitCount++;
+        return entry.value;
+      }
+
+      if (entry != null) {
+        entries.remove(key);
+      }
+
+      missCount++;
+      loadGeneration = generation;
+    }
+
+    V value = loader.load(key);
+
+    if (value != null) {
+      synchronized (this) {
+        if (loadGeneration == generation) {
+          entries.put(key, new Entry<>(value, System.nanoTime()));
+        }
+      }
+    }
+
+    return value;
+  }
+
+  /**
+   * Discards every entry, to be called after the DAO writes to the cached data.
+   */
+  public synchronized void invalidateAll() {
+    generation++;
+    invalidationCount++;
+    entries.clear();
+  }
+
+  public synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics(name, entries.size(), maxSize, hitCount, missCount, evictionCount, invalidationCount);
+  }
+}
@@ -0,0 +1,48 @@
+package ninco.business.dao;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ResultSetColumns resolves the column labels of a result to their indexes, read once from its metadata.
+ * Labels are matched case-insensitively, as MySQL does. If a label is repeated the first column wins,
+ * which is also what ResultSet.findColumn does.
+ */
+public final class ResultSetColumns {
+  private final Map<String, Integer> indexByLabel;
+
+  private ResultSetColumns(Map<String, Integer> indexByLabel) {
+    this.indexByLabel = indexByLabel;
+  }
+
+  public static ResultSetColumns of(ResultSetMetaData metaData) throws SQLException {
+    int columnCount = metaData.getColumnCount();
+    Map<String, Integer> indexByLabel = new HashMap<>(columnCount * 2);
+
+    for (int i = 1; i <= columnCount; i++) {
+      indexByLabel.putIfAbsent(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+    }
+
+    return new ResultSetColumns(indexByLabel);
+  }
+
+  /**
+   * Gets the index of a column, to be used with the index-based getters of ResultSet.
+   *
+   * @param label the label of the column, its alias if it has one
+   * @return the 1-based index of the column
+   * @throws SQLException if the result has no column with that label
+   */
+  public int indexOf(String label) throws SQLException {
+    Integer index = indexByLabel.get(label.toLowerCase(Locale.ROOT));
+
+    if (index == null) {
+      throw new SQLException("Column '" + label + "' not found.", "S0022");
+    }
+
+    return index;
+  }
+}
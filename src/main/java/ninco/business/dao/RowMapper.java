@@ -0,0 +1,17 @@
+package ninco.business.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import ninco.common.InvalidFieldException;
+
+/**
+ * RowMapper creates a DTO from the current row of a ResultSet. Mappers are compiled by DAOShape.compileRowMapper
+ * once per query, with the column indexes already resolved, so mapping a row never looks a column up by label.
+ *
+ * @param <T> the type of the DTO created
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+  T map(ResultSet resultSet) throws InvalidFieldException, SQLException;
+}
@@ -0,0 +1,82 @@
+package ninco.business.dao;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import ninco.business.dto.SaleDTO;
+import ninco.common.UserDisplayableException;
+
+/**
+ * SaleDAO reads the Sale table for exports and reports. Sales are written by InvoiceDAO, and the table grows
+ * with every invoice, so it is only ever walked with streamQuery instead of being loaded in a list.
+ */
+public class SaleDAO extends DAOShape<SaleDTO> {
+  private static final String SELECT_QUERY =
+    "SELECT sale_id, invoice_id, employee_id, product_id, store_id, amount, CAST(price * 100 AS SIGNED) AS price_cents, " +
+      "created_at FROM Sale";
+  private static final String STREAM_ALL_QUERY = SELECT_QUERY + " ORDER BY sale_id";
+  private static final String STREAM_ALL_BY_STORE_BETWEEN_QUERY =
+    SELECT_QUERY + " WHERE store_id = ? AND created_at >= ? AND created_at < ? ORDER BY sale_id";
+  private static final SaleDAO INSTANCE = new SaleDAO();
+
+  private SaleDAO() {
+  }
+
+  public static SaleDAO getInstance() {
+    return INSTANCE;
+  }
+
+  @Override
+  protected RowMapper<SaleDTO> compileRowMapper(ResultSetColumns columns) throws SQLException {
+    int saleIdColumn = columns.indexOf("sale_id");
+    int invoiceIdColumn = columns.indexOf("invoice_id");
+    int employeeIdColumn = columns.indexOf("employee_id");
+    int productIdColumn = columns.indexOf("product_id");
+    int storeIdColumn = columns.indexOf("store_id");
+    int amountColumn = columns.indexOf("amount");
+    int priceCentsColumn = columns.indexOf("price_cents");
+    int createdAtColumn = columns.indexOf("created_at");
+
+    return resultSet -> new SaleDTO(
+      resultSet.getInt(saleIdColumn),
+      resultSet.getInt(invoiceIdColumn),
+      resultSet.getInt(employeeIdColumn),
+      resultSet.getInt(productIdColumn),
+      resultSet.getInt(storeIdColumn),
+      resultSet.getInt(amountColumn),
+      resultSet.getLong(priceCentsColumn),
+      resultSet.getTimestamp(createdAtColumn).toLocalDateTime()
+    );
+  }
+
+  /**
+   * Streams every sale ordered by id, see DAOShape.streamQuery.
+   *
+   * @param consumer the action to perform on every sale
+   * @return the number of sales streamed
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public long streamAll(Consumer<? super SaleDTO> consumer) throws UserDisplayableException {
+    return streamQuery(STREAM_ALL_QUERY, consumer);
+  }
+
+  /**
+   * Streams the sales of a store made in a period, e.g. for a daily report.
+   *
+   * @param idStore  the store of the sales
+   * @param from     the start of the period, inclusive
+   * @param to       the end of the period, exclusive
+   * @param consumer the action to perform on every sale
+   * @return the number of sales streamed
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public long streamAllByStoreBetween(
+    int idStore,
+    LocalDateTime from,
+    LocalDateTime to,
+    Consumer<? super SaleDTO> consumer
+  ) throws UserDisplayableException {
+    return streamQuery(STREAM_ALL_BY_STORE_BETWEEN_QUERY, consumer, idStore, from, to);
+  }
+}
@@ -0,0 +1,116 @@
+package ninco.business.dao;
+
+import java.util.List;
+
+/**
+ * StockContentionStatistics is an immutable snapshot of how often checkouts failed because other checkouts held
+ * the same Stock rows, taken at the moment InvoiceDAO.getContentionStatistics() is called.
+ * A failure counts against every product of the cart, the database does not tell which row was contended.
+ */
+public class StockContentionStatistics {
+  private static final int LOGGED_PRODUCT_COUNT = 5;
+  private final long checkoutCount;
+  private final long deadlockCount;
+  private final long lockWaitTimeoutCount;
+  private final long retryCount;
+  private final long exhaustedCount;
+  private final List<ProductContention> productContentionList;
+
+  /**
+   * ProductContention is the contention of the checkouts that included a product.
+   */
+  public static class ProductContention {
+    private final int idProduct;
+    private final int retryCount;
+    private final int exhaustedCount;
+
+    public ProductContention(int idProduct, int retryCount, int exhaustedCount) {
+      this.idProduct = idProduct;
+      this.retryCount = retryCount;
+      this.exhaustedCount = exhaustedCount;
+    }
+
+    public int getIDProduct() {
+      return idProduct;
+    }
+
+    public int getRetryCount() {
+      return retryCount;
+    }
+
+    public int getExhaustedCount() {
+      return exhaustedCount;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("#%d retries=%d exhausted=%d", idProduct, retryCount, exhaustedCount);
+    }
+  }
+
+  public StockContentionStatistics(
+    long checkoutCount,
+    long deadlockCount,
+    long lockWaitTimeoutCount,
+    long retryCount,
+    long exhaustedCount,
+    List<ProductContention> productContentionList
+  ) {
+    this.checkoutCount = checkoutCount;
+    this.deadlockCount = deadlockCount;
+    this.lockWaitTimeoutCount = lockWaitTimeoutCount;
+    this.retryCount = retryCount;
+    this.exhaustedCount = exhaustedCount;
+    this.productContentionList = List.copyOf(productContentionList);
+  }
+
+  public long getCheckoutCount() {
+    return checkoutCount;
+  }
+
+  public long getDeadlockCount() {
+    return deadlockCount;
+  }
+
+  public long getLockWaitTimeoutCount() {
+    return lockWaitTimeoutCount;
+  }
+
+  public long getRetryCount() {
+    return retryCount;
+  }
+
+  /**
+   * @return the number of checkouts that failed after running out of attempts
+   */
+  public long getExhaustedCount() {
+    return exhaustedCount;
+  }
+
+  /**
+   * @return the contention of every product that was contended at least once, most retried first
+   */
+  public List<ProductContention> getProductContentionList() {
+    return productContentionList;
+  }
+
+  public ProductContention getProductContention(int idProduct) {
+    return productContentionList.stream()
+      .filter(it -> it.getIDProduct() == idProduct)
+      .findFirst()
+      .orElse(new ProductContention(idProduct, 0, 0));
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "checkouts=%d deadlocks=%d lockWaitTimeouts=%d retries=%d exhausted=%d mostContended=%s",
+      checkoutCount,
+      deadlockCount,
+      lockWaitTimeoutCount,
+      retryCount,
+      exhaustedCount,
+      productContentionList.subList(0, Math.min(LOGGED_PRODUCT_COUNT, productContentionList.size()))
+    );
+  }
+}
@@ -6,7 +6,7 @@ import org.apache.logging.log4j.Logger;
 
 import ninco.business.dto.StockDTO;
 import ninco.common.ExceptionHandler;
-import ninco.common.InvalidFieldException;
+import ninco.common.IntIntHashMap;
 import ninco.common.UserDisplayableException;
 import ninco.db.DBConnector;
 
@@ -15,12 +15,55 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
-public class StockDAO extends DAOShape<StockDTO> {
+public class StockDAO extends DAOShape<StockDTO> implements PageSource<StockDTO> {
   private static final Logger LOGGER = LogManager.getLogger(StockDAO.class);
-  private static final String CREATE_ONE_QUERY = "INSERT INTO STOCK (product_id, store_id, quantity) VALUES (?, ?, ?)";
-  private static final String GET_ALL_QUERY = "SELECT * FROM CompleteStockView";
-  private static final String GET_ALL_BY_STORE = "SELECT * FROM CompleteStockView WHERE store_id = ?";
+  private static final String CREATE_ONE_QUERY = registerStatement(
+    "StockDAO.createOne",
+    "INSERT INTO STOCK (product_id, store_id, quantity) VALUES (?, ?, ?)"
+  );
+  private static final String GET_CURRENT_STOCK_BY_PRODUCT_QUERY = registerStatement(
+    "StockDAO.getCurrentStockByProduct",
+    "SELECT S.quantity + COALESCE((" +
+      "SELECT SUM(H.quantity) FROM StockShard H WHERE H.product_id = S.product_id AND H.store_id = S.store_id" +
+      "), 0) - COALESCE((" +
+      "SELECT SUM(R.quantity) FROM StockReservation R WHERE R.product_id = S.product_id AND R.store_id = S.store_id " +
+      "AND R.expires_at > NOW(6) AND R.cart_id <> ?" +
+      "), 0) AS quantity FROM Stock S WHERE S.store_id = ? AND S.product_id = ?"
+  );
+  private static final String GET_AVAILABLE_QUANTITY_BY_PRODUCT_OF_STORE_QUERY = registerStatement(
+    "StockDAO.getAvailableQuantityByProductOfStore",
+    "SELECT S.product_id, S.quantity - COALESCE(SUM(R.quantity), 0) + COALESCE((" +
+      "SELECT SUM(H.quantity) FROM StockShard H WHERE H.product_id = S.product_id AND H.store_id = S.store_id" +
+      "), 0) FROM Stock S " +
+      "LEFT JOIN StockReservation R ON R.product_id = S.product_id AND R.store_id = S.store_id " +
+      "AND R.expires_at > NOW(6) AND R.cart_id <> ? " +
+      "WHERE S.store_id = ? GROUP BY S.product_id, S.store_id, S.quantity"
+  );
+  // CompleteStockView sums the shards in its select list, which makes MySQL materialize the whole view,
+  // so pages read Stock directly and only sum the shards of the rows in the page.
+  private static final String PAGE_SELECT_QUERY =
+    "SELECT ST.product_id, ST.store_id, ST.quantity + COALESCE((SELECT SUM(H.quantity) FROM StockShard H " +
+      "WHERE H.product_id = ST.product_id AND H.store_id = ST.store_id), 0) AS quantity, " +
+      "P.name AS product_name, S.name AS store_name, CAST(P.price * 100 AS SIGNED) AS price_cents, ST.created_at " +
+      "FROM Stock ST JOIN Store S ON S.store_id = ST.store_id JOIN Product P ON P.product_id = ST.product_id";
+  private static final String GET_ALL_QUERY = registerStatement(
+    "StockDAO.getAll",
+    PAGE_SELECT_QUERY
+  );
+  private static final String GET_ALL_BY_STORE = registerStatement(
+    "StockDAO.getAllByStore",
+    PAGE_SELECT_QUERY + " WHERE ST.store_id = ?"
+  );
+  private static final String STREAM_ALL_QUERY = PAGE_SELECT_QUERY + " ORDER BY ST.product_id, ST.store_id";
+  private static final String STREAM_ALL_BY_STORE_QUERY =
+    PAGE_SELECT_QUERY + " WHERE ST.store_id = ? ORDER BY ST.product_id";
+  public static final PageSortKey SORT_BY_ID =
+    new PageSortKey(StockDAO.class, "id", "ST.product_id", "ST.store_id");
+  // NOTE: Pages of one store seek on idx_stock_store, product_id alone would skip the rows of the other stores.
+  public static final PageSortKey SORT_BY_STORE =
+    new PageSortKey(StockDAO.class, "store", "ST.store_id", "ST.product_id");
   private static final StockDAO INSTANCE = new StockDAO();
 
   private StockDAO() {
@@ -31,15 +74,23 @@ public class StockDAO extends DAOShape<StockDTO> {
   }
 
   @Override
-  public StockDTO getDTOInstanceFromResultSet(ResultSet resultSet) throws InvalidFieldException, SQLException {
-    return new StockDTO(
-      resultSet.getInt("product_id"),
-      resultSet.getInt("store_id"),
-      resultSet.getString("product_name"),
-      resultSet.getString("store_name"),
-      resultSet.getInt("quantity"),
-      resultSet.getFloat("price"),
-      resultSet.getTimestamp("created_at").toLocalDateTime()
+  protected RowMapper<StockDTO> compileRowMapper(ResultSetColumns columns) throws SQLException {
+    int productIdColumn = columns.indexOf("product_id");
+    int storeIdColumn = columns.indexOf("store_id");
+    int productNameColumn = columns.indexOf("product_name");
+    int storeNameColumn = columns.indexOf("store_name");
+    int quantityColumn = columns.indexOf("quantity");
+    int priceCentsColumn = columns.indexOf("price_cents");
+    int createdAtColumn = columns.indexOf("created_at");
+
+    return resultSet -> StockDTO.fromTrustedRow(
+      resultSet.getInt(productIdColumn),
+      resultSet.getInt(storeIdColumn),
+      resultSet.getString(productNameColumn),
+      resultSet.getString(storeNameColumn),
+      resultSet.getInt(quantityColumn),
+      resultSet.getLong(priceCentsColumn),
+      resultSet.getTimestamp(createdAtColumn).toLocalDateTime()
     );
   }
 
@@ -68,7 +119,7 @@ public class StockDAO extends DAOShape<StockDTO> {
     ) {
 
       while (resultSet.next()) {
-        stockDTOList.add(createDTOInstanceFromResultSet(resultSet));
+        stockDTOList.add(createDTOInstanceFromResultSet(GET_ALL_QUERY, resultSet));
       }
 
       return stockDTOList;
@@ -88,7 +139,7 @@ public class StockDAO extends DAOShape<StockDTO> {
 
       try (ResultSet resultSet = statement.executeQuery()) {
         while (resultSet.next()) {
-          stockDTOList.add(createDTOInstanceFromResultSet(resultSet));
+          stockDTOList.add(createDTOInstanceFromResultSet(GET_ALL_BY_STORE, resultSet));
         }
       }
 
@@ -98,14 +149,59 @@ public class StockDAO extends DAOShape<StockDTO> {
     }
   }
 
-  public int getCurrentStockByProduct(int storeId, int productId) throws UserDisplayableException {
-    String query = "SELECT quantity FROM Stock WHERE store_id = ? AND product_id = ?";
+  @Override
+  public Page<StockDTO> getPage(PageRequest pageRequest) throws UserDisplayableException {
+    return queryPage(PAGE_SELECT_QUERY, "TRUE", pageRequest);
+  }
+
+  /**
+   * Gets a page of the stock of a store, paginate it by SORT_BY_STORE so every page is a range of idx_stock_store.
+   *
+   * @param idStore     the id of the store
+   * @param pageRequest the page to get
+   * @return the page
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public Page<StockDTO> getPageByStore(int idStore, PageRequest pageRequest) throws UserDisplayableException {
+    return queryPage(PAGE_SELECT_QUERY, "ST.store_id = ?", pageRequest, idStore);
+  }
+
+  /**
+   * Streams the stock of every store ordered by product, see DAOShape.streamQuery.
+   *
+   * @param consumer the action to perform on every stock
+   * @return the number of stocks streamed
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public long streamAll(Consumer<? super StockDTO> consumer) throws UserDisplayableException {
+    return streamQuery(STREAM_ALL_QUERY, consumer);
+  }
 
+  public long streamAllByStore(int idStore, Consumer<? super StockDTO> consumer) throws UserDisplayableException {
+    return streamQuery(STREAM_ALL_BY_STORE_QUERY, consumer, idStore);
+  }
+
+  /**
+   * Gets the quantity of a product available to sell in a store, i.e. its stock minus the active holds of other carts,
+   * like getAvailableQuantityByProductOfStore does for every product.
+   *
+   * @param storeId        the id of the store
+   * @param productId      the id of the product
+   * @param excludedCartId the id of the cart whose holds are not subtracted, usually the one being registered
+   * @return the available quantity, 0 if the store does not stock the product
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public int getCurrentStockByProduct(
+    int storeId,
+    int productId,
+    String excludedCartId
+  ) throws UserDisplayableException {
     try (Connection connection = DBConnector.getInstance().getConnection();
-         PreparedStatement statement = connection.prepareStatement(query)) {
+         PreparedStatement statement = connection.prepareStatement(GET_CURRENT_STOCK_BY_PRODUCT_QUERY)) {
 
-      statement.setInt(1, storeId);
-      statement.setInt(2, productId);
+      statement.setString(1, excludedCartId);
+      statement.setInt(2, storeId);
+      statement.setInt(3, productId);
 
       try (ResultSet resultSet = statement.executeQuery()) {
         if (resultSet.next()) {
@@ -117,4 +213,39 @@ public class StockDAO extends DAOShape<StockDTO> {
       throw ExceptionHandler.handleSQLException(LOGGER, e, "Error fetching stock.");
     }
   }
+
+  /**
+   * Gets the quantity available to sell of every product stocked by a store, i.e. its stock minus the active holds
+   * of other carts (see StockReservationDAO), without the product and store details CompleteStockView joins,
+   * e.g. to check stock locally while a sale is being registered.
+   *
+   * @param storeId        the id of the store
+   * @param excludedCartId the id of the cart whose holds are not subtracted, usually the one being registered
+   * @return the quantities keyed by product id, products the store does not stock are missing
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public IntIntHashMap getAvailableQuantityByProductOfStore(
+    int storeId,
+    String excludedCartId
+  ) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(GET_AVAILABLE_QUANTITY_BY_PRODUCT_OF_STORE_QUERY);
+    ) {
+      statement.setString(1, excludedCartId);
+      statement.setInt(2, storeId);
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        IntIntHashMap quantityByProduct = new IntIntHashMap();
+
+        while (resultSet.next()) {
+          quantityByProduct.put(resultSet.getInt(1), resultSet.getInt(2));
+        }
+
+        return quantityByProduct;
+      }
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible cargar el inventario de la tienda.");
+    }
+  }
 }
@@ -0,0 +1,272 @@
+package ninco.business.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ninco.common.ExceptionHandler;
+import ninco.common.UserDisplayableException;
+import ninco.db.DBConnector;
+import ninco.db.StatementRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * StockReservationDAO manages the soft holds a cart places on the stock of its store while a sale is being
+ * registered. A hold expires unless it is refreshed, so the stock held by a terminal that stopped working becomes
+ * available again on its own; expired holds are ignored by every query and only purged to keep the table small.
+ * The stock available to sell is the quantity in Stock minus the quantity of the active holds.
+ * The holds of a product are placed one at a time under its StockReservationLock row, so terminals selling different
+ * products never wait for each other, and InvoiceDAO deletes the holds of a cart in the same transaction it sells them.
+ * A hold of a regular product also locks its Stock row, which checkouts lock too. The Stock row and the shards of a hot
+ * product (see StockShardDAO) are read without locking them, its checkouts only share the lock of the hold row.
+ * The expiration is computed with the clock of the database, terminals may disagree on the time.
+ */
+public class StockReservationDAO {
+  private static final Logger LOGGER = LogManager.getLogger(StockReservationDAO.class);
+  private static final int FOREIGN_KEY_VIOLATION = 1452;
+  private static final String LOCK_HOLDS_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.lockHolds",
+    "INSERT INTO StockReservationLock (product_id, store_id) VALUES (?, ?) " +
+      "ON DUPLICATE KEY UPDATE product_id = product_id"
+  );
+  private static final String GET_SHARDS_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.getShards",
+    "SELECT COUNT(*), COALESCE(SUM(quantity), 0) FROM StockShard WHERE product_id = ? AND store_id = ?"
+  );
+  private static final String LOCK_STOCK_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.lockStock",
+    "SELECT quantity FROM Stock WHERE store_id = ? AND product_id = ? FOR UPDATE"
+  );
+  private static final String GET_STOCK_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.getStock",
+    "SELECT quantity FROM Stock WHERE store_id = ? AND product_id = ?"
+  );
+  private static final String GET_HELD_QUANTITY_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.getHeldQuantity",
+    "SELECT COALESCE(SUM(quantity), 0) FROM StockReservation " +
+      "WHERE store_id = ? AND product_id = ? AND expires_at > NOW(6)"
+  );
+  // NOTE: The quantity is assigned first so it still sees whether the previous hold had expired.
+  private static final String HOLD_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.hold",
+    "INSERT INTO StockReservation (cart_id, product_id, store_id, quantity, expires_at) " +
+      "VALUES (?, ?, ?, ?, NOW(6) + INTERVAL ? SECOND) " +
+      "ON DUPLICATE KEY UPDATE " +
+      "quantity = IF(expires_at > NOW(6), quantity, 0) + VALUES(quantity), expires_at = VALUES(expires_at)"
+  );
+  private static final String REFRESH_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.refresh",
+    "UPDATE StockReservation SET expires_at = NOW(6) + INTERVAL ? SECOND WHERE cart_id = ? AND expires_at > NOW(6)"
+  );
+  private static final String RELEASE_PRODUCT_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.releaseProduct",
+    "DELETE FROM StockReservation WHERE cart_id = ? AND product_id = ?"
+  );
+  private static final String RELEASE_QUANTITY_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.releaseQuantity",
+    "UPDATE StockReservation SET quantity = GREATEST(quantity - ?, 0) WHERE cart_id = ? AND product_id = ?"
+  );
+  private static final String RELEASE_ALL_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.releaseAll",
+    "DELETE FROM StockReservation WHERE cart_id = ?"
+  );
+  private static final String DELETE_EXPIRED_QUERY = StatementRegistry.getInstance().register(
+    "StockReservationDAO.deleteExpired",
+    "DELETE FROM StockReservation WHERE expires_at < NOW(6)"
+  );
+  private static final StockReservationDAO INSTANCE = new StockReservationDAO();
+
+  private StockReservationDAO() {
+  }
+
+  public static StockReservationDAO getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Holds a quantity of a product for a cart if the store has that much stock available to sell,
+   * adding to the active hold the cart may already have on the product.
+   *
+   * @param cartId            the id of the cart
+   * @param storeId           the id of the store
+   * @param productId         the id of the product
+   * @param quantity          the positive quantity to hold
+   * @param timeToLiveSeconds how long the hold lasts unless it is refreshed
+   * @return false if there is not enough stock available to sell, nothing is held then
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public boolean hold(
+    String cartId,
+    int storeId,
+    int productId,
+    int quantity,
+    int timeToLiveSeconds
+  ) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement lockHoldsStatement = connection.prepareStatement(LOCK_HOLDS_QUERY);
+      PreparedStatement shardsStatement = connection.prepareStatement(GET_SHARDS_QUERY);
+      PreparedStatement lockStockStatement = connection.prepareStatement(LOCK_STOCK_QUERY);
+      PreparedStatement stockStatement = connection.prepareStatement(GET_STOCK_QUERY);
+      PreparedStatement heldStatement = connection.prepareStatement(GET_HELD_QUANTITY_QUERY);
+      PreparedStatement holdStatement = connection.prepareStatement(HOLD_QUERY)
+    ) {
+      connection.setAutoCommit(false);
+
+      lockHoldsStatement.setInt(1, productId);
+      lockHoldsStatement.setInt(2, storeId);
+      try {
+        lockHoldsStatement.executeUpdate();
+      } catch (SQLException e) {
+        if (e.getErrorCode() != FOREIGN_KEY_VIOLATION) {
+          throw e;
+        }
+
+        connection.rollback();
+        return false;
+      }
+
+      shardsStatement.setInt(1, productId);
+      shardsStatement.setInt(2, storeId);
+      int shardCount;
+      int shardQuantity;
+      try (ResultSet resultSet = shardsStatement.executeQuery()) {
+        resultSet.next();
+        shardCount = resultSet.getInt(1);
+        shardQuantity = resultSet.getInt(2);
+      }
+
+      // NOTE: Checkouts of a hot product never lock its Stock row, they share the lock of the hold row instead.
+      PreparedStatement stockQuantityStatement = shardCount == 0 ? lockStockStatement : stockStatement;
+      stockQuantityStatement.setInt(1, storeId);
+      stockQuantityStatement.setInt(2, productId);
+      int stockQuantity;
+      try (ResultSet resultSet = stockQuantityStatement.executeQuery()) {
+        if (!resultSet.next()) {
+          connection.rollback();
+          return false;
+        }
+        stockQuantity = resultSet.getInt(1) + shardQuantity;
+      }
+
+      heldStatement.setInt(1, storeId);
+      heldStatement.setInt(2, productId);
+      int heldQuantity;
+      try (ResultSet resultSet = heldStatement.executeQuery()) {
+        resultSet.next();
+        heldQuantity = resultSet.getInt(1);
+      }
+
+      if (stockQuantity - heldQuantity < quantity) {
+        connection.rollback();
+        return false;
+      }
+
+      holdStatement.setString(1, cartId);
+      holdStatement.setInt(2, productId);
+      holdStatement.setInt(3, storeId);
+      holdStatement.setInt(4, quantity);
+      holdStatement.setInt(5, timeToLiveSeconds);
+      holdStatement.executeUpdate();
+
+      connection.commit();
+      return true;
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible apartar el producto.");
+    }
+  }
+
+  /**
+   * Extends the active holds of a cart, holds that already expired are not revived since their stock
+   * may have been held by another cart.
+   *
+   * @param cartId            the id of the cart
+   * @param timeToLiveSeconds how long the holds last from now on
+   * @return the number of holds extended
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public int refresh(String cartId, int timeToLiveSeconds) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(REFRESH_QUERY)
+    ) {
+      statement.setInt(1, timeToLiveSeconds);
+      statement.setString(2, cartId);
+
+      return statement.executeUpdate();
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible renovar los productos apartados.");
+    }
+  }
+
+  public void releaseProduct(String cartId, int productId) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(RELEASE_PRODUCT_QUERY)
+    ) {
+      statement.setString(1, cartId);
+      statement.setInt(2, productId);
+
+      statement.executeUpdate();
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible liberar el producto apartado.");
+    }
+  }
+
+  /**
+   * Gives back part of the hold of a cart on a product, e.g. when its line in the cart is lowered. The hold is
+   * decremented rather than set, so it adds up with a hold placed on the product meanwhile.
+   *
+   * @param cartId    the id of the cart
+   * @param productId the id of the product
+   * @param quantity  the quantity to give back, the hold never drops below zero
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public void releaseQuantity(String cartId, int productId, int quantity) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(RELEASE_QUANTITY_QUERY)
+    ) {
+      statement.setInt(1, quantity);
+      statement.setString(2, cartId);
+      statement.setInt(3, productId);
+
+      statement.executeUpdate();
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible liberar el producto apartado.");
+    }
+  }
+
+  public void releaseAll(String cartId) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(RELEASE_ALL_QUERY)
+    ) {
+      statement.setString(1, cartId);
+
+      statement.executeUpdate();
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible liberar los productos apartados.");
+    }
+  }
+
+  /**
+   * Purges the expired holds of every cart, they are already ignored when computing the stock available to sell.
+   *
+   * @return the number of holds purged
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public int deleteExpired() throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(DELETE_EXPIRED_QUERY)
+    ) {
+      return statement.executeUpdate();
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible depurar los productos apartados.");
+    }
+  }
+}
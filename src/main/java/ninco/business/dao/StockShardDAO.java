@@ -0,0 +1,320 @@
+package ninco.business.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ninco.common.ExceptionHandler;
+import ninco.common.UserDisplayableException;
+import ninco.db.DBConnector;
+import ninco.db.StatementRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StockShardDAO manages the sharded stock of hot products, the products sold at every register of a store at once.
+ * The stock of a hot product is split into StockShard rows numbered from 0, and a checkout takes a line from one
+ * random shard (see the TakeShardedStock procedure), so concurrent checkouts of the product lock different rows
+ * instead of all waiting on its Stock row. Its stock is the quantity left in the Stock row plus the quantity of
+ * its shards, every read of the stock sums both.
+ * Shards drift apart as they are sold from, rebalancing spreads the stock of a product evenly across its shards
+ * again and moves any quantity left in the Stock row into them (see StockShardRebalancer).
+ * Every method locks the shards in order and then the Stock row, the same order checkouts lock them in.
+ */
+public class StockShardDAO {
+  private static final Logger LOGGER = LogManager.getLogger(StockShardDAO.class);
+  private static final String LOCK_SHARDS_QUERY = StatementRegistry.getInstance().register(
+    "StockShardDAO.lockShards",
+    "SELECT quantity FROM StockShard WHERE product_id = ? AND store_id = ? ORDER BY shard FOR UPDATE"
+  );
+  private static final String LOCK_STOCK_QUERY = StatementRegistry.getInstance().register(
+    "StockShardDAO.lockStock",
+    "SELECT quantity FROM Stock WHERE product_id = ? AND store_id = ? FOR UPDATE"
+  );
+  private static final String DELETE_SHARDS_QUERY = StatementRegistry.getInstance().register(
+    "StockShardDAO.deleteShards",
+    "DELETE FROM StockShard WHERE product_id = ? AND store_id = ?"
+  );
+  private static final String CREATE_SHARD_QUERY = StatementRegistry.getInstance().register(
+    "StockShardDAO.createShard",
+    "INSERT INTO StockShard (product_id, store_id, shard, quantity) VALUES (?, ?, ?, ?)"
+  );
+  private static final String CREATE_RESERVATION_LOCK_QUERY = StatementRegistry.getInstance().register(
+    "StockShardDAO.createReservationLock",
+    "INSERT IGNORE INTO StockReservationLock (product_id, store_id) VALUES (?, ?)"
+  );
+  private static final String UPDATE_SHARD_QUERY = StatementRegistry.getInstance().register(
+    "StockShardDAO.updateShard",
+    "UPDATE StockShard SET quantity = ? WHERE product_id = ? AND store_id = ? AND shard = ?"
+  );
+  private static final String UPDATE_STOCK_QUERY = StatementRegistry.getInstance().register(
+    "StockShardDAO.updateStock",
+    "UPDATE Stock SET quantity = ? WHERE product_id = ? AND store_id = ?"
+  );
+  // NOTE: Shards more than one unit apart with one below half its even share, or stock left in the Stock row.
+  private static final String GET_UNBALANCED_PRODUCTS_OF_STORE_QUERY = StatementRegistry.getInstance().register(
+    "StockShardDAO.getUnbalancedProductsOfStore",
+    "SELECT H.product_id FROM StockShard H " +
+      "JOIN Stock S ON S.product_id = H.product_id AND S.store_id = H.store_id " +
+      "WHERE H.store_id = ? GROUP BY H.product_id, S.quantity " +
+      "HAVING S.quantity > 0 OR (MAX(H.quantity) - MIN(H.quantity) > 1 " +
+      "AND MIN(H.quantity) * 2 * COUNT(*) < SUM(H.quantity))"
+  );
+  private static final StockShardDAO INSTANCE = new StockShardDAO();
+
+  private StockShardDAO() {
+  }
+
+  public static StockShardDAO getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Makes a product hot in a store, splitting all of its stock evenly into a number of shards.
+   * A product that already has shards is split again into the new number of shards.
+   *
+   * @param storeId    the id of the store
+   * @param productId  the id of the product
+   * @param shardCount the number of shards, usually about the number of registers of the store
+   * @return false if the store does not stock the product, nothing is changed then
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public boolean enableSharding(int storeId, int productId, int shardCount) throws UserDisplayableException {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+    }
+
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement deleteStatement = connection.prepareStatement(DELETE_SHARDS_QUERY);
+      PreparedStatement createStatement = connection.prepareStatement(CREATE_SHARD_QUERY);
+      PreparedStatement createLockStatement = connection.prepareStatement(CREATE_RESERVATION_LOCK_QUERY);
+      PreparedStatement updateStockStatement = connection.prepareStatement(UPDATE_STOCK_QUERY)
+    ) {
+      connection.setAutoCommit(false);
+
+      int[] shardQuantities = lockShards(connection, storeId, productId);
+      Integer stockQuantity = lockStock(connection, storeId, productId);
+      if (stockQuantity == null) {
+        connection.rollback();
+        return false;
+      }
+
+      deleteStatement.setInt(1, productId);
+      deleteStatement.setInt(2, storeId);
+      deleteStatement.executeUpdate();
+
+      int[] splitQuantities = splitEvenly(stockQuantity + sum(shardQuantities), shardCount);
+      for (int shard = 0; shard < shardCount; shard++) {
+        createStatement.setInt(1, productId);
+        createStatement.setInt(2, storeId);
+        createStatement.setInt(3, shard);
+        createStatement.setInt(4, splitQuantities[shard]);
+        createStatement.addBatch();
+      }
+      createStatement.executeBatch();
+
+      // NOTE: Checkouts of the product share this row from now on, see StockReservationDAO.
+      createLockStatement.setInt(1, productId);
+      createLockStatement.setInt(2, storeId);
+      createLockStatement.executeUpdate();
+
+      setStockQuantity(updateStockStatement, storeId, productId, 0);
+
+      connection.commit();
+      return true;
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible dividir el inventario del producto.");
+    }
+  }
+
+  /**
+   * Makes a hot product regular again, moving the stock of its shards back into its Stock row.
+   *
+   * @param storeId   the id of the store
+   * @param productId the id of the product
+   * @return false if the product had no shards in the store, nothing is changed then
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public boolean disableSharding(int storeId, int productId) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement deleteStatement = connection.prepareStatement(DELETE_SHARDS_QUERY);
+      PreparedStatement updateStockStatement = connection.prepareStatement(UPDATE_STOCK_QUERY)
+    ) {
+      connection.setAutoCommit(false);
+
+      int[] shardQuantities = lockShards(connection, storeId, productId);
+      Integer stockQuantity = lockStock(connection, storeId, productId);
+      if (shardQuantities.length == 0 || stockQuantity == null) {
+        connection.rollback();
+        return false;
+      }
+
+      deleteStatement.setInt(1, productId);
+      deleteStatement.setInt(2, storeId);
+      deleteStatement.executeUpdate();
+
+      setStockQuantity(updateStockStatement, storeId, productId, stockQuantity + sum(shardQuantities));
+
+      connection.commit();
+      return true;
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible unir el inventario del producto.");
+    }
+  }
+
+  /**
+   * Spreads the stock of a hot product evenly across its shards, including any quantity left in its Stock row.
+   * Only the shards whose quantity changes are written.
+   *
+   * @param storeId   the id of the store
+   * @param productId the id of the product
+   * @return true if some quantity was moved, false if the stock was already balanced or the product has no shards
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public boolean rebalance(int storeId, int productId) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement updateShardStatement = connection.prepareStatement(UPDATE_SHARD_QUERY);
+      PreparedStatement updateStockStatement = connection.prepareStatement(UPDATE_STOCK_QUERY)
+    ) {
+      connection.setAutoCommit(false);
+
+      int[] shardQuantities = lockShards(connection, storeId, productId);
+      Integer stockQuantity = lockStock(connection, storeId, productId);
+      if (shardQuantities.length == 0 || stockQuantity == null) {
+        connection.rollback();
+        return false;
+      }
+
+      int[] splitQuantities = splitEvenly(stockQuantity + sum(shardQuantities), shardQuantities.length);
+      boolean isMoved = stockQuantity > 0;
+      for (int shard = 0; shard < shardQuantities.length; shard++) {
+        if (shardQuantities[shard] != splitQuantities[shard]) {
+          updateShardStatement.setInt(1, splitQuantities[shard]);
+          updateShardStatement.setInt(2, productId);
+          updateShardStatement.setInt(3, storeId);
+          updateShardStatement.setInt(4, shard);
+          updateShardStatement.addBatch();
+          isMoved = true;
+        }
+      }
+
+      if (!isMoved) {
+        connection.rollback();
+        return false;
+      }
+
+      updateShardStatement.executeBatch();
+      if (stockQuantity > 0) {
+        setStockQuantity(updateStockStatement, storeId, productId, 0);
+      }
+
+      connection.commit();
+      return true;
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible balancear el inventario del producto.");
+    }
+  }
+
+  /**
+   * Gets the hot products of a store whose shards drifted apart enough to be rebalanced, or that have stock
+   * left in their Stock row, e.g. after the product was restocked.
+   *
+   * @param storeId the id of the store
+   * @return the ids of the products to rebalance
+   * @throws UserDisplayableException if there is an error accessing the database
+   */
+  public List<Integer> getUnbalancedProductsOfStore(int storeId) throws UserDisplayableException {
+    try (
+      Connection connection = DBConnector.getInstance().getConnection();
+      PreparedStatement statement = connection.prepareStatement(GET_UNBALANCED_PRODUCTS_OF_STORE_QUERY)
+    ) {
+      statement.setInt(1, storeId);
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        List<Integer> productIdList = new ArrayList<>();
+
+        while (resultSet.next()) {
+          productIdList.add(resultSet.getInt(1));
+        }
+
+        return productIdList;
+      }
+    } catch (SQLException e) {
+      throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible cargar el inventario dividido.");
+    }
+  }
+
+  /**
+   * Splits a quantity into shards whose quantities differ by one unit at most, the first shards get the remainder.
+   *
+   * @param quantity   the quantity to split
+   * @param shardCount the number of shards
+   * @return the quantity of every shard
+   */
+  static int[] splitEvenly(int quantity, int shardCount) {
+    int[] shardQuantities = new int[shardCount];
+
+    for (int shard = 0; shard < shardCount; shard++) {
+      shardQuantities[shard] = quantity / shardCount + (shard < quantity % shardCount ? 1 : 0);
+    }
+
+    return shardQuantities;
+  }
+
+  private static int[] lockShards(Connection connection, int storeId, int productId) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(LOCK_SHARDS_QUERY)) {
+      statement.setInt(1, productId);
+      statement.setInt(2, storeId);
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        List<Integer> quantityList = new ArrayList<>();
+
+        while (resultSet.next()) {
+          quantityList.add(resultSet.getInt(1));
+        }
+
+        return quantityList.stream().mapToInt(Integer::intValue).toArray();
+      }
+    }
+  }
+
+  private static Integer lockStock(Connection connection, int storeId, int productId) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(LOCK_STOCK_QUERY)) {
+      statement.setInt(1, productId);
+      statement.setInt(2, storeId);
+
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() ? resultSet.getInt(1) : null;
+      }
+    }
+  }
+
+  private static void setStockQuantity(
+    PreparedStatement statement,
+    int storeId,
+    int productId,
+    int quantity
+  ) throws SQLException {
+    statement.setInt(1, quantity);
+    statement.setInt(2, productId);
+    statement.setInt(3, storeId);
+    statement.executeUpdate();
+  }
+
+  private static int sum(int[] quantities) {
+    int sum = 0;
+
+    for (int quantity : quantities) {
+      sum += quantity;
+    }
+
+    return sum;
+  }
+}
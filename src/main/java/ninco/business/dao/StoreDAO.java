@@ -5,7 +5,6 @@ import org.apache.logging.log4j.Logger;
 
 import ninco.business.dto.StoreDTO;
 import ninco.common.ExceptionHandler;
-import ninco.common.InvalidFieldException;
 import ninco.common.UserDisplayableException;
 import ninco.db.DBConnector;
 
@@ -14,16 +13,46 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-public class StoreDAO extends DAOShape<StoreDTO> {
+public class StoreDAO extends DAOShape<StoreDTO> implements PageSource<StoreDTO> {
   private static final Logger LOGGER = LogManager.getLogger(StoreDAO.class);
-  private static final String CREATE_ONE_QUERY = "INSERT INTO Store (name, address, phone) VALUES (?, ?, ?)";
-  private static final String GET_ALL_QUERY = "SELECT * FROM CompleteStoreView";
-  private static final String GET_ONE_QUERY = "SELECT * FROM CompleteStoreView WHERE store_id = ?";
-  private static final String FIND_ONE_QUERY_BY_PHONE_NUMBER = "SELECT * FROM CompleteStoreView WHERE phone = ?";
-  private static final String UPDATE_ONE_QUERY =
-    "UPDATE Store set name = ?, address = ?, phone = ? WHERE store_id = ?";
+  private static final String CREATE_ONE_QUERY = registerStatement(
+    "StoreDAO.createOne",
+    "INSERT INTO Store (name, address, phone) VALUES (?, ?, ?)"
+  );
+  private static final String GET_ALL_QUERY = registerStatement(
+    "StoreDAO.getAll",
+    "SELECT * FROM CompleteStoreView"
+  );
+  private static final String GET_ONE_QUERY = registerStatement(
+    "StoreDAO.getOne",
+    "SELECT * FROM CompleteStoreView WHERE store_id = ?"
+  );
+  private static final String FIND_ONE_QUERY_BY_PHONE_NUMBER = registerStatement(
+    "StoreDAO.findOneByPhoneNumber",
+    "SELECT * FROM CompleteStoreView WHERE phone = ?"
+  );
+  private static final String UPDATE_ONE_QUERY = registerStatement(
+    "StoreDAO.updateOne",
+    "UPDATE Store set name = ?, address = ?, phone = ? WHERE store_id = ?"
+  );
+  // CompleteStoreView counts employees in its select list, which makes MySQL materialize the whole view,
+  // so pages read Store directly and only count the employees of the rows in the page.
+  private static final String PAGE_SELECT_QUERY =
+    "SELECT S.store_id, S.name, S.address, S.phone, S.created_at, " +
+      "(SELECT COUNT(*) FROM Employee E WHERE E.store_id = S.store_id) AS employee_count FROM Store S";
+  public static final PageSortKey SORT_BY_ID = new PageSortKey(StoreDAO.class, "id", "S.store_id");
+  public static final PageSortKey SORT_BY_NAME = new PageSortKey(StoreDAO.class, "name", "S.name", "S.store_id");
+  // Stores change a few times a year, the time to live only bounds staleness after changes from other terminals.
+  private static final int STORE_CACHE_MAX_SIZE = 256;
+  private static final long STORE_CACHE_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(10);
   private static final StoreDAO INSTANCE = new StoreDAO();
+  private final ReadThroughCache<Integer, StoreDTO> storeCacheByID =
+    new ReadThroughCache<>("StoreDAO.byID", STORE_CACHE_MAX_SIZE, STORE_CACHE_TIME_TO_LIVE_MILLIS);
+  private final ReadThroughCache<String, StoreDTO> storeCacheByPhoneNumber =
+    new ReadThroughCache<>("StoreDAO.byPhoneNumber", STORE_CACHE_MAX_SIZE, STORE_CACHE_TIME_TO_LIVE_MILLIS);
 
   private StoreDAO() {}
 
@@ -32,33 +61,52 @@ public class StoreDAO extends DAOShape<StoreDTO> {
   }
 
   @Override
-  public StoreDTO getDTOInstanceFromResultSet(ResultSet resultSet) throws InvalidFieldException, SQLException {
-    return new StoreDTO(
-      resultSet.getInt("store_id"),
-      resultSet.getString("name"),
-      resultSet.getString("address"),
-      resultSet.getString("phone"),
-      resultSet.getTimestamp("created_at").toLocalDateTime(),
-      resultSet.getInt("employee_count")
+  protected RowMapper<StoreDTO> compileRowMapper(ResultSetColumns columns) throws SQLException {
+    int storeIdColumn = columns.indexOf("store_id");
+    int nameColumn = columns.indexOf("name");
+    int addressColumn = columns.indexOf("address");
+    int phoneColumn = columns.indexOf("phone");
+    int createdAtColumn = columns.indexOf("created_at");
+    int employeeCountColumn = columns.indexOf("employee_count");
+
+    return resultSet -> StoreDTO.fromTrustedRow(
+      resultSet.getInt(storeIdColumn),
+      resultSet.getString(nameColumn),
+      resultSet.getString(addressColumn),
+      resultSet.getString(phoneColumn),
+      resultSet.getTimestamp(createdAtColumn).toLocalDateTime(),
+      resultSet.getInt(employeeCountColumn)
     );
   }
 
   public void createOne(StoreDTO storeDTO) throws UserDisplayableException {
     try (
       Connection connection = DBConnector.getInstance().getConnection();
-      PreparedStatement statement = connection.prepareCall(CREATE_ONE_QUERY);
+      PreparedStatement statement = connection.prepareStatement(CREATE_ONE_QUERY);
     ) {
       statement.setString(1, storeDTO.getName());
       statement.setString(2, storeDTO.getAddress());
       statement.setString(3, storeDTO.getPhoneNumber());
 
       statement.executeUpdate();
+      invalidateCache();
     } catch (SQLException e) {
       throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible crear empleado.");
     }
   }
 
+  /**
+   * Finds a store by its phone number, served from the cache when possible.
+   *
+   * @param phoneNumber the phone number of the store
+   * @return the store, or null if there is none
+   * @throws UserDisplayableException if the store could not be loaded
+   */
   public StoreDTO findOneByPhoneNumber(String phoneNumber) throws UserDisplayableException {
+    return storeCacheByPhoneNumber.get(phoneNumber, this::queryOneByPhoneNumber);
+  }
+
+  private StoreDTO queryOneByPhoneNumber(String phoneNumber) throws UserDisplayableException {
     try (
       Connection connection = DBConnector.getInstance().getConnection();
       PreparedStatement statement = connection.prepareStatement(FIND_ONE_QUERY_BY_PHONE_NUMBER)
@@ -67,7 +115,7 @@ public class StoreDAO extends DAOShape<StoreDTO> {
 
       try (ResultSet resultSet = statement.executeQuery()) {
         if (resultSet.next()) {
-          return createDTOInstanceFromResultSet(resultSet);
+          return createDTOInstanceFromResultSet(FIND_ONE_QUERY_BY_PHONE_NUMBER, resultSet);
         }
       }
 
@@ -86,7 +134,7 @@ public class StoreDAO extends DAOShape<StoreDTO> {
       ResultSet resultSet = statement.executeQuery()
     ) {
       while (resultSet.next()) {
-        storeDTOList.add(createDTOInstanceFromResultSet(resultSet));
+        storeDTOList.add(createDTOInstanceFromResultSet(GET_ALL_QUERY, resultSet));
       }
 
       return storeDTOList;
@@ -95,7 +143,23 @@ public class StoreDAO extends DAOShape<StoreDTO> {
     }
   }
 
+  @Override
+  public Page<StoreDTO> getPage(PageRequest pageRequest) throws UserDisplayableException {
+    return queryPage(PAGE_SELECT_QUERY, "TRUE", pageRequest);
+  }
+
+  /**
+   * Gets a store by its id, served from the cache when possible.
+   *
+   * @param idStore the id of the store
+   * @return the store
+   * @throws UserDisplayableException if the store does not exist or could not be loaded
+   */
   public StoreDTO getOne(int idStore) throws UserDisplayableException {
+    return storeCacheByID.get(idStore, this::queryOne);
+  }
+
+  private StoreDTO queryOne(int idStore) throws UserDisplayableException {
     try (
       Connection connection = DBConnector.getInstance().getConnection();
       PreparedStatement statement = connection.prepareStatement(GET_ONE_QUERY)
@@ -104,7 +168,7 @@ public class StoreDAO extends DAOShape<StoreDTO> {
 
       try (ResultSet resultSet = statement.executeQuery()) {
         if (resultSet.next()) {
-          return createDTOInstanceFromResultSet(resultSet);
+          return createDTOInstanceFromResultSet(GET_ONE_QUERY, resultSet);
         }
       }
 
@@ -117,7 +181,7 @@ public class StoreDAO extends DAOShape<StoreDTO> {
   public boolean updateOne(StoreDTO storeDTO, StoreDTO originalStoreDTO) throws UserDisplayableException {
     try (
       Connection connection = DBConnector.getInstance().getConnection();
-      PreparedStatement statement = connection.prepareCall(UPDATE_ONE_QUERY);
+      PreparedStatement statement = connection.prepareStatement(UPDATE_ONE_QUERY);
     ) {
       statement.setString(1, storeDTO.getName());
       statement.setString(2, storeDTO.getAddress());
@@ -125,6 +189,7 @@ public class StoreDAO extends DAOShape<StoreDTO> {
       statement.setInt(4, originalStoreDTO.getID());
 
       statement.executeUpdate();
+      invalidateCache();
 
       boolean failed = statement.getUpdateCount() == -1;
 
@@ -140,4 +205,17 @@ public class StoreDAO extends DAOShape<StoreDTO> {
       throw ExceptionHandler.handleSQLException(LOGGER, e, "No ha sido posible actualizar producto.");
     }
   }
+
+  /**
+   * Discards every cached store. Called after stores are written, and after employees are written
+   * because the stores carry their employee count.
+   */
+  public void invalidateCache() {
+    storeCacheByID.invalidateAll();
+    storeCacheByPhoneNumber.invalidateAll();
+  }
+
+  public List<CacheStatistics> getCacheStatistics() {
+    return List.of(storeCacheByID.getStatistics(), storeCacheByPhoneNumber.getStatistics());
+  }
 }
@@ -1,43 +1,65 @@
 package ninco.business.dto;
 
-import javafx.beans.property.SimpleFloatProperty;
+import java.util.List;
+
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
+import ninco.common.Money;
 
 /**
  * CartItemDTO representa un producto agregado al carrito de compras temporal.
  * Utiliza propiedades de JavaFX para facilitar la actualización automática de la tabla.
+ * Los importes se guardan en centavos (ver Money), la propiedad de subtotal solo los muestra.
+ * Solo la cantidad y el subtotal cambian, por lo que son las únicas propiedades; la tabla lee el nombre y el precio
+ * de sus getters.
  */
 public class CartItemDTO {
     private final ProductDTO product;
-    private final SimpleStringProperty name;
     private final SimpleIntegerProperty quantity;
-    private final SimpleFloatProperty price;
-    private final SimpleFloatProperty subtotal;
+    private final long priceCents;
+    private final String price;
+    private long subtotalCents;
+    private final SimpleStringProperty subtotal;
 
     public CartItemDTO(ProductDTO product, int quantity) {
         this.product = product;
-        this.name = new SimpleStringProperty(product.getName());
         this.quantity = new SimpleIntegerProperty(quantity);
-        this.price = new SimpleFloatProperty(product.getPrice());
-        this.subtotal = new SimpleFloatProperty(product.getPrice() * quantity);
+        this.priceCents = product.getPriceCents();
+        this.price = Money.format(priceCents);
+        this.subtotalCents = Money.times(priceCents, quantity);
+        this.subtotal = new SimpleStringProperty(Money.format(subtotalCents));
+    }
+
+    /**
+     * Sums the subtotals of a cart without boxing or allocating.
+     *
+     * @param items the items of the cart
+     * @return the total of the cart in cents
+     */
+    public static long getTotalCents(List<CartItemDTO> items) {
+        long totalCents = 0;
+        for (int i = 0; i < items.size(); i++) {
+            totalCents = Money.add(totalCents, items.get(i).subtotalCents);
+        }
+        return totalCents;
     }
 
     public ProductDTO getProduct() { return product; }
 
-    public String getName() { return name.get(); }
-    public SimpleStringProperty nameProperty() { return name; }
+    public String getName() { return product.getName(); }
 
     public int getQuantity() { return quantity.get(); }
     public void setQuantity(int qty) {
         this.quantity.set(qty);
-        this.subtotal.set(qty * this.price.get());
+        this.subtotalCents = Money.times(priceCents, qty);
+        this.subtotal.set(Money.format(subtotalCents));
     }
     public SimpleIntegerProperty quantityProperty() { return quantity; }
 
-    public float getPrice() { return price.get(); }
-    public SimpleFloatProperty priceProperty() { return price; }
+    public long getPriceCents() { return priceCents; }
+    public String getPrice() { return price; }
 
-    public float getSubtotal() { return subtotal.get(); }
-    public SimpleFloatProperty subtotalProperty() { return subtotal; }
-}
\ No newline at end of file
+    public long getSubtotalCents() { return subtotalCents; }
+    public String getSubtotal() { return subtotal.get(); }
+    public SimpleStringProperty subtotalProperty() { return subtotal; }
+}
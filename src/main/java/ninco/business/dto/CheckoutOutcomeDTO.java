@@ -0,0 +1,53 @@
+package ninco.business.dto;
+
+import ninco.common.UserDisplayableException;
+
+/**
+ * CheckoutOutcomeDTO is what became of one sale of a group saved together (see InvoiceDAO.createInvoiceGroup):
+ * either the invoice it was saved as or the reason it was not saved, e.g. an InsufficientStockException.
+ */
+public class CheckoutOutcomeDTO {
+  private final PendingInvoiceDTO sale;
+  private final int idInvoice;
+  private final UserDisplayableException failure;
+
+  private CheckoutOutcomeDTO(PendingInvoiceDTO sale, int idInvoice, UserDisplayableException failure) {
+    this.sale = sale;
+    this.idInvoice = idInvoice;
+    this.failure = failure;
+  }
+
+  /**
+   * @param sale      The sale
+   * @param idInvoice The unique identifier of the invoice it was saved as
+   * @return the outcome of a saved sale
+   */
+  public static CheckoutOutcomeDTO saved(PendingInvoiceDTO sale, int idInvoice) {
+    return new CheckoutOutcomeDTO(sale, idInvoice, null);
+  }
+
+  /**
+   * @param sale    The sale
+   * @param failure The reason it was not saved
+   * @return the outcome of a sale that was not saved
+   */
+  public static CheckoutOutcomeDTO failed(PendingInvoiceDTO sale, UserDisplayableException failure) {
+    return new CheckoutOutcomeDTO(sale, 0, failure);
+  }
+
+  public PendingInvoiceDTO getSale() {
+    return sale;
+  }
+
+  public boolean isSaved() {
+    return failure == null;
+  }
+
+  public int getIDInvoice() {
+    return idInvoice;
+  }
+
+  public UserDisplayableException getFailure() {
+    return failure;
+  }
+}
@@ -49,11 +49,7 @@ public class EmployeeDTO implements Record, Searchable {
     this.idAccount = idAccount;
     this.id = id;
     this.idStore = idStore;
-
-    if (nameStore != null) {
-      this.nameStore = Validator.getValidName(nameStore, "store-name", 3, 128);
-    }
-
+    this.nameStore = nameStore == null ? null : Validator.getValidName(nameStore, "store-name", 3, 128);
     this.email = Validator.getValidEmail(email);
     this.role = role;
     this.state = state;
@@ -62,6 +58,51 @@ public class EmployeeDTO implements Record, Searchable {
     this.createdAt = createdAt;
   }
 
+  private EmployeeDTO() {
+  }
+
+  /**
+   * Creates an EmployeeDTO from a row of the database without validating its fields again, they were validated
+   * when the employee was written. Only DAOs should use it, user input must go through the constructors.
+   *
+   * @param id        The unique identifier of the employee
+   * @param idAccount The unique identifier of the Account associated with the employee
+   * @param idStore   The unique identifier of the store associated with the employee (null if none)
+   * @param nameStore The name of the store associated with the employee (null if none)
+   * @param email     The email address associated with the employee
+   * @param role      The role assigned to the employee (e.g., ADMIN, USER)
+   * @param state     The current state of the employee (e.g., ACTIVE, INACTIVE)
+   * @param name      The first name of the employee
+   * @param lastName  The last name of the employee
+   * @param createdAt The timestamp when the employee record was created
+   * @return the EmployeeDTO with the given fields
+   */
+  public static EmployeeDTO fromTrustedRow(
+    int id,
+    int idAccount,
+    int idStore,
+    String nameStore,
+    String email,
+    Role role,
+    State state,
+    String name,
+    String lastName,
+    LocalDateTime createdAt
+  ) {
+    EmployeeDTO employeeDTO = new EmployeeDTO();
+    employeeDTO.id = id;
+    employeeDTO.idAccount = idAccount;
+    employeeDTO.idStore = idStore;
+    employeeDTO.nameStore = nameStore;
+    employeeDTO.email = email;
+    employeeDTO.role = role;
+    employeeDTO.state = state;
+    employeeDTO.name = name;
+    employeeDTO.lastName = lastName;
+    employeeDTO.createdAt = createdAt;
+    return employeeDTO;
+  }
+
   /**
    * Constructor for creating an EmployeeDTO object without ID and createdAt fields.
    * Typically used when creating a new employee before it is saved to the database.
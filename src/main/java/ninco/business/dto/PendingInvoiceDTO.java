@@ -0,0 +1,89 @@
+package ninco.business.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * PendingInvoiceDTO is a sale completed at the register that is not saved in the database yet, e.g. one kept in the
+ * CheckoutJournal while the database was unreachable. The cart is kept as the payload InvoiceDAO sends to the
+ * database (see InvoiceDAO.createCartPayload), so the sale is saved exactly as it was rung up.
+ * The key is generated once per sale and saved with its invoice, so sending the same sale again, from a retry or
+ * from the journal, never saves it twice.
+ */
+public class PendingInvoiceDTO {
+  private final String key;
+  private final int idStore;
+  private final int idEmployee;
+  private final String clientName;
+  private final String cartPayload;
+  private final String cartID;
+  private final LocalDateTime createdAt;
+
+  /**
+   * Creates a new sale with a fresh key, completed now.
+   *
+   * @param idStore     The unique identifier of the store
+   * @param idEmployee  The unique identifier of the cashier
+   * @param clientName  The name of the client
+   * @param cartPayload The items sold, as created by InvoiceDAO.createCartPayload
+   * @param cartID      The id of the cart whose stock holds become the sale, or null if it has none
+   */
+  public PendingInvoiceDTO(int idStore, int idEmployee, String clientName, String cartPayload, String cartID) {
+    this(UUID.randomUUID().toString(), idStore, idEmployee, clientName, cartPayload, cartID, LocalDateTime.now());
+  }
+
+  /**
+   * @param key         The unique key of the sale, generated by the terminal
+   * @param idStore     The unique identifier of the store
+   * @param idEmployee  The unique identifier of the cashier
+   * @param clientName  The name of the client
+   * @param cartPayload The items sold, as created by InvoiceDAO.createCartPayload
+   * @param cartID      The id of the cart whose stock holds become the sale, or null if it has none
+   * @param createdAt   The moment the sale was completed at the register
+   */
+  public PendingInvoiceDTO(
+    String key,
+    int idStore,
+    int idEmployee,
+    String clientName,
+    String cartPayload,
+    String cartID,
+    LocalDateTime createdAt
+  ) {
+    this.key = key;
+    this.idStore = idStore;
+    this.idEmployee = idEmployee;
+    this.clientName = clientName;
+    this.cartPayload = cartPayload;
+    this.cartID = cartID;
+    this.createdAt = createdAt;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public int getIDStore() {
+    return idStore;
+  }
+
+  public int getIDEmployee() {
+    return idEmployee;
+  }
+
+  public String getClientName() {
+    return clientName;
+  }
+
+  public String getCartPayload() {
+    return cartPayload;
+  }
+
+  public String getCartID() {
+    return cartID;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+}
@@ -2,15 +2,18 @@ package ninco.business.dto;
 
 import ninco.business.rules.Validator;
 import ninco.common.InvalidFieldException;
+import ninco.common.Money;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class ProductDTO implements Record, Searchable {
   private int id;
   private final String name;
   private final String description;
   private final String brand;
-  private final float price;
+  private final long priceCents;
+  private final List<String> barcodes;
   private int stock;
   private LocalDateTime createdAt;
 
@@ -21,7 +24,7 @@ public class ProductDTO implements Record, Searchable {
    * @param name        The name of the product
    * @param description The description of the product
    * @param brand       The brand of the product
-   * @param price       The price of the product
+   * @param priceCents  The price of the product in cents
    * @param stock       The stock quantity of the product across all stores
    * @throws InvalidFieldException if any of the fields are invalid
    */
@@ -30,19 +33,85 @@ public class ProductDTO implements Record, Searchable {
     String name,
     String description,
     String brand,
-    float price,
+    long priceCents,
     int stock,
     LocalDateTime createdAt
   ) throws InvalidFieldException {
+    this(
+      id,
+      Validator.getValidName(name, "product-name", 3, 128),
+      Validator.getValidText(description, "product-description"),
+      Validator.getValidName(brand, "product-brand", 1, 64),
+      Validator.getValidPrice(priceCents, "product-price"),
+      List.of(),
+      stock,
+      createdAt
+    );
+  }
+
+  private ProductDTO(
+    int id,
+    String name,
+    String description,
+    String brand,
+    long priceCents,
+    List<String> barcodes,
+    int stock,
+    LocalDateTime createdAt
+  ) {
     this.id = id;
-    this.name = Validator.getValidName(name, "product-name", 3, 128);
-    this.description = Validator.getValidText(description, "product-description");
-    this.brand = Validator.getValidName(brand, "product-brand", 1, 64);
-    this.price = Validator.getValidPrice(price, "product-price");
+    this.name = name;
+    this.description = description;
+    this.brand = brand;
+    this.priceCents = priceCents;
+    this.barcodes = barcodes;
     this.stock = stock;
     this.createdAt = createdAt;
   }
 
+  /**
+   * Creates a ProductDTO from a row of the database without validating its fields again, they were validated
+   * when the product was written. Only DAOs should use it, user input must go through the constructors.
+   *
+   * @param id          The unique identifier of the product
+   * @param name        The name of the product
+   * @param description The description of the product
+   * @param brand       The brand of the product
+   * @param priceCents  The price of the product in cents
+   * @param stock       The stock quantity of the product across all stores
+   * @param createdAt   The creation timestamp of the product
+   * @return the ProductDTO with the given fields
+   */
+  public static ProductDTO fromTrustedRow(
+    int id,
+    String name,
+    String description,
+    String brand,
+    long priceCents,
+    int stock,
+    LocalDateTime createdAt
+  ) {
+    return fromTrustedRow(id, name, description, brand, priceCents, List.of(), stock, createdAt);
+  }
+
+  /**
+   * Creates a ProductDTO from a row of the database with its barcodes, see fromTrustedRow.
+   *
+   * @param barcodes The barcodes and SKUs of the product, in upper case
+   */
+  public static ProductDTO fromTrustedRow(
+    int id,
+    String name,
+    String description,
+    String brand,
+    long priceCents,
+    List<String> barcodes,
+    int stock,
+    LocalDateTime createdAt
+  ) {
+    return new ProductDTO(id, name, description, brand, priceCents, barcodes, stock, createdAt);
+  }
+
   /**
    * Constructor for creating a ProductDTO object from string inputs.
    *
@@ -53,10 +122,31 @@ public class ProductDTO implements Record, Searchable {
    * @throws InvalidFieldException if any of the fields are invalid
    */
   public ProductDTO(String name, String description, String brand, String price) throws InvalidFieldException {
+    this(name, description, brand, price, "");
+  }
+
+  /**
+   * Constructor for creating a ProductDTO object from string inputs, with its barcodes.
+   *
+   * @param name        The name of the product
+   * @param description The description of the product
+   * @param brand       The brand of the product
+   * @param price       The price of the product as a string
+   * @param barcodes    The barcodes and SKUs of the product separated by commas or spaces, may be empty
+   * @throws InvalidFieldException if any of the fields are invalid
+   */
+  public ProductDTO(
+    String name,
+    String description,
+    String brand,
+    String price,
+    String barcodes
+  ) throws InvalidFieldException {
     this.name = Validator.getValidName(name, "product-name", 3, 128);
     this.description = Validator.getValidText(description, "product-description");
     this.brand = Validator.getValidName(brand, "product-brand", 1, 64);
-    this.price = Validator.getValidPrice(Float.parseFloat(price), "product-price");
+    this.priceCents = Validator.getValidPrice(price, "product-price");
+    this.barcodes = Validator.getValidBarcodes(barcodes, "product-barcodes");
   }
 
   public int getID() {
@@ -71,14 +161,28 @@ public class ProductDTO implements Record, Searchable {
     return description;
   }
 
-  public float getPrice() {
-    return price;
+  public long getPriceCents() {
+    return priceCents;
+  }
+
+  /**
+   * @return the price with two decimals, e.g. "10.50"
+   */
+  public String getPrice() {
+    return Money.format(priceCents);
   }
 
   public String getBrand() {
     return brand;
   }
 
+  /**
+   * @return the barcodes and SKUs of the product in upper case, empty if it has none
+   */
+  public List<String> getBarcodes() {
+    return barcodes;
+  }
+
   public int getStock() {
     return stock;
   }
@@ -94,12 +198,13 @@ public class ProductDTO implements Record, Searchable {
   @Override
   public String getSearchableText() {
     return String.format(
-      "%s %s %f %s %d %s",
+      "%s %s %s %s %d %s %s",
       getName(),
       getDescription(),
       getPrice(),
       getBrand(),
       getStock(),
+      String.join(" ", getBarcodes()),
       getFormattedCreatedAt()
     ).toLowerCase();
   }
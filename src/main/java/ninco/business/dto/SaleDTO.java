@@ -0,0 +1,89 @@
+package ninco.business.dto;
+
+import java.time.LocalDateTime;
+
+import ninco.common.Money;
+
+/**
+ * SaleDTO is a line of an invoice: how many units of a product were sold, at which price, by whom and where.
+ * Sales are only created by the invoice transaction, so this DTO is read-only.
+ */
+public class SaleDTO implements Record {
+  private final int idSale;
+  private final int idInvoice;
+  private final int idEmployee;
+  private final int idProduct;
+  private final int idStore;
+  private final int amount;
+  private final long priceCents;
+  private final LocalDateTime createdAt;
+
+  /**
+   * Constructor for creating a SaleDTO object with all fields from the database.
+   *
+   * @param idSale     The unique identifier of the sale
+   * @param idInvoice  The unique identifier of the invoice the sale belongs to
+   * @param idEmployee The unique identifier of the employee who made the sale
+   * @param idProduct  The unique identifier of the product sold
+   * @param idStore    The unique identifier of the store where the sale was made
+   * @param amount     The number of units sold
+   * @param priceCents The unit price in cents at the moment of the sale
+   * @param createdAt  The date and time of the sale
+   */
+  public SaleDTO(
+    int idSale,
+    int idInvoice,
+    int idEmployee,
+    int idProduct,
+    int idStore,
+    int amount,
+    long priceCents,
+    LocalDateTime createdAt
+  ) {
+    this.idSale = idSale;
+    this.idInvoice = idInvoice;
+    this.idEmployee = idEmployee;
+    this.idProduct = idProduct;
+    this.idStore = idStore;
+    this.amount = amount;
+    this.priceCents = priceCents;
+    this.createdAt = createdAt;
+  }
+
+  public int getIDSale() {
+    return idSale;
+  }
+
+  public int getIDInvoice() {
+    return idInvoice;
+  }
+
+  public int getIDEmployee() {
+    return idEmployee;
+  }
+
+  public int getIDProduct() {
+    return idProduct;
+  }
+
+  public int getIDStore() {
+    return idStore;
+  }
+
+  public int getAmount() {
+    return amount;
+  }
+
+  public long getPriceCents() {
+    return priceCents;
+  }
+
+  public long getTotalCents() {
+    return Money.times(priceCents, amount);
+  }
+
+  @Override
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+}
@@ -2,16 +2,17 @@ package ninco.business.dto;
 
 import ninco.business.rules.Validator;
 import ninco.common.InvalidFieldException;
+import ninco.common.Money;
 
 import java.time.LocalDateTime;
 
 public class StockDTO implements Record, Searchable {
-  private final int idProduct;
-  private final int idStore;
+  private int idProduct;
+  private int idStore;
   private String productName;
   private String storeName;
-  private final int quantity;
-  private float price;
+  private int quantity;
+  private long priceCents;
   private LocalDateTime createdAt;
 
   /**
@@ -22,6 +23,7 @@ public class StockDTO implements Record, Searchable {
    * @param productName The name of the product
    * @param storeName   The name of the store
    * @param quantity    The quantity of every product
+   * @param priceCents  The price of the product in cents
    * @throws InvalidFieldException if any of the fields are invalid
    */
   public StockDTO(
@@ -30,7 +32,7 @@ public class StockDTO implements Record, Searchable {
     String productName,
     String storeName,
     int quantity,
-    float price,
+    long priceCents,
     LocalDateTime createdAt
   ) throws InvalidFieldException {
     this.idProduct = idProduct;
@@ -38,10 +40,46 @@ public class StockDTO implements Record, Searchable {
     this.productName = Validator.getValidName(productName, "product-name", 3, 128);
     this.storeName = Validator.getValidName(storeName, "store-name", 3, 128);
     this.quantity = quantity;
-    this.price = Validator.getValidPrice(price, "product-price");
+    this.priceCents = Validator.getValidPrice(priceCents, "product-price");
     this.createdAt = createdAt;
   }
 
+  private StockDTO() {
+  }
+
+  /**
+   * Creates a StockDTO from a row of the database without validating its fields again, they were validated
+   * when the product and store were written. Only DAOs should use it, user input must go through the constructors.
+   *
+   * @param idProduct   The unique identifier of the product
+   * @param idStore     The unique identifier of the store
+   * @param productName The name of the product
+   * @param storeName   The name of the store
+   * @param quantity    The quantity of every product
+   * @param priceCents  The price of the product in cents
+   * @param createdAt   The creation timestamp of the stock
+   * @return the StockDTO with the given fields
+   */
+  public static StockDTO fromTrustedRow(
+    int idProduct,
+    int idStore,
+    String productName,
+    String storeName,
+    int quantity,
+    long priceCents,
+    LocalDateTime createdAt
+  ) {
+    StockDTO stockDTO = new StockDTO();
+    stockDTO.idProduct = idProduct;
+    stockDTO.idStore = idStore;
+    stockDTO.productName = productName;
+    stockDTO.storeName = storeName;
+    stockDTO.quantity = quantity;
+    stockDTO.priceCents = priceCents;
+    stockDTO.createdAt = createdAt;
+    return stockDTO;
+  }
+
   /**
    * Constructor for creating a StockDTO object without productName, storeName and createdAt fields.
    * Typically used when creating a new employee before it is saved to the database.
@@ -77,8 +115,15 @@ public class StockDTO implements Record, Searchable {
     return quantity;
   }
 
-  public float getPrice() {
-    return price;
+  public long getPriceCents() {
+    return priceCents;
+  }
+
+  /**
+   * @return the price with two decimals, e.g. "10.50"
+   */
+  public String getPrice() {
+    return Money.format(priceCents);
   }
 
   @Override
@@ -89,7 +134,7 @@ public class StockDTO implements Record, Searchable {
   @Override
   public String getSearchableText() {
     return String.format(
-      "%s %s %f %d %s",
+      "%s %s %s %d %s",
       getProductName(),
       getStoreName(),
       getPrice(),
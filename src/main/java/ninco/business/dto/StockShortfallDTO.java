@@ -0,0 +1,38 @@
+package ninco.business.dto;
+
+/**
+ * StockShortfallDTO is a cart line the store could not cover at checkout: how many units were requested and how many
+ * were available to sell, i.e. the stock minus the units held by other carts.
+ */
+public class StockShortfallDTO {
+  private final int idProduct;
+  private final int requested;
+  private final int available;
+
+  /**
+   * @param idProduct The unique identifier of the product
+   * @param requested The number of units in the cart
+   * @param available The number of units available to sell, never negative
+   */
+  public StockShortfallDTO(int idProduct, int requested, int available) {
+    this.idProduct = idProduct;
+    this.requested = requested;
+    this.available = available;
+  }
+
+  public int getIDProduct() {
+    return idProduct;
+  }
+
+  public int getRequested() {
+    return requested;
+  }
+
+  public int getAvailable() {
+    return available;
+  }
+
+  public int getMissing() {
+    return requested - available;
+  }
+}
@@ -7,9 +7,9 @@ import java.time.LocalDateTime;
 
 public class StoreDTO implements Record, Searchable {
   private int id;
-  private final String name;
-  private final String address;
-  private final String phoneNumber;
+  private String name;
+  private String address;
+  private String phoneNumber;
   private LocalDateTime createdAt;
   private int employeeCount;
 
@@ -40,6 +40,39 @@ public class StoreDTO implements Record, Searchable {
     this.employeeCount = employeeCount;
   }
 
+  private StoreDTO() {
+  }
+
+  /**
+   * Creates a StoreDTO from a row of the database without validating its fields again, they were validated
+   * when the store was written. Only DAOs should use it, user input must go through the constructors.
+   *
+   * @param id            The unique identifier of the store
+   * @param name          The name of the store
+   * @param address       The address of the store
+   * @param phoneNumber   The phone number of the store
+   * @param createdAt     The creation timestamp of the store
+   * @param employeeCount The number of employees in the store
+   * @return the StoreDTO with the given fields
+   */
+  public static StoreDTO fromTrustedRow(
+    int id,
+    String name,
+    String address,
+    String phoneNumber,
+    LocalDateTime createdAt,
+    int employeeCount
+  ) {
+    StoreDTO storeDTO = new StoreDTO();
+    storeDTO.id = id;
+    storeDTO.name = name;
+    storeDTO.address = address;
+    storeDTO.phoneNumber = phoneNumber;
+    storeDTO.createdAt = createdAt;
+    storeDTO.employeeCount = employeeCount;
+    return storeDTO;
+  }
+
   /**
    * Constructor for creating a StoreDTO object without an ID (e.g., for new stores).
    *
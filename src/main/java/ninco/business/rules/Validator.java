@@ -1,6 +1,14 @@
 package ninco.business.rules;
 
 import ninco.common.InvalidFieldException;
+import ninco.common.Money;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 public class Validator {
   // SIMPLE EMAIL REGEX
@@ -9,6 +17,9 @@ public class Validator {
   private static final String PASSWORD_REGEX = "^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[!@#$%^&*\\-+])[A-Za-z\\d!@#$%^&*\\-+]{8,64}$";
   private static final String PHONE_REGEX = "^(\\+\\d{1,3}[- ]?)?\\d{10,15}$";
   private static final String ADDRESS_REGEX = "^[a-zA-Z0-9\\s,.-]{12,256}$";
+  // 4 TO 64 LETTERS, DIGITS OR DASHES, AS PRINTED UNDER BARCODES (EAN, UPC) OR USED IN SKUS
+  private static final String BARCODE_REGEX = "^[a-zA-Z0-9-]{4,64}$";
+  private static final String BARCODE_SEPARATOR_REGEX = "[\\s,]+";
 
   public static ValidationResult getIsInvalidPhoneNumberResult(String phoneNumber) {
     if (isInvalidString(phoneNumber)) {
@@ -159,7 +170,7 @@ public class Validator {
 
   public static ValidationResult getIsValidPriceResult(String price, String fieldName) {
     try {
-      float parsedPrice = Float.parseFloat(price);
+      long parsedPrice = Money.parse(price);
 
       if (parsedPrice < 0) {
         return new ValidationResult(
@@ -170,23 +181,61 @@ public class Validator {
       return new ValidationResult();
     } catch (NumberFormatException e) {
       return new ValidationResult(
-        String.format("%s must be a valid number.", fieldName)
+        String.format("%s must be a valid number with at most two decimals.", fieldName)
       );
     }
   }
 
-  public static float getValidPrice(float price, String fieldName) throws InvalidFieldException {
-    return getValidPrice(Float.toString(price), fieldName);
+  public static long getValidPrice(long priceCents, String fieldName) throws InvalidFieldException {
+    return getValidPrice(Money.format(priceCents), fieldName);
   }
 
-  public static float getValidPrice(String price, String fieldName) throws InvalidFieldException {
+  public static long getValidPrice(String price, String fieldName) throws InvalidFieldException {
     ValidationResult result = getIsValidPriceResult(price, fieldName);
 
     if (result.isInvalid()) {
       throw new InvalidFieldException(result.getMessage(), fieldName);
     }
 
-    return Float.parseFloat(price);
+    return Money.parse(price);
+  }
+
+  public static ValidationResult getIsValidBarcodesResult(String barcodes, String fieldName) {
+    if (isInvalidString(barcodes)) {
+      return new ValidationResult();
+    }
+
+    for (String barcode : barcodes.trim().split(BARCODE_SEPARATOR_REGEX)) {
+      if (!barcode.matches(BARCODE_REGEX)) {
+        return new ValidationResult(
+          String.format("%s must be 4 to 64 letters, digits or dashes, separated by commas: %s", fieldName, barcode)
+        );
+      }
+    }
+
+    return new ValidationResult();
+  }
+
+  /**
+   * @return the distinct barcodes in upper case and in the order given, empty if there are none
+   */
+  public static List<String> getValidBarcodes(String barcodes, String fieldName) throws InvalidFieldException {
+    ValidationResult result = getIsValidBarcodesResult(barcodes, fieldName);
+
+    if (result.isInvalid()) {
+      throw new InvalidFieldException(result.getMessage(), fieldName);
+    }
+
+    if (isInvalidString(barcodes)) {
+      return List.of();
+    }
+
+    Set<String> barcodeSet = new LinkedHashSet<>();
+    for (String barcode : barcodes.trim().split(BARCODE_SEPARATOR_REGEX)) {
+      barcodeSet.add(barcode.toUpperCase(Locale.ROOT));
+    }
+
+    return Collections.unmodifiableList(new ArrayList<>(barcodeSet));
   }
 
   public static ValidationResult getQuantityValidationResult(String quantity) {
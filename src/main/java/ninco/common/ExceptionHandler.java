@@ -184,6 +184,23 @@ public class ExceptionHandler {
     return new UserDisplayableException(finalMessage.trim(), e);
   }
 
+  /**
+   * Checks whether an exception was caused by the database being unreachable, e.g. the network is down or no
+   * connection could be opened, as opposed to the database rejecting the request.
+   *
+   * @param e the exception to check
+   * @return true if an SQL connection error is in the causes of the exception
+   */
+  public static boolean isConnectionFailure(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException && Optional.ofNullable(((SQLException) cause).getSQLState()).orElse("").startsWith("08")) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
   private static String getSQLConnectionErrorMessage(Logger logger, SQLException e, String state) {
     if ("08S01".equals(state)) {
       logger.error("Error de comunicación: {}", e.getMessage(), e);
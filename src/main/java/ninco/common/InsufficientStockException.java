@@ -0,0 +1,22 @@
+package ninco.common;
+
+import java.util.List;
+
+import ninco.business.dto.StockShortfallDTO;
+
+/**
+ * InsufficientStockException is thrown when a sale is rejected because the store cannot cover some of its lines.
+ * It lists exactly which products are short and by how much, so the cashier can adjust those lines and retry.
+ */
+public class InsufficientStockException extends UserDisplayableException {
+  private final List<StockShortfallDTO> shortfallList;
+
+  public InsufficientStockException(List<StockShortfallDTO> shortfallList) {
+    super("No hay suficiente stock para completar la venta.");
+    this.shortfallList = List.copyOf(shortfallList);
+  }
+
+  public List<StockShortfallDTO> getShortfallList() {
+    return shortfallList;
+  }
+}
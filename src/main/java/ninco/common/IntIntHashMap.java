@@ -0,0 +1,161 @@
+package ninco.common;
+
+import java.util.Arrays;
+
+/**
+ * IntIntHashMap is a map from int keys to int values that stores both in plain arrays with open addressing
+ * and linear probing, so lookups neither box the keys nor allocate, e.g. for quantities keyed by product id.
+ * Entries cannot be removed, only set to another value or cleared all at once.
+ * It is not thread-safe.
+ */
+public class IntIntHashMap {
+  private static final float MAX_LOAD_FACTOR = 0.5f;
+  private int[] keys;
+  private int[] values;
+  private boolean[] used;
+  private int size;
+
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(int key, int value);
+  }
+
+  public IntIntHashMap() {
+    this(16);
+  }
+
+  /**
+   * @param expectedSize how many entries the map should hold without growing
+   */
+  public IntIntHashMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Expected size must not be negative: " + expectedSize);
+    }
+
+    allocate(capacityFor(expectedSize));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean containsKey(int key) {
+    return used[indexOf(key)];
+  }
+
+  /**
+   * Gets the value of a key.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return if the key is not in the map
+   * @return the value of the key, or the default value
+   */
+  public int get(int key, int defaultValue) {
+    int index = indexOf(key);
+    return used[index] ? values[index] : defaultValue;
+  }
+
+  public void put(int key, int value) {
+    int index = indexOf(key);
+
+    if (used[index]) {
+      values[index] = value;
+      return;
+    }
+
+    insertAt(index, key, value);
+  }
+
+  /**
+   * Adds a delta to the value of a key, a missing key is added with the delta as its value.
+   *
+   * @param key   the key to update
+   * @param delta the amount to add, may be negative
+   * @return the new value of the key
+   */
+  public int addTo(int key, int delta) {
+    int index = indexOf(key);
+
+    if (used[index]) {
+      values[index] += delta;
+      return values[index];
+    }
+
+    insertAt(index, key, delta);
+    return delta;
+  }
+
+  public void forEach(EntryConsumer consumer) {
+    for (int i = 0; i < keys.length; i++) {
+      if (used[i]) {
+        consumer.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(used, false);
+    size = 0;
+  }
+
+  private void insertAt(int index, int key, int value) {
+    keys[index] = key;
+    values[index] = value;
+    used[index] = true;
+    size++;
+
+    if (size > keys.length * MAX_LOAD_FACTOR) {
+      grow();
+    }
+  }
+
+  private int indexOf(int key) {
+    int mask = keys.length - 1;
+    int index = mix(key) & mask;
+
+    while (used[index] && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+
+    return index;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    boolean[] oldUsed = used;
+
+    allocate(keys.length * 2);
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldUsed[i]) {
+        int index = indexOf(oldKeys[i]);
+        keys[index] = oldKeys[i];
+        values[index] = oldValues[i];
+        used[index] = true;
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new int[capacity];
+    used = new boolean[capacity];
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int capacity = 16;
+
+    while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+      capacity *= 2;
+    }
+
+    return capacity;
+  }
+
+  // NOTE: Ids are consecutive, mixing the bits spreads them across the table instead of filling one run of slots.
+  private static int mix(int key) {
+    int hash = key * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+}
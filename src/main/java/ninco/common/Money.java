@@ -0,0 +1,116 @@
+package ninco.common;
+
+/**
+ * Money works with amounts of money as a plain long number of cents, e.g. 1050 for 10.50, so prices, subtotals and
+ * totals add up exactly instead of drifting like floats do. Its operations are static and take the primitive, so
+ * computing the total of a cart neither boxes nor allocates; only formatting creates a string.
+ * The database keeps prices as DECIMAL(10, 2), the DAOs read them as cents and bind cents divided by 100.
+ */
+public final class Money {
+  private static final int CENTS_PER_UNIT = 100;
+
+  private Money() {
+  }
+
+  /**
+   * Parses an amount such as "10", "10.5" or "10.50", surrounding whitespace is ignored.
+   *
+   * @param amount the amount, with at most two decimals
+   * @return the amount in cents
+   * @throws NumberFormatException if the amount is not a number, has more than two decimals or does not fit
+   */
+  public static long parse(String amount) {
+    if (amount == null) {
+      throw new NumberFormatException("null");
+    }
+
+    String text = amount.trim();
+    int index = 0;
+    boolean isNegative = false;
+    if (!text.isEmpty() && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+      isNegative = text.charAt(0) == '-';
+      index++;
+    }
+
+    long cents = 0;
+    int digitCount = 0;
+    int decimalCount = -1;
+    try {
+      for (; index < text.length(); index++) {
+        char character = text.charAt(index);
+
+        if (character == '.' && decimalCount == -1) {
+          decimalCount = 0;
+        } else if (character >= '0' && character <= '9' && decimalCount < 2) {
+          cents = Math.addExact(Math.multiplyExact(cents, 10), character - '0');
+          digitCount++;
+          if (decimalCount >= 0) {
+            decimalCount++;
+          }
+        } else {
+          throw new NumberFormatException("Invalid amount: \"" + amount + "\"");
+        }
+      }
+
+      if (digitCount == 0) {
+        throw new NumberFormatException("Invalid amount: \"" + amount + "\"");
+      }
+
+      for (int i = Math.max(decimalCount, 0); i < 2; i++) {
+        cents = Math.multiplyExact(cents, 10);
+      }
+    } catch (ArithmeticException e) {
+      throw new NumberFormatException("Amount out of range: \"" + amount + "\"");
+    }
+
+    return isNegative ? -cents : cents;
+  }
+
+  /**
+   * @param unitCents the price of one unit in cents
+   * @param quantity  the number of units
+   * @return the price of every unit in cents
+   * @throws ArithmeticException if the result does not fit in a long
+   */
+  public static long times(long unitCents, int quantity) {
+    return Math.multiplyExact(unitCents, quantity);
+  }
+
+  /**
+   * @return the sum of both amounts in cents
+   * @throws ArithmeticException if the result does not fit in a long
+   */
+  public static long add(long cents, long otherCents) {
+    return Math.addExact(cents, otherCents);
+  }
+
+  /**
+   * @param cents the amount in cents
+   * @return the amount with two decimals and no grouping, e.g. "1050.00", as the database and the receipts take it
+   */
+  public static String format(long cents) {
+    return appendTo(new StringBuilder(24), cents).toString();
+  }
+
+  /**
+   * Appends an amount as format does, without creating a string.
+   *
+   * @param builder the builder to append to
+   * @param cents   the amount in cents
+   * @return the builder
+   */
+  public static StringBuilder appendTo(StringBuilder builder, long cents) {
+    if (cents < 0) {
+      builder.append('-');
+    }
+
+    long units = Math.abs(cents / CENTS_PER_UNIT);
+    long remainingCents = Math.abs(cents % CENTS_PER_UNIT);
+    builder.append(units).append('.');
+    if (remainingCents < 10) {
+      builder.append('0');
+    }
+
+    return builder.append(remainingCents);
+  }
+}
@@ -21,7 +21,7 @@ public class ReceiptGenerator {
     private static final Logger LOGGER = LogManager.getLogger(ReceiptGenerator.class);
     private static final String RECEIPT_DIR = "receipts";
 
-    public static String generateReceipt(String clientName, List<CartItemDTO> items, double total) throws UserDisplayableException {
+    public static String generateReceipt(String clientName, List<CartItemDTO> items, long totalCents) throws UserDisplayableException {
         EmployeeDTO employee = AuthClient.getInstance().getCurrentUser();
         StoreDTO store;
         try {
@@ -53,15 +53,15 @@ public class ReceiptGenerator {
             String name = item.getName();
             if (name.length() > 20) name = name.substring(0, 17) + "...";
 
-            sb.append(String.format("%-20s %5d %10.2f %10.2f\n",
+            sb.append(String.format("%-20s %5d %10s %10s\n",
                     name,
                     item.getQuantity(),
-                    item.getPrice(),
-                    item.getSubtotal()));
+                    Money.format(item.getPriceCents()),
+                    Money.format(item.getSubtotalCents())));
         }
 
         sb.append("------------------------------------------------\n");
-        sb.append(String.format("TOTAL:   %38.2f\n", total));
+        sb.append(String.format("TOTAL:   %38s\n", Money.format(totalCents)));
         sb.append("------------------------------------------------\n");
         sb.append(String.format("Cashier: %s %s\n", employee.getName(), employee.getLastName()));
         sb.append("************************************************\n");
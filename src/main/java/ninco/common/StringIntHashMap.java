@@ -0,0 +1,126 @@
+package ninco.common;
+
+/**
+ * StringIntHashMap is a map from String keys to int values that stores both in plain arrays with open addressing
+ * and linear probing, like IntIntHashMap, e.g. for the products of the catalog keyed by barcode. The hash of every
+ * key is kept alongside it, so a probe only compares the characters of a key whose hash already matched, and a
+ * lookup neither boxes the value nor allocates.
+ * Entries cannot be removed, only set to another value or cleared all at once.
+ * It is not thread-safe, a map that is no longer written may be read from any thread once safely published.
+ */
+public class StringIntHashMap {
+  private static final float MAX_LOAD_FACTOR = 0.5f;
+  private String[] keys;
+  private int[] hashes;
+  private int[] values;
+  private int size;
+
+  public StringIntHashMap() {
+    this(16);
+  }
+
+  /**
+   * @param expectedSize how many entries the map should hold without growing
+   */
+  public StringIntHashMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Expected size must not be negative: " + expectedSize);
+    }
+
+    allocate(capacityFor(expectedSize));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean containsKey(String key) {
+    return keys[indexOf(key, mix(key.hashCode()))] != null;
+  }
+
+  /**
+   * Gets the value of a key.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return if the key is not in the map
+   * @return the value of the key, or the default value
+   */
+  public int get(String key, int defaultValue) {
+    int index = indexOf(key, mix(key.hashCode()));
+    return keys[index] != null ? values[index] : defaultValue;
+  }
+
+  public void put(String key, int value) {
+    int hash = mix(key.hashCode());
+    int index = indexOf(key, hash);
+
+    if (keys[index] != null) {
+      values[index] = value;
+      return;
+    }
+
+    keys[index] = key;
+    hashes[index] = hash;
+    values[index] = value;
+    size++;
+
+    if (size > keys.length * MAX_LOAD_FACTOR) {
+      grow();
+    }
+  }
+
+  public void clear() {
+    allocate(keys.length);
+    size = 0;
+  }
+
+  private int indexOf(String key, int hash) {
+    int mask = keys.length - 1;
+    int index = hash & mask;
+
+    while (keys[index] != null && (hashes[index] != hash || !keys[index].equals(key))) {
+      index = (index + 1) & mask;
+    }
+
+    return index;
+  }
+
+  private void grow() {
+    String[] oldKeys = keys;
+    int[] oldHashes = hashes;
+    int[] oldValues = values;
+
+    allocate(keys.length * 2);
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        int index = indexOf(oldKeys[i], oldHashes[i]);
+        keys[index] = oldKeys[i];
+        hashes[index] = oldHashes[i];
+        values[index] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new String[capacity];
+    hashes = new int[capacity];
+    values = new int[capacity];
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int capacity = 16;
+
+    while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+      capacity *= 2;
+    }
+
+    return capacity;
+  }
+
+  // NOTE: Barcodes of one maker share most of their digits, mixing the bits spreads them across the table.
+  private static int mix(int hashCode) {
+    int hash = hashCode * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,196 @@
+package ninco.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * CachedStatement wraps a prepared statement owned by a StatementCache.
+ * Every checkout hands out its own proxy whose close() closes the result sets it opened, clears the parameters and
+ * hands the statement back to the cache instead of discarding it. Closing a proxy again, or using it after it was
+ * closed, never touches the statement while a later checkout holds it, and the result sets it returns report the
+ * proxy as their statement so they never reach the physical one.
+ */
+class CachedStatement {
+  private final StatementCache cache;
+  private final String key;
+  private final PreparedStatement physicalStatement;
+  private Checkout currentCheckout;
+  private boolean evicted;
+
+  CachedStatement(StatementCache cache, String key, PreparedStatement physicalStatement) {
+    this.cache = cache;
+    this.key = key;
+    this.physicalStatement = physicalStatement;
+  }
+
+  String getKey() {
+    return key;
+  }
+
+  synchronized boolean isInUse() {
+    return currentCheckout != null;
+  }
+
+  synchronized boolean isAvailable() {
+    return currentCheckout == null && !evicted;
+  }
+
+  /**
+   * Hands the statement to a new user.
+   *
+   * @param connectionProxy the lease the statement was prepared through
+   * @return a proxy that only this user uses
+   */
+  synchronized PreparedStatement checkOut(Connection connectionProxy) {
+    currentCheckout = new Checkout(connectionProxy);
+    return currentCheckout.proxy;
+  }
+
+  /**
+   * Marks the statement as removed from the cache, closing it now or once its current user is done.
+   */
+  synchronized void evict() {
+    evicted = true;
+
+    if (currentCheckout == null) {
+      closePhysicalStatement();
+    }
+  }
+
+  private void checkIn(Checkout checkout) {
+    synchronized (this) {
+      if (currentCheckout != checkout) {
+        return;
+      }
+
+      currentCheckout = null;
+      checkout.closeResultSets();
+
+      if (evicted) {
+        closePhysicalStatement();
+        return;
+      }
+
+      try {
+        physicalStatement.clearParameters();
+        physicalStatement.clearBatch();
+        return;
+      } catch (SQLException e) {
+        evicted = true;
+        closePhysicalStatement();
+      }
+    }
+
+    // Removed outside the lock, the cache locks itself before locking its statements.
+    cache.remove(this);
+  }
+
+  private void closePhysicalStatement() {
+    try {
+      physicalStatement.close();
+    } catch (SQLException e) {
+      // The statement is being discarded, there is nothing left to recover.
+    }
+  }
+
+  private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Checkout is the proxy handed to one user of the statement, it stops working once its user closes it.
+   */
+  private class Checkout implements InvocationHandler {
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Connection connectionProxy;
+    private final PreparedStatement proxy;
+    private final List<ResultSet> resultSets = new ArrayList<>();
+
+    private Checkout(Connection connectionProxy) {
+      this.connectionProxy = connectionProxy;
+      this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+        PreparedStatement.class.getClassLoader(),
+        new Class<?>[]{PreparedStatement.class},
+        this
+      );
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (closed.compareAndSet(false, true)) {
+            checkIn(this);
+          }
+          return null;
+        case "isClosed":
+          return closed.get() || physicalStatement.isClosed();
+        case "getConnection":
+          return connectionProxy;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "CachedStatement[" + key + "]";
+        default:
+          if (closed.get()) {
+            throw new SQLException("La sentencia ya fue cerrada.", "HY010");
+          }
+
+          Object result = invokeOn(physicalStatement, method, args);
+          return result instanceof ResultSet ? wrapResultSet((ResultSet) result) : result;
+      }
+    }
+
+    private ResultSet wrapResultSet(ResultSet resultSet) {
+      synchronized (resultSets) {
+        resultSets.add(resultSet);
+      }
+
+      return (ResultSet) Proxy.newProxyInstance(
+        ResultSet.class.getClassLoader(),
+        new Class<?>[]{ResultSet.class},
+        (resultSetProxy, method, args) -> {
+          switch (method.getName()) {
+            case "getStatement":
+              return proxy;
+            case "equals":
+              return resultSetProxy == args[0];
+            case "hashCode":
+              return System.identityHashCode(resultSetProxy);
+            default:
+              return invokeOn(resultSet, method, args);
+          }
+        }
+      );
+    }
+
+    // NOTE: A streaming result set left open would keep the connection busy for the next user of the statement.
+    private void closeResultSets() {
+      synchronized (resultSets) {
+        for (ResultSet resultSet : resultSets) {
+          try {
+            resultSet.close();
+          } catch (SQLException e) {
+            // The result set belongs to a user that is done with it, there is nothing left to recover.
+          }
+        }
+        resultSets.clear();
+      }
+    }
+  }
+}
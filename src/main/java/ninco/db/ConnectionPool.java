@@ -0,0 +1,306 @@
+package ninco.db;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConnectionPool keeps a bounded set of physical connections open so DAOs do not pay
+ * a TCP and authentication handshake on every call.
+ * <p>
+ * Idle connections are handed out most-recently-used first and validated before reuse when
+ * they have been sitting idle for a while. Connections older than the max lifetime are retired,
+ * idle connections above the minimum size are evicted by a background housekeeper, and callers
+ * wait at most the borrow timeout when every connection is in use.
+ */
+public class ConnectionPool {
+  private static final Logger LOGGER = LogManager.getLogger(ConnectionPool.class);
+  // Connections released less than this long ago are trusted without a round trip.
+  private static final long VALIDATION_BYPASS_WINDOW_MS = 500;
+  private static final long HOUSEKEEPING_PERIOD_MS = 30 * 1000L;
+  // Waiters are only woken by a released connection, so they look for a freed slot this often in case the connection
+  // was destroyed instead (expired, closed or broken).
+  private static final long WAIT_SLICE_MS = 20;
+  private final ConnectionFactory connectionFactory;
+  private final ConnectionPoolConfiguration configuration;
+  private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+  private final AtomicInteger totalConnections = new AtomicInteger();
+  private final AtomicInteger waitingThreads = new AtomicInteger();
+  private final AtomicLong borrowCount = new AtomicLong();
+  private final AtomicLong borrowTimeoutCount = new AtomicLong();
+  private final AtomicLong createdCount = new AtomicLong();
+  private final AtomicLong destroyedCount = new AtomicLong();
+  private final AtomicLong totalBorrowWaitNanos = new AtomicLong();
+  private final ScheduledExecutorService housekeeper;
+  private volatile boolean closed;
+
+  /**
+   * Opens physical connections for the pool. DBConnector passes DriverManager here,
+   * tests pass mocks.
+   */
+  @FunctionalInterface
+  public interface ConnectionFactory {
+    Connection create() throws SQLException;
+  }
+
+  public ConnectionPool(ConnectionFactory connectionFactory, ConnectionPoolConfiguration configuration) {
+    this.connectionFactory = connectionFactory;
+    this.configuration = configuration;
+    this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "ninco-db-pool-housekeeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.housekeeper.scheduleWithFixedDelay(
+      this::runHousekeeping, HOUSEKEEPING_PERIOD_MS, HOUSEKEEPING_PERIOD_MS, TimeUnit.MILLISECONDS
+    );
+    fillToMinimumSize();
+  }
+
+  public ConnectionPoolConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Borrows a connection from the pool, opening a new one if the pool is below its maximum size
+   * or waiting up to the borrow timeout for another caller to release one.
+   *
+   * @return a connection of this borrower alone, its close() returns it to the pool
+   * @throws SQLException if the pool is closed, the borrow timeout elapses or a connection cannot be opened
+   */
+  public Connection borrow() throws SQLException {
+    if (closed) {
+      throw new SQLException("El pool de conexiones está cerrado.", "08003");
+    }
+
+    long startedAt = System.nanoTime();
+    long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(configuration.getBorrowTimeoutMillis());
+
+    while (true) {
+      PooledConnection pooledConnection = idleConnections.pollFirst();
+
+      if (pooledConnection == null) {
+        if (tryReserveSlot()) {
+          pooledConnection = createPooledConnection();
+        } else {
+          pooledConnection = awaitIdleConnection(deadline);
+        }
+      }
+
+      if (isUsable(pooledConnection)) {
+        borrowCount.incrementAndGet();
+        totalBorrowWaitNanos.addAndGet(System.nanoTime() - startedAt);
+        return pooledConnection.lease();
+      }
+
+      destroy(pooledConnection);
+    }
+  }
+
+  /**
+   * Takes back a connection whose proxy was closed. Uncommitted work is rolled back and
+   * auto-commit restored so the next borrower gets a clean connection.
+   *
+   * @param pooledConnection the connection being returned
+   */
+  void release(PooledConnection pooledConnection) {
+    if (closed || pooledConnection.isExpired(System.currentTimeMillis(), configuration.getMaxLifetimeMillis())) {
+      destroy(pooledConnection);
+      return;
+    }
+
+    try {
+      Connection connection = pooledConnection.getPhysicalConnection();
+
+      if (connection.isClosed()) {
+        destroy(pooledConnection);
+        return;
+      }
+
+      if (!connection.getAutoCommit()) {
+        connection.rollback();
+        connection.setAutoCommit(true);
+      }
+
+      connection.clearWarnings();
+      idleConnections.offerFirst(pooledConnection);
+    } catch (SQLException e) {
+      LOGGER.warn("Conexión descartada al devolverla al pool: {}", e.getMessage(), e);
+      destroy(pooledConnection);
+    }
+  }
+
+  /**
+   * Takes a snapshot of the pool counters.
+   *
+   * @return the current pool statistics
+   */
+  public ConnectionPoolStatistics getStatistics() {
+    return new ConnectionPoolStatistics(
+      totalConnections.get(),
+      idleConnections.size(),
+      waitingThreads.get(),
+      borrowCount.get(),
+      borrowTimeoutCount.get(),
+      createdCount.get(),
+      destroyedCount.get(),
+      totalBorrowWaitNanos.get()
+    );
+  }
+
+  /**
+   * Closes every idle connection and stops the housekeeper. Connections still in use
+   * are closed as soon as they are released.
+   */
+  public void close() {
+    closed = true;
+    housekeeper.shutdownNow();
+
+    PooledConnection pooledConnection;
+    while ((pooledConnection = idleConnections.pollFirst()) != null) {
+      destroy(pooledConnection);
+    }
+  }
+
+  private PooledConnection awaitIdleConnection(long deadline) throws SQLException {
+    waitingThreads.incrementAndGet();
+    try {
+      while (true) {
+        long remaining = deadline - System.nanoTime();
+
+        if (remaining <= 0) {
+          throw handleBorrowTimeout();
+        }
+
+        PooledConnection pooledConnection = idleConnections.pollFirst(
+          Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(WAIT_SLICE_MS)), TimeUnit.NANOSECONDS
+        );
+
+        if (pooledConnection != null) {
+          return pooledConnection;
+        }
+
+        if (closed) {
+          throw new SQLException("El pool de conexiones está cerrado.", "08003");
+        }
+
+        if (tryReserveSlot()) {
+          return createPooledConnection();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Espera de conexión interrumpida.", "08001", e);
+    } finally {
+      waitingThreads.decrementAndGet();
+    }
+  }
+
+  private SQLException handleBorrowTimeout() {
+    borrowTimeoutCount.incrementAndGet();
+    LOGGER.error("Tiempo de espera agotado al obtener conexión del pool: {}", getStatistics());
+    return new SQLException("Tiempo de espera agotado al obtener una conexión del pool.", "08001");
+  }
+
+  private boolean isUsable(PooledConnection pooledConnection) {
+    long now = System.currentTimeMillis();
+
+    if (pooledConnection.isExpired(now, configuration.getMaxLifetimeMillis())) {
+      return false;
+    }
+
+    if (!pooledConnection.isIdleFor(now, VALIDATION_BYPASS_WINDOW_MS)) {
+      return true;
+    }
+
+    try {
+      return pooledConnection.getPhysicalConnection().isValid(configuration.getValidationTimeoutSeconds());
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private boolean tryReserveSlot() {
+    while (true) {
+      int current = totalConnections.get();
+
+      if (current >= configuration.getMaxSize()) {
+        return false;
+      }
+
+      if (totalConnections.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Opens a physical connection for a slot already reserved through tryReserveSlot.
+   */
+  private PooledConnection createPooledConnection() throws SQLException {
+    try {
+      PooledConnection pooledConnection = new PooledConnection(
+        this, connectionFactory.create(), configuration.getStatementCacheSize()
+      );
+      createdCount.incrementAndGet();
+      return pooledConnection;
+    } catch (SQLException | RuntimeException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    }
+  }
+
+  private void destroy(PooledConnection pooledConnection) {
+    pooledConnection.closePhysicalConnection();
+    totalConnections.decrementAndGet();
+    destroyedCount.incrementAndGet();
+  }
+
+  private void fillToMinimumSize() {
+    while (!closed && totalConnections.get() < configuration.getMinSize() && tryReserveSlot()) {
+      try {
+        PooledConnection pooledConnection = createPooledConnection();
+        pooledConnection.markReleased();
+        idleConnections.offerLast(pooledConnection);
+      } catch (SQLException e) {
+        LOGGER.warn("No ha sido posible abrir conexiones mínimas del pool: {}", e.getMessage());
+        return;
+      }
+    }
+  }
+
+  /**
+   * Retires expired connections, evicts connections idle above the minimum size and
+   * tops the pool back up to its minimum size.
+   */
+  private void runHousekeeping() {
+    try {
+      long now = System.currentTimeMillis();
+      List<PooledConnection> candidates = new ArrayList<>(idleConnections);
+
+      for (PooledConnection pooledConnection : candidates) {
+        boolean expired = pooledConnection.isExpired(now, configuration.getMaxLifetimeMillis());
+        boolean evictable = totalConnections.get() > configuration.getMinSize()
+          && pooledConnection.isIdleFor(now, configuration.getIdleTimeoutMillis());
+
+        if ((expired || evictable) && idleConnections.remove(pooledConnection)) {
+          destroy(pooledConnection);
+        }
+      }
+
+      fillToMinimumSize();
+    } catch (RuntimeException e) {
+      LOGGER.error("Error en el mantenimiento del pool de conexiones: {}", e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package ninco.db;
+
+import java.util.Properties;
+
+/**
+ * ConnectionPoolConfiguration holds the sizing and timing settings of the ConnectionPool.
+ * Every setting is optional in db.properties and falls back to a sensible default.
+ */
+public class ConnectionPoolConfiguration {
+  private static final int DEFAULT_MIN_SIZE = 2;
+  private static final int DEFAULT_MAX_SIZE = 10;
+  private static final long DEFAULT_IDLE_TIMEOUT_MS = 5 * 60 * 1000L;
+  private static final long DEFAULT_MAX_LIFETIME_MS = 30 * 60 * 1000L;
+  private static final long DEFAULT_BORROW_TIMEOUT_MS = 5 * 1000L;
+  private static final int DEFAULT_VALIDATION_TIMEOUT_S = 2;
+  private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+  private final int minSize;
+  private final int maxSize;
+  private final long idleTimeoutMillis;
+  private final long maxLifetimeMillis;
+  private final long borrowTimeoutMillis;
+  private final int validationTimeoutSeconds;
+  private final int statementCacheSize;
+
+  public ConnectionPoolConfiguration(
+    int minSize,
+    int maxSize,
+    long idleTimeoutMillis,
+    long maxLifetimeMillis,
+    long borrowTimeoutMillis,
+    int validationTimeoutSeconds
+  ) {
+    this(
+      minSize,
+      maxSize,
+      idleTimeoutMillis,
+      maxLifetimeMillis,
+      borrowTimeoutMillis,
+      validationTimeoutSeconds,
+      DEFAULT_STATEMENT_CACHE_SIZE
+    );
+  }
+
+  public ConnectionPoolConfiguration(
+    int minSize,
+    int maxSize,
+    long idleTimeoutMillis,
+    long maxLifetimeMillis,
+    long borrowTimeoutMillis,
+    int validationTimeoutSeconds,
+    int statementCacheSize
+  ) {
+    if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+      throw new IllegalArgumentException("Invalid pool size: min " + minSize + ", max " + maxSize);
+    }
+
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.maxLifetimeMillis = maxLifetimeMillis;
+    this.borrowTimeoutMillis = borrowTimeoutMillis;
+    this.validationTimeoutSeconds = validationTimeoutSeconds;
+    this.statementCacheSize = statementCacheSize;
+  }
+
+  /**
+   * Reads the pool settings from the db.pool.* keys of the database properties.
+   *
+   * @param properties the loaded db.properties
+   * @return the configuration with defaults for every missing key
+   * @throws NumberFormatException if a present key is not a number
+   */
+  public static ConnectionPoolConfiguration fromProperties(Properties properties) {
+    return new ConnectionPoolConfiguration(
+      Integer.parseInt(properties.getProperty("db.pool.min-size", String.valueOf(DEFAULT_MIN_SIZE))),
+      Integer.parseInt(properties.getProperty("db.pool.max-size", String.valueOf(DEFAULT_MAX_SIZE))),
+      Long.parseLong(properties.getProperty("db.pool.idle-timeout-ms", String.valueOf(DEFAULT_IDLE_TIMEOUT_MS))),
+      Long.parseLong(properties.getProperty("db.pool.max-lifetime-ms", String.valueOf(DEFAULT_MAX_LIFETIME_MS))),
+      Long.parseLong(properties.getProperty("db.pool.borrow-timeout-ms", String.valueOf(DEFAULT_BORROW_TIMEOUT_MS))),
+      Integer.parseInt(properties.getProperty("db.pool.validation-timeout-s", String.valueOf(DEFAULT_VALIDATION_TIMEOUT_S))),
+      Integer.parseInt(properties.getProperty("db.pool.statement-cache-size", String.valueOf(DEFAULT_STATEMENT_CACHE_SIZE)))
+    );
+  }
+
+  public int getMinSize() {
+    return minSize;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getIdleTimeoutMillis() {
+    return idleTimeoutMillis;
+  }
+
+  public long getMaxLifetimeMillis() {
+    return maxLifetimeMillis;
+  }
+
+  public long getBorrowTimeoutMillis() {
+    return borrowTimeoutMillis;
+  }
+
+  public int getValidationTimeoutSeconds() {
+    return validationTimeoutSeconds;
+  }
+
+  public int getStatementCacheSize() {
+    return statementCacheSize;
+  }
+}
@@ -0,0 +1,90 @@
+package ninco.db;
+
+/**
+ * ConnectionPoolStatistics is an immutable snapshot of the ConnectionPool counters,
+ * taken at the moment DBConnector.getPoolStatistics() is called.
+ */
+public class ConnectionPoolStatistics {
+  private final int totalConnections;
+  private final int idleConnections;
+  private final int activeConnections;
+  private final int waitingThreads;
+  private final long borrowCount;
+  private final long borrowTimeoutCount;
+  private final long createdCount;
+  private final long destroyedCount;
+  private final long totalBorrowWaitNanos;
+
+  public ConnectionPoolStatistics(
+    int totalConnections,
+    int idleConnections,
+    int waitingThreads,
+    long borrowCount,
+    long borrowTimeoutCount,
+    long createdCount,
+    long destroyedCount,
+    long totalBorrowWaitNanos
+  ) {
+    this.totalConnections = totalConnections;
+    this.idleConnections = idleConnections;
+    this.activeConnections = Math.max(0, totalConnections - idleConnections);
+    this.waitingThreads = waitingThreads;
+    this.borrowCount = borrowCount;
+    this.borrowTimeoutCount = borrowTimeoutCount;
+    this.createdCount = createdCount;
+    this.destroyedCount = destroyedCount;
+    this.totalBorrowWaitNanos = totalBorrowWaitNanos;
+  }
+
+  public int getTotalConnections() {
+    return totalConnections;
+  }
+
+  public int getIdleConnections() {
+    return idleConnections;
+  }
+
+  public int getActiveConnections() {
+    return activeConnections;
+  }
+
+  public int getWaitingThreads() {
+    return waitingThreads;
+  }
+
+  public long getBorrowCount() {
+    return borrowCount;
+  }
+
+  public long getBorrowTimeoutCount() {
+    return borrowTimeoutCount;
+  }
+
+  public long getCreatedCount() {
+    return createdCount;
+  }
+
+  public long getDestroyedCount() {
+    return destroyedCount;
+  }
+
+  public double getAverageBorrowWaitMillis() {
+    return borrowCount == 0 ? 0 : totalBorrowWaitNanos / 1_000_000.0 / borrowCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "total=%d idle=%d active=%d waiting=%d borrows=%d timeouts=%d created=%d destroyed=%d avgWait=%.3fms",
+      totalConnections,
+      idleConnections,
+      activeConnections,
+      waitingThreads,
+      borrowCount,
+      borrowTimeoutCount,
+      createdCount,
+      destroyedCount,
+      getAverageBorrowWaitMillis()
+    );
+  }
+}
@@ -16,8 +16,8 @@ import ninco.common.UserDisplayableException;
 
 /**
  * DBConnector is a singleton class responsible for managing the database connection.
- * It reads the database configuration from a properties file and provides a method
- * to obtain a connection to the database.
+ * It reads the database configuration from a properties file and owns the ConnectionPool
+ * every DAO borrows its connections from.
  */
 public class DBConnector {
   private static final Logger LOGGER = LogManager.getLogger(DBConnector.class);
@@ -25,6 +25,8 @@ public class DBConnector {
   private final String URL;
   private final String USERNAME;
   private final String PASSWORD;
+  private final ConnectionPool pool;
+  private final Properties properties;
   // NOTE: Change the path if the project is running in a different environment
   private final String DB_PROPERTIES_FILE = "src/main/resources/db.properties";
 
@@ -39,12 +41,18 @@ public class DBConnector {
 
     try (FileInputStream input = new FileInputStream(DB_PROPERTIES_FILE)) {
       properties.load(input);
+      this.properties = properties;
 
       this.URL = properties.getProperty("db.url");
       this.USERNAME = properties.getProperty("db.username");
       this.PASSWORD = properties.getProperty("db.password");
 
       handlePropertiesVerification();
+
+      this.pool = new ConnectionPool(
+        () -> DriverManager.getConnection(URL, USERNAME, PASSWORD),
+        getPoolConfigurationFromProperties(properties)
+      );
     } catch (FileNotFoundException e) {
       throw handleConfigurationFileNotFound(e);
     } catch (IOException e) {
@@ -89,6 +97,24 @@ public class DBConnector {
     }
   }
 
+  /**
+   * Reads the optional db.pool.* settings from the properties file.
+   *
+   * @param properties the loaded database properties
+   * @return the pool configuration
+   * @throws UserDisplayableException if any pool setting is malformed
+   */
+  private ConnectionPoolConfiguration getPoolConfigurationFromProperties(Properties properties) throws UserDisplayableException {
+    try {
+      return ConnectionPoolConfiguration.fromProperties(properties);
+    } catch (IllegalArgumentException e) {
+      LOGGER.fatal("Las propiedades del pool de conexiones no son válidas. Revisar db.properties.", e);
+      throw new UserDisplayableException(
+        "Las propiedades de conexión a la base de datos no están configuradas correctamente. Por favor, comuníquese con el desarrollador del sistema."
+      );
+    }
+  }
+
   /**
    * Returns the singleton instance of DBConnector.
    *
@@ -104,16 +130,45 @@ public class DBConnector {
   }
 
   /**
-   * Establishes and returns a connection to the database.
+   * Borrows a connection from the pool. Closing the returned connection gives it back to the pool.
    *
    * @return Connection to the database
-   * @throws UserDisplayableException if a database access error occurs
+   * @throws UserDisplayableException if a database access error occurs or no connection frees up in time
    */
   public Connection getConnection() throws UserDisplayableException {
     try {
-      return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+      return pool.borrow();
     } catch (SQLException e) {
       throw ExceptionHandler.handleSQLException(LOGGER, e);
     }
   }
+
+  /**
+   * Returns a copy of the loaded properties, for the optional settings of other components (e.g. CheckoutPipeline).
+   *
+   * @return the database properties
+   */
+  public Properties getProperties() {
+    return (Properties) properties.clone();
+  }
+
+  /**
+   * Returns a snapshot of the connection pool counters.
+   *
+   * @return the current pool statistics
+   */
+  public ConnectionPoolStatistics getPoolStatistics() {
+    return pool.getStatistics();
+  }
+
+  /**
+   * Closes every pooled connection, should be called when the application exits.
+   */
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      LOGGER.info("Cerrando pool de conexiones: {}", instance.getPoolStatistics());
+      instance.pool.close();
+      instance = null;
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package ninco.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * PooledConnection wraps a physical connection owned by the ConnectionPool.
+ * Every borrower receives its own lease, a proxy of java.sql.Connection whose close() hands the physical connection
+ * back to the pool instead of closing the socket, so existing try-with-resources blocks keep working unchanged.
+ * A lease can only release the connection once: closing it again, or using it after it was closed, never touches
+ * the connection while a later borrower holds it. Registered statements prepared through a lease are served from a
+ * StatementCache bound to the physical connection.
+ */
+class PooledConnection {
+  private final ConnectionPool pool;
+  private final Connection physicalConnection;
+  private final StatementCache statementCache;
+  private final long createdAt;
+  private volatile long lastReleasedAt;
+
+  PooledConnection(ConnectionPool pool, Connection physicalConnection, int statementCacheSize) {
+    this.pool = pool;
+    this.physicalConnection = physicalConnection;
+    this.createdAt = System.currentTimeMillis();
+    this.lastReleasedAt = createdAt;
+    this.statementCache = new StatementCache(physicalConnection, statementCacheSize);
+  }
+
+  Connection getPhysicalConnection() {
+    return physicalConnection;
+  }
+
+  /**
+   * Hands the connection to a new borrower.
+   *
+   * @return a proxy that only this borrower uses, its close() returns the connection to the pool
+   */
+  Connection lease() {
+    return (Connection) Proxy.newProxyInstance(
+      Connection.class.getClassLoader(),
+      new Class<?>[]{Connection.class},
+      new Lease()
+    );
+  }
+
+  long getCreatedAt() {
+    return createdAt;
+  }
+
+  long getLastReleasedAt() {
+    return lastReleasedAt;
+  }
+
+  void markReleased() {
+    lastReleasedAt = System.currentTimeMillis();
+  }
+
+  boolean isExpired(long now, long maxLifetimeMillis) {
+    return maxLifetimeMillis > 0 && now - createdAt >= maxLifetimeMillis;
+  }
+
+  boolean isIdleFor(long now, long idleTimeoutMillis) {
+    return idleTimeoutMillis > 0 && now - lastReleasedAt >= idleTimeoutMillis;
+  }
+
+  void closePhysicalConnection() {
+    try {
+      physicalConnection.close();
+    } catch (SQLException e) {
+      // The connection is being discarded, there is nothing left to recover.
+    }
+  }
+
+  /**
+   * Lease is the proxy handed to one borrower, it stops working once its borrower closes it.
+   */
+  private class Lease implements InvocationHandler {
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (closed.compareAndSet(false, true)) {
+            markReleased();
+            pool.release(PooledConnection.this);
+          }
+          return null;
+        case "isClosed":
+          return closed.get() || physicalConnection.isClosed();
+        case "prepareStatement":
+          ensureOpen();
+          return statementCache.prepare((Connection) proxy, method, args);
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+        default:
+          ensureOpen();
+          try {
+            return method.invoke(physicalConnection, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+      }
+    }
+
+    private void ensureOpen() throws SQLException {
+      if (closed.get()) {
+        throw new SQLException("La conexión ya fue devuelta al pool.", "08003");
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package ninco.db;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RegisteredStatement is a SQL statement known to the StatementRegistry along with
+ * its statement cache counters across every pooled connection.
+ * A hit means a pooled connection reused an already prepared statement,
+ * a miss means the statement had to be prepared again.
+ */
+public class RegisteredStatement {
+  private final String name;
+  private final String sql;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  RegisteredStatement(String name, String sql) {
+    this.name = name;
+    this.sql = sql;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getSQL() {
+    return sql;
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getExecutionCount() {
+    return getHitCount() + getMissCount();
+  }
+
+  public double getHitRate() {
+    long executions = getExecutionCount();
+    return executions == 0 ? 0 : (double) getHitCount() / executions;
+  }
+
+  void recordHit() {
+    hitCount.incrementAndGet();
+  }
+
+  void recordMiss() {
+    missCount.incrementAndGet();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s hits=%d misses=%d", name, getHitCount(), getMissCount());
+  }
+}
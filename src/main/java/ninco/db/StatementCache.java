@@ -0,0 +1,101 @@
+package ninco.db;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * StatementCache keeps the prepared statements of a single pooled connection,
+ * so registered queries are prepared once per physical connection instead of once per call.
+ * Least recently used statements are closed when the cache is full.
+ */
+class StatementCache {
+  private final Connection physicalConnection;
+  private final int maxSize;
+  private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+  StatementCache(Connection physicalConnection, int maxSize) {
+    this.physicalConnection = physicalConnection;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Handles a prepareStatement call made on a lease of the pooled connection.
+   * Registered SQL prepared with the plain or generated-keys signatures is served from the cache,
+   * anything else is prepared directly on the physical connection.
+   *
+   * @param connectionProxy the lease the statement is prepared through, returned by its getConnection()
+   * @param method          the prepareStatement overload that was called
+   * @param args            the call arguments, the first one being the SQL text
+   * @return a prepared statement, cached or not
+   * @throws Throwable whatever the physical connection throws
+   */
+  Object prepare(Connection connectionProxy, Method method, Object[] args) throws Throwable {
+    RegisteredStatement registeredStatement = StatementRegistry.getInstance().find((String) args[0]);
+
+    if (maxSize <= 0 || registeredStatement == null || !isCacheableSignature(method)) {
+      return prepareOnPhysicalConnection(method, args);
+    }
+
+    String key = args.length == 1 ? (String) args[0] : args[0] + "#" + args[1];
+
+    synchronized (statements) {
+      CachedStatement cachedStatement = statements.get(key);
+
+      if (cachedStatement != null && cachedStatement.isAvailable()) {
+        registeredStatement.recordHit();
+        return cachedStatement.checkOut(connectionProxy);
+      }
+
+      registeredStatement.recordMiss();
+      PreparedStatement statement = (PreparedStatement) prepareOnPhysicalConnection(method, args);
+
+      // The cached copy is already in use (e.g. nested calls), hand out a throwaway statement.
+      if (cachedStatement != null && cachedStatement.isInUse()) {
+        return statement;
+      }
+
+      cachedStatement = new CachedStatement(this, key, statement);
+      statements.put(key, cachedStatement);
+      evictOverflow();
+
+      return cachedStatement.checkOut(connectionProxy);
+    }
+  }
+
+  /**
+   * Drops a statement from the cache after it failed to reset on check-in.
+   */
+  void remove(CachedStatement cachedStatement) {
+    synchronized (statements) {
+      statements.remove(cachedStatement.getKey(), cachedStatement);
+    }
+  }
+
+  private void evictOverflow() {
+    Iterator<Map.Entry<String, CachedStatement>> iterator = statements.entrySet().iterator();
+
+    while (statements.size() > maxSize && iterator.hasNext()) {
+      CachedStatement eldest = iterator.next().getValue();
+      iterator.remove();
+      eldest.evict();
+    }
+  }
+
+  private boolean isCacheableSignature(Method method) {
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    return parameterTypes.length == 1 || parameterTypes.length == 2 && parameterTypes[1] == int.class;
+  }
+
+  private Object prepareOnPhysicalConnection(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(physicalConnection, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package ninco.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StatementRegistry is the central catalog of the SQL statements used by the DAOs.
+ * Only registered statements are kept in the per-connection statement cache of the pool,
+ * so ad hoc SQL never pushes hot queries out of the cache.
+ */
+public class StatementRegistry {
+  private static final StatementRegistry INSTANCE = new StatementRegistry();
+  private final ConcurrentHashMap<String, RegisteredStatement> statementsBySQL = new ConcurrentHashMap<>();
+
+  private StatementRegistry() {}
+
+  public static StatementRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Registers a SQL statement. Registering the same SQL again keeps the first registration.
+   *
+   * @param name a readable name for statistics, e.g. "ProductDAO.createOne"
+   * @param sql  the SQL text exactly as it is passed to prepareStatement
+   * @return the same SQL text, so it can be assigned to the DAO query constant
+   */
+  public String register(String name, String sql) {
+    statementsBySQL.computeIfAbsent(sql, it -> new RegisteredStatement(name, it));
+    return sql;
+  }
+
+  /**
+   * Finds the registration of a SQL statement.
+   *
+   * @param sql the SQL text passed to prepareStatement
+   * @return the registered statement, or null if the SQL was never registered
+   */
+  public RegisteredStatement find(String sql) {
+    return statementsBySQL.get(sql);
+  }
+
+  /**
+   * Lists every registered statement, most reused first.
+   *
+   * @return the registered statements with their hit and miss counters
+   */
+  public List<RegisteredStatement> getStatements() {
+    List<RegisteredStatement> statements = new ArrayList<>(statementsBySQL.values());
+    statements.sort(Comparator.comparingLong(RegisteredStatement::getExecutionCount).reversed());
+    return statements;
+  }
+}
@@ -0,0 +1,41 @@
+package ninco.db;
+
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * TransientSQLFailure is a failure caused by other transactions holding the same rows rather than by the statement
+ * itself, so running the whole transaction again may succeed.
+ * InnoDB rolls back the transaction that loses a deadlock. A lock wait timeout rolls back only the statement that
+ * timed out, callers must make sure the rest of the transaction is rolled back before retrying it.
+ */
+public enum TransientSQLFailure {
+  DEADLOCK,
+  LOCK_WAIT_TIMEOUT;
+
+  private static final int ER_LOCK_DEADLOCK = 1213;
+  private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+  private static final String SERIALIZATION_FAILURE_STATE = "40001";
+
+  /**
+   * Classifies an SQL exception, following the chain of exceptions the driver may attach to it.
+   *
+   * @param e the SQL exception to classify
+   * @return the transient failure, or empty if running the transaction again would fail the same way
+   */
+  public static Optional<TransientSQLFailure> classify(SQLException e) {
+    for (SQLException current = e; current != null; current = current.getNextException()) {
+      if (current.getErrorCode() == ER_LOCK_DEADLOCK) {
+        return Optional.of(DEADLOCK);
+      }
+      if (current.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+        return Optional.of(LOCK_WAIT_TIMEOUT);
+      }
+      if (SERIALIZATION_FAILURE_STATE.equals(current.getSQLState())) {
+        return Optional.of(DEADLOCK);
+      }
+    }
+
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,208 @@
+package ninco.gui;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import ninco.business.SearchIndex;
+import ninco.business.dto.Searchable;
+
+/**
+ * IndexedSearchList filters the rows of a list through a SearchIndex of them, so searching reads the postings of
+ * the words of the query instead of the searchable text of every row. The index follows the changes of the list in
+ * the background, rows appended or replaced in place are indexed as they arrive and any other change indexes the list
+ * again, and the results are searched again once the list changes.
+ * Searches run in the background once the user stops typing for a moment, a query that extends the one of the
+ * results shown (e.g. "mar" after "ma") only searches among those results, and the results of a search that was
+ * overtaken by a newer query or by a change of the list are discarded.
+ * While the query has no words there is nothing to filter and the results are left empty, the list itself should be
+ * displayed instead.
+ * This list must only be used from the JavaFX Application Thread.
+ *
+ * @param <T> the type of the rows
+ */
+public class IndexedSearchList<T extends Searchable> {
+  private static final long DEBOUNCE_MILLIS = 150;
+  private static final ScheduledExecutorService SEARCHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "indexed-search");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final ObservableList<T> sourceList;
+  private final SearchIndex<T> searchIndex = new SearchIndex<>();
+  private final ObservableList<T> resultList = FXCollections.observableArrayList();
+  private final ObservableList<T> readOnlyResultList = FXCollections.unmodifiableObservableList(resultList);
+  private int indexedSize;
+  private String query = "";
+  private String resultQuery = "";
+  private BitSet resultMatches;
+  private ScheduledFuture<?> pendingSearch;
+  private long searchGeneration;
+  private Runnable onSearched = () -> { };
+
+  /**
+   * @param sourceList the list to search, e.g. the rows of a table
+   */
+  public IndexedSearchList(ObservableList<T> sourceList) {
+    this.sourceList = sourceList;
+    resetIndex();
+    sourceList.addListener(this::onSourceChanged);
+  }
+
+  /**
+   * @return the rows matching the query of the last finished search in the order of the list, changes are made
+   * through the query
+   */
+  public ObservableList<T> getResultList() {
+    return readOnlyResultList;
+  }
+
+  /**
+   * @return whether the result list holds the rows of a query with words, rather than being left empty
+   */
+  public boolean isSearching() {
+    return hasWords(resultQuery);
+  }
+
+  /**
+   * @param onSearched what to do on the JavaFX Application Thread every time the result list is replaced, e.g.
+   *                   displaying it or the list itself depending on isSearching
+   */
+  public void setOnSearched(Runnable onSearched) {
+    this.onSearched = onSearched;
+  }
+
+  /**
+   * Searches the list once the user stops typing, see SearchIndex.search. A query without words clears the results
+   * right away.
+   *
+   * @param query the text typed by the user, null or blank to stop searching
+   */
+  public void setQuery(String query) {
+    this.query = query == null ? "" : query;
+
+    if (hasWords(this.query)) {
+      scheduleSearch(DEBOUNCE_MILLIS);
+    } else {
+      cancelPendingSearch();
+      applyResults("", null);
+    }
+  }
+
+  private void scheduleSearch(long delayMillis) {
+    cancelPendingSearch();
+
+    long generation = searchGeneration;
+    String searchQuery = query;
+    // NOTE: Every row matching the new query matched the old one, as each of its words starts with one of the old.
+    BitSet candidates = resultMatches != null && searchQuery.toLowerCase().startsWith(resultQuery.toLowerCase())
+      ? resultMatches
+      : null;
+
+    pendingSearch = SEARCHER.schedule(() -> {
+      BitSet matches = searchIndex.search(searchQuery, candidates);
+
+      Platform.runLater(() -> {
+        if (generation == searchGeneration) {
+          applyResults(searchQuery, matches);
+        }
+      });
+    }, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void cancelPendingSearch() {
+    searchGeneration++;
+
+    if (pendingSearch != null) {
+      pendingSearch.cancel(false);
+      pendingSearch = null;
+    }
+  }
+
+  private void applyResults(String searchQuery, BitSet matches) {
+    pendingSearch = null;
+    resultQuery = searchQuery;
+    resultMatches = matches;
+
+    if (matches == null) {
+      resultList.clear();
+    } else {
+      List<T> rows = new ArrayList<>(matches.cardinality());
+
+      for (int i = matches.nextSetBit(0); i >= 0 && i < sourceList.size(); i = matches.nextSetBit(i + 1)) {
+        T row = sourceList.get(i);
+        if (row != null) {
+          rows.add(row);
+        }
+      }
+
+      resultList.setAll(rows);
+    }
+
+    onSearched.run();
+  }
+
+  private void onSourceChanged(ListChangeListener.Change<? extends T> change) {
+    List<Runnable> indexingList = new ArrayList<>();
+    boolean isIndexCurrent = true;
+
+    while (isIndexCurrent && change.next()) {
+      int from = change.getFrom();
+      List<T> rows = new ArrayList<>(sourceList.subList(from, change.getTo()));
+
+      if (change.wasUpdated() || change.wasReplaced() && change.getRemovedSize() == change.getAddedSize()) {
+        indexingList.add(() -> {
+          for (int i = 0; i < rows.size(); i++) {
+            searchIndex.set(from + i, rows.get(i));
+          }
+        });
+      } else if (!change.wasPermutated() && !change.wasRemoved() && from == indexedSize) {
+        indexedSize += rows.size();
+        indexingList.add(() -> rows.forEach(searchIndex::add));
+      } else {
+        // NOTE: Rows were moved, inserted or removed before the end, the positions of the rows after them changed.
+        isIndexCurrent = false;
+      }
+    }
+
+    if (isIndexCurrent) {
+      indexingList.forEach(SEARCHER::execute);
+    } else {
+      resetIndex();
+    }
+
+    // NOTE: The results shown no longer narrow the search, and the list may change many times in a row (e.g. while
+    // rows are reloaded), so it is searched again from scratch once the changes stop.
+    resultMatches = null;
+    if (hasWords(query)) {
+      scheduleSearch(pendingSearch == null ? 0 : DEBOUNCE_MILLIS);
+    }
+  }
+
+  private void resetIndex() {
+    List<T> rows = new ArrayList<>(sourceList);
+
+    // NOTE: Searches run on the same thread after the indexing queued before them, so they see every indexed row.
+    indexedSize = rows.size();
+    SEARCHER.execute(() -> searchIndex.reset(rows));
+  }
+
+  private static boolean hasWords(String query) {
+    for (int i = 0; i < query.length(); i++) {
+      if (Character.isLetterOrDigit(query.charAt(i))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
@@ -0,0 +1,361 @@
+package ninco.gui;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import ninco.business.dao.AsyncDAO;
+import ninco.business.dao.Page;
+import ninco.business.dao.PageRequest;
+import ninco.business.dao.PageSortKey;
+import ninco.business.dao.PageSource;
+
+/**
+ * PagedObservableList is a read-only ObservableList that fetches its rows from a PageSource one page at a time.
+ * The list only grows when a page is requested (usually because the last loaded rows became visible in a table),
+ * and only the most recently used pages are kept in memory. Every page is fetched in the background through
+ * AsyncDAO and applied on the JavaFX Application Thread, so the table never waits for the database. The rows of an
+ * evicted page read as null (an empty row in a table) until the page is fetched again with its original request,
+ * so a row may reflect changes made after the first fetch.
+ * This list must only be used from the JavaFX Application Thread.
+ *
+ * @param <T> the type of the rows
+ */
+public class PagedObservableList<T> extends ObservableListBase<T> {
+  public static final int DEFAULT_PAGE_SIZE = 100;
+  public static final int DEFAULT_CACHED_PAGES = 20;
+  private final PageSource<T> pageSource;
+  private final PageRequest defaultPageRequest;
+  private final Map<Integer, List<T>> cachedPages;
+  private final List<PageRequest> pageRequestList = new ArrayList<>();
+  private final Set<Integer> fetchingPageIndexes = new HashSet<>();
+  private PageRequest firstPageRequest;
+  private PageRequest nextPageRequest;
+  private CompletableFuture<Boolean> pendingNextPage;
+  // NOTE: Bumped by every reset, pages fetched for an older generation belong to rows no longer in the list.
+  private long generation;
+  private int size;
+  private Consumer<Throwable> onLoadFailed = e -> { };
+
+  public PagedObservableList(PageSource<T> pageSource, PageRequest defaultPageRequest) {
+    this(pageSource, defaultPageRequest, DEFAULT_CACHED_PAGES);
+  }
+
+  /**
+   * @param pageSource         the source of the pages, usually a DAO.
+   * @param defaultPageRequest the first page to load when no other ordering has been requested.
+   * @param maxCachedPages     how many pages are kept in memory at most.
+   */
+  public PagedObservableList(PageSource<T> pageSource, PageRequest defaultPageRequest, int maxCachedPages) {
+    if (maxCachedPages < 1) {
+      throw new IllegalArgumentException("At least one page must be cached: " + maxCachedPages);
+    }
+
+    this.pageSource = pageSource;
+    this.defaultPageRequest = defaultPageRequest;
+    this.firstPageRequest = defaultPageRequest;
+    this.cachedPages = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+        return size() > maxCachedPages;
+      }
+    };
+  }
+
+  /**
+   * Gets a row, or null if its page was evicted, the page is then fetched in the background and the rows are
+   * reported as updated once it arrives.
+   */
+  @Override
+  public T get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+
+    int pageSize = firstPageRequest.getPageSize();
+    int pageIndex = index / pageSize;
+    List<T> items = cachedPages.get(pageIndex);
+
+    if (items == null) {
+      fetchEvictedPage(pageIndex);
+      return null;
+    }
+
+    int offset = index % pageSize;
+
+    // NOTE: A page fetched again may have lost rows since it was first loaded, those rows are shown empty.
+    return offset < items.size() ? items.get(offset) : null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  public PageRequest getDefaultPageRequest() {
+    return defaultPageRequest;
+  }
+
+  public boolean isSortedBy(PageSortKey sortKey, boolean descending) {
+    return firstPageRequest.getSortKey() == sortKey && firstPageRequest.isDescending() == descending;
+  }
+
+  /**
+   * @param onLoadFailed what to do on the JavaFX Application Thread when a page fetched by prefetchAround could not
+   *                     be fetched, e.g. showing the error
+   */
+  public void setOnLoadFailed(Consumer<Throwable> onLoadFailed) {
+    this.onLoadFailed = onLoadFailed;
+  }
+
+  /**
+   * Gets how close to the last loaded row a visible row must be to fetch the following page in advance.
+   *
+   * @return the prefetch distance in rows
+   */
+  public int getPrefetchDistance() {
+    return firstPageRequest.getPageSize() / 2;
+  }
+
+  /**
+   * Fetches the following page in the background if the given visible row is within the prefetch distance of the
+   * last loaded row. A page that could not be fetched is reported once to the load failed handler.
+   *
+   * @param visibleIndex the index of a row that is being displayed
+   */
+  public void prefetchAround(int visibleIndex) {
+    if (visibleIndex < size - getPrefetchDistance() || pendingNextPage != null) {
+      return;
+    }
+
+    loadNextPageAsync().whenComplete((isLoaded, e) -> {
+      if (e != null && !(e instanceof CancellationException)) {
+        onLoadFailed.accept(e);
+      }
+    });
+  }
+
+  /**
+   * Fetches the following page in the background and appends its rows to the list.
+   *
+   * @return a future completed on the JavaFX Application Thread with false if there was no page left to fetch,
+   * exceptionally with the error of the page, or cancelled if the list is reset meanwhile
+   */
+  public CompletableFuture<Boolean> loadNextPageAsync() {
+    if (pendingNextPage != null) {
+      return pendingNextPage;
+    }
+
+    if (nextPageRequest == null) {
+      return CompletableFuture.completedFuture(false);
+    }
+
+    long loadGeneration = generation;
+    PageRequest pageRequest = nextPageRequest;
+    CompletableFuture<Boolean> load = new CompletableFuture<>();
+    pendingNextPage = load;
+
+    AsyncDAO.getInstance().supply(() -> pageSource.getPage(pageRequest)).whenComplete((page, e) ->
+      Platform.runLater(() -> {
+        if (loadGeneration != generation) {
+          return;
+        }
+
+        pendingNextPage = null;
+        if (e != null) {
+          load.completeExceptionally(e);
+          return;
+        }
+
+        int from = size;
+        appendPage(page);
+        fireAdd(from);
+        load.complete(true);
+      })
+    );
+
+    return load;
+  }
+
+  /**
+   * Discards every loaded row and fetches the first page again with the current ordering, see resetAsync.
+   *
+   * @return a future completed on the JavaFX Application Thread once the first page replaced the rows
+   */
+  public CompletableFuture<Void> refreshAsync() {
+    return resetAsync(firstPageRequest);
+  }
+
+  /**
+   * Fetches the first page of the given request in the background and then replaces every loaded row with it,
+   * the list is left untouched until then, or for good if the page could not be fetched. Pages still being fetched
+   * for the previous rows are discarded.
+   *
+   * @param pageRequest the request of the first page, with the ordering to use from now on
+   * @return a future completed on the JavaFX Application Thread once the first page replaced the rows,
+   * exceptionally with the error of the page, or cancelled if the list is reset again meanwhile
+   */
+  public CompletableFuture<Void> resetAsync(PageRequest pageRequest) {
+    if (pageRequest.getAfterCursor() != null) {
+      throw new IllegalArgumentException("A paged list can only be reset to a first page request.");
+    }
+
+    long resetGeneration = ++generation;
+    CompletableFuture<Void> reset = new CompletableFuture<>();
+
+    fetchingPageIndexes.clear();
+    if (pendingNextPage != null) {
+      pendingNextPage.cancel(false);
+      pendingNextPage = null;
+    }
+
+    AsyncDAO.getInstance().supply(() -> pageSource.getPage(pageRequest)).whenComplete((page, e) ->
+      Platform.runLater(() -> {
+        if (resetGeneration != generation) {
+          reset.cancel(false);
+          return;
+        }
+
+        if (e != null) {
+          reset.completeExceptionally(e);
+          return;
+        }
+
+        // NOTE: Pages requested while the first page was being fetched followed the previous rows.
+        generation++;
+        fetchingPageIndexes.clear();
+        if (pendingNextPage != null) {
+          pendingNextPage.cancel(false);
+          pendingNextPage = null;
+        }
+        applyFirstPage(page);
+        reset.complete(null);
+      })
+    );
+
+    return reset;
+  }
+
+  /**
+   * Walks every page with the current ordering in the background, without caching them, and keeps the rows accepted
+   * by a filter, e.g. to search the whole list while only a few pages are held in memory.
+   *
+   * @param filter  the rows to keep, tested on a background thread
+   * @param maxRows the most rows to keep, the walk stops once they are found
+   * @return a future completed on the JavaFX Application Thread with the rows kept in the order of the list,
+   * or exceptionally with the error of a page. Cancelling it stops the walk after the page being fetched.
+   */
+  public CompletableFuture<List<T>> filterAllAsync(Predicate<? super T> filter, int maxRows) {
+    PageRequest startPageRequest = firstPageRequest;
+    CompletableFuture<List<T>> result = new CompletableFuture<>();
+
+    AsyncDAO.getInstance().supply(() -> {
+      List<T> rowList = new ArrayList<>();
+      PageRequest pageRequest = startPageRequest;
+
+      while (pageRequest != null && rowList.size() < maxRows && !result.isDone()) {
+        Page<T> page = pageSource.getPage(pageRequest);
+
+        for (T row : page.getItems()) {
+          if (rowList.size() < maxRows && filter.test(row)) {
+            rowList.add(row);
+          }
+        }
+
+        pageRequest = page.hasNext() ? page.getNextPageRequest() : null;
+      }
+
+      return rowList;
+    }).whenComplete((rowList, e) -> Platform.runLater(() -> {
+      if (e != null) {
+        result.completeExceptionally(e);
+      } else {
+        result.complete(rowList);
+      }
+    }));
+
+    return result;
+  }
+
+  private void fetchEvictedPage(int pageIndex) {
+    if (!fetchingPageIndexes.add(pageIndex)) {
+      return;
+    }
+
+    long fetchGeneration = generation;
+    PageRequest pageRequest = pageRequestList.get(pageIndex);
+
+    AsyncDAO.getInstance().supply(() -> pageSource.getPage(pageRequest)).whenComplete((page, e) ->
+      Platform.runLater(() -> {
+        if (fetchGeneration != generation) {
+          return;
+        }
+
+        fetchingPageIndexes.remove(pageIndex);
+        // NOTE: Already logged by the DAO, the rows stay empty and the page is fetched again on the next access.
+        if (e == null) {
+          cachedPages.put(pageIndex, page.getItems());
+          fireUpdate(pageIndex);
+        }
+      })
+    );
+  }
+
+  private void applyFirstPage(Page<T> page) {
+    int removedSize = size;
+
+    firstPageRequest = page.getRequest();
+    pageRequestList.clear();
+    cachedPages.clear();
+    size = 0;
+    appendPage(page);
+
+    beginChange();
+    if (removedSize > 0) {
+      nextRemove(0, Collections.nCopies(removedSize, (T) null));
+    }
+    if (size > 0) {
+      nextAdd(0, size);
+    }
+    endChange();
+  }
+
+  private void appendPage(Page<T> page) {
+    int pageIndex = pageRequestList.size();
+
+    pageRequestList.add(page.getRequest());
+    cachedPages.put(pageIndex, page.getItems());
+    size += page.getItems().size();
+    nextPageRequest = page.hasNext() ? page.getNextPageRequest() : null;
+  }
+
+  private void fireAdd(int from) {
+    if (size > from) {
+      beginChange();
+      nextAdd(from, size);
+      endChange();
+    }
+  }
+
+  private void fireUpdate(int pageIndex) {
+    int pageSize = firstPageRequest.getPageSize();
+    int to = Math.min((pageIndex + 1) * pageSize, size);
+
+    beginChange();
+    for (int i = pageIndex * pageSize; i < to; i++) {
+      nextUpdate(i);
+    }
+    endChange();
+  }
+}
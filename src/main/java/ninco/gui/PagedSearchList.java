@@ -0,0 +1,207 @@
+package ninco.gui;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import ninco.business.SearchIndex;
+import ninco.business.dto.Searchable;
+
+/**
+ * PagedSearchList searches every row of a PagedObservableList, not only the pages it holds, while keeping only the
+ * matching rows in memory. Searches run once the user stops typing for a moment: the pages are walked in the
+ * background in the order of the list and their rows matched as SearchIndex matches them, a query that extends the
+ * one of the results shown (e.g. "mar" after "ma") only filters those results, and the results of a search that was
+ * overtaken by a newer query are discarded.
+ * At most MAX_RESULTS rows are kept, the first ones in the order of the list.
+ * While the query has no words there is nothing to filter and the results are left empty, the list itself should be
+ * displayed instead.
+ * This list must only be used from the JavaFX Application Thread.
+ *
+ * @param <T> the type of the rows
+ */
+public class PagedSearchList<T extends Searchable> {
+  public static final int MAX_RESULTS = 1000;
+  private static final long DEBOUNCE_MILLIS = 150;
+  private static final ScheduledExecutorService SEARCHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "paged-search");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final PagedObservableList<T> pagedList;
+  private final ObservableList<T> resultList = FXCollections.observableArrayList();
+  private final ObservableList<T> readOnlyResultList = FXCollections.unmodifiableObservableList(resultList);
+  private String query = "";
+  private String resultQuery = "";
+  private boolean isResultComplete;
+  private ScheduledFuture<?> pendingSearch;
+  private CompletableFuture<List<T>> pendingWalk;
+  private long searchGeneration;
+  private Runnable onSearched = () -> { };
+  private Consumer<Throwable> onSearchFailed = e -> { };
+
+  /**
+   * @param pagedList the list to search, e.g. the rows of a table
+   */
+  public PagedSearchList(PagedObservableList<T> pagedList) {
+    this.pagedList = pagedList;
+  }
+
+  /**
+   * @return the rows matching the query of the last finished search in the order of the list, changes are made
+   * through the query
+   */
+  public ObservableList<T> getResultList() {
+    return readOnlyResultList;
+  }
+
+  /**
+   * @return whether the result list holds the rows of a query with words, rather than being left empty
+   */
+  public boolean isSearching() {
+    return hasWords(resultQuery);
+  }
+
+  /**
+   * @param onSearched what to do on the JavaFX Application Thread every time the result list is replaced, e.g.
+   *                   displaying it or the list itself depending on isSearching
+   */
+  public void setOnSearched(Runnable onSearched) {
+    this.onSearched = onSearched;
+  }
+
+  /**
+   * @param onSearchFailed what to do on the JavaFX Application Thread when the pages could not be walked, the
+   *                       results shown are left as they are
+   */
+  public void setOnSearchFailed(Consumer<Throwable> onSearchFailed) {
+    this.onSearchFailed = onSearchFailed;
+  }
+
+  /**
+   * Searches the list once the user stops typing. A query without words clears the results right away.
+   *
+   * @param query the text typed by the user, null or blank to stop searching
+   */
+  public void setQuery(String query) {
+    this.query = query == null ? "" : query;
+
+    if (hasWords(this.query)) {
+      scheduleSearch(DEBOUNCE_MILLIS);
+    } else {
+      cancelPendingSearch();
+      applyResults("", new ArrayList<>(), false);
+    }
+  }
+
+  /**
+   * Searches every page again right away, e.g. after the list was reset with another ordering.
+   */
+  public void searchAgain() {
+    isResultComplete = false;
+
+    if (hasWords(query)) {
+      scheduleSearch(0);
+    }
+  }
+
+  private void scheduleSearch(long delayMillis) {
+    cancelPendingSearch();
+
+    long generation = searchGeneration;
+    String searchQuery = query;
+    Predicate<Searchable> matcher = SearchIndex.createMatcher(searchQuery);
+    // NOTE: Every row matching the new query matched the old one, as each of its words starts with one of the old.
+    List<T> candidates = isResultComplete && searchQuery.toLowerCase().startsWith(resultQuery.toLowerCase())
+      ? new ArrayList<>(resultList)
+      : null;
+
+    pendingSearch = SEARCHER.schedule(() -> {
+      if (candidates == null) {
+        Platform.runLater(() -> {
+          if (generation == searchGeneration) {
+            walkPages(generation, searchQuery, matcher);
+          }
+        });
+        return;
+      }
+
+      List<T> matches = new ArrayList<>();
+      candidates.forEach(it -> {
+        if (matcher.test(it)) {
+          matches.add(it);
+        }
+      });
+
+      Platform.runLater(() -> {
+        if (generation == searchGeneration) {
+          applyResults(searchQuery, matches, true);
+        }
+      });
+    }, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void walkPages(long generation, String searchQuery, Predicate<Searchable> matcher) {
+    pendingSearch = null;
+    pendingWalk = pagedList.filterAllAsync(matcher, MAX_RESULTS + 1);
+    pendingWalk.whenComplete((rowList, e) -> {
+      if (generation != searchGeneration) {
+        return;
+      }
+
+      pendingWalk = null;
+      if (e != null) {
+        onSearchFailed.accept(e);
+        return;
+      }
+
+      boolean isComplete = rowList.size() <= MAX_RESULTS;
+      applyResults(searchQuery, isComplete ? rowList : new ArrayList<>(rowList.subList(0, MAX_RESULTS)), isComplete);
+    });
+  }
+
+  private void cancelPendingSearch() {
+    searchGeneration++;
+
+    if (pendingSearch != null) {
+      pendingSearch.cancel(false);
+      pendingSearch = null;
+    }
+
+    if (pendingWalk != null) {
+      pendingWalk.cancel(false);
+      pendingWalk = null;
+    }
+  }
+
+  /**
+   * @param isComplete whether the rows are every match of the query, so a query extending it may only filter them
+   */
+  private void applyResults(String searchQuery, List<T> rowList, boolean isComplete) {
+    pendingSearch = null;
+    resultQuery = searchQuery;
+    isResultComplete = isComplete;
+    resultList.setAll(rowList);
+    onSearched.run();
+  }
+
+  private static boolean hasWords(String query) {
+    for (int i = 0; i < query.length(); i++) {
+      if (Character.isLetterOrDigit(query.charAt(i))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
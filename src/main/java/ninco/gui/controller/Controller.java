@@ -1,30 +1,47 @@
 package ninco.gui.controller;
 
 import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Cursor;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import ninco.App;
 import ninco.business.AuthClient;
+import ninco.business.dao.AsyncDAO;
+import ninco.business.dao.PageRequest;
+import ninco.business.dao.PageSortKey;
 import ninco.business.dto.Searchable;
 import ninco.common.ExceptionHandler;
+import ninco.common.UserDisplayableException;
 import ninco.gui.AlertFacade;
+import ninco.gui.IndexedSearchList;
+import ninco.gui.PagedObservableList;
+import ninco.gui.PagedSearchList;
 
 /*
  * Abstract base class for all controllers in the application.
@@ -37,28 +54,230 @@ public abstract class Controller {
   private static final String VIEW_ROOT_PATH = "/";
   @FXML
   protected Node container;
+  private final List<CompletableFuture<?>> pendingCallList = new ArrayList<>();
 
   protected Stage getScene() {
     return (Stage) container.getScene().getWindow();
   }
 
+  /**
+   * Runs a DAO call in the background through AsyncDAO and hands its result to onSuccess on the JavaFX Application
+   * Thread, errors are shown in an alert. See loadAsync(AsyncDAO.Call, Consumer, Consumer).
+   *
+   * @param call      the DAO call to run.
+   * @param onSuccess what to do with the result on the JavaFX Application Thread.
+   * @return the future of the call, it may be cancelled.
+   */
+  protected <T> CompletableFuture<T> loadAsync(AsyncDAO.Call<T> call, Consumer<? super T> onSuccess) {
+    return loadAsync(call, onSuccess, AlertFacade::showErrorAndWait);
+  }
+
+  /**
+   * Runs a DAO call in the background through AsyncDAO and hands its outcome back to the JavaFX Application Thread.
+   * The loading placeholder is shown while any call of this controller is running (see showLoading), and the calls
+   * that have not finished when the user navigates away from or closes the page are cancelled.
+   * This method must be called from the JavaFX Application Thread.
+   *
+   * @param call      the DAO call to run.
+   * @param onSuccess what to do with the result on the JavaFX Application Thread.
+   * @param onFailure what to do with the error on the JavaFX Application Thread, unexpected errors are logged
+   *                  and handed over as UserDisplayableException.
+   * @return the future of the call, it may be cancelled.
+   */
+  protected <T> CompletableFuture<T> loadAsync(
+    AsyncDAO.Call<T> call,
+    Consumer<? super T> onSuccess,
+    Consumer<UserDisplayableException> onFailure
+  ) {
+    CompletableFuture<T> future = AsyncDAO.getInstance().supply(call);
+
+    if (pendingCallList.isEmpty()) {
+      showLoading(true);
+    }
+    pendingCallList.add(future);
+
+    future.whenComplete((result, e) -> Platform.runLater(() -> {
+      if (!pendingCallList.remove(future)) {
+        return;
+      }
+
+      if (pendingCallList.isEmpty()) {
+        showLoading(false);
+      }
+
+      if (future.isCancelled()) {
+        return;
+      }
+
+      if (e == null) {
+        onSuccess.accept(result);
+      } else if (e instanceof UserDisplayableException) {
+        onFailure.accept((UserDisplayableException) e);
+      } else {
+        onFailure.accept(ExceptionHandler.handleUnexpectedException(CONTROLLER_LOGGER, e, "Error al cargar la información."));
+      }
+    }));
+
+    return future;
+  }
+
+  /**
+   * Cancels the calls started with loadAsync that have not finished, their outcome is discarded.
+   */
+  protected void cancelPendingCalls() {
+    if (pendingCallList.isEmpty()) {
+      return;
+    }
+
+    List<CompletableFuture<?>> cancelledCallList = new ArrayList<>(pendingCallList);
+    pendingCallList.clear();
+    cancelledCallList.forEach(it -> it.cancel(false));
+    showLoading(false);
+  }
+
+  /**
+   * Loading placeholder hook, called when the first call started with loadAsync begins and when the last one ends.
+   * By default it shows the wait cursor, pages override it to show a placeholder in place of the data being loaded
+   * (e.g. with useLoadingPlaceholder) or to disable the controls that must wait for the call.
+   *
+   * @param isLoading whether a call is running.
+   */
+  protected void showLoading(boolean isLoading) {
+    if (container != null && container.getScene() != null) {
+      container.getScene().setCursor(isLoading ? Cursor.WAIT : Cursor.DEFAULT);
+    }
+  }
+
+  /**
+   * Shows a progress indicator in an empty table while its rows are being loaded.
+   *
+   * @param table     the table being loaded.
+   * @param isLoading whether its rows are being loaded.
+   */
+  public static void useLoadingPlaceholder(TableView<?> table, boolean isLoading) {
+    table.setPlaceholder(isLoading ? new ProgressIndicator() : null);
+  }
+
+  /**
+   * Configures a search field to filter a table through an IndexedSearchList of its rows, a row is shown when every
+   * word typed is the start of one of the words of its searchable text. The rows are filtered in the background
+   * once the user stops typing, the table keeps showing the previous results until then.
+   *
+   * @param fieldSearch              the search field that filters the table.
+   * @param searchableObservableList the rows of the table.
+   * @param tableSearchable          the table to configure.
+   */
   public static <T extends Searchable> void useConfigureSearch(
     TextField fieldSearch,
     ObservableList<T> searchableObservableList,
     TableView<T> tableSearchable
   ) {
-    FilteredList<T> filteredSearchableList = new FilteredList<>(
-      searchableObservableList, it -> true
+    IndexedSearchList<T> indexedSearchList = new IndexedSearchList<>(searchableObservableList);
+    SortedList<T> sortedSearchableList = new SortedList<>(searchableObservableList);
+    SortedList<T> sortedResultList = new SortedList<>(indexedSearchList.getResultList());
+    sortedSearchableList.comparatorProperty().bind(tableSearchable.comparatorProperty());
+    sortedResultList.comparatorProperty().bind(tableSearchable.comparatorProperty());
+
+    indexedSearchList.setOnSearched(() ->
+      tableSearchable.setItems(indexedSearchList.isSearching() ? sortedResultList : sortedSearchableList)
     );
-    fieldSearch.textProperty().addListener(
-      (observable, oldValue, newValue) -> filteredSearchableList.setPredicate(it ->
-        newValue == null || newValue.isEmpty() || it.getSearchableText().contains(newValue.toLowerCase())
-      ));
-    SortedList<T> sortedSearchableList = new SortedList<>(
-      filteredSearchableList
+    fieldSearch.textProperty().addListener((observable, oldValue, newValue) -> indexedSearchList.setQuery(newValue));
+    indexedSearchList.setQuery(fieldSearch.getText());
+  }
+
+  /**
+   * Configures a table to display a PagedObservableList. Rows are fetched in the background as they are scrolled into
+   * view, sorting a column fetches the rows again in the order of its sort key (columns without one are not sortable),
+   * and searching walks every page in the background through a PagedSearchList, the table keeps showing what it
+   * showed until then. Searches run again whenever the list is reset, e.g. when it is sorted or refreshed.
+   *
+   * @param fieldSearch         the search field that filters the table.
+   * @param pagedObservableList the paged list to display, it is loaded right away.
+   * @param tablePaged          the table to configure.
+   * @param sortKeyByColumn     the sort key to fetch the rows with when each sortable column is sorted.
+   */
+  public static <T extends Searchable> void useConfigurePagedTable(
+    TextField fieldSearch,
+    PagedObservableList<T> pagedObservableList,
+    TableView<T> tablePaged,
+    Map<TableColumn<T, ?>, PageSortKey> sortKeyByColumn
+  ) {
+    PagedSearchList<T> pagedSearchList = new PagedSearchList<>(pagedObservableList);
+    pagedSearchList.setOnSearched(() ->
+      tablePaged.setItems(pagedSearchList.isSearching() ? pagedSearchList.getResultList() : pagedObservableList)
     );
-    sortedSearchableList.comparatorProperty().bind(tableSearchable.comparatorProperty());
-    tableSearchable.setItems(sortedSearchableList);
+    pagedSearchList.setOnSearchFailed(Controller::showLoadFailure);
+    fieldSearch.textProperty().addListener((observable, oldValue, newValue) -> pagedSearchList.setQuery(newValue));
+
+    pagedObservableList.setOnLoadFailed(Controller::showLoadFailure);
+    pagedObservableList.addListener((ListChangeListener<T>) change -> {
+      while (change.next()) {
+        // NOTE: Only a reset replaces the rows from the start, appended pages are added after the last row.
+        if ((change.wasAdded() || change.wasRemoved()) && change.getFrom() == 0) {
+          pagedSearchList.searchAgain();
+          return;
+        }
+      }
+    });
+
+    tablePaged.getColumns().forEach(it -> it.setSortable(sortKeyByColumn.containsKey(it)));
+    tablePaged.setSortPolicy(table -> {
+      PageRequest pageRequest = pagedObservableList.getDefaultPageRequest();
+
+      if (!table.getSortOrder().isEmpty()) {
+        TableColumn<T, ?> column = table.getSortOrder().get(0);
+        int pageSize = pageRequest.getPageSize();
+        pageRequest = column.getSortType() == TableColumn.SortType.DESCENDING
+          ? PageRequest.firstPageDescending(sortKeyByColumn.get(column), pageSize)
+          : PageRequest.firstPage(sortKeyByColumn.get(column), pageSize);
+      }
+
+      if (!pagedObservableList.isSortedBy(pageRequest.getSortKey(), pageRequest.isDescending())) {
+        pagedObservableList.resetAsync(pageRequest).exceptionally(e -> {
+          showLoadFailure(e);
+          return null;
+        });
+      }
+
+      return true;
+    });
+    tablePaged.setRowFactory(table -> {
+      TableRow<T> row = new TableRow<>();
+      row.indexProperty().addListener((observable, oldValue, newValue) -> {
+        if (newValue.intValue() >= table.getItems().size() - pagedObservableList.getPrefetchDistance()) {
+          // NOTE: The list must not change while the table is being laid out.
+          Platform.runLater(() -> pagedObservableList.prefetchAround(newValue.intValue()));
+        }
+      });
+      return row;
+    });
+
+    useLoadingPlaceholder(tablePaged, true);
+    pagedObservableList.refreshAsync().whenComplete((result, e) -> {
+      useLoadingPlaceholder(tablePaged, false);
+
+      if (e != null) {
+        showLoadFailure(e);
+      }
+    });
+
+    tablePaged.setItems(pagedObservableList);
+  }
+
+  /**
+   * Shows why rows loaded in the background could not be loaded, loads cancelled because they were superseded are
+   * ignored.
+   *
+   * @param e the error the load completed with.
+   */
+  protected static void showLoadFailure(Throwable e) {
+    if (e instanceof UserDisplayableException) {
+      AlertFacade.showErrorAndWait((UserDisplayableException) e);
+    } else if (!(e instanceof CancellationException)) {
+      AlertFacade.showErrorAndWait(
+        ExceptionHandler.handleUnexpectedException(CONTROLLER_LOGGER, e, "Error al cargar la información.")
+      );
+    }
   }
 
   /**
@@ -82,6 +301,7 @@ public abstract class Controller {
    * @param resourceFileName the FXML file name of the target page (without extension).
    */
   protected void navigateFromThisPageTo(String pageName, String resourceFileName) {
+    cancelPendingCalls();
     navigateTo(getScene(), pageName, resourceFileName);
   }
 
@@ -113,6 +333,7 @@ public abstract class Controller {
    * Closes the current window.
    */
   protected void close() {
+    cancelPendingCalls();
     Platform.runLater(() -> getScene().close());
   }
 
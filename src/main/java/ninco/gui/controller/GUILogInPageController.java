@@ -6,10 +6,13 @@ import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 
 import ninco.business.AuthClient;
+import ninco.business.ProductCatalog;
+import ninco.business.StockShardRebalancer;
 import ninco.business.dao.AccountDAO;
 import ninco.business.dao.EmployeeDAO;
 import ninco.business.dto.AccountDTO;
 import ninco.business.dto.EmployeeDTO;
+import ninco.business.enumeration.Role;
 import ninco.business.enumeration.State;
 import ninco.business.rules.ValidationResult;
 import ninco.business.rules.Validator;
@@ -55,38 +58,54 @@ public class GUILogInPageController extends Controller {
   }
 
   public void onClickLogIn() {
+    cleanErrorLabels();
+    if (isValidData()) {
+      String password = fieldPassword.getText();
+      String email = fieldEmail.getText();
+
+      loadAsync(() -> findEmployeeByCredentials(email, password), this::logIn);
+    }
+  }
+
+  /**
+   * Finds the employee with the given credentials, it runs off the JavaFX Application Thread since it queries
+   * the database and checks the password hash.
+   */
+  private EmployeeDTO findEmployeeByCredentials(String email, String password) throws UserDisplayableException {
     try {
-      cleanErrorLabels();
-      if (isValidData()) {
-        String password = fieldPassword.getText();
-        String email = fieldEmail.getText();
-        AccountDTO existingAccountDTO = AccountDAO.getInstance().findOne(email);
-
-        if (existingAccountDTO == null) {
-          AlertFacade.showErrorAndWait("Unable to log in. Invalid credentials.");
-          return;
-        }
-
-        if (existingAccountDTO.hasPasswordMatch(password)) {
-          EmployeeDTO employeeDTO = EmployeeDAO.getInstance().findOne(email);
-
-          if (employeeDTO == null) {
-            AlertFacade.showErrorAndWait("Unable to log in. Invalid credentials.");
-            return;
-          }
-
-          if (employeeDTO.getState() == State.INACTIVE) {
-            AlertFacade.showErrorAndWait("Unable to log in. Your access has been revoked.");
-          }
-
-          AuthClient.getInstance().setCurrentUser(employeeDTO);
-          navigateToLandingPage();
-        } else {
-          AlertFacade.showErrorAndWait("Unable to log in. Invalid credentials.");
-        }
+      AccountDTO existingAccountDTO = AccountDAO.getInstance().findOne(email);
+
+      if (existingAccountDTO == null || !existingAccountDTO.hasPasswordMatch(password)) {
+        return null;
       }
-    } catch (InvalidFieldException | UserDisplayableException e) {
-      AlertFacade.showErrorAndWait(e.getMessage());
+
+      return EmployeeDAO.getInstance().findOne(email);
+    } catch (InvalidFieldException e) {
+      throw new UserDisplayableException(e.getMessage(), e);
+    }
+  }
+
+  private void logIn(EmployeeDTO employeeDTO) {
+    if (employeeDTO == null) {
+      AlertFacade.showErrorAndWait("Unable to log in. Invalid credentials.");
+      return;
+    }
+
+    if (employeeDTO.getState() == State.INACTIVE) {
+      AlertFacade.showErrorAndWait("Unable to log in. Your access has been revoked.");
     }
+
+    AuthClient.getInstance().setCurrentUser(employeeDTO);
+    if (employeeDTO.getRole() == Role.CASHIER) {
+      ProductCatalog.getInstance().loadInBackground();
+      StockShardRebalancer.getInstance().start(employeeDTO.getIDStore());
+    }
+    navigateToLandingPage();
+  }
+
+  @Override
+  protected void showLoading(boolean isLoading) {
+    super.showLoading(isLoading);
+    container.setDisable(isLoading);
   }
 }
@@ -32,6 +32,10 @@ public class GUIRegisterProductModalController extends Controller implements Con
   private Label labelTagPrice;
   @FXML
   private TextField fieldPrice;
+  @FXML
+  private Label labelTagBarcodes;
+  @FXML
+  private TextField fieldBarcodes;
   private ProductDTO editProductDTO;
 
   @Override
@@ -57,7 +61,8 @@ public class GUIRegisterProductModalController extends Controller implements Con
     fieldName.setText(editProductDTO.getName());
     fieldDescription.setText(editProductDTO.getDescription());
     fieldBrand.setText(editProductDTO.getBrand());
-    fieldPrice.setText(String.valueOf(editProductDTO.getPrice()));
+    fieldPrice.setText(editProductDTO.getPrice());
+    fieldBarcodes.setText(String.join(", ", editProductDTO.getBarcodes()));
   }
 
   private void cleanErrorLabels() {
@@ -65,6 +70,7 @@ public class GUIRegisterProductModalController extends Controller implements Con
     labelTagDescription.setText("");
     labelTagBrand.setText("");
     labelTagPrice.setText("");
+    labelTagBarcodes.setText("");
   }
 
   private boolean isValidData() {
@@ -94,6 +100,12 @@ public class GUIRegisterProductModalController extends Controller implements Con
       isValid = false;
     }
 
+    result = Validator.getIsValidBarcodesResult(fieldBarcodes.getText(), "Barcodes");
+    if (result.isInvalid()) {
+      labelTagBarcodes.setText(result.getMessage());
+      isValid = false;
+    }
+
     return isValid;
   }
 
@@ -102,7 +114,8 @@ public class GUIRegisterProductModalController extends Controller implements Con
       fieldName.getText(),
       fieldDescription.getText(),
       fieldBrand.getText(),
-      fieldPrice.getText()
+      fieldPrice.getText(),
+      fieldBarcodes.getText()
     );
   }
 
@@ -13,8 +13,6 @@ import ninco.business.dao.EmployeeDAO;
 import ninco.business.dto.EmployeeDTO;
 import ninco.business.enumeration.Role;
 import ninco.business.enumeration.State;
-import ninco.common.UserDisplayableException;
-import ninco.gui.AlertFacade;
 import ninco.gui.modal.ModalFacade;
 import ninco.gui.modal.ModalFacadeConfiguration;
 
@@ -58,14 +56,18 @@ public class GUIReviewEmployeeListPageController extends Controller {
   }
 
   public void setTableItems() {
-    try {
-      ObservableList<EmployeeDTO> employeeDTOObservableList = FXCollections.observableList(EmployeeDAO.getInstance().getAll());
+    loadAsync(EmployeeDAO.getInstance()::getAll, employeeDTOList -> {
+      ObservableList<EmployeeDTO> employeeDTOObservableList = FXCollections.observableList(employeeDTOList);
 
       tableEmployee.setItems(employeeDTOObservableList);
       configureSearch(employeeDTOObservableList);
-    } catch (UserDisplayableException e) {
-      AlertFacade.showErrorAndWait(e);
-    }
+    });
+  }
+
+  @Override
+  protected void showLoading(boolean isLoading) {
+    super.showLoading(isLoading);
+    useLoadingPlaceholder(tableEmployee, isLoading);
   }
 
   public void onClickRegisterEmployee() {
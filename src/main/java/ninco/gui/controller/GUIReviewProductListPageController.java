@@ -1,7 +1,5 @@
 package ninco.gui.controller;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
@@ -9,10 +7,12 @@ import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 
+import java.util.Map;
+
+import ninco.business.dao.PageRequest;
 import ninco.business.dao.ProductDAO;
 import ninco.business.dto.ProductDTO;
-import ninco.common.UserDisplayableException;
-import ninco.gui.AlertFacade;
+import ninco.gui.PagedObservableList;
 import ninco.gui.modal.ModalFacade;
 import ninco.gui.modal.ModalFacadeConfiguration;
 
@@ -35,10 +35,11 @@ public class GUIReviewProductListPageController extends Controller {
   private TableColumn<ProductDTO, String> columnFormattedCreatedAt;
   @FXML
   private TextField fieldSearch;
+  private PagedObservableList<ProductDTO> productDTOPagedList;
 
   public void initialize() {
     configureTableColumns();
-    setTableItems();
+    configurePagedTable();
   }
 
   public void configureTableColumns() {
@@ -50,19 +51,29 @@ public class GUIReviewProductListPageController extends Controller {
     columnFormattedCreatedAt.setCellValueFactory(new PropertyValueFactory<>("formattedCreatedAt"));
   }
 
-  private void configureSearch(ObservableList<ProductDTO> productDTOObservableList) {
-    useConfigureSearch(fieldSearch, productDTOObservableList, tableProduct);
+  private void configurePagedTable() {
+    productDTOPagedList = new PagedObservableList<>(
+      ProductDAO.getInstance(),
+      PageRequest.firstPage(ProductDAO.SORT_BY_NAME, PagedObservableList.DEFAULT_PAGE_SIZE)
+    );
+
+    useConfigurePagedTable(
+      fieldSearch,
+      productDTOPagedList,
+      tableProduct,
+      Map.of(
+        columnProductID, ProductDAO.SORT_BY_ID,
+        columnName, ProductDAO.SORT_BY_NAME,
+        columnFormattedCreatedAt, ProductDAO.SORT_BY_CREATED_AT
+      )
+    );
   }
 
   public void setTableItems() {
-    try {
-      ObservableList<ProductDTO> productDTOObservableList = FXCollections.observableList(ProductDAO.getInstance().getAll());
-
-      tableProduct.setItems(productDTOObservableList);
-      configureSearch(productDTOObservableList);
-    } catch (UserDisplayableException e) {
-      AlertFacade.showErrorAndWait(e);
-    }
+    productDTOPagedList.refreshAsync().exceptionally(e -> {
+      showLoadFailure(e);
+      return null;
+    });
   }
 
   public void onClickRegisterProduct() {
@@ -1,7 +1,5 @@
 package ninco.gui.controller;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.TableColumn;
@@ -10,15 +8,17 @@ import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 
+import java.util.Map;
+
 import ninco.business.AuthClient;
+import ninco.business.dao.PageRequest;
+import ninco.business.dao.PageSortKey;
+import ninco.business.dao.PageSource;
 import ninco.business.dao.StockDAO;
-import ninco.business.dao.StoreDAO;
 import ninco.business.dto.EmployeeDTO;
 import ninco.business.dto.StockDTO;
-import ninco.business.dto.StoreDTO;
 import ninco.business.enumeration.Role;
-import ninco.common.UserDisplayableException;
-import ninco.gui.AlertFacade;
+import ninco.gui.PagedObservableList;
 
 public class GUIReviewStockListPageController extends Controller {
   @FXML
@@ -57,30 +57,29 @@ public class GUIReviewStockListPageController extends Controller {
     columnFormattedCreatedAt.setCellValueFactory(new PropertyValueFactory<>("formattedCreatedAt"));
   }
 
-  private void configureSearch(ObservableList<StockDTO> stockDTOObservableList) {
-    useConfigureSearch(fieldSearch, stockDTOObservableList, tableStock);
-  }
-
   private void setTableItems() {
     EmployeeDTO currentUserDTO = AuthClient.getInstance().getCurrentUser();
-    try {
-      ObservableList<StockDTO> stockDTOObservableList;
+    PageSource<StockDTO> stockPageSource;
+    PageSortKey sortKey;
 
-      if (currentUserDTO.getRole() == Role.CASHIER) {
-        StoreDTO storeDTO = StoreDAO.getInstance().getOne(currentUserDTO.getIDStore());
-        stockDTOObservableList = FXCollections.observableList(StockDAO.getInstance().getAllByStore(storeDTO));
-      } else {
-        stockDTOObservableList = FXCollections.observableList(StockDAO.getInstance().getAll());
-      }
-
-      tableStock.setItems(stockDTOObservableList);
-
-      configureSearch(stockDTOObservableList);
-    } catch (UserDisplayableException e) {
-      AlertFacade.showErrorAndWait(
-        "No ha sido posible recuperar información debido a un error en la base de datos, intente de nuevo más tarde."
-      );
+    if (currentUserDTO.getRole() == Role.CASHIER) {
+      stockPageSource = pageRequest -> StockDAO.getInstance().getPageByStore(currentUserDTO.getIDStore(), pageRequest);
+      sortKey = StockDAO.SORT_BY_STORE;
+    } else {
+      stockPageSource = StockDAO.getInstance();
+      sortKey = StockDAO.SORT_BY_ID;
     }
+
+    useConfigurePagedTable(
+      fieldSearch,
+      new PagedObservableList<>(
+        stockPageSource,
+        PageRequest.firstPage(sortKey, PagedObservableList.DEFAULT_PAGE_SIZE)
+      ),
+      tableStock,
+      // NOTE: No index orders the stock by product or store name, so its columns are not sortable.
+      Map.of()
+    );
   }
 
   public static void navigateToStockListPage(Stage currentStage) {
@@ -11,8 +11,6 @@ import javafx.stage.Stage;
 
 import ninco.business.dao.StoreDAO;
 import ninco.business.dto.StoreDTO;
-import ninco.common.UserDisplayableException;
-import ninco.gui.AlertFacade;
 import ninco.gui.modal.ModalFacade;
 import ninco.gui.modal.ModalFacadeConfiguration;
 
@@ -50,14 +48,18 @@ public class GUIReviewStoreListPageController extends Controller {
   }
 
   public void setTableItems() {
-    try {
-      ObservableList<StoreDTO> storeDTOObservableList = FXCollections.observableList(StoreDAO.getInstance().getAll());
+    loadAsync(StoreDAO.getInstance()::getAll, storeDTOList -> {
+      ObservableList<StoreDTO> storeDTOObservableList = FXCollections.observableList(storeDTOList);
 
       tableStore.setItems(storeDTOObservableList);
       configureSearch(storeDTOObservableList);
-    } catch (UserDisplayableException e) {
-      AlertFacade.showErrorAndWait(e);
-    }
+    });
+  }
+
+  @Override
+  protected void showLoading(boolean isLoading) {
+    super.showLoading(isLoading);
+    useLoadingPlaceholder(tableStore, isLoading);
   }
 
 
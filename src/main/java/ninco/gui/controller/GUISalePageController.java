@@ -1,24 +1,36 @@
 package ninco.gui.controller;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import ninco.business.AuthClient;
+import ninco.business.Cart;
+import ninco.business.CartReservation;
+import ninco.business.CheckoutJournal;
+import ninco.business.CheckoutPipeline;
+import ninco.business.ProductLookup;
+import ninco.business.StoreStock;
+import ninco.business.dao.AsyncDAO;
 import ninco.business.dao.InvoiceDAO;
-import ninco.business.dao.ProductDAO;
 import ninco.business.dao.StockDAO;
 import ninco.business.dto.CartItemDTO;
 import ninco.business.dto.EmployeeDTO;
+import ninco.business.dto.PendingInvoiceDTO;
 import ninco.business.dto.ProductDTO;
+import ninco.business.dto.StockShortfallDTO;
+import ninco.common.ExceptionHandler;
+import ninco.common.InsufficientStockException;
+import ninco.common.Money;
 import ninco.common.ReceiptGenerator;
 import ninco.common.UserDisplayableException;
 import ninco.gui.AlertFacade;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public class GUISalePageController extends Controller implements ContextController<String> {
+  private static final int LOOKUP_LIMIT = 10;
 
   @FXML
   private Label labelClientName;
@@ -31,21 +43,48 @@ public class GUISalePageController extends Controller implements ContextControll
   @FXML
   private TableColumn<CartItemDTO, String> colName;
   @FXML
-  private TableColumn<CartItemDTO, Float> colPrice;
+  private TableColumn<CartItemDTO, String> colPrice;
   @FXML
   private TableColumn<CartItemDTO, Integer> colQuantity;
   @FXML
-  private TableColumn<CartItemDTO, Float> colSubtotal;
+  private TableColumn<CartItemDTO, String> colSubtotal;
 
   private String clientName;
-  private ObservableList<CartItemDTO> cartItems;
-  private final ProductDAO productDAO = ProductDAO.getInstance();
+  private final Cart cart = new Cart();
+  private final ProductLookup productLookup = ProductLookup.getInstance();
   private final StockDAO stockDAO = StockDAO.getInstance();
+  private StoreStock storeStock;
+  private CartReservation cartReservation;
 
   public void initialize() {
-    cartItems = FXCollections.observableArrayList();
     configureTable();
-    updateTotal();
+    showTotal(cart.getTotalCents());
+    cart.totalCentsProperty().addListener((observable, previousTotal, total) -> showTotal(total.longValue()));
+    cartReservation = new CartReservation(AuthClient.getInstance().getCurrentUser().getIDStore());
+    cartReservation.startRefreshing();
+    loadStoreStock();
+  }
+
+  private void loadStoreStock() {
+    int storeId = cartReservation.getIDStore();
+    String cartId = cartReservation.getCartID();
+
+    loadAsync(
+      () -> StoreStock.load(storeId, cartId),
+      loadedStoreStock -> {
+        storeStock = loadedStoreStock;
+        storeStock.startReconciling();
+      },
+      e -> {
+        // NOTE: Already logged by the DAO, the stock is queried for every product instead.
+      }
+    );
+  }
+
+  @Override
+  protected void showLoading(boolean isLoading) {
+    super.showLoading(isLoading);
+    container.setDisable(isLoading);
   }
 
   @Override
@@ -61,7 +100,7 @@ public class GUISalePageController extends Controller implements ContextControll
     colQuantity.setCellValueFactory(new PropertyValueFactory<>("quantity"));
     colPrice.setCellValueFactory(new PropertyValueFactory<>("price"));
     colSubtotal.setCellValueFactory(new PropertyValueFactory<>("subtotal"));
-    tableCart.setItems(cartItems);
+    tableCart.setItems(cart.getItems());
   }
 
   public void onClickAddProduct() {
@@ -71,84 +110,177 @@ public class GUISalePageController extends Controller implements ContextControll
       return;
     }
 
-    try {
-      ProductDTO product = productDAO.searchByNameOrCode(query);
-      if (product == null) {
-        AlertFacade.showWarningAndWait("Product not found.");
-        return;
-      }
+    Optional<List<ProductDTO>> productList = productLookup.lookupInMemory(query, LOOKUP_LIMIT);
+    if (productList.isPresent()) {
+      pickProduct(query, productList.get());
+    } else {
+      loadAsync(() -> productLookup.lookup(query, LOOKUP_LIMIT), it -> pickProduct(query, it));
+    }
+  }
 
-      int storeId = AuthClient.getInstance().getCurrentUser().getIDStore();
-      int currentStock = stockDAO.getCurrentStockByProduct(storeId, product.getIDProduct());
+  /**
+   * Adds the only product found, or lets the cashier pick one of the products found, best match first.
+   */
+  private void pickProduct(String query, List<ProductDTO> productList) {
+    if (productList.isEmpty()) {
+      AlertFacade.showWarningAndWait("Product not found.");
+      return;
+    }
+
+    if (productList.size() == 1) {
+      addProduct(productList.get(0));
+      return;
+    }
+
+    List<String> choiceList = new ArrayList<>(productList.size());
+    for (ProductDTO product : productList) {
+      choiceList.add(String.format("%d - %s ($%s)", product.getIDProduct(), product.getName(), product.getPrice()));
+    }
+
+    ChoiceDialog<String> dialog = new ChoiceDialog<>(choiceList.get(0), choiceList);
+    dialog.setTitle("Select Product");
+    dialog.setHeaderText("Products matching: " + query);
+    dialog.setContentText("Product:");
+
+    dialog.showAndWait().ifPresent(choice -> addProduct(productList.get(choiceList.indexOf(choice))));
+  }
+
+  private void addProduct(ProductDTO product) {
+    if (storeStock != null) {
+      promptQuantity(product, storeStock.getAvailable(product.getIDProduct()));
+      return;
+    }
 
-      if (currentStock <= 0) {
-        AlertFacade.showWarningAndWait("Out of stock.");
+    int storeId = cartReservation.getIDStore();
+    String cartId = cartReservation.getCartID();
+    loadAsync(
+      () -> stockDAO.getCurrentStockByProduct(storeId, product.getIDProduct(), cartId),
+      // NOTE: The holds of this cart are not subtracted, the quantity already in it is, as StoreStock does.
+      currentStock -> promptQuantity(
+        product,
+        currentStock - cart.find(product.getIDProduct()).map(CartItemDTO::getQuantity).orElse(0)
+      )
+    );
+  }
+
+  private void promptQuantity(ProductDTO product, int currentStock) {
+    if (currentStock <= 0) {
+      AlertFacade.showWarningAndWait("Out of stock.");
+      return;
+    }
+
+    TextInputDialog dialog = new TextInputDialog("1");
+    dialog.setTitle("Quantity");
+    dialog.setHeaderText("Add: " + product.getName());
+    dialog.setContentText("Available: " + currentStock + ". Enter quantity:");
+
+    Optional<String> result = dialog.showAndWait();
+    if (result.isPresent()) {
+      try {
+        int qty = Integer.parseInt(result.get());
+        if (qty <= 0) {
+          AlertFacade.showWarningAndWait("Quantity must be positive.");
+          return;
+        }
+        if (qty > currentStock) {
+          AlertFacade.showWarningAndWait("Not enough stock. Available: " + currentStock);
+          return;
+        }
+        holdAndAddItemToCart(product, qty);
+      } catch (NumberFormatException e) {
+        AlertFacade.showWarningAndWait("Invalid number.");
+      }
+    }
+  }
+
+  private void holdAndAddItemToCart(ProductDTO product, int qty) {
+    loadAsync(() -> cartReservation.hold(product.getIDProduct(), qty), isHeld -> {
+      if (!isHeld) {
+        reconcileStoreStockInBackground();
+        AlertFacade.showWarningAndWait("Not enough stock, another sale is holding the remaining units.");
         return;
       }
 
-      TextInputDialog dialog = new TextInputDialog("1");
-      dialog.setTitle("Quantity");
-      dialog.setHeaderText("Add: " + product.getName());
-      dialog.setContentText("Available: " + currentStock + ". Enter quantity:");
-
-      Optional<String> result = dialog.showAndWait();
-      if (result.isPresent()) {
-        try {
-          int qty = Integer.parseInt(result.get());
-          if (qty <= 0) {
-            AlertFacade.showWarningAndWait("Quantity must be positive.");
-            return;
-          }
-          if (qty > currentStock) {
-            AlertFacade.showWarningAndWait("Not enough stock. Available: " + currentStock);
-            return;
-          }
-          addItemToCart(product, qty);
-        } catch (NumberFormatException e) {
-          AlertFacade.showWarningAndWait("Invalid number.");
-        }
+      // NOTE: The database decides whether the units are available, the local stock is stale if it disagrees.
+      if (storeStock != null && !storeStock.holdGranted(product.getIDProduct(), qty)) {
+        reconcileStoreStockInBackground();
       }
 
-    } catch (Exception e) {
-      AlertFacade.showErrorAndWait("Error adding product: " + e.getMessage());
-    }
+      addItemToCart(product, qty);
+    });
   }
 
   private void addItemToCart(ProductDTO product, int qty) {
-    Optional<CartItemDTO> existing = cartItems.stream()
-      .filter(i -> i.getProduct().getIDProduct() == product.getIDProduct())
-      .findFirst();
-
-    if (existing.isPresent()) {
-      CartItemDTO item = existing.get();
-      item.setQuantity(item.getQuantity() + qty);
-      tableCart.refresh();
-    } else {
-      cartItems.add(new CartItemDTO(product, qty));
-    }
-    updateTotal();
+    cart.add(product, qty);
     fieldSearchProduct.clear();
   }
 
   public void onClickRemoveItem() {
     CartItemDTO selected = tableCart.getSelectionModel().getSelectedItem();
     if (selected != null) {
-      cartItems.remove(selected);
-      updateTotal();
+      removeItemFromCart(selected);
     } else {
       AlertFacade.showWarningAndWait("Select an item to remove.");
     }
   }
 
-  private void updateTotal() {
-    double total = cartItems.stream().mapToDouble(CartItemDTO::getSubtotal).sum();
+  public void onClickUndoLastScan() {
+    Optional<Cart.Scan> undone = cart.undoLastScan();
+    if (!undone.isPresent()) {
+      AlertFacade.showWarningAndWait("Nothing to undo.");
+      return;
+    }
+
+    Cart.Scan scan = undone.get();
+    if (storeStock != null) {
+      storeStock.release(scan.getIDProduct(), scan.getQuantity());
+    }
+    if (scan.isLineRemoved()) {
+      releaseReservationInBackground(scan.getIDProduct());
+    } else {
+      releaseReservationInBackground(scan.getIDProduct(), scan.getQuantity());
+    }
+  }
+
+  private void removeItemFromCart(CartItemDTO item) {
+    int productId = item.getProduct().getIDProduct();
+
+    cart.remove(item);
+    if (storeStock != null) {
+      storeStock.release(productId, item.getQuantity());
+    }
+    releaseReservationInBackground(productId);
+  }
+
+  private void releaseReservationInBackground(int productId) {
+    AsyncDAO.getInstance().supply(() -> {
+      cartReservation.release(productId);
+      return null;
+    });
+  }
+
+  private void releaseReservationInBackground(int productId, int quantity) {
+    AsyncDAO.getInstance().supply(() -> {
+      cartReservation.release(productId, quantity);
+      return null;
+    });
+  }
+
+  private void showTotal(long totalCents) {
     if (labelTotal != null) {
-      labelTotal.setText(String.format("Total: $%.2f", total));
+      labelTotal.setText("Total: $" + Money.format(totalCents));
     }
   }
 
   public void onClickCancel() {
     if (AlertFacade.showConfirmationAndWait("Cancel sale? Data will be lost.")) {
+      stopReconcilingStoreStock();
+      cartReservation.stopRefreshing();
+      // NOTE: Not tied to this page, the holds must be released even though the page is left right away.
+      AsyncDAO.getInstance().supply(() -> {
+        cartReservation.releaseAll();
+        return null;
+      });
       try {
         navigateFromThisPageTo("Cashier Dashboard", "GUILandingCashierPage");
       } catch (Exception e) {
@@ -158,35 +290,140 @@ public class GUISalePageController extends Controller implements ContextControll
   }
 
   public void onClickCheckout() {
-    if (cartItems.isEmpty()) {
+    if (cart.isEmpty()) {
       AlertFacade.showWarningAndWait("Cart is empty.");
       return;
     }
 
     if (AlertFacade.showConfirmationAndWait("Confirm Sale?")) {
-      try {
-        EmployeeDTO user = AuthClient.getInstance().getCurrentUser();
-        InvoiceDAO.getInstance().createInvoiceTransaction(
-          user.getIDStore(),
-          user.getID(),
-          clientName,
-          cartItems
-        );
+      EmployeeDTO user = AuthClient.getInstance().getCurrentUser();
+      List<CartItemDTO> soldItems = new ArrayList<>(cart.getItems());
+      StoreStock soldStoreStock = storeStock;
+      // NOTE: The same sale, with the same key, is journaled if the outcome of the checkout is unknown.
+      PendingInvoiceDTO sale = new PendingInvoiceDTO(
+        user.getIDStore(),
+        user.getID(),
+        clientName,
+        InvoiceDAO.createCartPayload(soldItems),
+        cartReservation.getCartID()
+      );
 
-        double total = cartItems.stream().mapToDouble(CartItemDTO::getSubtotal).sum();
-        String filePath = ReceiptGenerator.generateReceipt(clientName, cartItems, total);
+      loadAsync(
+        () -> {
+          try {
+            CheckoutPipeline.getInstance().checkout(sale);
+            return false;
+          } catch (UserDisplayableException e) {
+            if (ExceptionHandler.isConnectionFailure(e)) {
+              CheckoutJournal.getInstance().record(sale);
+              return true;
+            }
 
-        AlertFacade.showSuccessAndWait("Sale completed! Receipt saved at:\n" + filePath);
+            reconcileStoreStock(soldStoreStock);
+            throw e;
+          }
+        },
+        this::completeSale,
+        e -> {
+          if (e instanceof InsufficientStockException && !((InsufficientStockException) e).getShortfallList().isEmpty()) {
+            adjustShortItems(((InsufficientStockException) e).getShortfallList());
+          } else {
+            AlertFacade.showErrorAndWait(e);
+          }
+        }
+      );
+    }
+  }
 
-        AlertFacade.showSuccessAndWait("Sale completed!");
-        navigateFromThisPageTo("Cashier Dashboard", "GUILandingCashierPage");
+  /**
+   * Shows which items the store could not cover at checkout and, if the cashier agrees, lowers just those items
+   * to the available stock (removing the ones out of stock) so the sale can be retried with the same cart.
+   */
+  private void adjustShortItems(List<StockShortfallDTO> shortfallList) {
+    StringBuilder message = new StringBuilder("Not enough stock for:\n");
+    for (StockShortfallDTO shortfall : shortfallList) {
+      cart.find(shortfall.getIDProduct()).ifPresent(item -> message.append(String.format(
+        "- %s: %d requested, %d available.%n", item.getName(), shortfall.getRequested(), shortfall.getAvailable()
+      )));
+    }
+    message.append("Adjust these items to the available stock?");
 
-      } catch (UserDisplayableException e) {
-        AlertFacade.showErrorAndWait(e.getMessage());
-      } catch (Exception e) {
-        AlertFacade.showErrorAndWait("Unexpected error: " + e.getMessage());
-        e.printStackTrace();
+    if (!AlertFacade.showConfirmationAndWait(message.toString())) {
+      return;
+    }
+
+    for (StockShortfallDTO shortfall : shortfallList) {
+      cart.find(shortfall.getIDProduct()).ifPresent(item -> {
+        if (shortfall.getAvailable() <= 0) {
+          removeItemFromCart(item);
+          return;
+        }
+
+        int releasedQuantity = item.getQuantity() - shortfall.getAvailable();
+        if (storeStock != null) {
+          storeStock.release(shortfall.getIDProduct(), releasedQuantity);
+        }
+        cart.setQuantity(item, shortfall.getAvailable());
+        releaseReservationInBackground(shortfall.getIDProduct(), releasedQuantity);
+      });
+    }
+  }
+
+  /**
+   * @param isSavedOffline whether the database was unreachable and the sale was kept in the CheckoutJournal
+   */
+  private void completeSale(boolean isSavedOffline) {
+    if (storeStock != null) {
+      storeStock.commitHeld();
+    }
+    stopReconcilingStoreStock();
+    cartReservation.stopRefreshing();
+
+    try {
+      String filePath = ReceiptGenerator.generateReceipt(clientName, cart.getItems(), cart.getTotalCents());
+
+      AlertFacade.showSuccessAndWait("Sale completed! Receipt saved at:\n" + filePath);
+      if (isSavedOffline) {
+        AlertFacade.showWarningAndWait(
+          "The database is unreachable, the sale was saved on this register and will be registered once the connection is restored."
+        );
       }
+
+      AlertFacade.showSuccessAndWait("Sale completed!");
+      navigateFromThisPageTo("Cashier Dashboard", "GUILandingCashierPage");
+
+    } catch (UserDisplayableException e) {
+      AlertFacade.showErrorAndWait(e.getMessage());
+    } catch (Exception e) {
+      AlertFacade.showErrorAndWait("Unexpected error: " + e.getMessage());
+      e.printStackTrace();
+    }
+  }
+
+  private void reconcileStoreStockInBackground() {
+    StoreStock reconciledStoreStock = storeStock;
+
+    AsyncDAO.getInstance().supply(() -> {
+      reconcileStoreStock(reconciledStoreStock);
+      return null;
+    });
+  }
+
+  private static void reconcileStoreStock(StoreStock storeStock) {
+    if (storeStock == null) {
+      return;
+    }
+
+    try {
+      storeStock.reconcile();
+    } catch (UserDisplayableException e) {
+      // NOTE: Already logged by the DAO, the previous stock is kept until the next reconciliation.
+    }
+  }
+
+  private void stopReconcilingStoreStock() {
+    if (storeStock != null) {
+      storeStock.stopReconciling();
     }
   }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package ninco.gui.controller;
 
 import ninco.business.AuthClient;
+import ninco.business.ProductCatalog;
+import ninco.business.StockShardRebalancer;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
@@ -19,6 +21,8 @@ public abstract class LandingController extends Controller {
 
   public void onClickLogOut() {
     AuthClient.getInstance().setCurrentUser(null);
+    ProductCatalog.getInstance().unload();
+    StockShardRebalancer.getInstance().stop();
     navigateFromThisPageTo("Página de Inicio", "GUILoginPage");
   }
 }
@@ -0,0 +1,99 @@
+package benchmark;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import ninco.business.Cart;
+import ninco.business.dto.CartItemDTO;
+import ninco.business.dto.ProductDTO;
+
+/**
+ * Measures how long scanning 1,000 products into a cart takes with the list the sale page kept before (the line of
+ * the product found by streaming the cart, the total summed again after every scan) and with Cart (the line found
+ * through its index by product, the total adjusted by the change of the line).
+ * Every product is scanned twice, so half the scans add a line and half raise the quantity of one.
+ * It is not a unit test, run it with: java -cp <test and main classpath> benchmark.CartScanBenchmark [scans]
+ */
+public class CartScanBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int CARTS_PER_ROUND = 20;
+
+    public static void main(String[] args) {
+        int scanCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+
+        ProductDTO[] products = new ProductDTO[(scanCount + 1) / 2];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = ProductDTO.fromTrustedRow(
+                i + 1, "Product " + i, "Description", "Brand", 1999 + i, 10, LocalDateTime.now()
+            );
+        }
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            double listMillis = measure(() -> scanIntoList(products, scanCount));
+            double cartMillis = measure(() -> scanIntoCart(products, scanCount));
+
+            System.out.printf(
+                "round %d: %,d scans, list %.3f ms, indexed cart %.3f ms (x%.2f)%n",
+                round,
+                scanCount,
+                listMillis,
+                cartMillis,
+                listMillis / cartMillis
+            );
+        }
+    }
+
+    private static long scanIntoList(ProductDTO[] products, int scanCount) {
+        ObservableList<CartItemDTO> cartItems = FXCollections.observableArrayList();
+        long totalCents = 0;
+
+        for (int i = 0; i < scanCount; i++) {
+            ProductDTO product = products[i % products.length];
+            Optional<CartItemDTO> existing = cartItems.stream()
+                .filter(it -> it.getProduct().getIDProduct() == product.getIDProduct())
+                .findFirst();
+
+            if (existing.isPresent()) {
+                existing.get().setQuantity(existing.get().getQuantity() + 1);
+            } else {
+                cartItems.add(new CartItemDTO(product, 1));
+            }
+            totalCents = CartItemDTO.getTotalCents(cartItems);
+        }
+
+        return totalCents;
+    }
+
+    private static long scanIntoCart(ProductDTO[] products, int scanCount) {
+        Cart cart = new Cart();
+
+        for (int i = 0; i < scanCount; i++) {
+            cart.add(products[i % products.length], 1);
+        }
+
+        return cart.getTotalCents();
+    }
+
+    private static double measure(CartFiller filler) {
+        long checksum = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < CARTS_PER_ROUND; i++) {
+            checksum += filler.fill();
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        if (checksum <= 0) {
+            throw new IllegalStateException("Unexpected checksum: " + checksum);
+        }
+
+        return elapsed / 1e6 / CARTS_PER_ROUND;
+    }
+
+    private interface CartFiller {
+        long fill();
+    }
+}
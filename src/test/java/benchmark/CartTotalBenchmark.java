@@ -0,0 +1,108 @@
+package benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.property.SimpleFloatProperty;
+import ninco.business.dto.CartItemDTO;
+import ninco.business.dto.ProductDTO;
+import ninco.common.Money;
+
+/**
+ * Measures how many carts per second get their total computed and formatted for the total label of the sale page
+ * with the float subtotals the cart used to keep (summed through a DoubleStream, formatted with String.format) and
+ * with the cents of CartItemDTO (CartItemDTO.getTotalCents, formatted with Money.format).
+ * It also prints how far the float total drifts from the exact one for the same cart.
+ * It is not a unit test, run it with: java -cp <test and main classpath> benchmark.CartTotalBenchmark [lines]
+ */
+public class CartTotalBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int CARTS_PER_ROUND = 200_000;
+
+    /**
+     * FloatCartLine is a cart line as the cart kept it before, a float unit price and subtotal.
+     */
+    private static class FloatCartLine {
+        private final SimpleFloatProperty subtotal;
+
+        private FloatCartLine(float price, int quantity) {
+            this.subtotal = new SimpleFloatProperty(price * quantity);
+        }
+
+        private float getSubtotal() {
+            return subtotal.get();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        List<FloatCartLine> floatCart = new ArrayList<>(lineCount);
+        List<CartItemDTO> centsCart = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            // NOTE: Prices such as 19.99 and 0.10 have no exact float, which is where the drift comes from.
+            long priceCents = 1999 + i * 10L;
+            int quantity = 1 + i % 3;
+            floatCart.add(new FloatCartLine(priceCents / 100f, quantity));
+            centsCart.add(new CartItemDTO(
+                ProductDTO.fromTrustedRow(i + 1, "Product " + i, "Description", "Brand", priceCents, 10, LocalDateTime.now()),
+                quantity
+            ));
+        }
+
+        System.out.printf(
+            "%d lines: float total %s, cents total %s%n",
+            lineCount,
+            formatFloatTotal(floatCart),
+            formatCentsTotal(centsCart)
+        );
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            double floatCartsPerSecond = measure(() -> formatFloatTotal(floatCart));
+            double centsCartsPerSecond = measure(() -> formatCentsTotal(centsCart));
+
+            System.out.printf(
+                "round %d: float %,.0f carts/s, cents %,.0f carts/s (x%.2f)%n",
+                round,
+                floatCartsPerSecond,
+                centsCartsPerSecond,
+                centsCartsPerSecond / floatCartsPerSecond
+            );
+        }
+
+        double exactTotal = CartItemDTO.getTotalCents(centsCart) / 100.0;
+        double floatTotal = floatCart.stream().mapToDouble(FloatCartLine::getSubtotal).sum();
+        System.out.printf("float drift: %.8f%n", floatTotal - exactTotal);
+    }
+
+    private static String formatFloatTotal(List<FloatCartLine> cart) {
+        double total = cart.stream().mapToDouble(FloatCartLine::getSubtotal).sum();
+        return String.format("Total: $%.2f", total);
+    }
+
+    private static String formatCentsTotal(List<CartItemDTO> cart) {
+        return "Total: $" + Money.format(CartItemDTO.getTotalCents(cart));
+    }
+
+    private static double measure(TotalFormatter formatter) {
+        long checksum = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < CARTS_PER_ROUND; i++) {
+            checksum += formatter.format().length();
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        if (checksum == 0) {
+            throw new IllegalStateException("Unexpected checksum: " + checksum);
+        }
+
+        return CARTS_PER_ROUND / (elapsed / 1e9);
+    }
+
+    private interface TotalFormatter {
+        String format();
+    }
+}
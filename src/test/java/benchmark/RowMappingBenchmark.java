@@ -0,0 +1,136 @@
+package benchmark;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ninco.business.dao.StockDAO;
+import ninco.business.dto.StockDTO;
+
+/**
+ * Measures how many StockDTOs per second are hydrated from a ResultSet with label-based getters
+ * (the mapping DAOs used before) and with the index-based row mapper compiled by DAOShape.
+ * Both create the DTOs with StockDTO.fromTrustedRow, as StockDAO does, so validation does not hide the difference.
+ * The ResultSet is an in-memory fake that resolves labels like Connector/J, through a case-insensitive map,
+ * so the difference between both runs is the cost of the per-row label lookups.
+ * It is not a unit test, run it with: java -cp <test and main classpath> benchmark.RowMappingBenchmark [rows]
+ */
+public class RowMappingBenchmark {
+    private static final String[] STOCK_COLUMNS = {
+        "product_id", "store_id", "quantity", "product_name", "store_name", "price_cents", "created_at"
+    };
+    private static final Object[] STOCK_ROW = {
+        1, 1, 50, "Wireless Keyboard", "Downtown Store", 1050L, Timestamp.valueOf(LocalDateTime.now())
+    };
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            double labelRowsPerSecond = measure(rowCount, false);
+            double indexRowsPerSecond = measure(rowCount, true);
+
+            System.out.printf(
+                "round %d: label lookup %,.0f rows/s, compiled index mapper %,.0f rows/s (x%.2f)%n",
+                round,
+                labelRowsPerSecond,
+                indexRowsPerSecond,
+                indexRowsPerSecond / labelRowsPerSecond
+            );
+        }
+    }
+
+    private static double measure(int rowCount, boolean isIndexBased) throws Exception {
+        ResultSet resultSet = createResultSet(rowCount);
+        StockDAO stockDAO = StockDAO.getInstance();
+        long checksum = 0;
+        long start = System.nanoTime();
+
+        while (resultSet.next()) {
+            StockDTO stockDTO = isIndexBased
+                ? stockDAO.createDTOInstanceFromResultSet("RowMappingBenchmark", resultSet)
+                : mapByLabel(resultSet);
+            checksum += stockDTO.getQuantity();
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        if (checksum != (long) rowCount * (int) STOCK_ROW[2]) {
+            throw new IllegalStateException("Unexpected checksum: " + checksum);
+        }
+
+        return rowCount / (elapsed / 1e9);
+    }
+
+    private static StockDTO mapByLabel(ResultSet resultSet) throws Exception {
+        return StockDTO.fromTrustedRow(
+            resultSet.getInt("product_id"),
+            resultSet.getInt("store_id"),
+            resultSet.getString("product_name"),
+            resultSet.getString("store_name"),
+            resultSet.getInt("quantity"),
+            resultSet.getLong("price_cents"),
+            resultSet.getTimestamp("created_at").toLocalDateTime()
+        );
+    }
+
+    private static ResultSet createResultSet(int rowCount) {
+        Map<String, Integer> indexByLabel = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < STOCK_COLUMNS.length; i++) {
+            indexByLabel.put(STOCK_COLUMNS[i], i + 1);
+        }
+
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+            RowMappingBenchmark.class.getClassLoader(),
+            new Class<?>[] { ResultSetMetaData.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getColumnCount":
+                        return STOCK_COLUMNS.length;
+                    case "getColumnLabel":
+                        return STOCK_COLUMNS[(int) args[0] - 1];
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        );
+        int[] remainingRows = { rowCount };
+
+        return (ResultSet) Proxy.newProxyInstance(
+            RowMappingBenchmark.class.getClassLoader(),
+            new Class<?>[] { ResultSet.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "next":
+                        return remainingRows[0]-- > 0;
+                    case "getMetaData":
+                        return metaData;
+                    case "getInt":
+                    case "getString":
+                    case "getLong":
+                    case "getTimestamp":
+                        int index = args[0] instanceof String ? findColumn(indexByLabel, (String) args[0]) : (int) args[0];
+                        return STOCK_ROW[index - 1];
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        );
+    }
+
+    private static int findColumn(Map<String, Integer> indexByLabel, String label) throws SQLException {
+        Integer index = indexByLabel.get(label);
+
+        if (index == null) {
+            throw new SQLException("Column '" + label + "' not found.", "S0022");
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import ninco.business.SearchIndex;
+import ninco.business.dto.EmployeeDTO;
+import ninco.business.enumeration.Role;
+import ninco.business.enumeration.State;
+
+/**
+ * Measures how long filtering 50,000 employees takes for each keystroke of a search with the predicate the review
+ * pages used before (the searchable text of every row formatted and scanned), with SearchIndex (the postings of
+ * the words of the query intersected) and with SearchIndex narrowing the matches of the previous keystroke as
+ * IndexedSearchList does, and how long indexing the rows once takes.
+ * It is not a unit test, run it with: java -cp <test and main classpath> benchmark.SearchIndexBenchmark [rows]
+ */
+public class SearchIndexBenchmark {
+    private static final int ROUNDS = 5;
+    private static final String[] KEYSTROKES = { "m", "ma", "mar", "mari", "maria", "maria g", "maria go" };
+    private static final String[] NAMES = { "María", "Mario", "Ana", "Luis", "Jorge", "Lucía", "Pedro", "Sofía" };
+    private static final String[] LAST_NAMES = { "Gómez", "López", "Pérez", "Torres", "Ramírez", "Cruz", "Reyes" };
+
+    public static void main(String[] args) {
+        int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+
+        List<EmployeeDTO> employees = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            String name = NAMES[i % NAMES.length];
+            String lastName = LAST_NAMES[(i / NAMES.length) % LAST_NAMES.length];
+            employees.add(EmployeeDTO.fromTrustedRow(
+                i, i, i % 20, "Store " + i % 20, "employee" + i + "@ninco.com",
+                i % 10 == 0 ? Role.ADMIN : Role.CASHIER, State.ACTIVE, name, lastName + " " + i, LocalDateTime.now()
+            ));
+        }
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            SearchIndex<EmployeeDTO> searchIndex = new SearchIndex<>();
+            searchIndex.reset(employees);
+            double indexMillis = (System.nanoTime() - start) / 1e6;
+
+            long predicateMatches = 0;
+            start = System.nanoTime();
+            for (String keystroke : KEYSTROKES) {
+                for (EmployeeDTO employee : employees) {
+                    if (employee.getSearchableText().contains(keystroke)) {
+                        predicateMatches++;
+                    }
+                }
+            }
+            double predicateMillis = (System.nanoTime() - start) / 1e6 / KEYSTROKES.length;
+
+            long indexMatches = 0;
+            start = System.nanoTime();
+            for (String keystroke : KEYSTROKES) {
+                indexMatches += searchIndex.search(keystroke).cardinality();
+            }
+            double searchMillis = (System.nanoTime() - start) / 1e6 / KEYSTROKES.length;
+
+            long narrowedMatches = 0;
+            BitSet previousMatches = null;
+            start = System.nanoTime();
+            for (String keystroke : KEYSTROKES) {
+                previousMatches = searchIndex.search(keystroke, previousMatches);
+                narrowedMatches += previousMatches.cardinality();
+            }
+            double narrowMillis = (System.nanoTime() - start) / 1e6 / KEYSTROKES.length;
+
+            System.out.printf(
+                "round %d: %,d rows, indexed in %.1f ms, per keystroke predicate %.3f ms (%,d matches), "
+                    + "index %.3f ms (%,d matches), narrowing %.3f ms (%,d matches)%n",
+                round,
+                rowCount,
+                indexMillis,
+                predicateMillis,
+                predicateMatches,
+                searchMillis,
+                indexMatches,
+                narrowMillis,
+                narrowedMatches
+            );
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package business;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import ninco.business.Cart;
+import ninco.business.dto.CartItemDTO;
+import ninco.business.dto.ProductDTO;
+
+class CartTest {
+
+    @Test
+    void add_ShouldMergeScansOfSameProductAndKeepTotal() {
+        Cart cart = new Cart();
+        ProductDTO keyboard = createProduct(1, 1050);
+        ProductDTO mouse = createProduct(2, 300);
+
+        CartItemDTO first = cart.add(keyboard, 2);
+        cart.add(mouse, 1);
+        CartItemDTO merged = cart.add(keyboard, 1);
+
+        assertSame(first, merged);
+        assertEquals(2, cart.getItems().size());
+        assertEquals(3, merged.getQuantity());
+        assertEquals(3450, cart.getTotalCents());
+        assertEquals(CartItemDTO.getTotalCents(cart.getItems()), cart.getTotalCents());
+    }
+
+    @Test
+    void setQuantityAndRemove_ShouldAdjustTotal() {
+        Cart cart = new Cart();
+        CartItemDTO keyboard = cart.add(createProduct(1, 1050), 3);
+        CartItemDTO mouse = cart.add(createProduct(2, 300), 2);
+
+        cart.setQuantity(keyboard, 1);
+        assertEquals(1650, cart.getTotalCents());
+
+        cart.remove(mouse);
+        assertEquals(1050, cart.getTotalCents());
+        assertFalse(cart.find(2).isPresent());
+        assertEquals(1, cart.getItems().size());
+    }
+
+    @Test
+    void undoLastScan_ShouldTakeOffLastScanAndRemoveEmptyLine() {
+        Cart cart = new Cart();
+        cart.add(createProduct(1, 1050), 2);
+        cart.add(createProduct(2, 300), 1);
+        cart.add(createProduct(1, 1050), 3);
+
+        Cart.Scan lastScan = cart.undoLastScan().orElseThrow(AssertionError::new);
+        assertEquals(1, lastScan.getIDProduct());
+        assertEquals(3, lastScan.getQuantity());
+        assertFalse(lastScan.isLineRemoved());
+        assertEquals(2, cart.find(1).get().getQuantity());
+
+        Cart.Scan mouseScan = cart.undoLastScan().orElseThrow(AssertionError::new);
+        assertEquals(2, mouseScan.getIDProduct());
+        assertTrue(mouseScan.isLineRemoved());
+        assertEquals(2100, cart.getTotalCents());
+    }
+
+    @Test
+    void undoLastScan_ShouldSkipRemovedLinesAndClampToLoweredQuantity() {
+        Cart cart = new Cart();
+        CartItemDTO keyboard = cart.add(createProduct(1, 1050), 5);
+        CartItemDTO mouse = cart.add(createProduct(2, 300), 1);
+        cart.remove(mouse);
+        cart.setQuantity(keyboard, 2);
+
+        Cart.Scan scan = cart.undoLastScan().orElseThrow(AssertionError::new);
+
+        assertEquals(1, scan.getIDProduct());
+        assertEquals(2, scan.getQuantity());
+        assertTrue(scan.isLineRemoved());
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.getTotalCents());
+        assertFalse(cart.undoLastScan().isPresent());
+    }
+
+    private static ProductDTO createProduct(int id, long priceCents) {
+        return ProductDTO.fromTrustedRow(id, "Product " + id, "Description", "Brand", priceCents, 10, LocalDateTime.now());
+    }
+}
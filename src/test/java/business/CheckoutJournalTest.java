@@ -0,0 +1,157 @@
+package business;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import ninco.business.CheckoutJournal;
+import ninco.business.dao.InvoiceDAO;
+import ninco.business.dto.PendingInvoiceDTO;
+import ninco.common.InsufficientStockException;
+import ninco.common.UserDisplayableException;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutJournalTest {
+
+    private static final String CART_PAYLOAD = "[{\"p\":1,\"q\":2,\"u\":10.50}]";
+
+    @TempDir private Path directory;
+    @Mock private InvoiceDAO invoiceDAOMock;
+
+    @Test
+    void record_ShouldKeepSalesPendingAcrossRestarts() throws Exception {
+        Path file = directory.resolve("checkout.journal");
+        CheckoutJournal journal = new CheckoutJournal(file);
+
+        PendingInvoiceDTO first = journal.record(1, 7, "Client A", CART_PAYLOAD, "cart");
+        PendingInvoiceDTO second = journal.record(1, 7, "Client B", CART_PAYLOAD, null);
+
+        List<PendingInvoiceDTO> pendingList = new CheckoutJournal(file).getPendingList();
+
+        assertEquals(2, pendingList.size());
+        assertEquals(first.getKey(), pendingList.get(0).getKey());
+        assertEquals("Client A", pendingList.get(0).getClientName());
+        assertEquals(CART_PAYLOAD, pendingList.get(0).getCartPayload());
+        assertEquals("cart", pendingList.get(0).getCartID());
+        assertEquals(first.getCreatedAt(), pendingList.get(0).getCreatedAt());
+        assertEquals(second.getKey(), pendingList.get(1).getKey());
+        assertNull(pendingList.get(1).getCartID());
+    }
+
+    @Test
+    void getPendingList_WhenLastRecordIsTorn_ShouldDiscardItAndKeepAppending() throws Exception {
+        Path file = directory.resolve("checkout.journal");
+        new CheckoutJournal(file).record(1, 7, "Client A", CART_PAYLOAD, "cart");
+        Files.write(file, new byte[] { 0, 0, 0, 64, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        CheckoutJournal recoveredJournal = new CheckoutJournal(file);
+        assertEquals(1, recoveredJournal.getPendingList().size());
+        recoveredJournal.record(1, 7, "Client B", CART_PAYLOAD, "cart");
+
+        List<PendingInvoiceDTO> pendingList = new CheckoutJournal(file).getPendingList();
+        assertEquals(2, pendingList.size());
+        assertEquals("Client B", pendingList.get(1).getClientName());
+    }
+
+    @Test
+    void replayPending_WhenDatabaseIsStillUnreachable_ShouldKeepLaterSalesPending() throws Exception {
+        Path file = directory.resolve("checkout.journal");
+        CheckoutJournal journal = new CheckoutJournal(file);
+        journal.record(1, 7, "Client A", CART_PAYLOAD, "cart");
+        PendingInvoiceDTO second = journal.record(1, 7, "Client B", CART_PAYLOAD, "cart");
+        journal.record(1, 7, "Client C", CART_PAYLOAD, "cart");
+
+        try (MockedStatic<InvoiceDAO> mockedDAO = mockStatic(InvoiceDAO.class)) {
+            mockedDAO.when(InvoiceDAO::getInstance).thenReturn(invoiceDAOMock);
+            when(invoiceDAOMock.createInvoice(any())).thenAnswer(invocation -> {
+                PendingInvoiceDTO pendingInvoiceDTO = invocation.getArgument(0);
+                if (pendingInvoiceDTO.getKey().equals(second.getKey())) {
+                    throw new UserDisplayableException("Error de comunicación.", new SQLException("Communications link failure", "08S01"));
+                }
+                return 10;
+            });
+
+            assertEquals(1, journal.replayPending());
+            verify(invoiceDAOMock, never()).createInvoice(argThat(it -> it.getClientName().equals("Client C")));
+        }
+
+        List<PendingInvoiceDTO> pendingList = new CheckoutJournal(file).getPendingList();
+        assertEquals(2, pendingList.size());
+        assertEquals(second.getKey(), pendingList.get(0).getKey());
+    }
+
+    @Test
+    void replayPending_ShouldSendSaleWithKeyOfCheckout() throws Exception {
+        Path file = directory.resolve("checkout.journal");
+        PendingInvoiceDTO sale = new PendingInvoiceDTO(1, 7, "Client A", CART_PAYLOAD, "cart");
+        new CheckoutJournal(file).record(sale);
+
+        CheckoutJournal journal = new CheckoutJournal(file);
+        try (MockedStatic<InvoiceDAO> mockedDAO = mockStatic(InvoiceDAO.class)) {
+            mockedDAO.when(InvoiceDAO::getInstance).thenReturn(invoiceDAOMock);
+            when(invoiceDAOMock.createInvoice(argThat(it -> it.getKey().equals(sale.getKey())))).thenReturn(10);
+
+            assertEquals(1, journal.replayPending());
+        }
+
+        assertTrue(journal.getPendingList().isEmpty());
+    }
+
+    @Test
+    void replayPending_WhenStockIsShort_ShouldRejectSaleAndEmptyJournal() throws Exception {
+        Path file = directory.resolve("checkout.journal");
+        CheckoutJournal journal = new CheckoutJournal(file);
+        journal.record(1, 7, "Client A", CART_PAYLOAD, "cart");
+
+        try (MockedStatic<InvoiceDAO> mockedDAO = mockStatic(InvoiceDAO.class)) {
+            mockedDAO.when(InvoiceDAO::getInstance).thenReturn(invoiceDAOMock);
+            when(invoiceDAOMock.createInvoice(any())).thenThrow(new InsufficientStockException(List.of()));
+
+            assertEquals(1, journal.replayPending());
+        }
+
+        assertTrue(journal.getPendingList().isEmpty());
+        assertEquals(0, Files.size(file));
+    }
+
+    @Test
+    void replayPending_WhenSaleKeepsFailing_ShouldGiveItUpAndSaveLaterSales() throws Exception {
+        Path file = directory.resolve("checkout.journal");
+        CheckoutJournal journal = new CheckoutJournal(file);
+        PendingInvoiceDTO first = journal.record(1, 7, "Client A", CART_PAYLOAD, "cart");
+        journal.record(1, 7, "Client B", CART_PAYLOAD, "cart");
+
+        try (MockedStatic<InvoiceDAO> mockedDAO = mockStatic(InvoiceDAO.class)) {
+            mockedDAO.when(InvoiceDAO::getInstance).thenReturn(invoiceDAOMock);
+            when(invoiceDAOMock.createInvoice(any())).thenAnswer(invocation -> {
+                PendingInvoiceDTO pendingInvoiceDTO = invocation.getArgument(0);
+                if (pendingInvoiceDTO.getKey().equals(first.getKey())) {
+                    throw new UserDisplayableException("Error al procesar la venta.", new SQLException("Foreign key", "23000", 1452));
+                }
+                return 10;
+            });
+
+            for (int i = 0; i < 4; i++) {
+                assertEquals(0, journal.replayPending());
+            }
+            verify(invoiceDAOMock, never()).createInvoice(argThat(it -> it.getClientName().equals("Client B")));
+
+            assertEquals(2, journal.replayPending());
+        }
+
+        assertTrue(journal.getPendingList().isEmpty());
+        assertTrue(Files.readString(directory.resolve("checkout.journal.failed")).contains(first.getKey()));
+    }
+}
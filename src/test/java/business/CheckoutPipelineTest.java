@@ -0,0 +1,129 @@
+package business;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import ninco.business.CheckoutPipeline;
+import ninco.business.CheckoutPipelineConfiguration;
+import ninco.business.dao.InvoiceDAO;
+import ninco.business.dto.CheckoutOutcomeDTO;
+import ninco.business.dto.PendingInvoiceDTO;
+import ninco.common.InsufficientStockException;
+import ninco.common.UserDisplayableException;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutPipelineTest {
+
+    private static final String CART_PAYLOAD = "[{\"p\":1,\"q\":2,\"u\":10.50}]";
+
+    @Mock private InvoiceDAO invoiceDAOMock;
+
+    @Test
+    void checkout_WhenNothingElseIsWaiting_ShouldSaveSaleOnItsOwn() throws Exception {
+        CheckoutPipeline pipeline = new CheckoutPipeline(invoiceDAOMock, 8, 1000, 16);
+        PendingInvoiceDTO sale = createSale("Client A");
+        when(invoiceDAOMock.createInvoice(sale)).thenReturn(10);
+
+        assertEquals(10, pipeline.checkout(sale));
+        verify(invoiceDAOMock, never()).createInvoiceGroup(any());
+        pipeline.stop();
+    }
+
+    @Test
+    void fromProperties_ShouldReadPresentKeysAndDefaultTheRest() {
+        Properties properties = new Properties();
+        properties.setProperty("checkout.max-batch-size", "32");
+        properties.setProperty("checkout.max-linger-ms", "2");
+
+        CheckoutPipelineConfiguration configuration = CheckoutPipelineConfiguration.fromProperties(properties);
+
+        assertEquals(32, configuration.getMaxBatchSize());
+        assertEquals(2, configuration.getMaxLingerMillis());
+        assertEquals(CheckoutPipelineConfiguration.getDefault().getQueueCapacity(), configuration.getQueueCapacity());
+        properties.setProperty("checkout.queue-capacity", "0");
+        assertThrows(IllegalArgumentException.class, () -> CheckoutPipelineConfiguration.fromProperties(properties));
+    }
+
+    @Test
+    void submit_WhenSalesQueueUp_ShouldSaveThemInGroupsWithTheirOwnOutcome() throws Exception {
+        CheckoutPipeline pipeline = new CheckoutPipeline(invoiceDAOMock, 2, 1000, 16);
+        CountDownLatch isFirstSaleSaving = new CountDownLatch(1);
+        CountDownLatch canFirstSaleFinish = new CountDownLatch(1);
+        when(invoiceDAOMock.createInvoice(any())).thenAnswer(invocation -> {
+            isFirstSaleSaving.countDown();
+            canFirstSaleFinish.await();
+            return 10;
+        });
+        when(invoiceDAOMock.createInvoiceGroup(any())).thenAnswer(invocation -> {
+            List<PendingInvoiceDTO> sales = invocation.getArgument(0);
+            return List.of(
+                CheckoutOutcomeDTO.saved(sales.get(0), 11),
+                CheckoutOutcomeDTO.failed(sales.get(1), new InsufficientStockException(List.of()))
+            );
+        });
+
+        CompletableFuture<Integer> first = pipeline.submit(createSale("Client A"));
+        isFirstSaleSaving.await();
+        List<CompletableFuture<Integer>> queued = new ArrayList<>();
+        queued.add(pipeline.submit(createSale("Client B")));
+        queued.add(pipeline.submit(createSale("Client C")));
+        canFirstSaleFinish.countDown();
+
+        assertEquals(10, first.get());
+        assertEquals(11, queued.get(0).get());
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> queued.get(1).get());
+        assertInstanceOf(InsufficientStockException.class, exception.getCause());
+        verify(invoiceDAOMock, times(1)).createInvoiceGroup(argThat(it -> it.size() == 2));
+        pipeline.stop();
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldRejectSale() throws Exception {
+        CheckoutPipeline pipeline = new CheckoutPipeline(invoiceDAOMock, 8, 0, 1);
+        CountDownLatch isFirstSaleSaving = new CountDownLatch(1);
+        CountDownLatch canFirstSaleFinish = new CountDownLatch(1);
+        when(invoiceDAOMock.createInvoice(any())).thenAnswer(invocation -> {
+            isFirstSaleSaving.countDown();
+            canFirstSaleFinish.await();
+            return 10;
+        });
+
+        pipeline.submit(createSale("Client A"));
+        isFirstSaleSaving.await();
+        pipeline.submit(createSale("Client B"));
+
+        assertThrows(UserDisplayableException.class, () -> pipeline.submit(createSale("Client C")));
+        canFirstSaleFinish.countDown();
+        pipeline.stop();
+    }
+
+    @Test
+    void stop_ShouldSaveQueuedSalesAndRejectNewOnes() throws Exception {
+        CheckoutPipeline pipeline = new CheckoutPipeline(invoiceDAOMock, 1, 0, 16);
+        when(invoiceDAOMock.createInvoice(any())).thenReturn(10);
+
+        CompletableFuture<Integer> first = pipeline.submit(createSale("Client A"));
+        CompletableFuture<Integer> second = pipeline.submit(createSale("Client B"));
+        pipeline.stop();
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertThrows(UserDisplayableException.class, () -> pipeline.submit(createSale("Client C")));
+    }
+
+    private static PendingInvoiceDTO createSale(String clientName) {
+        return new PendingInvoiceDTO(1, 7, clientName, CART_PAYLOAD, null);
+    }
+}
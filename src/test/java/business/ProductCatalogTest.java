@@ -0,0 +1,194 @@
+package business;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import ninco.business.ProductCatalog;
+import ninco.business.dao.ProductDAO;
+import ninco.business.dto.ProductDTO;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCatalogTest {
+
+    private static final long VERSION = 7;
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    @Mock private ProductDAO productDAOMock;
+
+    private ProductCatalog productCatalog;
+
+    @BeforeEach
+    void setUp() {
+        productCatalog = ProductCatalog.getInstance();
+        productCatalog.unload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productCatalog.unload();
+    }
+
+    @Test
+    void findByIDAndSearchByName_ShouldResolveIdExactNameAndWordPrefixes() throws Exception {
+        try (MockedStatic<ProductDAO> mockedDAO = mockStatic(ProductDAO.class)) {
+            mockedDAO.when(ProductDAO::getInstance).thenReturn(productDAOMock);
+            when(productDAOMock.getCatalogVersion()).thenReturn(VERSION);
+            mockStreamAll(
+                createProduct(1, "Cable USB 2m"),
+                createProduct(2, "Café Molido"),
+                createProduct(3, "Cable")
+            );
+
+            productCatalog.refreshIfChanged();
+
+            assertTrue(productCatalog.isLoaded());
+            assertEquals(2, productCatalog.findByID(2).getIDProduct());
+            assertNull(productCatalog.findByID(4));
+            assertEquals(3, productCatalog.searchByName("  CABLE ", 10).get(0).getIDProduct());
+            assertEquals(2, productCatalog.searchByName("cafe", 10).get(0).getIDProduct());
+            assertEquals(1, productCatalog.searchByName("usb", 10).get(0).getIDProduct());
+            assertEquals(1, productCatalog.searchByName("usb cab", 10).get(0).getIDProduct());
+            assertTrue(productCatalog.searchByName("Teclado", 10).isEmpty());
+            assertTrue(productCatalog.searchByName("able", 10).isEmpty());
+        }
+    }
+
+    @Test
+    void searchByName_ShouldRankExactThenPrefixThenWordMatchesAndKeepTopN() throws Exception {
+        try (MockedStatic<ProductDAO> mockedDAO = mockStatic(ProductDAO.class)) {
+            mockedDAO.when(ProductDAO::getInstance).thenReturn(productDAOMock);
+            when(productDAOMock.getCatalogVersion()).thenReturn(VERSION);
+            mockStreamAll(
+                createProduct(1, "Mouse Pad"),
+                createProduct(2, "Wireless Mouse"),
+                createProduct(3, "Mouse"),
+                createProduct(4, "Gaming Mouse"),
+                createProduct(5, "Mousepad XL")
+            );
+
+            productCatalog.refreshIfChanged();
+
+            List<ProductDTO> productList = productCatalog.searchByName("mouse", 10);
+            assertEquals(List.of(3, 1, 5, 4, 2), getIDs(productList));
+
+            List<ProductDTO> topList = productCatalog.searchByName("mouse", 2);
+            assertEquals(List.of(3, 1), getIDs(topList));
+        }
+    }
+
+    @Test
+    void refreshIfChanged_WhenVersionChanges_ShouldOnlyReloadUpdatedProducts() throws Exception {
+        try (MockedStatic<ProductDAO> mockedDAO = mockStatic(ProductDAO.class)) {
+            mockedDAO.when(ProductDAO::getInstance).thenReturn(productDAOMock);
+            when(productDAOMock.getCatalogVersion()).thenReturn(VERSION, VERSION, VERSION + 1);
+            mockStreamAll(createProduct(1, "Keyboard"));
+            when(productDAOMock.getAllChangedSince(VERSION)).thenReturn(
+                new ArrayList<>(List.of(createProduct(1, "Wireless Keyboard"), createProduct(2, "Mouse")))
+            );
+
+            productCatalog.refreshIfChanged();
+            productCatalog.refreshIfChanged();
+            productCatalog.refreshIfChanged();
+
+            verify(productDAOMock, times(1)).streamAll(any());
+            verify(productDAOMock, times(1)).getAllChangedSince(anyLong());
+            assertEquals("Wireless Keyboard", productCatalog.findByID(1).getName());
+            assertEquals(2, productCatalog.searchByName("mouse", 10).get(0).getIDProduct());
+        }
+    }
+
+    @Test
+    void findByBarcode_ShouldFollowBarcodesOfUpdatedProducts() throws Exception {
+        try (MockedStatic<ProductDAO> mockedDAO = mockStatic(ProductDAO.class)) {
+            mockedDAO.when(ProductDAO::getInstance).thenReturn(productDAOMock);
+            when(productDAOMock.getCatalogVersion()).thenReturn(VERSION, VERSION + 1);
+            mockStreamAll(
+                createProduct(1, "Keyboard", "7501031311309", "KB-01"),
+                createProduct(2, "Mouse", "MSE-01")
+            );
+            when(productDAOMock.getAllChangedSince(VERSION)).thenReturn(
+                new ArrayList<>(List.of(createProduct(1, "Keyboard", "KB-02")))
+            );
+
+            productCatalog.refreshIfChanged();
+
+            assertEquals(1, productCatalog.findByBarcode("7501031311309").getIDProduct());
+            assertEquals(2, productCatalog.findByBarcode("MSE-01").getIDProduct());
+            assertNull(productCatalog.findByBarcode("MSE-02"));
+
+            productCatalog.refreshIfChanged();
+
+            assertNull(productCatalog.findByBarcode("KB-01"));
+            assertEquals(1, productCatalog.findByBarcode("KB-02").getIDProduct());
+            assertEquals(2, productCatalog.findByBarcode("MSE-01").getIDProduct());
+        }
+    }
+
+    @Test
+    void refreshIfChanged_WhenProductsWereDeleted_ShouldDropThemAndTheirBarcodes() throws Exception {
+        try (MockedStatic<ProductDAO> mockedDAO = mockStatic(ProductDAO.class)) {
+            mockedDAO.when(ProductDAO::getInstance).thenReturn(productDAOMock);
+            when(productDAOMock.getCatalogVersion()).thenReturn(VERSION, VERSION + 1);
+            mockStreamAll(
+                createProduct(1, "Keyboard", "KB-01"),
+                createProduct(2, "Mouse", "MSE-01")
+            );
+            when(productDAOMock.getAllChangedSince(VERSION)).thenReturn(new ArrayList<>());
+            when(productDAOMock.getAllDeletedSince(VERSION)).thenReturn(new ArrayList<>(List.of(1)));
+
+            productCatalog.refreshIfChanged();
+            productCatalog.refreshIfChanged();
+
+            assertNull(productCatalog.findByID(1));
+            assertNull(productCatalog.findByBarcode("KB-01"));
+            assertTrue(productCatalog.searchByName("keyboard", 10).isEmpty());
+            assertEquals(2, productCatalog.findByBarcode("MSE-01").getIDProduct());
+        }
+    }
+
+    @Test
+    void findByID_WhenNotLoaded_ShouldThrow() {
+        assertFalse(productCatalog.isLoaded());
+        assertThrows(IllegalStateException.class, () -> productCatalog.findByID(1));
+        assertThrows(IllegalStateException.class, () -> productCatalog.searchByName("mouse", 10));
+    }
+
+    private void mockStreamAll(ProductDTO... productDTOs) throws Exception {
+        when(productDAOMock.streamAll(any())).thenAnswer(invocation -> {
+            Consumer<ProductDTO> consumer = invocation.getArgument(0);
+            for (ProductDTO productDTO : productDTOs) {
+                consumer.accept(productDTO);
+            }
+            return (long) productDTOs.length;
+        });
+    }
+
+    private static List<Integer> getIDs(List<ProductDTO> productList) {
+        List<Integer> idList = new ArrayList<>();
+        productList.forEach(it -> idList.add(it.getIDProduct()));
+        return idList;
+    }
+
+    private static ProductDTO createProduct(int id, String name) {
+        return ProductDTO.fromTrustedRow(id, name, "Description", "Brand", 1000, 5, CREATED_AT);
+    }
+
+    private static ProductDTO createProduct(int id, String name, String... barcodes) {
+        return ProductDTO.fromTrustedRow(id, name, "Description", "Brand", 1000, List.of(barcodes), 5, CREATED_AT);
+    }
+}
@@ -0,0 +1,85 @@
+package business;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import ninco.business.ProductCatalog;
+import ninco.business.ProductLookup;
+import ninco.business.dao.ProductDAO;
+import ninco.business.dto.ProductDTO;
+
+@ExtendWith(MockitoExtension.class)
+class ProductLookupTest {
+
+    @Mock private ProductDAO productDAOMock;
+
+    private ProductLookup productLookup;
+
+    @BeforeEach
+    void setUp() {
+        ProductCatalog.getInstance().unload();
+        productLookup = ProductLookup.getInstance();
+    }
+
+    @Test
+    void lookup_WhenCatalogIsNotLoaded_ShouldRouteCodesToIDAndNamesToPrefix() throws Exception {
+        ProductDTO mouse = createProduct(42, "Mouse");
+
+        try (MockedStatic<ProductDAO> mockedDAO = mockStatic(ProductDAO.class)) {
+            mockedDAO.when(ProductDAO::getInstance).thenReturn(productDAOMock);
+            when(productDAOMock.findByID(42)).thenReturn(mouse);
+            when(productDAOMock.searchByNamePrefix("Mou", 10)).thenReturn(new ArrayList<>(List.of(mouse)));
+
+            assertFalse(productLookup.lookupInMemory("42", 10).isPresent());
+            assertEquals(List.of(mouse), productLookup.lookup(" 42 ", 10));
+            assertEquals(List.of(mouse), productLookup.lookup("Mou", 10));
+            verify(productDAOMock, never()).searchByNamePrefix("42", 10);
+        }
+    }
+
+    @Test
+    void lookup_WhenCodeIsNotAProduct_ShouldSearchItAsName() throws Exception {
+        ProductDTO sevenUp = createProduct(3, "7 Up");
+
+        try (MockedStatic<ProductDAO> mockedDAO = mockStatic(ProductDAO.class)) {
+            mockedDAO.when(ProductDAO::getInstance).thenReturn(productDAOMock);
+            when(productDAOMock.findByID(7)).thenReturn(null);
+            when(productDAOMock.searchByNamePrefix("7", 10)).thenReturn(new ArrayList<>(List.of(sevenUp)));
+
+            assertEquals(List.of(sevenUp), productLookup.lookup("7", 10));
+        }
+    }
+
+    @Test
+    void lookup_WhenCodeIsABarcode_ShouldResolveItBeforeTheID() throws Exception {
+        ProductDTO water = createProduct(9, "Water");
+
+        try (MockedStatic<ProductDAO> mockedDAO = mockStatic(ProductDAO.class)) {
+            mockedDAO.when(ProductDAO::getInstance).thenReturn(productDAOMock);
+            when(productDAOMock.findByBarcode("7501031311309")).thenReturn(water);
+            when(productDAOMock.findByBarcode("wtr-500")).thenReturn(water);
+
+            assertEquals(List.of(water), productLookup.lookup("7501031311309", 10));
+            assertEquals(List.of(water), productLookup.lookup("wtr-500", 10));
+            verify(productDAOMock, never()).findByID(anyInt());
+            verify(productDAOMock, never()).searchByNamePrefix(anyString(), anyInt());
+        }
+    }
+
+    private static ProductDTO createProduct(int id, String name) {
+        return ProductDTO.fromTrustedRow(id, name, "Description", "Brand", 1000, 5, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,87 @@
+package business;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ninco.business.SearchIndex;
+import ninco.business.dto.Searchable;
+
+class SearchIndexTest {
+
+    @Test
+    void search_ShouldMatchRowsHavingEveryWordPrefixInAnyOrder() {
+        SearchIndex<Row> searchIndex = new SearchIndex<>();
+        searchIndex.reset(List.of(
+            new Row("Ana López ana@gmail.com CASHIER Centro"),
+            new Row("Luis Pérez luis@outlook.com ADMIN Centro"),
+            new Row("Ana Torres ana.t@gmail.com ADMIN Norte")
+        ));
+
+        assertEquals(List.of(0, 2), positionsOf(searchIndex.search("ANA")));
+        assertEquals(List.of(0, 2), positionsOf(searchIndex.search("gmail ana")));
+        assertEquals(List.of(2), positionsOf(searchIndex.search("  ana  adm ")));
+        assertEquals(List.of(1), positionsOf(searchIndex.search("luis@outlook")));
+        assertTrue(searchIndex.search("ana outlook").isEmpty());
+        assertTrue(searchIndex.search("orres").isEmpty());
+        assertEquals(List.of(0, 1, 2), positionsOf(searchIndex.search(" - ")));
+    }
+
+    @Test
+    void addAndSet_ShouldKeepIndexCurrent() {
+        SearchIndex<Row> searchIndex = new SearchIndex<>();
+        searchIndex.add(new Row("Keyboard Logitech"));
+        searchIndex.add(null);
+        searchIndex.add(new Row("Mouse Logitech"));
+
+        assertEquals(List.of(0, 2), positionsOf(searchIndex.search("logi")));
+
+        searchIndex.set(0, new Row("Keyboard Razer"));
+        searchIndex.set(1, new Row("Mousepad Razer"));
+
+        assertEquals(3, searchIndex.size());
+        assertEquals(List.of(2), positionsOf(searchIndex.search("logi")));
+        assertEquals(List.of(1, 2), positionsOf(searchIndex.search("mouse")));
+        assertEquals(List.of(0, 1), positionsOf(searchIndex.search("razer")));
+    }
+
+    @Test
+    void search_WhenNarrowingCandidates_ShouldMatchAsWithoutThem() {
+        SearchIndex<Row> searchIndex = new SearchIndex<>();
+        for (int i = 0; i < 200; i++) {
+            searchIndex.add(new Row((i % 2 == 0 ? "María Gómez " : "Mario Torres ") + "store" + i % 7));
+        }
+
+        BitSet previousMatches = searchIndex.search("mar");
+        for (String query : new String[] { "mari", "mario", "mario tor", "mario torres store3" }) {
+            BitSet narrowedMatches = searchIndex.search(query, previousMatches);
+
+            assertEquals(searchIndex.search(query), narrowedMatches, query);
+            previousMatches = narrowedMatches;
+        }
+        assertEquals(15, previousMatches.cardinality());
+    }
+
+    private static List<Integer> positionsOf(BitSet matches) {
+        List<Integer> positions = new ArrayList<>();
+        matches.stream().forEach(positions::add);
+        return positions;
+    }
+
+    private static class Row implements Searchable {
+        private final String searchableText;
+
+        private Row(String text) {
+            this.searchableText = text.toLowerCase();
+        }
+
+        @Override
+        public String getSearchableText() {
+            return searchableText;
+        }
+    }
+}
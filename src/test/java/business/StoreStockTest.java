@@ -0,0 +1,100 @@
+package business;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import ninco.business.StoreStock;
+import ninco.business.dao.StockDAO;
+import ninco.common.IntIntHashMap;
+
+@ExtendWith(MockitoExtension.class)
+class StoreStockTest {
+
+    private static final int STORE_ID = 1;
+    private static final String CART_ID = "cart";
+
+    @Mock private StockDAO stockDAOMock;
+
+    @Test
+    void hold_ShouldDecrementAvailableUntilReleased() throws Exception {
+        try (MockedStatic<StockDAO> mockedDAO = mockStatic(StockDAO.class)) {
+            mockedDAO.when(StockDAO::getInstance).thenReturn(stockDAOMock);
+            when(stockDAOMock.getAvailableQuantityByProductOfStore(STORE_ID, CART_ID)).thenReturn(createQuantities(10, 5));
+
+            StoreStock storeStock = StoreStock.load(STORE_ID, CART_ID);
+
+            assertTrue(storeStock.hold(10, 3));
+            assertEquals(2, storeStock.getAvailable(10));
+            assertFalse(storeStock.hold(10, 3));
+            assertEquals(2, storeStock.getAvailable(10));
+            assertFalse(storeStock.hold(11, 1));
+
+            storeStock.release(10, 3);
+
+            assertEquals(5, storeStock.getAvailable(10));
+        }
+    }
+
+    @Test
+    void reconcile_ShouldReplaceLoadedStockAndKeepHeldQuantities() throws Exception {
+        try (MockedStatic<StockDAO> mockedDAO = mockStatic(StockDAO.class)) {
+            mockedDAO.when(StockDAO::getInstance).thenReturn(stockDAOMock);
+            when(stockDAOMock.getAvailableQuantityByProductOfStore(STORE_ID, CART_ID))
+                .thenReturn(createQuantities(10, 5))
+                .thenReturn(createQuantities(10, 4));
+
+            StoreStock storeStock = StoreStock.load(STORE_ID, CART_ID);
+            storeStock.hold(10, 3);
+            storeStock.reconcile();
+
+            assertEquals(1, storeStock.getAvailable(10));
+        }
+    }
+
+    @Test
+    void holdGranted_WhenLoadedStockIsStale_ShouldHoldAnywayUntilReleased() throws Exception {
+        try (MockedStatic<StockDAO> mockedDAO = mockStatic(StockDAO.class)) {
+            mockedDAO.when(StockDAO::getInstance).thenReturn(stockDAOMock);
+            when(stockDAOMock.getAvailableQuantityByProductOfStore(STORE_ID, CART_ID))
+                .thenReturn(createQuantities(10, 2))
+                .thenReturn(createQuantities(10, 6));
+
+            StoreStock storeStock = StoreStock.load(STORE_ID, CART_ID);
+
+            assertFalse(storeStock.holdGranted(10, 3));
+            storeStock.reconcile();
+            assertEquals(3, storeStock.getAvailable(10));
+
+            storeStock.release(10, 3);
+
+            assertEquals(6, storeStock.getAvailable(10));
+        }
+    }
+
+    @Test
+    void commitHeld_ShouldRemoveHeldQuantitiesFromStock() throws Exception {
+        try (MockedStatic<StockDAO> mockedDAO = mockStatic(StockDAO.class)) {
+            mockedDAO.when(StockDAO::getInstance).thenReturn(stockDAOMock);
+            when(stockDAOMock.getAvailableQuantityByProductOfStore(STORE_ID, CART_ID)).thenReturn(createQuantities(10, 5));
+
+            StoreStock storeStock = StoreStock.load(STORE_ID, CART_ID);
+            storeStock.hold(10, 3);
+            storeStock.commitHeld();
+
+            assertEquals(2, storeStock.getAvailable(10));
+            assertTrue(storeStock.hold(10, 2));
+        }
+    }
+
+    private static IntIntHashMap createQuantities(int idProduct, int quantity) {
+        IntIntHashMap quantityByProduct = new IntIntHashMap();
+        quantityByProduct.put(idProduct, quantity);
+        return quantityByProduct;
+    }
+}
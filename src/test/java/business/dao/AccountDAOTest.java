@@ -32,6 +32,10 @@ class AccountDAOTest {
     @Mock private PreparedStatement statementMock;
     @Mock private ResultSet resultSetMock;
 
+    private static final String[] ACCOUNT_COLUMNS = {
+        "account_id", "email", "password", "role", "state", "created_at"
+    };
+
     private AccountDAO accountDAO;
 
     @BeforeEach
@@ -53,12 +57,13 @@ class AccountDAOTest {
             when(statementMock.executeQuery()).thenReturn(resultSetMock);
 
             when(resultSetMock.next()).thenReturn(true);
-            when(resultSetMock.getInt("account_id")).thenReturn(1);
-            when(resultSetMock.getString("email")).thenReturn(testEmail);
-            when(resultSetMock.getString("password")).thenReturn("hashedPass");
-            when(resultSetMock.getString("role")).thenReturn("ADMIN");
-            when(resultSetMock.getString("state")).thenReturn("ACTIVE");
-            when(resultSetMock.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(now));
+            ResultSetMocks.mockColumns(resultSetMock, ACCOUNT_COLUMNS);
+            when(resultSetMock.getInt(column("account_id"))).thenReturn(1);
+            when(resultSetMock.getString(column("email"))).thenReturn(testEmail);
+            when(resultSetMock.getString(column("password"))).thenReturn("hashedPass");
+            when(resultSetMock.getString(column("role"))).thenReturn("ADMIN");
+            when(resultSetMock.getString(column("state"))).thenReturn("ACTIVE");
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(now));
 
             AccountDTO result = accountDAO.findOne(testEmail);
 
@@ -138,4 +143,8 @@ class AccountDAOTest {
             assertFalse(result, "Should return false if count is 0");
         }
     }
-}
\ No newline at end of file
+
+    private static int column(String label) {
+        return ResultSetMocks.indexOf(ACCOUNT_COLUMNS, label);
+    }
+}
@@ -0,0 +1,61 @@
+package business.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import ninco.business.dao.AsyncDAO;
+import ninco.common.UserDisplayableException;
+
+class AsyncDAOTest {
+
+    @Test
+    void supply_ShouldCompleteWithResultOffCallingThread() throws Exception {
+        Thread callingThread = Thread.currentThread();
+
+        CompletableFuture<Thread> future = AsyncDAO.getInstance().supply(Thread::currentThread);
+
+        Thread callThread = future.get(5, TimeUnit.SECONDS);
+        assertNotSame(callingThread, callThread);
+        assertTrue(callThread.isDaemon());
+    }
+
+    @Test
+    void supply_WhenCallThrows_ShouldCompleteExceptionally() {
+        UserDisplayableException exception = new UserDisplayableException("No ha sido posible cargar.");
+
+        CompletableFuture<Object> future = AsyncDAO.getInstance().supply(() -> {
+            throw exception;
+        });
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertSame(exception, thrown.getCause());
+    }
+
+    @Test
+    void supply_WhenCancelled_ShouldDiscardResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> future = AsyncDAO.getInstance().supply(() -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "result";
+        });
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(future.cancel(false));
+        release.countDown();
+
+        assertTrue(future.isCancelled());
+    }
+}
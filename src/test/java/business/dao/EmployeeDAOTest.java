@@ -35,6 +35,10 @@ class EmployeeDAOTest {
     @Mock private CallableStatement statementMock;
     @Mock private ResultSet resultSetMock;
 
+    private static final String[] EMPLOYEE_COLUMNS = {
+        "employee_id", "account_id", "store_id", "store_name", "email", "role", "state", "name", "last_name", "created_at"
+    };
+
     private EmployeeDAO employeeDAO;
 
     @BeforeEach
@@ -50,7 +54,7 @@ class EmployeeDAOTest {
         try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
             mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
             when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
-            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
 
             employeeDAO.createOne(employeeDTO, password);
 
@@ -74,16 +78,17 @@ class EmployeeDAOTest {
             when(statementMock.executeQuery()).thenReturn(resultSetMock);
 
             when(resultSetMock.next()).thenReturn(true);
-            when(resultSetMock.getInt("employee_id")).thenReturn(1);
-            when(resultSetMock.getInt("account_id")).thenReturn(10);
-            when(resultSetMock.getInt("store_id")).thenReturn(5);
-            when(resultSetMock.getString("store_name")).thenReturn("Main Store");
-            when(resultSetMock.getString("email")).thenReturn(email);
-            when(resultSetMock.getString("role")).thenReturn("ADMIN");
-            when(resultSetMock.getString("state")).thenReturn("ACTIVE");
-            when(resultSetMock.getString("name")).thenReturn("Jane");
-            when(resultSetMock.getString("last_name")).thenReturn("Doe");
-            when(resultSetMock.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(now));
+            ResultSetMocks.mockColumns(resultSetMock, EMPLOYEE_COLUMNS);
+            when(resultSetMock.getInt(column("employee_id"))).thenReturn(1);
+            when(resultSetMock.getInt(column("account_id"))).thenReturn(10);
+            when(resultSetMock.getInt(column("store_id"))).thenReturn(5);
+            when(resultSetMock.getString(column("store_name"))).thenReturn("Main Store");
+            when(resultSetMock.getString(column("email"))).thenReturn(email);
+            when(resultSetMock.getString(column("role"))).thenReturn("ADMIN");
+            when(resultSetMock.getString(column("state"))).thenReturn("ACTIVE");
+            when(resultSetMock.getString(column("name"))).thenReturn("Jane");
+            when(resultSetMock.getString(column("last_name"))).thenReturn("Doe");
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(now));
 
             EmployeeDTO result = employeeDAO.findOne(email);
 
@@ -103,13 +108,14 @@ class EmployeeDAOTest {
             when(statementMock.executeQuery()).thenReturn(resultSetMock);
 
             when(resultSetMock.next()).thenReturn(true).thenReturn(true).thenReturn(false);
-            when(resultSetMock.getString("role")).thenReturn("CASHIER");
-            when(resultSetMock.getString("state")).thenReturn("ACTIVE");
-            when(resultSetMock.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
-            when(resultSetMock.getString("email")).thenReturn("user@test.com");
-            when(resultSetMock.getString("name")).thenReturn("User");
-            when(resultSetMock.getString("last_name")).thenReturn("Test");
-            when(resultSetMock.getString("store_name")).thenReturn("Main Store");
+            ResultSetMocks.mockColumns(resultSetMock, EMPLOYEE_COLUMNS);
+            when(resultSetMock.getString(column("role"))).thenReturn("CASHIER");
+            when(resultSetMock.getString(column("state"))).thenReturn("ACTIVE");
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+            when(resultSetMock.getString(column("email"))).thenReturn("user@test.com");
+            when(resultSetMock.getString(column("name"))).thenReturn("User");
+            when(resultSetMock.getString(column("last_name"))).thenReturn("Test");
+            when(resultSetMock.getString(column("store_name"))).thenReturn("Main Store");
 
             ArrayList<EmployeeDTO> result = employeeDAO.getAll();
 
@@ -133,4 +139,8 @@ class EmployeeDAOTest {
             verify(connectionMock).commit();
         }
     }
-}
\ No newline at end of file
+
+    private static int column(String label) {
+        return ResultSetMocks.indexOf(EMPLOYEE_COLUMNS, label);
+    }
+}
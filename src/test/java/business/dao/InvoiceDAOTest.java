@@ -0,0 +1,341 @@
+package business.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import ninco.business.dao.InvoiceDAO;
+import ninco.business.dao.StockContentionStatistics;
+import ninco.business.dto.CartItemDTO;
+import ninco.business.dto.CheckoutOutcomeDTO;
+import ninco.business.dto.PendingInvoiceDTO;
+import ninco.business.dto.ProductDTO;
+import ninco.business.dto.StockShortfallDTO;
+import ninco.common.InsufficientStockException;
+import ninco.common.UserDisplayableException;
+import ninco.db.DBConnector;
+
+@ExtendWith(MockitoExtension.class)
+class InvoiceDAOTest {
+
+    @Mock private DBConnector dbConnectorMock;
+    @Mock private Connection connectionMock;
+    @Mock private CallableStatement statementMock;
+    @Mock private Savepoint savepointMock;
+    @Mock private PreparedStatement queryStatementMock;
+    @Mock private ResultSet resultSetMock;
+
+    private InvoiceDAO invoiceDAO;
+
+    @BeforeEach
+    void setUp() {
+        invoiceDAO = InvoiceDAO.getInstance();
+    }
+
+    @Test
+    void createInvoiceTransaction_ShouldSendWholeCartInOneCall() throws SQLException, Exception {
+        List<CartItemDTO> items = List.of(
+            new CartItemDTO(createProduct(1, 1050), 2),
+            new CartItemDTO(createProduct(2, 300), 1),
+            new CartItemDTO(createProduct(1, 1050), 1)
+        );
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(statementMock.getInt(7)).thenReturn(42);
+
+            int invoiceId = invoiceDAO.createInvoiceTransaction(1, 7, "Client", items, "cart");
+
+            assertEquals(42, invoiceId);
+            verify(statementMock).setString(4, "[{\"p\":1,\"q\":3,\"u\":10.50},{\"p\":2,\"q\":1,\"u\":3.00}]");
+            verify(statementMock).setString(5, "cart");
+            verify(statementMock).registerOutParameter(7, Types.INTEGER);
+            verify(statementMock).registerOutParameter(8, Types.VARCHAR);
+            verify(statementMock, times(1)).execute();
+        }
+    }
+
+    @Test
+    void createInvoiceTransaction_WhenStockIsInsufficient_ShouldThrowUserDisplayableException() throws SQLException, Exception {
+        List<CartItemDTO> items = List.of(new CartItemDTO(createProduct(1, 1050), 2));
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(statementMock.execute()).thenThrow(new SQLException("Not enough stock to complete the sale.", "45000"));
+
+            UserDisplayableException exception = assertThrows(
+                UserDisplayableException.class,
+                () -> invoiceDAO.createInvoiceTransaction(1, 7, "Client", items, "cart")
+            );
+            assertEquals("No hay suficiente stock para completar la venta.", exception.getMessage());
+        }
+    }
+
+    @Test
+    void createInvoiceTransaction_WhenLinesAreShort_ShouldReportShortfallPerLine() throws SQLException, Exception {
+        List<CartItemDTO> items = List.of(
+            new CartItemDTO(createProduct(1, 1050), 3),
+            new CartItemDTO(createProduct(2, 300), 5)
+        );
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(statementMock.getString(8)).thenReturn("[{\"a\": 1, \"p\": 1, \"q\": 3}, {\"a\": 0, \"p\": 2, \"q\": 5}]");
+
+            InsufficientStockException exception = assertThrows(
+                InsufficientStockException.class,
+                () -> invoiceDAO.createInvoiceTransaction(1, 7, "Client", items, "cart")
+            );
+
+            List<StockShortfallDTO> shortfallList = exception.getShortfallList();
+            assertEquals(2, shortfallList.size());
+            assertEquals(1, shortfallList.get(0).getIDProduct());
+            assertEquals(1, shortfallList.get(0).getAvailable());
+            assertEquals(2, shortfallList.get(0).getMissing());
+            assertEquals(2, shortfallList.get(1).getIDProduct());
+            assertEquals(5, shortfallList.get(1).getRequested());
+            assertEquals(0, shortfallList.get(1).getAvailable());
+        }
+    }
+
+    @Test
+    void createInvoiceTransaction_ShouldSendLinesSortedByProduct() throws SQLException, Exception {
+        List<CartItemDTO> items = List.of(
+            new CartItemDTO(createProduct(9, 100), 1),
+            new CartItemDTO(createProduct(3, 200), 2)
+        );
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+
+            invoiceDAO.createInvoiceTransaction(1, 7, "Client", items, null);
+
+            verify(statementMock).setString(4, "[{\"p\":3,\"q\":2,\"u\":2.00},{\"p\":9,\"q\":1,\"u\":1.00}]");
+        }
+    }
+
+    @Test
+    void createInvoiceTransaction_WhenDeadlocked_ShouldRetryAndCountContention() throws SQLException, Exception {
+        List<CartItemDTO> items = List.of(new CartItemDTO(createProduct(501, 1050), 1));
+        StockContentionStatistics before = invoiceDAO.getContentionStatistics();
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(statementMock.execute())
+                .thenThrow(new SQLException("Deadlock found when trying to get lock", "40001", 1213))
+                .thenReturn(false);
+            when(statementMock.getInt(7)).thenReturn(43);
+
+            int invoiceId = invoiceDAO.createInvoiceTransaction(1, 7, "Client", items, "cart");
+
+            assertEquals(43, invoiceId);
+            verify(statementMock, times(2)).execute();
+        }
+
+        StockContentionStatistics after = invoiceDAO.getContentionStatistics();
+        assertEquals(before.getDeadlockCount() + 1, after.getDeadlockCount());
+        assertEquals(before.getRetryCount() + 1, after.getRetryCount());
+        assertEquals(1, after.getProductContention(501).getRetryCount());
+        assertEquals(0, after.getProductContention(501).getExhaustedCount());
+    }
+
+    @Test
+    void createInvoiceTransaction_WhenLockWaitKeepsTimingOut_ShouldGiveUpAfterMaxAttempts() throws SQLException, Exception {
+        List<CartItemDTO> items = List.of(new CartItemDTO(createProduct(502, 1050), 1));
+        StockContentionStatistics before = invoiceDAO.getContentionStatistics();
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(statementMock.execute())
+                .thenThrow(new SQLException("Lock wait timeout exceeded; try restarting transaction", "HY000", 1205));
+
+            assertThrows(
+                UserDisplayableException.class,
+                () -> invoiceDAO.createInvoiceTransaction(1, 7, "Client", items, "cart")
+            );
+            verify(statementMock, times(3)).execute();
+        }
+
+        StockContentionStatistics after = invoiceDAO.getContentionStatistics();
+        assertEquals(before.getLockWaitTimeoutCount() + 3, after.getLockWaitTimeoutCount());
+        assertEquals(before.getExhaustedCount() + 1, after.getExhaustedCount());
+        assertEquals(2, after.getProductContention(502).getRetryCount());
+        assertEquals(1, after.getProductContention(502).getExhaustedCount());
+    }
+
+    @Test
+    void createInvoice_WhenRetried_ShouldSendSameKeyEveryTime() throws SQLException, Exception {
+        PendingInvoiceDTO sale = new PendingInvoiceDTO(1, 7, "Client", "[{\"p\":503,\"q\":1,\"u\":10.50}]", null);
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(statementMock.execute())
+                .thenThrow(new SQLException("Deadlock found when trying to get lock", "40001", 1213))
+                .thenReturn(false);
+            when(statementMock.getInt(7)).thenReturn(44);
+
+            assertEquals(44, invoiceDAO.createInvoice(sale));
+            verify(statementMock, times(2)).setString(6, sale.getKey());
+        }
+    }
+
+    @Test
+    void createInvoiceTransaction_ShouldGenerateNewKeyForEverySale() throws SQLException, Exception {
+        List<CartItemDTO> items = List.of(new CartItemDTO(createProduct(1, 1050), 1));
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+
+            invoiceDAO.createInvoiceTransaction(1, 7, "Client", items, null);
+            invoiceDAO.createInvoiceTransaction(1, 7, "Client", items, null);
+
+            ArgumentCaptor<String> keyCaptor = ArgumentCaptor.forClass(String.class);
+            verify(statementMock, times(2)).setString(eq(6), keyCaptor.capture());
+            assertNotNull(keyCaptor.getAllValues().get(0));
+            assertNotEquals(keyCaptor.getAllValues().get(0), keyCaptor.getAllValues().get(1));
+        }
+    }
+
+    @Test
+    void createInvoiceGroup_ShouldSaveEverySaleWithOneCommit() throws SQLException, Exception {
+        List<PendingInvoiceDTO> sales = List.of(createSale("Client A"), createSale("Client B"));
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(connectionMock.setSavepoint()).thenReturn(savepointMock);
+            when(statementMock.getInt(7)).thenReturn(50, 51);
+
+            List<CheckoutOutcomeDTO> outcomeList = invoiceDAO.createInvoiceGroup(sales);
+
+            assertEquals(50, outcomeList.get(0).getIDInvoice());
+            assertEquals(51, outcomeList.get(1).getIDInvoice());
+            verify(connectionMock, times(1)).prepareCall(anyString());
+            verify(connectionMock).setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            verify(connectionMock).setAutoCommit(false);
+            verify(statementMock, times(2)).execute();
+            verify(connectionMock, times(1)).commit();
+        }
+    }
+
+    @Test
+    void createInvoiceGroup_WhenStockOfOneSaleRunsOut_ShouldRollBackOnlyThatSale() throws SQLException, Exception {
+        List<PendingInvoiceDTO> sales = List.of(createSale("Client A"), createSale("Client B"), createSale("Client C"));
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(connectionMock.setSavepoint()).thenReturn(savepointMock);
+            when(statementMock.execute())
+                .thenReturn(false)
+                .thenThrow(new SQLException("Not enough stock to complete the sale.", "45000"))
+                .thenReturn(false);
+            when(statementMock.getInt(7)).thenReturn(60, 61);
+
+            List<CheckoutOutcomeDTO> outcomeList = invoiceDAO.createInvoiceGroup(sales);
+
+            assertTrue(outcomeList.get(0).isSaved());
+            assertFalse(outcomeList.get(1).isSaved());
+            assertInstanceOf(InsufficientStockException.class, outcomeList.get(1).getFailure());
+            assertEquals(61, outcomeList.get(2).getIDInvoice());
+            verify(connectionMock, times(1)).rollback(savepointMock);
+            verify(connectionMock, times(1)).commit();
+        }
+    }
+
+    @Test
+    void createInvoiceGroup_WhenKeyOfOneSaleIsDuplicated_ShouldReturnItsSavedInvoice() throws SQLException, Exception {
+        List<PendingInvoiceDTO> sales = List.of(createSale("Client A"), createSale("Client B"));
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(queryStatementMock);
+            when(connectionMock.setSavepoint()).thenReturn(savepointMock);
+            when(statementMock.execute())
+                .thenThrow(new SQLException("Duplicate entry for key 'idx_invoice_key'", "23000", 1062))
+                .thenReturn(false);
+            when(statementMock.getInt(7)).thenReturn(81);
+            when(queryStatementMock.executeQuery()).thenReturn(resultSetMock);
+            when(resultSetMock.next()).thenReturn(true);
+            when(resultSetMock.getInt(1)).thenReturn(80);
+
+            List<CheckoutOutcomeDTO> outcomeList = invoiceDAO.createInvoiceGroup(sales);
+
+            assertTrue(outcomeList.get(0).isSaved());
+            assertEquals(80, outcomeList.get(0).getIDInvoice());
+            assertEquals(81, outcomeList.get(1).getIDInvoice());
+            verify(queryStatementMock).setString(1, sales.get(0).getKey());
+            verify(connectionMock, times(1)).rollback(savepointMock);
+            verify(connectionMock, times(1)).commit();
+        }
+    }
+
+    @Test
+    void createInvoiceGroup_WhenGroupDeadlocks_ShouldSaveEverySaleOnItsOwn() throws SQLException, Exception {
+        List<PendingInvoiceDTO> sales = List.of(createSale("Client A"), createSale("Client B"));
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(connectionMock.setSavepoint()).thenReturn(savepointMock);
+            when(statementMock.execute())
+                .thenThrow(new SQLException("Deadlock found when trying to get lock", "40001", 1213))
+                .thenReturn(false);
+            when(statementMock.getInt(7)).thenReturn(70, 71);
+
+            List<CheckoutOutcomeDTO> outcomeList = invoiceDAO.createInvoiceGroup(sales);
+
+            assertEquals(70, outcomeList.get(0).getIDInvoice());
+            assertEquals(71, outcomeList.get(1).getIDInvoice());
+            verify(connectionMock, never()).commit();
+            verify(statementMock, times(2)).setString(6, sales.get(0).getKey());
+        }
+    }
+
+    private static PendingInvoiceDTO createSale(String clientName) {
+        return new PendingInvoiceDTO(1, 7, clientName, "[{\"p\":504,\"q\":1,\"u\":10.50}]", null);
+    }
+
+    private static ProductDTO createProduct(int id, long priceCents) throws Exception {
+        return new ProductDTO(id, "Product " + id, "Description", "Brand", priceCents, 10, LocalDateTime.now());
+    }
+}
@@ -11,6 +11,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,6 +20,8 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import ninco.business.dao.Page;
+import ninco.business.dao.PageRequest;
 import ninco.business.dao.ProductDAO;
 import ninco.business.dto.ProductDTO;
 import ninco.db.DBConnector;
@@ -31,6 +34,10 @@ class ProductDAOTest {
     @Mock private CallableStatement statementMock;
     @Mock private ResultSet resultSetMock;
 
+    private static final String[] PRODUCT_COLUMNS = {
+        "product_id", "name", "description", "brand", "price_cents", "barcodes", "stock", "created_at"
+    };
+
     private ProductDAO productDAO;
 
     @BeforeEach
@@ -45,13 +52,13 @@ class ProductDAOTest {
         try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
             mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
             when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
-            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
 
             productDAO.createOne(productDTO);
 
             verify(statementMock).setString(1, "Laptop");
-            verify(statementMock).setFloat(4, 1500.00f);
-            verify(statementMock).executeUpdate();
+            verify(statementMock).setLong(4, 150000L);
+            verify(statementMock, times(2)).executeUpdate();
         }
     }
 
@@ -64,13 +71,14 @@ class ProductDAOTest {
             when(statementMock.executeQuery()).thenReturn(resultSetMock);
 
             when(resultSetMock.next()).thenReturn(true).thenReturn(false);
-            when(resultSetMock.getInt("product_id")).thenReturn(1);
-            when(resultSetMock.getString("name")).thenReturn("Mouse");
-            when(resultSetMock.getString("description")).thenReturn("Optical Mouse");
-            when(resultSetMock.getString("brand")).thenReturn("Logitech");
-            when(resultSetMock.getFloat("price")).thenReturn(20.0f);
-            when(resultSetMock.getInt("stock")).thenReturn(100);
-            when(resultSetMock.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+            ResultSetMocks.mockColumns(resultSetMock, PRODUCT_COLUMNS);
+            when(resultSetMock.getInt(column("product_id"))).thenReturn(1);
+            when(resultSetMock.getString(column("name"))).thenReturn("Mouse");
+            when(resultSetMock.getString(column("description"))).thenReturn("Optical Mouse");
+            when(resultSetMock.getString(column("brand"))).thenReturn("Logitech");
+            when(resultSetMock.getLong(column("price_cents"))).thenReturn(2000L);
+            when(resultSetMock.getInt(column("stock"))).thenReturn(100);
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
 
             ArrayList<ProductDTO> result = productDAO.getAll();
 
@@ -81,19 +89,165 @@ class ProductDAOTest {
 
     @Test
     void updateOne_WhenSuccessful_ShouldReturnFalse() throws SQLException, Exception {
-        ProductDTO original = new ProductDTO(1, "Old", "Old Desc", "Old Brand", 10.0f, 5, LocalDateTime.now());
-        ProductDTO updated = new ProductDTO(1, "New", "New Desc", "New Brand", 15.0f, 5, LocalDateTime.now());
+        ProductDTO original = new ProductDTO(1, "Old", "Old Desc", "Old Brand", 1000, 5, LocalDateTime.now());
+        ProductDTO updated = new ProductDTO(1, "New", "New Desc", "New Brand", 1500, 5, LocalDateTime.now());
 
         try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
             mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
             when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
-            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
             when(statementMock.getUpdateCount()).thenReturn(1);
 
             boolean failed = productDAO.updateOne(updated, original);
 
             assertFalse(failed);
-            verify(statementMock).executeUpdate();
+            verify(statementMock, times(3)).executeUpdate();
+            verify(statementMock).setInt(1, 1);
+            verify(connectionMock).commit();
+        }
+    }
+
+    @Test
+    void getPage_WhenMoreRowsFollow_ShouldReturnCursorOfLastRow() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+
+            when(resultSetMock.next()).thenReturn(true, true, true);
+            ResultSetMocks.mockColumns(resultSetMock, PRODUCT_COLUMNS);
+            when(resultSetMock.getInt(column("product_id"))).thenReturn(1, 2);
+            when(resultSetMock.getString(column("name"))).thenReturn("Keyboard", "Mouse");
+            when(resultSetMock.getString(column("description"))).thenReturn("Mechanical Keyboard", "Optical Mouse");
+            when(resultSetMock.getString(column("brand"))).thenReturn("Logitech");
+            when(resultSetMock.getLong(column("price_cents"))).thenReturn(2000L);
+            when(resultSetMock.getInt(column("stock"))).thenReturn(100);
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+            when(resultSetMock.getObject("name")).thenReturn("Mouse");
+            when(resultSetMock.getObject("product_id")).thenReturn(2);
+
+            Page<ProductDTO> page = productDAO.getPage(PageRequest.firstPage(ProductDAO.SORT_BY_NAME, 2));
+
+            assertEquals(2, page.getItems().size());
+            assertTrue(page.hasNext());
+            verify(statementMock).setInt(1, 3);
+
+            productDAO.getPage(page.getNextPageRequest());
+
+            verify(statementMock).setObject(1, "Mouse");
+            verify(statementMock).setObject(2, 2);
+            verify(statementMock).setInt(3, 3);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void getPage_WhenLastPage_ShouldNotHaveNext() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+
+            when(resultSetMock.next()).thenReturn(false);
+
+            Page<ProductDTO> page = productDAO.getPage(PageRequest.firstPage(ProductDAO.SORT_BY_ID, 50));
+
+            assertTrue(page.getItems().isEmpty());
+            assertFalse(page.hasNext());
+        }
+    }
+
+    @Test
+    void streamAll_ShouldStreamEveryRowToConsumer() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY)))
+                .thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+
+            when(resultSetMock.next()).thenReturn(true, true, false);
+            ResultSetMocks.mockColumns(resultSetMock, PRODUCT_COLUMNS);
+            when(resultSetMock.getInt(column("product_id"))).thenReturn(1, 2);
+            when(resultSetMock.getString(column("name"))).thenReturn("Keyboard", "Mouse");
+            when(resultSetMock.getString(column("description"))).thenReturn("Mechanical Keyboard", "Optical Mouse");
+            when(resultSetMock.getString(column("brand"))).thenReturn("Logitech");
+            when(resultSetMock.getLong(column("price_cents"))).thenReturn(2000L);
+            when(resultSetMock.getInt(column("stock"))).thenReturn(100);
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+
+            ArrayList<ProductDTO> streamed = new ArrayList<>();
+            long rowCount = productDAO.streamAll(streamed::add);
+
+            verify(statementMock).setFetchSize(Integer.MIN_VALUE);
+            verify(resultSetMock).close();
+            verify(statementMock).close();
+            assertEquals(2, rowCount);
+            assertEquals("Mouse", streamed.get(1).getName());
+        }
+    }
+
+    @Test
+    void searchByNamePrefix_ShouldEscapeWildcardsAndLimitRows() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+
+            when(resultSetMock.next()).thenReturn(false);
+
+            assertTrue(productDAO.searchByNamePrefix("50% off_!", 10).isEmpty());
+
+            verify(statementMock).setString(1, "50!% off!_!!%");
+            verify(statementMock).setInt(2, 10);
+        }
+    }
+
+    @Test
+    void findByID_WhenMissing_ShouldReturnNull() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+
+            when(resultSetMock.next()).thenReturn(false);
+
+            assertNull(productDAO.findByID(42));
+            verify(statementMock).setInt(1, 42);
+        }
+    }
+
+    @Test
+    void findByBarcode_ShouldMatchUpperCasedBarcodeAndMapBarcodes() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+
+            when(resultSetMock.next()).thenReturn(true);
+            ResultSetMocks.mockColumns(resultSetMock, PRODUCT_COLUMNS);
+            when(resultSetMock.getInt(column("product_id"))).thenReturn(7);
+            when(resultSetMock.getString(column("name"))).thenReturn("Mouse");
+            when(resultSetMock.getString(column("description"))).thenReturn("Optical Mouse");
+            when(resultSetMock.getString(column("brand"))).thenReturn("Logitech");
+            when(resultSetMock.getLong(column("price_cents"))).thenReturn(2000L);
+            when(resultSetMock.getString(column("barcodes"))).thenReturn("7501031311309 MSE-01");
+            when(resultSetMock.getInt(column("stock"))).thenReturn(100);
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+
+            ProductDTO productDTO = productDAO.findByBarcode("mse-01");
+
+            verify(statementMock).setString(1, "MSE-01");
+            assertEquals(7, productDTO.getIDProduct());
+            assertEquals(Arrays.asList("7501031311309", "MSE-01"), productDTO.getBarcodes());
+        }
+    }
+
+    private static int column(String label) {
+        return ResultSetMocks.indexOf(PRODUCT_COLUMNS, label);
+    }
+}
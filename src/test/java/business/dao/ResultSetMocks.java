@@ -0,0 +1,40 @@
+package business.dao;
+
+import static org.mockito.Mockito.*;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Helpers to mock the columns of a ResultSet for DAOs that map rows by index.
+ * DAOs compile their row mapper once per query and cache it, so the metadata is stubbed leniently:
+ * only the first test that runs a query reads it.
+ */
+final class ResultSetMocks {
+
+    private ResultSetMocks() {
+    }
+
+    static void mockColumns(ResultSet resultSetMock, String... labels) throws SQLException {
+        ResultSetMetaData metaDataMock = mock(ResultSetMetaData.class, withSettings().lenient());
+
+        when(metaDataMock.getColumnCount()).thenReturn(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            when(metaDataMock.getColumnLabel(i + 1)).thenReturn(labels[i]);
+        }
+
+        lenient().when(resultSetMock.getMetaData()).thenReturn(metaDataMock);
+    }
+
+    static int indexOf(String[] labels, String label) {
+        int index = Arrays.asList(labels).indexOf(label);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown column: " + label);
+        }
+
+        return index + 1;
+    }
+}
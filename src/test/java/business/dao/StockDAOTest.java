@@ -19,9 +19,12 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import ninco.business.dao.Page;
+import ninco.business.dao.PageRequest;
 import ninco.business.dao.StockDAO;
 import ninco.business.dto.StockDTO;
 import ninco.business.dto.StoreDTO;
+import ninco.common.IntIntHashMap;
 import ninco.common.UserDisplayableException;
 import ninco.db.DBConnector;
 
@@ -33,6 +36,10 @@ class StockDAOTest {
     @Mock private CallableStatement statementMock;
     @Mock private ResultSet resultSetMock;
 
+    private static final String[] STOCK_COLUMNS = {
+        "product_id", "store_id", "quantity", "product_name", "store_name", "price_cents", "created_at"
+    };
+
     private StockDAO stockDAO;
 
     @BeforeEach
@@ -84,13 +91,14 @@ class StockDAOTest {
             when(statementMock.executeQuery()).thenReturn(resultSetMock);
 
             when(resultSetMock.next()).thenReturn(true).thenReturn(false);
-            when(resultSetMock.getInt("product_id")).thenReturn(1);
-            when(resultSetMock.getInt("store_id")).thenReturn(1);
-            when(resultSetMock.getString("product_name")).thenReturn("Product A");
-            when(resultSetMock.getString("store_name")).thenReturn("Store A");
-            when(resultSetMock.getInt("quantity")).thenReturn(100);
-            when(resultSetMock.getFloat("price")).thenReturn(10.0f);
-            when(resultSetMock.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+            ResultSetMocks.mockColumns(resultSetMock, STOCK_COLUMNS);
+            when(resultSetMock.getInt(column("product_id"))).thenReturn(1);
+            when(resultSetMock.getInt(column("store_id"))).thenReturn(1);
+            when(resultSetMock.getString(column("product_name"))).thenReturn("Product A");
+            when(resultSetMock.getString(column("store_name"))).thenReturn("Store A");
+            when(resultSetMock.getInt(column("quantity"))).thenReturn(100);
+            when(resultSetMock.getLong(column("price_cents"))).thenReturn(1000L);
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
 
             ArrayList<StockDTO> result = stockDAO.getAll();
 
@@ -111,13 +119,14 @@ class StockDAOTest {
             when(statementMock.executeQuery()).thenReturn(resultSetMock);
 
             when(resultSetMock.next()).thenReturn(true).thenReturn(false);
-            when(resultSetMock.getInt("product_id")).thenReturn(1);
-            when(resultSetMock.getInt("store_id")).thenReturn(1);
-            when(resultSetMock.getString("product_name")).thenReturn("Product A");
-            when(resultSetMock.getString("store_name")).thenReturn("Store A");
-            when(resultSetMock.getInt("quantity")).thenReturn(50);
-            when(resultSetMock.getFloat("price")).thenReturn(10.0f);
-            when(resultSetMock.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+            ResultSetMocks.mockColumns(resultSetMock, STOCK_COLUMNS);
+            when(resultSetMock.getInt(column("product_id"))).thenReturn(1);
+            when(resultSetMock.getInt(column("store_id"))).thenReturn(1);
+            when(resultSetMock.getString(column("product_name"))).thenReturn("Product A");
+            when(resultSetMock.getString(column("store_name"))).thenReturn("Store A");
+            when(resultSetMock.getInt(column("quantity"))).thenReturn(50);
+            when(resultSetMock.getLong(column("price_cents"))).thenReturn(1000L);
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
 
             ArrayList<StockDTO> result = stockDAO.getAllByStore(storeDTO);
 
@@ -126,4 +135,83 @@ class StockDAOTest {
             assertEquals(50, result.get(0).getQuantity());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void getPageByStore_ShouldBindStoreBeforeLimit() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+
+            when(resultSetMock.next()).thenReturn(true).thenReturn(false);
+            ResultSetMocks.mockColumns(resultSetMock, STOCK_COLUMNS);
+            when(resultSetMock.getInt(column("product_id"))).thenReturn(1);
+            when(resultSetMock.getInt(column("store_id"))).thenReturn(1);
+            when(resultSetMock.getString(column("product_name"))).thenReturn("Product A");
+            when(resultSetMock.getString(column("store_name"))).thenReturn("Store A");
+            when(resultSetMock.getInt(column("quantity"))).thenReturn(50);
+            when(resultSetMock.getLong(column("price_cents"))).thenReturn(1000L);
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+
+            Page<StockDTO> page = stockDAO.getPageByStore(1, PageRequest.firstPage(StockDAO.SORT_BY_STORE, 10));
+
+            verify(connectionMock).prepareStatement(argThat((String sql) ->
+                sql.contains("FROM Stock ST") && !sql.contains("CompleteStockView")
+            ));
+            verify(statementMock).setObject(1, 1);
+            verify(statementMock).setInt(2, 11);
+            assertEquals(1, page.getItems().size());
+            assertFalse(page.hasNext());
+        }
+    }
+
+    @Test
+    void getAvailableQuantityByProductOfStore_ShouldMapQuantitiesByProductId() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+
+            when(resultSetMock.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+            when(resultSetMock.getInt(1)).thenReturn(7).thenReturn(9);
+            when(resultSetMock.getInt(2)).thenReturn(50).thenReturn(0);
+
+            IntIntHashMap quantityByProduct = stockDAO.getAvailableQuantityByProductOfStore(3, "cart");
+
+            verify(statementMock).setString(1, "cart");
+            verify(statementMock).setInt(2, 3);
+            assertEquals(2, quantityByProduct.size());
+            assertEquals(50, quantityByProduct.get(7, -1));
+            assertEquals(0, quantityByProduct.get(9, -1));
+            assertEquals(-1, quantityByProduct.get(8, -1));
+        }
+    }
+
+    @Test
+    void getCurrentStockByProduct_ShouldExcludeTheHoldsOfTheGivenCartOnly() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+            when(resultSetMock.next()).thenReturn(true);
+            when(resultSetMock.getInt("quantity")).thenReturn(12);
+
+            int quantity = stockDAO.getCurrentStockByProduct(3, 7, "cart");
+
+            verify(connectionMock).prepareStatement(argThat((String sql) ->
+                sql.contains("StockReservation R") && sql.contains("R.cart_id <> ?")
+            ));
+            verify(statementMock).setString(1, "cart");
+            verify(statementMock).setInt(2, 3);
+            verify(statementMock).setInt(3, 7);
+            assertEquals(12, quantity);
+        }
+    }
+
+    private static int column(String label) {
+        return ResultSetMocks.indexOf(STOCK_COLUMNS, label);
+    }
+}
@@ -0,0 +1,137 @@
+package business.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import ninco.business.dao.StockReservationDAO;
+import ninco.common.UserDisplayableException;
+import ninco.db.DBConnector;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationDAOTest {
+
+    @Mock private DBConnector dbConnectorMock;
+    @Mock private Connection connectionMock;
+    @Mock private CallableStatement statementMock;
+    @Mock private ResultSet resultSetMock;
+
+    private StockReservationDAO stockReservationDAO;
+
+    @BeforeEach
+    void setUp() {
+        stockReservationDAO = StockReservationDAO.getInstance();
+    }
+
+    @Test
+    void hold_WhenStockIsAvailable_ShouldInsertHoldAndCommit() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockDatabase(mockedDB);
+            when(resultSetMock.next()).thenReturn(true);
+            // No shards, 5 units in the Stock row and 2 held by other carts.
+            when(resultSetMock.getInt(1)).thenReturn(0, 5, 2);
+
+            boolean isHeld = stockReservationDAO.hold("cart", 1, 7, 3, 900);
+
+            assertTrue(isHeld);
+            verify(connectionMock).setAutoCommit(false);
+            verify(statementMock).setString(1, "cart");
+            verify(statementMock).setInt(4, 3);
+            verify(statementMock).setInt(5, 900);
+            verify(statementMock, times(2)).executeUpdate();
+            verify(connectionMock).commit();
+        }
+    }
+
+    @Test
+    void hold_WhenProductHasShards_ShouldCountShardStock() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockDatabase(mockedDB);
+            when(resultSetMock.next()).thenReturn(true);
+            // 2 shards holding 4 units, 1 unit left in the Stock row and 2 held by other carts.
+            when(resultSetMock.getInt(1)).thenReturn(2, 1, 2);
+            when(resultSetMock.getInt(2)).thenReturn(4);
+
+            boolean isHeld = stockReservationDAO.hold("cart", 1, 7, 3, 900);
+
+            assertTrue(isHeld);
+            verify(statementMock).setInt(4, 3);
+            verify(connectionMock).commit();
+        }
+    }
+
+    @Test
+    void hold_WhenStoreDoesNotStockProduct_ShouldNotInsertHold() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeUpdate()).thenThrow(new SQLException("Foreign key", "23000", 1452));
+
+            assertFalse(stockReservationDAO.hold("cart", 1, 7, 1, 900));
+            verify(statementMock, never()).executeQuery();
+            verify(connectionMock).rollback();
+        }
+    }
+
+    @Test
+    void hold_WhenOtherCartsHoldTheStock_ShouldNotInsertHold() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockDatabase(mockedDB);
+            when(resultSetMock.next()).thenReturn(true);
+            when(resultSetMock.getInt(1)).thenReturn(0, 5, 3);
+
+            boolean isHeld = stockReservationDAO.hold("cart", 1, 7, 3, 900);
+
+            assertFalse(isHeld);
+            verify(statementMock, never()).setString(1, "cart");
+            verify(connectionMock).rollback();
+        }
+    }
+
+    @Test
+    void releaseQuantity_ShouldDecrementHoldOfProduct() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+
+            stockReservationDAO.releaseQuantity("cart", 7, 2);
+
+            verify(statementMock).setInt(1, 2);
+            verify(statementMock).setString(2, "cart");
+            verify(statementMock).setInt(3, 7);
+            verify(statementMock).executeUpdate();
+        }
+    }
+
+    @Test
+    void releaseAll_WhenSQLExceptionOccurs_ShouldThrowUserDisplayableException() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenThrow(new SQLException("DB Error", "S1000"));
+
+            assertThrows(UserDisplayableException.class, () -> stockReservationDAO.releaseAll("cart"));
+        }
+    }
+
+    private void mockDatabase(MockedStatic<DBConnector> mockedDB) throws Exception {
+        mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+        when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+        when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+        when(statementMock.executeQuery()).thenReturn(resultSetMock);
+    }
+}
@@ -0,0 +1,111 @@
+package business.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import ninco.business.dao.StockShardDAO;
+import ninco.db.DBConnector;
+
+@ExtendWith(MockitoExtension.class)
+class StockShardDAOTest {
+
+    @Mock private DBConnector dbConnectorMock;
+    @Mock private Connection connectionMock;
+    @Mock private PreparedStatement statementMock;
+    @Mock private ResultSet resultSetMock;
+
+    private StockShardDAO stockShardDAO;
+
+    @BeforeEach
+    void setUp() {
+        stockShardDAO = StockShardDAO.getInstance();
+    }
+
+    @Test
+    void rebalance_WhenShardsDriftedApart_ShouldSpreadStockEvenly() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockDatabase(mockedDB);
+            // Shards with 1 and 5 units, then 3 units left in the Stock row.
+            when(resultSetMock.next()).thenReturn(true, true, false, true);
+            when(resultSetMock.getInt(1)).thenReturn(1, 5, 3);
+
+            boolean isMoved = stockShardDAO.rebalance(1, 26);
+
+            assertTrue(isMoved);
+            verify(statementMock).setInt(1, 5);
+            verify(statementMock).setInt(1, 4);
+            verify(statementMock, times(2)).addBatch();
+            verify(statementMock).executeBatch();
+            verify(statementMock).setInt(1, 0);
+            verify(statementMock).executeUpdate();
+            verify(connectionMock).commit();
+        }
+    }
+
+    @Test
+    void rebalance_WhenShardsAreBalanced_ShouldNotWriteAnything() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockDatabase(mockedDB);
+            when(resultSetMock.next()).thenReturn(true, true, false, true);
+            when(resultSetMock.getInt(1)).thenReturn(4, 3, 0);
+
+            assertFalse(stockShardDAO.rebalance(1, 26));
+            verify(statementMock, never()).executeBatch();
+            verify(statementMock, never()).executeUpdate();
+            verify(connectionMock).rollback();
+        }
+    }
+
+    @Test
+    void enableSharding_ShouldSplitStockIntoShards() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockDatabase(mockedDB);
+            // No shards yet, 10 units in the Stock row.
+            when(resultSetMock.next()).thenReturn(false, true);
+            when(resultSetMock.getInt(1)).thenReturn(10);
+
+            boolean isSharded = stockShardDAO.enableSharding(1, 7, 4);
+
+            assertTrue(isSharded);
+            verify(statementMock, times(4)).addBatch();
+            verify(statementMock, times(2)).setInt(4, 3);
+            verify(statementMock, times(2)).setInt(4, 2);
+            verify(statementMock).executeBatch();
+            verify(connectionMock).commit();
+        }
+    }
+
+    @Test
+    void enableSharding_WhenStoreDoesNotStockProduct_ShouldNotCreateShards() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockDatabase(mockedDB);
+            when(resultSetMock.next()).thenReturn(false, false);
+
+            assertFalse(stockShardDAO.enableSharding(1, 7, 4));
+            verify(statementMock, never()).executeBatch();
+            verify(statementMock, never()).setInt(eq(4), anyInt());
+            verify(connectionMock).rollback();
+        }
+    }
+
+    private void mockDatabase(MockedStatic<DBConnector> mockedDB) throws Exception {
+        mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+        when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+        when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+        when(statementMock.executeQuery()).thenReturn(resultSetMock);
+    }
+}
@@ -32,11 +32,16 @@ class StoreDAOTest {
     @Mock private CallableStatement statementMock;
     @Mock private ResultSet resultSetMock;
 
+    private static final String[] STORE_COLUMNS = {
+        "store_id", "name", "address", "phone", "created_at", "employee_count"
+    };
+
     private StoreDAO storeDAO;
 
     @BeforeEach
     void setUp() {
         storeDAO = StoreDAO.getInstance();
+        storeDAO.invalidateCache();
     }
 
     @Test
@@ -46,7 +51,7 @@ class StoreDAOTest {
         try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
             mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
             when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
-            when(connectionMock.prepareCall(anyString())).thenReturn(statementMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
 
             storeDAO.createOne(storeDTO);
 
@@ -67,12 +72,13 @@ class StoreDAOTest {
             when(statementMock.executeQuery()).thenReturn(resultSetMock);
 
             when(resultSetMock.next()).thenReturn(true);
-            when(resultSetMock.getInt("store_id")).thenReturn(1);
-            when(resultSetMock.getString("name")).thenReturn("Store 1");
-            when(resultSetMock.getString("address")).thenReturn(validAddress);
-            when(resultSetMock.getString("phone")).thenReturn(phone);
-            when(resultSetMock.getInt("employee_count")).thenReturn(5);
-            when(resultSetMock.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+            ResultSetMocks.mockColumns(resultSetMock, STORE_COLUMNS);
+            when(resultSetMock.getInt(column("store_id"))).thenReturn(1);
+            when(resultSetMock.getString(column("name"))).thenReturn("Store 1");
+            when(resultSetMock.getString(column("address"))).thenReturn(validAddress);
+            when(resultSetMock.getString(column("phone"))).thenReturn(phone);
+            when(resultSetMock.getInt(column("employee_count"))).thenReturn(5);
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
 
             StoreDTO result = storeDAO.findOneByPhoneNumber(phone);
 
@@ -82,6 +88,60 @@ class StoreDAOTest {
         }
     }
 
+    @Test
+    void getOne_WhenRowWasWrittenBeforeCurrentRules_ShouldNotValidateItAgain() throws SQLException, Exception {
+        String legacyPhone = "000-0000";
+
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+
+            when(resultSetMock.next()).thenReturn(true);
+            ResultSetMocks.mockColumns(resultSetMock, STORE_COLUMNS);
+            when(resultSetMock.getInt(column("store_id"))).thenReturn(1);
+            when(resultSetMock.getString(column("name"))).thenReturn("Store 1");
+            when(resultSetMock.getString(column("address"))).thenReturn("Unknown");
+            when(resultSetMock.getString(column("phone"))).thenReturn(legacyPhone);
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+
+            StoreDTO result = storeDAO.getOne(1);
+
+            assertEquals(legacyPhone, result.getPhoneNumber());
+        }
+    }
+
+    @Test
+    void getOne_WhenCalledTwice_ShouldQueryOnceUntilStoresAreUpdated() throws SQLException, Exception {
+        try (MockedStatic<DBConnector> mockedDB = mockStatic(DBConnector.class)) {
+            mockedDB.when(DBConnector::getInstance).thenReturn(dbConnectorMock);
+            when(dbConnectorMock.getConnection()).thenReturn(connectionMock);
+            when(connectionMock.prepareStatement(anyString())).thenReturn(statementMock);
+            when(statementMock.executeQuery()).thenReturn(resultSetMock);
+
+            when(resultSetMock.next()).thenReturn(true);
+            ResultSetMocks.mockColumns(resultSetMock, STORE_COLUMNS);
+            when(resultSetMock.getInt(column("store_id"))).thenReturn(7);
+            when(resultSetMock.getString(column("name"))).thenReturn("Store 7");
+            when(resultSetMock.getString(column("address"))).thenReturn("123 Main Street Avenue");
+            when(resultSetMock.getString(column("phone"))).thenReturn("5551234567");
+            when(resultSetMock.getTimestamp(column("created_at"))).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+
+            StoreDTO first = storeDAO.getOne(7);
+            StoreDTO second = storeDAO.getOne(7);
+
+            assertSame(first, second);
+            verify(statementMock, times(1)).executeQuery();
+
+            storeDAO.updateOne(first, first);
+            storeDAO.getOne(7);
+
+            verify(statementMock, times(2)).executeQuery();
+            assertEquals(1, storeDAO.getCacheStatistics().get(0).getHitCount());
+        }
+    }
+
     @Test
     void getOne_WhenNotExists_ShouldThrowException() throws SQLException, Exception {
         int id = 99;
@@ -97,4 +157,8 @@ class StoreDAOTest {
             assertThrows(UserDisplayableException.class, () -> storeDAO.getOne(id));
         }
     }
-}
\ No newline at end of file
+
+    private static int column(String label) {
+        return ResultSetMocks.indexOf(STORE_COLUMNS, label);
+    }
+}
@@ -0,0 +1,50 @@
+package common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import ninco.common.Money;
+
+class MoneyTest {
+
+    @Test
+    void parse_ShouldReadAmountAsCents() {
+        assertEquals(1050, Money.parse("10.50"));
+        assertEquals(1050, Money.parse("10.5"));
+        assertEquals(1000, Money.parse(" 10 "));
+        assertEquals(5, Money.parse(".05"));
+        assertEquals(-1999, Money.parse("-19.99"));
+    }
+
+    @Test
+    void parse_WhenAmountIsInvalid_ShouldThrowNumberFormatException() {
+        assertThrows(NumberFormatException.class, () -> Money.parse(null));
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+        assertThrows(NumberFormatException.class, () -> Money.parse("."));
+        assertThrows(NumberFormatException.class, () -> Money.parse("10.505"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1,000.00"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("99999999999999999999"));
+    }
+
+    @Test
+    void format_ShouldWriteTwoDecimals() {
+        assertEquals("10.50", Money.format(1050));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("0.00", Money.format(0));
+        assertEquals("-19.99", Money.format(-1999));
+        assertEquals("-0.05", Money.format(-5));
+    }
+
+    @Test
+    void times_ShouldAddUpExactly() {
+        long totalCents = 0;
+        for (int i = 0; i < 10; i++) {
+            totalCents = Money.add(totalCents, Money.times(10, 1));
+        }
+
+        assertEquals(100, totalCents);
+        assertEquals(5997, Money.times(1999, 3));
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE, 2));
+    }
+}
@@ -0,0 +1,50 @@
+package common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import ninco.common.StringIntHashMap;
+
+class StringIntHashMapTest {
+
+    @Test
+    void put_ShouldKeepEveryEntryWhileGrowing() {
+        StringIntHashMap map = new StringIntHashMap();
+
+        for (int i = 0; i < 10_000; i++) {
+            map.put("750103131" + i, i);
+        }
+
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.get("750103131" + i, -1));
+        }
+        assertFalse(map.containsKey("7501031310000000"));
+    }
+
+    @Test
+    void put_WhenKeyExists_ShouldReplaceValue() {
+        StringIntHashMap map = new StringIntHashMap(2);
+
+        map.put("KB-01", 1);
+        map.put("KB-01", 2);
+
+        assertEquals(1, map.size());
+        assertEquals(2, map.get("KB-01", -1));
+    }
+
+    @Test
+    void getAndClear_ShouldReturnDefaultValueForMissingKeys() {
+        StringIntHashMap map = new StringIntHashMap();
+        map.put("MSE-01", 0);
+
+        assertEquals(0, map.get("MSE-01", -1));
+        assertEquals(-1, map.get("mse-01", -1));
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get("MSE-01", -1));
+    }
+}
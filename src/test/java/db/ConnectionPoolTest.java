@@ -0,0 +1,162 @@
+package db;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ninco.db.ConnectionPool;
+import ninco.db.ConnectionPoolConfiguration;
+import ninco.db.ConnectionPoolStatistics;
+
+class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private static Connection createPhysicalConnectionMock() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        return connection;
+    }
+
+    @Test
+    void borrow_AfterClose_ShouldReuseSamePhysicalConnection() throws SQLException {
+        AtomicInteger created = new AtomicInteger();
+        pool = new ConnectionPool(
+            () -> {
+                created.incrementAndGet();
+                return createPhysicalConnectionMock();
+            },
+            new ConnectionPoolConfiguration(0, 2, 60_000, 60_000, 100, 1)
+        );
+
+        pool.borrow().close();
+        pool.borrow().close();
+
+        assertEquals(1, created.get());
+        ConnectionPoolStatistics statistics = pool.getStatistics();
+        assertEquals(2, statistics.getBorrowCount());
+        assertEquals(1, statistics.getIdleConnections());
+        assertEquals(0, statistics.getActiveConnections());
+    }
+
+    @Test
+    void borrow_WhenPoolIsExhausted_ShouldTimeOut() throws SQLException {
+        pool = new ConnectionPool(
+            ConnectionPoolTest::createPhysicalConnectionMock,
+            new ConnectionPoolConfiguration(0, 1, 60_000, 60_000, 50, 1)
+        );
+
+        Connection borrowed = pool.borrow();
+
+        SQLException exception = assertThrows(SQLException.class, () -> pool.borrow());
+        assertEquals("08001", exception.getSQLState());
+        assertEquals(1, pool.getStatistics().getBorrowTimeoutCount());
+        assertEquals(1, pool.getStatistics().getTotalConnections());
+
+        borrowed.close();
+        assertNotNull(pool.borrow());
+    }
+
+    @Test
+    void close_WithUncommittedTransaction_ShouldRollbackAndRestoreAutoCommit() throws SQLException {
+        Connection physical = mock(Connection.class);
+        when(physical.getAutoCommit()).thenReturn(false);
+        pool = new ConnectionPool(
+            () -> physical,
+            new ConnectionPoolConfiguration(0, 1, 60_000, 60_000, 100, 1)
+        );
+
+        Connection connection = pool.borrow();
+        connection.close();
+
+        verify(physical).rollback();
+        verify(physical).setAutoCommit(true);
+        verify(physical, never()).close();
+        assertTrue(connection.isClosed());
+    }
+
+    @Test
+    void close_WhenStaleLeaseIsClosedAgain_ShouldNotReleaseNextBorrowersConnection() throws SQLException {
+        Connection physical = createPhysicalConnectionMock();
+        pool = new ConnectionPool(
+            () -> physical,
+            new ConnectionPoolConfiguration(0, 1, 60_000, 60_000, 50, 1)
+        );
+
+        Connection stale = pool.borrow();
+        stale.close();
+        Connection current = pool.borrow();
+        stale.close();
+
+        assertNotSame(stale, current);
+        assertFalse(current.isClosed());
+        assertThrows(SQLException.class, () -> stale.setAutoCommit(false));
+        assertThrows(SQLException.class, () -> pool.borrow());
+        verify(physical, never()).setAutoCommit(false);
+
+        current.close();
+        assertEquals(1, pool.getStatistics().getIdleConnections());
+    }
+
+    @Test
+    void borrow_WhenConnectionExceededMaxLifetime_ShouldReplaceIt() throws SQLException, InterruptedException {
+        Connection first = createPhysicalConnectionMock();
+        Connection second = createPhysicalConnectionMock();
+        AtomicInteger created = new AtomicInteger();
+        pool = new ConnectionPool(
+            () -> created.getAndIncrement() == 0 ? first : second,
+            new ConnectionPoolConfiguration(0, 1, 60_000, 20, 100, 1)
+        );
+
+        Connection connection = pool.borrow();
+        Thread.sleep(30);
+        connection.close();
+        pool.borrow();
+
+        verify(first).close();
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void borrow_WhenSaturatedPoolsConnectionExpiresOnRelease_ShouldHandTheFreedSlotToWaiter() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        pool = new ConnectionPool(
+            () -> {
+                created.incrementAndGet();
+                return createPhysicalConnectionMock();
+            },
+            new ConnectionPoolConfiguration(0, 1, 60_000, 50, 5_000, 1)
+        );
+
+        Connection borrowed = pool.borrow();
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(80);
+        borrowed.close();
+
+        assertNotNull(waiter.get(1, TimeUnit.SECONDS));
+        assertEquals(2, created.get());
+        assertEquals(0, pool.getStatistics().getBorrowTimeoutCount());
+        assertEquals(1, pool.getStatistics().getTotalConnections());
+    }
+}
@@ -0,0 +1,121 @@
+package db;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ninco.db.ConnectionPool;
+import ninco.db.ConnectionPoolConfiguration;
+import ninco.db.RegisteredStatement;
+import ninco.db.StatementRegistry;
+
+class StatementCacheTest {
+
+    private static final String REGISTERED_QUERY = StatementRegistry.getInstance().register(
+        "StatementCacheTest.registered",
+        "SELECT 1 FROM StatementCacheTest WHERE id = ?"
+    );
+
+    private Connection physicalConnection;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        physicalConnection = mock(Connection.class);
+        when(physicalConnection.getAutoCommit()).thenReturn(true);
+        when(physicalConnection.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+        pool = new ConnectionPool(
+            () -> physicalConnection,
+            new ConnectionPoolConfiguration(0, 1, 60_000, 60_000, 100, 1, 8)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void prepareStatement_WithRegisteredSQL_ShouldPrepareOncePerConnection() throws SQLException {
+        RegisteredStatement registered = StatementRegistry.getInstance().find(REGISTERED_QUERY);
+        long hitsBefore = registered.getHitCount();
+        long missesBefore = registered.getMissCount();
+
+        for (int i = 0; i < 3; i++) {
+            try (
+                Connection connection = pool.borrow();
+                PreparedStatement statement = connection.prepareStatement(REGISTERED_QUERY)
+            ) {
+                statement.setInt(1, i);
+            }
+        }
+
+        verify(physicalConnection, times(1)).prepareStatement(REGISTERED_QUERY);
+        assertEquals(2, registered.getHitCount() - hitsBefore);
+        assertEquals(1, registered.getMissCount() - missesBefore);
+    }
+
+    @Test
+    void prepareStatement_WhenCachedCopyIsInUse_ShouldPrepareAnotherOne() throws SQLException {
+        try (Connection connection = pool.borrow()) {
+            PreparedStatement first = connection.prepareStatement(REGISTERED_QUERY);
+            PreparedStatement second = connection.prepareStatement(REGISTERED_QUERY);
+
+            assertNotSame(first, second);
+            verify(physicalConnection, times(2)).prepareStatement(REGISTERED_QUERY);
+        }
+    }
+
+    @Test
+    void close_WhenStaleStatementIsClosedAgain_ShouldNotResetNextUsersStatement() throws SQLException {
+        PreparedStatement physicalStatement = mock(PreparedStatement.class);
+        ResultSet physicalResultSet = mock(ResultSet.class);
+        when(physicalConnection.prepareStatement(REGISTERED_QUERY)).thenReturn(physicalStatement);
+        when(physicalStatement.executeQuery()).thenReturn(physicalResultSet);
+
+        try (Connection connection = pool.borrow()) {
+            PreparedStatement stale = connection.prepareStatement(REGISTERED_QUERY);
+            ResultSet resultSet = stale.executeQuery();
+            assertSame(stale, resultSet.getStatement());
+            stale.close();
+            verify(physicalResultSet).close();
+
+            PreparedStatement current = connection.prepareStatement(REGISTERED_QUERY);
+            current.setInt(1, 7);
+            stale.close();
+
+            assertNotSame(stale, current);
+            assertFalse(current.isClosed());
+            assertThrows(SQLException.class, () -> stale.setInt(1, 8));
+            verify(physicalStatement, times(1)).clearParameters();
+            current.close();
+            verify(physicalStatement, times(2)).clearParameters();
+        }
+    }
+
+    @Test
+    void prepareStatement_WithUnregisteredSQL_ShouldNotBeCached() throws SQLException {
+        String query = "SELECT 2 FROM StatementCacheTest";
+
+        for (int i = 0; i < 2; i++) {
+            try (
+                Connection connection = pool.borrow();
+                PreparedStatement statement = connection.prepareStatement(query)
+            ) {
+                assertNotNull(statement);
+            }
+        }
+
+        verify(physicalConnection, times(2)).prepareStatement(query);
+        assertNull(StatementRegistry.getInstance().find(query));
+    }
+}